@@ -50,9 +50,13 @@ import java.lang.reflect.Method;
 import java.nio.Buffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class BuildComposablePipeline {
@@ -61,6 +65,9 @@ public class BuildComposablePipeline {
     public static final int GEN_TRACE = 1 << 1; // default
     public static final int GEN_CUSTOM = 1 << 2;
     public static final int GEN_PROLOG_XOR_DOWNSTREAM = 1 << 3;
+    public static final int GEN_PROFILE = 1 << 4; // default
+    public static final int GEN_STATE_CACHE = 1 << 5; // default
+    public static final int GEN_RECORD = 1 << 6; // default
     int mode;
     private String outputDir;
     private String outputPackage;
@@ -119,7 +126,7 @@ public class BuildComposablePipeline {
             outputName = null; // TBD ..
             classPrologOpt = null;
             classDownstream = classToComposeAround;
-            mode = GEN_DEBUG | GEN_TRACE;
+            mode = GEN_DEBUG | GEN_TRACE | GEN_PROFILE | GEN_STATE_CACHE | GEN_RECORD;
         }
 
         BuildComposablePipeline composer =
@@ -187,6 +194,15 @@ public class BuildComposablePipeline {
         if (0 != (mode & GEN_TRACE)) {
             (new TracePipeline(outputDir, outputPackage, classToComposeAround, classDownstream)).emit(publicMethodsPlain.iterator());
         }
+        if (0 != (mode & GEN_PROFILE)) {
+            (new ProfilePipeline(outputDir, outputPackage, classToComposeAround, classDownstream)).emit(publicMethodsPlain.iterator());
+        }
+        if (0 != (mode & GEN_STATE_CACHE)) {
+            (new StateCachePipeline(outputDir, outputPackage, classToComposeAround, classDownstream)).emit(publicMethodsPlain.iterator());
+        }
+        if (0 != (mode & GEN_RECORD)) {
+            (new RecordPipeline(outputDir, outputPackage, classToComposeAround, classDownstream)).emit(publicMethodsPlain.iterator());
+        }
         if (0 != (mode & GEN_CUSTOM)) {
             (new CustomPipeline(mode, outputDir, outputPackage, outputName, classToComposeAround, classPrologOpt, classDownstream)).emit(publicMethodsPlain.iterator());
         }
@@ -332,7 +348,8 @@ public class BuildComposablePipeline {
             HashSet<Class<?>> clazzList = new HashSet<Class<?>>();
             clazzList.add(baseInterfaceClass);
             clazzList.addAll(baseInterfaces);
-            int ifNamesNumber = clazzList.size();
+            String[] additionalIfNames = getAdditionalInterfaceNames();
+            int ifNamesNumber = clazzList.size() + additionalIfNames.length;
 
             // keep original order ..
             clazzList.clear();
@@ -352,6 +369,10 @@ public class BuildComposablePipeline {
                     ifNames[i++] = baseInterfaceClass.getName();
                     clazzList.add(baseInterfaceClass);
                 }
+
+                for (int j = 0; j < additionalIfNames.length; j++) {
+                    ifNames[i++] = additionalIfNames[j];
+                }
             }
 
             clazzList.add(downstreamClass);
@@ -545,6 +566,11 @@ public class BuildComposablePipeline {
         /** Get the output name for this pipeline class. */
         protected abstract String getOutputName();
 
+        /** Get the full names of the interfaces implemented in addition to the base interface, none by default. */
+        protected String[] getAdditionalInterfaceNames() {
+            return new String[0];
+        }
+
         /**
          * Called after the class headers have been generated, but before any
          * method wrappers have been generated.
@@ -563,6 +589,10 @@ public class BuildComposablePipeline {
          * closing parenthesis of the class is emitted.
          */
         protected void postMethodEmissionHook(PrintWriter output) {
+            output.println("  /** Returns the downstream GL object this pipeline routes its calls to. */");
+            output.println("  public " + downstreamName + " getDownstreamGL() {");
+            output.println("    return " + getDownstreamObjectName() + ";");
+            output.println("  }");
             output.println("  public String toString() {");
             output.println("    StringBuffer sb = new StringBuffer();");
             output.println("    sb.append(\"" + getOutputName() + " [ implementing " + baseInterfaceClass.getName() + ",\\n\\t\");");
@@ -1083,6 +1113,502 @@ public class BuildComposablePipeline {
         }
     } // end class TracePipeline
 
+    //-------------------------------------------------------
+    protected class ProfilePipeline extends PipelineEmitter {
+
+        String className;
+        /** Names of the profiled methods, the list index is the method's ordinal */
+        List<String> methodNames = new ArrayList<String>();
+
+        ProfilePipeline(String outputDir, String outputPackage, Class<?> baseInterfaceClass, Class<?> downstreamClass) {
+            super(outputDir, outputPackage, baseInterfaceClass, null, downstreamClass);
+            className = "Profile" + getBaseInterfaceName();
+        }
+
+        @Override
+        public void emit(Iterator<PlainMethod> methodsToWrap) throws IOException {
+            // stable ordinals across generator runs
+            List<PlainMethod> methods = new ArrayList<PlainMethod>();
+            while (methodsToWrap.hasNext()) {
+                methods.add(methodsToWrap.next());
+            }
+            Collections.sort(methods, new Comparator<PlainMethod>() {
+                public int compare(PlainMethod a, PlainMethod b) {
+                    return getMethodSignature(a.getWrappedMethod()).compareTo(getMethodSignature(b.getWrappedMethod()));
+                }
+            });
+            methodNames.clear();
+            super.emit(methods.iterator());
+        }
+
+        protected String getOutputName() {
+            return className;
+        }
+
+        @Override
+        protected String[] getAdditionalInterfaceNames() {
+            return new String[] { "com.jogamp.opengl.GLCallProfiler" };
+        }
+
+        protected int getMode() {
+            return 0;
+        }
+
+        protected boolean emptyMethodAllowed() {
+            return false;
+        }
+
+        protected boolean emptyDownstreamAllowed() {
+            return false;
+        }
+
+        protected void constructorHook(PrintWriter output) {
+            output.print("  public " + getOutputName() + "(");
+            output.println(downstreamName + " " + getDownstreamObjectName() + ")");
+            output.println("  {");
+            output.println("    if (" + getDownstreamObjectName() + " == null) {");
+            output.println("      throw new IllegalArgumentException(\"null " + getDownstreamObjectName() + "\");");
+            output.println("    }");
+            output.print("    this." + getDownstreamObjectName());
+            output.println(" = " + getDownstreamObjectName() + ";");
+            output.println("  }");
+            output.println();
+        }
+
+        @Override
+        protected void postMethodEmissionHook(PrintWriter output) {
+            super.postMethodEmissionHook(output);
+            final int count = methodNames.size();
+            // names are emitted as a few '\n' separated chunks, a String[] initializer would exceed the method size limit
+            output.println("  /** Names of the profiled GL methods, indexed by their ordinal. */");
+            output.println("  private static final String[] METHOD_NAMES = com.jogamp.opengl.GLCallProfile.splitNames(new String[] {");
+            StringBuilder chunk = new StringBuilder();
+            for (int i = 0; i < count; i++) {
+                chunk.append(methodNames.get(i)).append("\\n");
+                if (chunk.length() > 32000 || i == count - 1) {
+                    output.println("    \"" + chunk + "\",");
+                    chunk.setLength(0);
+                }
+            }
+            output.println("  }, " + count + ");");
+            output.println("  private final long[] _calls = new long[" + count + "];");
+            output.println("  private final long[] _nanos = new long[" + count + "];");
+            output.println("  private boolean _timing = true;");
+            output.println();
+            output.println("  public String[] getMethodNames() { return METHOD_NAMES; }");
+            output.println("  public int getMethodCount() { return " + count + "; }");
+            output.println("  public long getCallCount(int ordinal) { return _calls[ordinal]; }");
+            output.println("  public long getNanos(int ordinal) { return _nanos[ordinal]; }");
+            output.println("  public void setTiming(boolean enable) { _timing = enable; }");
+            output.println("  public boolean isTiming() { return _timing; }");
+            output.println("  public void reset() {");
+            output.println("    java.util.Arrays.fill(_calls, 0L);");
+            output.println("    java.util.Arrays.fill(_nanos, 0L);");
+            output.println("  }");
+            output.println("  public com.jogamp.opengl.GLCallProfile snapshot(com.jogamp.opengl.GLCallProfile result) {");
+            output.println("    if (null == result) {");
+            output.println("      result = new com.jogamp.opengl.GLCallProfile();");
+            output.println("    }");
+            output.println("    result.set(METHOD_NAMES, _calls, _nanos, _timing);");
+            output.println("    return result;");
+            output.println("  }");
+        }
+
+        protected void emitClassDocComment(PrintWriter output) {
+            output.println("/** <P> Composable pipeline which wraps an underlying {@link GL} implementation,");
+            output.println("    counting the calls and accumulating the time spent in each OpenGL method.");
+            output.println("    The statistics are kept in primitive arrays indexed by the method's ordinal,");
+            output.println("    see {@link com.jogamp.opengl.GLCallProfiler}. Sample code which installs this pipeline: </P>");
+            output.println();
+            output.println("<PRE>");
+            output.println("     GL gl = drawable.setGL(new ProfileGL(drawable.getGL()));");
+            output.println("</PRE>");
+            output.println("*/");
+        }
+
+        protected boolean hasPreDownstreamCallHook(Method m) {
+            return true;
+        }
+
+        protected void preDownstreamCallHook(PrintWriter output, Method m) {
+            methodNames.add(getMethodSignature(m));
+            output.println("final long _t0 = _timing ? System.nanoTime() : 0L;");
+        }
+
+        protected boolean hasPostDownstreamCallHook(Method m) {
+            return true;
+        }
+
+        protected void postDownstreamCallHook(PrintWriter output, Method m) {
+            final int ordinal = methodNames.size() - 1;
+            output.println("    _calls[" + ordinal + "]++;");
+            output.println("    if (_timing) { _nanos[" + ordinal + "] += System.nanoTime() - _t0; }");
+        }
+    } // end class ProfilePipeline
+
+    //-------------------------------------------------------
+    protected class StateCachePipeline extends PipelineEmitter {
+
+        String className;
+        /** Method signature -> shadow call deciding whether the call is passed downstream */
+        Map<String, String> filterCalls = new HashMap<String, String>();
+        /** Method name -> shadow call invalidating the state modified by it */
+        Map<String, String> invalidateCalls = new HashMap<String, String>();
+
+        StateCachePipeline(String outputDir, String outputPackage, Class<?> baseInterfaceClass, Class<?> downstreamClass) {
+            super(outputDir, outputPackage, baseInterfaceClass, null, downstreamClass);
+            className = "StateCache" + getBaseInterfaceName();
+
+            filterCalls.put("glBindBuffer(int,int)", "bindBuffer(arg0,arg1)");
+            filterCalls.put("glBindVertexArray(int)", "bindVertexArray(arg0)");
+            filterCalls.put("glActiveTexture(int)", "activeTexture(arg0)");
+            filterCalls.put("glBindTexture(int,int)", "bindTexture(arg0,arg1)");
+            filterCalls.put("glUseProgram(int)", "useProgram(arg0)");
+            filterCalls.put("glEnable(int)", "enable(arg0,true)");
+            filterCalls.put("glDisable(int)", "enable(arg0,false)");
+            filterCalls.put("glBlendFunc(int,int)", "blendFuncSeparate(arg0,arg1,arg0,arg1)");
+            filterCalls.put("glBlendFuncSeparate(int,int,int,int)", "blendFuncSeparate(arg0,arg1,arg2,arg3)");
+            filterCalls.put("glBlendEquation(int)", "blendEquationSeparate(arg0,arg0)");
+            filterCalls.put("glBlendEquationSeparate(int,int)", "blendEquationSeparate(arg0,arg1)");
+            filterCalls.put("glDepthFunc(int)", "depthFunc(arg0)");
+            filterCalls.put("glDepthMask(boolean)", "depthMask(arg0)");
+
+            invalidateCalls.put("glDeleteBuffers", "invalidateBuffers()");
+            invalidateCalls.put("glBindBufferBase", "invalidateBuffer(arg0)");
+            invalidateCalls.put("glBindBufferRange", "invalidateBuffer(arg0)");
+            invalidateCalls.put("glBindBufferARB", "invalidateBuffers()");
+            invalidateCalls.put("glDeleteVertexArrays", "invalidateVertexArray()");
+            invalidateCalls.put("glBindVertexArrayAPPLE", "invalidateVertexArray()");
+            invalidateCalls.put("glDeleteTextures", "invalidateTextures()");
+            invalidateCalls.put("glBindMultiTextureEXT", "invalidateTextures()");
+            invalidateCalls.put("glUseProgramObjectARB", "invalidateProgram()");
+            invalidateCalls.put("glBindProgramPipeline", "invalidateProgram()");
+            invalidateCalls.put("glEnablei", "invalidateCapability(arg0)");
+            invalidateCalls.put("glDisablei", "invalidateCapability(arg0)");
+            invalidateCalls.put("glEnableIndexed", "invalidateCapability(arg0)");
+            invalidateCalls.put("glDisableIndexed", "invalidateCapability(arg0)");
+            invalidateCalls.put("glBlendFunci", "invalidateBlend()");
+            invalidateCalls.put("glBlendFuncSeparatei", "invalidateBlend()");
+            invalidateCalls.put("glBlendEquationi", "invalidateBlend()");
+            invalidateCalls.put("glBlendEquationSeparatei", "invalidateBlend()");
+            invalidateCalls.put("glPopAttrib", "invalidate()");
+            invalidateCalls.put("glPopClientAttrib", "invalidate()");
+            invalidateCalls.put("glCallList", "invalidate()");
+            invalidateCalls.put("glCallLists", "invalidate()");
+            // calls within a display list are recorded, hence neither filtered nor shadowed
+            invalidateCalls.put("glNewList", "beginList()");
+            invalidateCalls.put("glEndList", "endList()");
+        }
+
+        protected String getOutputName() {
+            return className;
+        }
+
+        @Override
+        protected String[] getAdditionalInterfaceNames() {
+            return new String[] { "com.jogamp.opengl.GLStateCache" };
+        }
+
+        protected int getMode() {
+            return 0;
+        }
+
+        protected boolean emptyMethodAllowed() {
+            return false;
+        }
+
+        protected boolean emptyDownstreamAllowed() {
+            return false;
+        }
+
+        protected void constructorHook(PrintWriter output) {
+            output.print("  public " + getOutputName() + "(");
+            output.println(downstreamName + " " + getDownstreamObjectName() + ")");
+            output.println("  {");
+            output.println("    if (" + getDownstreamObjectName() + " == null) {");
+            output.println("      throw new IllegalArgumentException(\"null " + getDownstreamObjectName() + "\");");
+            output.println("    }");
+            output.print("    this." + getDownstreamObjectName());
+            output.println(" = " + getDownstreamObjectName() + ";");
+            output.println("  }");
+            output.println();
+        }
+
+        @Override
+        protected void postMethodEmissionHook(PrintWriter output) {
+            super.postMethodEmissionHook(output);
+            output.println("  private final jogamp.opengl.GLStateShadow _shadow = new jogamp.opengl.GLStateShadow();");
+            output.println();
+            output.println("  public void invalidate() { _shadow.invalidate(); }");
+            output.println("  public void setFiltering(boolean enable) { _shadow.setFiltering(enable); }");
+            output.println("  public boolean isFiltering() { return _shadow.isFiltering(); }");
+            output.println("  public long getTrackedCallCount() { return _shadow.getTrackedCallCount(); }");
+            output.println("  public long getRedundantCallCount() { return _shadow.getRedundantCallCount(); }");
+            output.println("  public void resetCounters() { _shadow.resetCounters(); }");
+        }
+
+        protected void emitClassDocComment(PrintWriter output) {
+            output.println("/** <P> Composable pipeline which wraps an underlying {@link GL} implementation,");
+            output.println("    shadowing bindings, capabilities and blend/depth state and dropping");
+            output.println("    the calls which don't change it, see {@link com.jogamp.opengl.GLStateCache}.");
+            output.println("    Sample code which installs this pipeline: </P>");
+            output.println();
+            output.println("<PRE>");
+            output.println("     GL gl = drawable.setGL(new StateCacheGL(drawable.getGL()));");
+            output.println("</PRE>");
+            output.println("*/");
+        }
+
+        /** Returns the shadow call for the filtered state setting methods, otherwise null. */
+        private String getFilterCall(Method m) {
+            if (m.getReturnType() != Void.TYPE) {
+                return null;
+            }
+            return filterCalls.get(getMethodSignature(m));
+        }
+
+        protected boolean hasPreDownstreamCallHook(Method m) {
+            return null != getFilterCall(m);
+        }
+
+        protected void preDownstreamCallHook(PrintWriter output, Method m) {
+            output.println("if (!_shadow." + getFilterCall(m) + ") { return; }");
+        }
+
+        protected boolean hasPostDownstreamCallHook(Method m) {
+            return invalidateCalls.containsKey(m.getName());
+        }
+
+        protected void postDownstreamCallHook(PrintWriter output, Method m) {
+            output.println("    _shadow." + invalidateCalls.get(m.getName()) + ";");
+        }
+    } // end class StateCachePipeline
+
+    //-------------------------------------------------------
+    protected class RecordPipeline extends PipelineEmitter {
+
+        /** Number of opcodes dispatched by one replay method, limiting its size */
+        static final int OPS_PER_REPLAY_METHOD = 256;
+
+        String className;
+        /** Recorded methods, the list index is the method's opcode */
+        List<Method> recordedMethods = new ArrayList<Method>();
+
+        RecordPipeline(String outputDir, String outputPackage, Class<?> baseInterfaceClass, Class<?> downstreamClass) {
+            super(outputDir, outputPackage, baseInterfaceClass, null, downstreamClass);
+            className = "Record" + getBaseInterfaceName();
+        }
+
+        @Override
+        public void emit(Iterator<PlainMethod> methodsToWrap) throws IOException {
+            // stable opcodes across generator runs
+            List<PlainMethod> methods = new ArrayList<PlainMethod>();
+            while (methodsToWrap.hasNext()) {
+                methods.add(methodsToWrap.next());
+            }
+            Collections.sort(methods, new Comparator<PlainMethod>() {
+                public int compare(PlainMethod a, PlainMethod b) {
+                    return getMethodSignature(a.getWrappedMethod()).compareTo(getMethodSignature(b.getWrappedMethod()));
+                }
+            });
+            recordedMethods.clear();
+            for (int i = 0; i < methods.size(); i++) {
+                Method m = methods.get(i).getWrappedMethod();
+                if (isRecorded(m)) {
+                    recordedMethods.add(m);
+                }
+            }
+            super.emit(methods.iterator());
+        }
+
+        /** All void GL functions are recorded */
+        protected boolean isRecorded(Method m) {
+            return m.getName().startsWith("gl") && m.getReturnType() == Void.TYPE;
+        }
+
+        /** Returns true if the GL writes into the array or buffer arguments of the method, which are captured by reference. */
+        protected boolean writesArguments(Method m) {
+            String name = m.getName();
+            return name.startsWith("glGet") || name.startsWith("glGen") || name.startsWith("glRead") ||
+                   name.startsWith("glAre") || name.equals("glSelectBuffer") || name.equals("glFeedbackBuffer");
+        }
+
+        protected String getOutputName() {
+            return className;
+        }
+
+        @Override
+        protected String[] getAdditionalInterfaceNames() {
+            return new String[] { "com.jogamp.opengl.GLCommandRecorder" };
+        }
+
+        protected int getMode() {
+            return 0;
+        }
+
+        protected boolean emptyMethodAllowed() {
+            return false;
+        }
+
+        protected boolean emptyDownstreamAllowed() {
+            return false;
+        }
+
+        protected void constructorHook(PrintWriter output) {
+            output.print("  public " + getOutputName() + "(");
+            output.println(downstreamName + " " + getDownstreamObjectName() + ")");
+            output.println("  {");
+            output.println("    if (" + getDownstreamObjectName() + " == null) {");
+            output.println("      throw new IllegalArgumentException(\"null " + getDownstreamObjectName() + "\");");
+            output.println("    }");
+            output.print("    this." + getDownstreamObjectName());
+            output.println(" = " + getDownstreamObjectName() + ";");
+            output.println("    setCommandBuffer(new com.jogamp.opengl.GLCommandBuffer());");
+            output.println("  }");
+            output.println();
+        }
+
+        @Override
+        protected void emitBody(PrintWriter output, Method m, boolean runHooks) {
+            if (!m.getName().startsWith("gl")) {
+                // JOGL queries, e.g. isFunctionAvailable, are passed to the downstream GL
+                super.emitBody(output, m, false);
+                return;
+            }
+            output.println("  {");
+            if (!isRecorded(m)) {
+                output.println("    throw new GLException(\"Not recordable: " + getMethodSignature(m) + "\");");
+                output.println("  }");
+                return;
+            }
+            output.println("    final com.jogamp.opengl.GLCommandBuffer _b = _buf;");
+            output.println("    _b.putOp(" + recordedMethods.indexOf(m) + ");");
+            final boolean byReference = writesArguments(m);
+            Class<?>[] argTypes = m.getParameterTypes();
+            for (int i = 0; i < argTypes.length; i++) {
+                Class<?> t = argTypes[i];
+                output.print("    _b.");
+                if (t.isPrimitive()) {
+                    output.print("put" + getPrimitiveName(t));
+                } else if (t.isArray()) {
+                    output.print(byReference ? "putObject" : "putArray");
+                } else if (Buffer.class.isAssignableFrom(t)) {
+                    output.print(byReference ? "putObject" : "putBuffer");
+                } else {
+                    output.print("putObject");
+                }
+                output.println("(arg" + i + ");");
+            }
+            output.println("  }");
+        }
+
+        /** Returns the capitalized name of the primitive type, e.g. <code>Int</code>, as used by the GLCommandBuffer methods */
+        private String getPrimitiveName(Class<?> t) {
+            String name = t.getName();
+            return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        }
+
+        /** Returns the expression reading the argument of the given type from the command buffer <code>b</code> */
+        private String getReadExpression(Method m, Class<?> t) {
+            if (t.isPrimitive()) {
+                return "b.get" + getPrimitiveName(t) + "()";
+            }
+            String cast = "(" + JavaType.createForClass(t).getName() + ") ";
+            if (Buffer.class.isAssignableFrom(t) && !writesArguments(m)) {
+                return cast + "b.getBuffer()";
+            }
+            return cast + "b.getObject()";
+        }
+
+        @Override
+        protected void postMethodEmissionHook(PrintWriter output) {
+            super.postMethodEmissionHook(output);
+            final int count = recordedMethods.size();
+            final int chunks = (count + OPS_PER_REPLAY_METHOD - 1) / OPS_PER_REPLAY_METHOD;
+            output.println("  private com.jogamp.opengl.GLCommandBuffer _buf;");
+            output.println();
+            output.println("  public com.jogamp.opengl.GLCommandBuffer getCommandBuffer() { return _buf; }");
+            output.println("  public void setCommandBuffer(com.jogamp.opengl.GLCommandBuffer buf) {");
+            output.println("    buf.checkFormat(\"" + getOutputName() + "\");");
+            output.println("    _buf = buf;");
+            output.println("  }");
+            output.println("  public void replay(com.jogamp.opengl.GLCommandBuffer b, GL gl) {");
+            output.println("    b.checkFormat(\"" + getOutputName() + "\");");
+            output.println("    final " + downstreamName + " _gl = gl.get" + getBaseInterfaceName() + "();");
+            output.println("    b.rewind();");
+            output.println("    while (b.hasRemaining()) {");
+            output.println("      final int op = b.getInt();");
+            output.println("      switch (op / " + OPS_PER_REPLAY_METHOD + ") {");
+            for (int c = 0; c < chunks; c++) {
+                output.println("        case " + c + ": replay" + c + "(op, b, _gl); break;");
+            }
+            output.println("        default: throw new GLException(\"Invalid opcode \"+op);");
+            output.println("      }");
+            output.println("    }");
+            output.println("  }");
+            // one switch per chunk of opcodes, a single one would exceed the method size limit
+            for (int c = 0; c < chunks; c++) {
+                output.println("  private static void replay" + c + "(int op, com.jogamp.opengl.GLCommandBuffer b, " + downstreamName + " gl) {");
+                output.println("    switch (op) {");
+                final int end = Math.min(count, (c + 1) * OPS_PER_REPLAY_METHOD);
+                for (int op = c * OPS_PER_REPLAY_METHOD; op < end; op++) {
+                    Method m = recordedMethods.get(op);
+                    Class<?>[] argTypes = m.getParameterTypes();
+                    output.print("      case " + op + ": gl." + m.getName() + "(");
+                    for (int i = 0; i < argTypes.length; i++) {
+                        if (i > 0) {
+                            output.print(", ");
+                        }
+                        output.print(getReadExpression(m, argTypes[i]));
+                    }
+                    output.println("); break;");
+                }
+                output.println("      default: throw new GLException(\"Invalid opcode \"+op);");
+                output.println("    }");
+                output.println("  }");
+            }
+        }
+
+        protected void emitClassDocComment(PrintWriter output) {
+            output.println("/** <P> Recording implementation of {@link GL}, which serializes the void OpenGL calls");
+            output.println("    and their arguments into a {@link com.jogamp.opengl.GLCommandBuffer} to be replayed later,");
+            output.println("    see {@link com.jogamp.opengl.GLCommandRecorder}. Sample code which creates a recorder: </P>");
+            output.println();
+            output.println("<PRE>");
+            output.println("     RecordGL rec = new RecordGL(drawable.getGL());");
+            output.println("</PRE>");
+            output.println("*/");
+        }
+
+        protected boolean hasPreDownstreamCallHook(Method m) {
+            return false;
+        }
+
+        protected void preDownstreamCallHook(PrintWriter output, Method m) {
+        }
+
+        protected boolean hasPostDownstreamCallHook(Method m) {
+            return false;
+        }
+
+        protected void postDownstreamCallHook(PrintWriter output, Method m) {
+        }
+    } // end class RecordPipeline
+
+    /** Returns the method name and its parameter types, e.g. <code>glUniform1fv(int,int,float[],int)</code> */
+    public static final String getMethodSignature(Method m) {
+        Class<?>[] params = m.getParameterTypes();
+        StringBuilder sb = new StringBuilder();
+        sb.append(m.getName()).append('(');
+        for (int i = 0; i < params.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(JavaType.createForClass(params[i]).getName());
+        }
+        return sb.append(')').toString();
+    }
+
     public static final void printFunctionCallString(PrintWriter output, Method m) {
         Class<?>[] params = m.getParameterTypes();
         output.print("    \"" + m.getName() + "(\"");
@@ -110,6 +110,11 @@ public abstract class GLRegion extends Region {
      */
     public abstract void destroy(GL2ES2 gl, RenderState rs);
     
+    /** Returns the summed up size in bytes of the associated OGL buffer objects,
+     *  i.e. 0 before the first {@link #update(GL2ES2, RenderState)}.
+     */
+    public abstract int getSizeInBytes();
+    
     /** Renders the associated OGL objects specifying
      * current width/hight of window for multi pass rendering
      * of the region.
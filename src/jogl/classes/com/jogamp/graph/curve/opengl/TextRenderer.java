@@ -27,9 +27,8 @@
  */
 package com.jogamp.graph.curve.opengl;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 
 import javax.media.opengl.GL2ES2;
 
@@ -65,6 +64,33 @@ public abstract class TextRenderer extends Renderer {
     public abstract void drawString3D(GL2ES2 gl, Font font,
                                       String str, float[] position, int fontSize, int texSize);
 
+    /** Queue the String for batched rendering in 3D space wrt to the font provided at the position provided.
+     * <p>
+     * The glyphs of each font are triangulated only once into a shared glyph atlas, 
+     * hence a queued string only adds the position of its glyphs. 
+     * All strings queued since the last flush are rendered by {@link #flushStrings3D(GL2ES2)}
+     * in one draw call, using the renderer state, e.g. matrix and color, at that time.
+     * </p>
+     * <p>
+     * Batched rendering is only supported with single pass rendering, 
+     * i.e. w/o {@link com.jogamp.graph.curve.Region#VBAA_RENDERING_BIT}.
+     * </p>
+     * @param gl the current GL state
+     * @param font {@link Font} to be used
+     * @param str text to be rendered 
+     * @param position the lower left corner of the string, may be null for the origin 
+     * @param fontSize font size
+     * @throws GLException if TextRenderer not initialized or uses VBAA rendering
+     */
+    public abstract void addString3D(GL2ES2 gl, Font font, String str, float[] position, int fontSize);
+
+    /** Render all Strings queued via {@link #addString3D(GL2ES2, Font, String, float[], int)}
+     * and clear the queue.
+     * @param gl the current GL state
+     * @throws GLException if TextRenderer not initialized
+     */
+    public abstract void flushStrings3D(GL2ES2 gl);
+
     /**Create the resulting {@link GlyphString} that represents
      * the String wrt to the font.
      * @param font {@link Font} to be used
@@ -81,27 +107,28 @@ public abstract class TextRenderer extends Renderer {
         return glyphString;
     }
     
+    
     /** FIXME
    public void flushCache(GL2ES2 gl) {
-       Iterator<GlyphString> iterator = stringCacheMap.values().iterator();
+       Iterator<CacheEntry> iterator = stringCacheMap.values().iterator();
        while(iterator.hasNext()){
-           GlyphString glyphString = iterator.next();
-           glyphString.destroy(gl, rs);
+           CacheEntry entry = iterator.next();
+           entry.glyphString.destroy(gl, rs);
        }
        stringCacheMap.clear();    
-       stringCacheArray.clear();
+       stringCacheBytes = 0;
    } */
    
    @Override
    protected void destroyImpl(GL2ES2 gl) {
        // fluchCache(gl) already called
-       Iterator<GlyphString> iterator = stringCacheMap.values().iterator();
+       Iterator<CacheEntry> iterator = stringCacheMap.values().iterator();
        while(iterator.hasNext()){
-           GlyphString glyphString = iterator.next();
-           glyphString.destroy(gl, rs);
+           CacheEntry entry = iterator.next();
+           entry.glyphString.destroy(gl, rs);
        }
        stringCacheMap.clear();    
-       stringCacheArray.clear();
+       stringCacheBytes = 0;
    }
    
    /**
@@ -124,7 +151,7 @@ public abstract class TextRenderer extends Renderer {
     * @param gl current GL used to remove cached objects if required
     * @param newLimit new cache size
     */
-   public final void setCacheLimit(GL2ES2 gl, int newLimit ) { stringCacheLimit = newLimit; validateCache(gl, 0); }
+   public final void setCacheLimit(GL2ES2 gl, int newLimit ) { stringCacheLimit = newLimit; validateCache(gl, 0, 0); }
    
    /**
     * @return the current cache limit
@@ -134,59 +161,208 @@ public abstract class TextRenderer extends Renderer {
    /** 
     * @return the current utilized cache size, <= {@link #getCacheLimit()}
     */
-   public final int getCacheSize() { return stringCacheArray.size(); }
+   public final int getCacheSize() { return stringCacheMap.size(); }
+   
+   /**
+    * <p>Sets the cache limit in bytes, i.e. the summed up size of the VBOs of all cached GlyphString's Region.
+    * Default is {@link #DEFAULT_CACHE_BYTE_LIMIT}, -1 unlimited, >0 limited.</p>
+    * 
+    * <p>A GlyphString exceeding the byte limit by itself is not cached.
+    * The cache will be validate when the next string rendering happens.</p>
+    *  
+    * @param newLimit new cache size in bytes
+    * 
+    * @see #DEFAULT_CACHE_BYTE_LIMIT
+    */
+   public final void setCacheByteLimit(int newLimit ) { stringCacheByteLimit = newLimit; }
+   
+   /**
+    * Sets the cache limit in bytes, see {@link #setCacheByteLimit(int)} and validates the cache.
+    * 
+    * @param gl current GL used to remove cached objects if required
+    * @param newLimit new cache size in bytes
+    */
+   public final void setCacheByteLimit(GL2ES2 gl, int newLimit ) { stringCacheByteLimit = newLimit; validateCache(gl, 0, 0); }
+   
+   /**
+    * @return the current cache limit in bytes
+    */
+   public final int getCacheByteLimit() { return stringCacheByteLimit; }
+   
+   /** 
+    * @return the current utilized cache size in bytes, <= {@link #getCacheByteLimit()}
+    */
+   public final int getCacheBytes() { return stringCacheBytes; }
+   
+   /** @return number of cache lookups which returned a cached GlyphString since the last {@link #resetCacheStats()} */
+   public final long getCacheHits() { return stringCacheHits; }
+   
+   /** @return number of cache lookups which missed since the last {@link #resetCacheStats()} */
+   public final long getCacheMisses() { return stringCacheMisses; }
+   
+   /** @return number of least recently used GlyphString's removed to satisfy the cache limits since the last {@link #resetCacheStats()} */
+   public final long getCacheEvictions() { return stringCacheEvictions; }
+   
+   /** Resets the hit, miss and eviction counter. */
+   public final void resetCacheStats() {
+       stringCacheHits = 0;
+       stringCacheMisses = 0;
+       stringCacheEvictions = 0;
+   }
    
    protected final void validateCache(GL2ES2 gl, int space) {
+       validateCache(gl, space, 0);
+   }
+   
+   /**
+    * Removes the least recently used GlyphString's until
+    * <code>space</code> entries and <code>spaceBytes</code> bytes fit into the cache limits.
+    */
+   protected final void validateCache(GL2ES2 gl, int space, int spaceBytes) {
        if ( getCacheLimit() > 0 ) {
-           while ( getCacheSize() + space > getCacheLimit() ) {
+           while ( getCacheSize() > 0 && getCacheSize() + space > getCacheLimit() ) {
                removeCachedGlyphString(gl, 0);
+               stringCacheEvictions++;
+           }
+       }
+       if ( getCacheByteLimit() > 0 ) {
+           while ( getCacheSize() > 0 && getCacheBytes() + spaceBytes > getCacheByteLimit() ) {
+               removeCachedGlyphString(gl, 0);
+               stringCacheEvictions++;
            }
        }
    }
    
+   /**
+    * Returns the cached GlyphString and marks it most recently used, or null if not cached.
+    * The lookup itself does not allocate any object.
+    */
    protected final GlyphString getCachedGlyphString(Font font, String str, int fontSize) {
-       return stringCacheMap.get(getKey(font, str, fontSize));
+       final CacheEntry entry = stringCacheMap.get(lookupKey.set(font, str, fontSize));
+       lookupKey.set(null, null, 0);
+       if( null != entry ) {
+           stringCacheHits++;
+           return entry.glyphString;
+       }
+       stringCacheMisses++;
+       return null;
    }
 
-   protected final void addCachedGlyphString(GL2ES2 gl, Font font, String str, int fontSize, GlyphString glyphString) {
-       if ( 0 != getCacheLimit() ) {
-           final String key = getKey(font, str, fontSize);
-           GlyphString oldGlyphString = stringCacheMap.put(key, glyphString);
-           if ( null == oldGlyphString ) {
-               // new entry ..
-               validateCache(gl, 1);
-               stringCacheArray.add(stringCacheArray.size(), key);
-           } /// else overwrite is nop ..
+   /**
+    * Adds the GlyphString to the cache, removing the least recently used ones if required.
+    * <p>The byte size of the GlyphString's Region is taken at this point, 
+    * hence it should be rendered once before.</p>
+    * @return true if the GlyphString has been cached, 
+    *         otherwise false and the caller remains responsible to destroy it.
+    */
+   protected final boolean addCachedGlyphString(GL2ES2 gl, Font font, String str, int fontSize, GlyphString glyphString) {
+       if ( 0 == getCacheLimit() ) {
+           return false;
+       }
+       final int bytes = glyphString.getSizeInBytes();
+       if ( getCacheByteLimit() > 0 && bytes > getCacheByteLimit() ) {
+           return false;
        }
+       final StringKey key = new StringKey().set(font, str, fontSize);
+       final CacheEntry oldEntry = stringCacheMap.remove(key);
+       if ( null != oldEntry ) {
+           stringCacheBytes -= oldEntry.bytes;
+           if( oldEntry.glyphString != glyphString ) {
+               oldEntry.glyphString.destroy(gl, rs);
+           }
+       }
+       validateCache(gl, 1, bytes);
+       stringCacheMap.put(key, new CacheEntry(glyphString, bytes));
+       stringCacheBytes += bytes;
+       return true;
    }
    
    protected final void removeCachedGlyphString(GL2ES2 gl, Font font, String str, int fontSize) {
-       final String key = getKey(font, str, fontSize);
-       GlyphString glyphString = stringCacheMap.remove(key);
-       if(null != glyphString) {
-           glyphString.destroy(gl, rs);
+       final CacheEntry entry = stringCacheMap.remove(lookupKey.set(font, str, fontSize));
+       lookupKey.set(null, null, 0);
+       if(null != entry) {
+           stringCacheBytes -= entry.bytes;
+           entry.glyphString.destroy(gl, rs);
        }       
-       stringCacheArray.remove(key);
    }
 
+   /**
+    * Removes the cached GlyphString at position <code>idx</code> in least recently used order,
+    * i.e. <code>0</code> denotes the least recently used one.
+    */
    protected final void removeCachedGlyphString(GL2ES2 gl, int idx) {
-       final String key = stringCacheArray.remove(idx);
-       final GlyphString glyphString = stringCacheMap.remove(key);
-       if(null != glyphString) {
-           glyphString.destroy(gl, rs);
+       final Iterator<CacheEntry> iterator = stringCacheMap.values().iterator();
+       for(int i=0; i<idx; i++) {
+           iterator.next();
        }
+       final CacheEntry entry = iterator.next();
+       iterator.remove();
+       stringCacheBytes -= entry.bytes;
+       entry.glyphString.destroy(gl, rs);
    }
       
-   protected final String getKey(Font font, String str, int fontSize) {
-       final StringBuilder sb = new StringBuilder();
-       return font.getName(sb, Font.NAME_UNIQUNAME)
-              .append(".").append(str.hashCode()).append(".").append(fontSize).toString();
+   /** 
+    * Cache key, comparing the font, the complete string and the font size.
+    * A single mutable instance is reused for lookups, avoiding per frame allocations.
+    */
+   private static final class StringKey {
+       private Font font;
+       private String str;
+       private int fontSize;
+       private int hash;
+       
+       final StringKey set(Font font, String str, int fontSize) {
+           this.font = font;
+           this.str = str;
+           this.fontSize = fontSize;
+           if( null != font ) {
+               // 31 * x == (x << 5) - x
+               int h = font.hashCode();
+               h = ((h << 5) - h) + str.hashCode();
+               hash = ((h << 5) - h) + fontSize;
+           } else {
+               hash = 0;
+           }
+           return this;
+       }
+       
+       public final int hashCode() { return hash; }
+       
+       public final boolean equals(Object o) {
+           if( this == o ) {
+               return true;
+           }
+           if( !(o instanceof StringKey) ) {
+               return false;
+           }
+           final StringKey k = (StringKey) o;
+           return hash == k.hash && fontSize == k.fontSize && font.equals(k.font) && str.equals(k.str);
+       }
+   }
+   
+   private static final class CacheEntry {
+       final GlyphString glyphString;
+       final int bytes;
+       
+       CacheEntry(GlyphString glyphString, int bytes) {
+           this.glyphString = glyphString;
+           this.bytes = bytes;
+       }
    }
 
    /** Default cache limit, see {@link #setCacheLimit(int)} */
    public static final int DEFAULT_CACHE_LIMIT = 256;
    
-   private HashMap<String, GlyphString> stringCacheMap = new HashMap<String, GlyphString>(DEFAULT_CACHE_LIMIT);
-   private ArrayList<String> stringCacheArray = new ArrayList<String>(DEFAULT_CACHE_LIMIT);
+   /** Default cache limit in bytes, see {@link #setCacheByteLimit(int)}, 4 MiB */
+   public static final int DEFAULT_CACHE_BYTE_LIMIT = 4 * 1024 * 1024;
+   
+   /** access ordered, i.e. iteration starts with the least recently used entry */
+   private LinkedHashMap<StringKey, CacheEntry> stringCacheMap = new LinkedHashMap<StringKey, CacheEntry>(DEFAULT_CACHE_LIMIT, 0.75f, true);
+   private final StringKey lookupKey = new StringKey();
    private int stringCacheLimit = DEFAULT_CACHE_LIMIT;      
-}
\ No newline at end of file
+   private int stringCacheByteLimit = DEFAULT_CACHE_BYTE_LIMIT;
+   private int stringCacheBytes = 0;
+   private long stringCacheHits = 0;
+   private long stringCacheMisses = 0;
+   private long stringCacheEvictions = 0;
+}
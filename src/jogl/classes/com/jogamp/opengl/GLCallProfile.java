@@ -0,0 +1,185 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl;
+
+import com.jogamp.common.os.Platform;
+
+/**
+ * Snapshot of the statistics of a {@link GLCallProfiler},
+ * i.e. the call count and accumulated time per GL method.
+ * <p>
+ * A snapshot can be reused via {@link GLCallProfiler#snapshot(GLCallProfile)},
+ * which only allocates if the number of methods changes.</p>
+ */
+public class GLCallProfile {
+
+    public GLCallProfile() {
+    }
+
+    /**
+     * Copies the given statistics into this snapshot.
+     */
+    public void set(String[] names, long[] calls, long[] nanos, boolean timing) {
+        final int n = names.length;
+        if( null == this.calls || this.calls.length != n ) {
+            this.calls = new long[n];
+            this.nanos = new long[n];
+        }
+        this.names = names;
+        System.arraycopy(calls, 0, this.calls, 0, n);
+        System.arraycopy(nanos, 0, this.nanos, 0, n);
+        this.timing = timing;
+    }
+
+    public final int getMethodCount() { return null != names ? names.length : 0; }
+
+    public final String getMethodName(int ordinal) { return names[ordinal]; }
+
+    public final long getCallCount(int ordinal) { return calls[ordinal]; }
+
+    public final long getNanos(int ordinal) { return nanos[ordinal]; }
+
+    /** Returns true if the time was measured, otherwise only calls were counted. */
+    public final boolean isTiming() { return timing; }
+
+    public final long getTotalCallCount() {
+        long n = 0;
+        for(int i=getMethodCount()-1; i>=0; i--) {
+            n += calls[i];
+        }
+        return n;
+    }
+
+    public final long getTotalNanos() {
+        long n = 0;
+        for(int i=getMethodCount()-1; i>=0; i--) {
+            n += nanos[i];
+        }
+        return n;
+    }
+
+    /**
+     * Returns the ordinals of the called methods in descending order of their accumulated time,
+     * or their call count if not {@link #isTiming() timed}.
+     *
+     * @param max the maximum number of ordinals to return
+     */
+    public int[] getTopOrdinals(int max) {
+        final long[] key = timing ? nanos : calls;
+        int called = 0;
+        for(int i=getMethodCount()-1; i>=0; i--) {
+            if( 0 < calls[i] ) {
+                called++;
+            }
+        }
+        final int[] top = new int[Math.min(max, called)];
+        int n = 0;
+        // insertion into the small result array, max is expected to be small
+        for(int i=0; i<getMethodCount(); i++) {
+            if( 0 == calls[i] ) {
+                continue;
+            }
+            int j = n < top.length ? n++ : top.length;
+            while( j > 0 && key[top[j-1]] < key[i] ) {
+                if( j < top.length ) {
+                    top[j] = top[j-1];
+                }
+                j--;
+            }
+            if( j < top.length ) {
+                top[j] = i;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Appends a summary of the <code>max</code> most expensive methods,
+     * with their values averaged over the given number of frames.
+     */
+    public StringBuilder toString(StringBuilder sb, int max, int frames) {
+        if(null == sb) {
+            sb = new StringBuilder();
+        }
+        if( 0 >= frames ) {
+            frames = 1;
+        }
+        final long totalCalls = getTotalCallCount();
+        final long totalNanos = getTotalNanos();
+        sb.append("GLCallProfile[frames ").append(frames).append(", calls/frame ").append(totalCalls/frames);
+        if( timing ) {
+            sb.append(", GL time/frame ").append(totalNanos/frames/1000).append(" us");
+        }
+        sb.append("]");
+        final int[] top = getTopOrdinals(max);
+        for(int i=0; i<top.length; i++) {
+            final int o = top[i];
+            sb.append(Platform.getNewline()).append("  ").append(names[o]).append(": calls/frame ").append(calls[o]/frames);
+            if( timing ) {
+                sb.append(", us/frame ").append(nanos[o]/frames/1000);
+                if( 0 < totalNanos ) {
+                    sb.append(", ").append(nanos[o]*100/totalNanos).append("%");
+                }
+            }
+        }
+        return sb;
+    }
+
+    @Override
+    public String toString() {
+        return toString(null, 10, 1).toString();
+    }
+
+    /**
+     * Splits the given '\n' terminated chunks of method names,
+     * used by the generated pipelines to avoid a huge array initializer.
+     */
+    public static String[] splitNames(String[] chunks, int count) {
+        final String[] names = new String[count];
+        int n = 0;
+        for(int i=0; i<chunks.length; i++) {
+            final String chunk = chunks[i];
+            int start = 0;
+            int end;
+            while( 0 <= ( end = chunk.indexOf('\n', start) ) ) {
+                names[n++] = chunk.substring(start, end);
+                start = end + 1;
+            }
+        }
+        if( n != count ) {
+            throw new IllegalArgumentException("Expected "+count+" names, got "+n);
+        }
+        return names;
+    }
+
+    private String[] names;
+    private long[] calls;
+    private long[] nanos;
+    private boolean timing;
+}
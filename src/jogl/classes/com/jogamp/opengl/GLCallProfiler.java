@@ -0,0 +1,81 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl;
+
+/**
+ * Implemented by the generated <code>ProfileGL*</code> composable pipelines,
+ * which count the calls and accumulate the time spent in each OpenGL method.
+ * <p>
+ * The statistics are kept in primitive arrays indexed by the method's ordinal,
+ * hence profiling a call neither formats strings nor allocates.
+ * The ordinals are stable for a given pipeline class, see {@link #getMethodNames()}.</p>
+ * <p>
+ * The pipeline is installed like the trace pipeline:
+ * <pre>
+ *     GL gl = drawable.setGL(GLPipelineFactory.create("javax.media.opengl.Profile", null, drawable.getGL(), null));
+ * </pre>
+ * or at context creation via the property <code>jogl.debug.ProfileGL</code>.
+ * {@link com.jogamp.opengl.util.GLCallProfileSummary} attaches the pipeline to a drawable and
+ * reports a per frame summary.</p>
+ * <p>
+ * The statistics are not synchronized and shall be accessed on the GL thread, 
+ * e.g. within a {@link javax.media.opengl.GLEventListener}.</p>
+ */
+public interface GLCallProfiler {
+    /** Returns the names of the profiled methods incl. their parameter types, indexed by their ordinal. */
+    public String[] getMethodNames();
+
+    /** Returns the number of profiled methods. */
+    public int getMethodCount();
+
+    /** Returns the number of calls of the method with the given ordinal since the last {@link #reset()}. */
+    public long getCallCount(int ordinal);
+
+    /** Returns the accumulated time spent in the method with the given ordinal since the last {@link #reset()}, in nanoseconds. */
+    public long getNanos(int ordinal);
+
+    /** 
+     * Enables or disables timing, enabled by default.
+     * If disabled, only the calls are counted, avoiding the cost of {@link System#nanoTime()}.
+     */
+    public void setTiming(boolean enable);
+
+    public boolean isTiming();
+
+    /** Resets all call counts and times. */
+    public void reset();
+
+    /**
+     * Copies the current statistics into <code>result</code>.
+     *
+     * @param result the snapshot to reuse, may be null
+     * @return <code>result</code> or a new snapshot if <code>result</code> was null
+     */
+    public GLCallProfile snapshot(GLCallProfile result);
+}
@@ -0,0 +1,431 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GLException;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Compact command buffer written by the generated <code>RecordGL*</code> implementations,
+ * see {@link GLCommandRecorder}.
+ * <p>
+ * Each command is stored in a direct {@link ByteBuffer} as its opcode followed by its
+ * primitive arguments in native byte order.
+ * Arrays, Strings and other objects are kept in a side table and referenced by their index.</p>
+ * <p>
+ * NIO buffer arguments are captured either
+ * <ul>
+ *   <li>by copy, the default: the remaining elements are copied into the command buffer at recording
+ *       and passed as a view of the copy at replay, hence the source may be modified right after the call.</li>
+ *   <li>by reference: the buffer itself is passed at replay, hence its content and position
+ *       must be kept until the last replay.</li>
+ * </ul>
+ * Arrays are cloned in copy mode. 
+ * Arguments the GL writes into, e.g. of <code>glGen*</code> or <code>glGet*</code>, are always captured by reference,
+ * i.e. the result is available after the replay.</p>
+ * <p>
+ * A command buffer may be replayed many times, e.g. for static geometry, and is reused after {@link #clear()}.
+ * It is not synchronized: it may be recorded on any thread and replayed on the GL thread
+ * after the recording thread has handed it over.</p>
+ */
+public class GLCommandBuffer {
+    /** Initial capacity in bytes, if not specified. */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final byte ARG_NULL = 0;
+    private static final byte ARG_REFERENCE = 1;
+    private static final byte ARG_COPY = 2;
+
+    private static final byte TYPE_BYTE = 0;
+    private static final byte TYPE_SHORT = 1;
+    private static final byte TYPE_CHAR = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_DOUBLE = 6;
+
+    private final boolean copyBuffers;
+    private ByteBuffer data;
+    private int writePos = 0;
+    private int readPos = 0;
+    private int commandCount = 0;
+
+    private Object[] objects = new Object[16];
+    private int objectCount = 0;
+    /** Cached views of the copied buffers, reset if <code>data</code> grows */
+    private Buffer[] views = new Buffer[16];
+    private int viewCount = 0;
+
+    private String format = null;
+
+    /** Creates a command buffer with {@link #DEFAULT_CAPACITY}, capturing buffers by copy. */
+    public GLCommandBuffer() {
+        this(DEFAULT_CAPACITY, true);
+    }
+
+    /**
+     * @param initialCapacity initial capacity in bytes, grows as required
+     * @param copyBuffers if true NIO buffer arguments are captured by copy, otherwise by reference
+     */
+    public GLCommandBuffer(int initialCapacity, boolean copyBuffers) {
+        this.data = Buffers.newDirectByteBuffer(Math.max(64, initialCapacity));
+        this.copyBuffers = copyBuffers;
+    }
+
+    /** Returns true if NIO buffer arguments are captured by copy, otherwise by reference. */
+    public final boolean isCopyingBuffers() { return copyBuffers; }
+
+    /** Returns the number of recorded commands. */
+    public final int getCommandCount() { return commandCount; }
+
+    /** Returns the number of used bytes. */
+    public final int getSize() { return writePos; }
+
+    /** Returns the capacity of the command buffer in bytes. */
+    public final int getCapacity() { return data.capacity(); }
+
+    public final boolean isEmpty() { return 0 == commandCount; }
+
+    /** 
+     * Removes all commands and releases all referenced objects, keeping the capacity.
+     * The buffer remains bound to its recorder type, see {@link #checkFormat(String)}.
+     */
+    public final void clear() {
+        writePos = 0;
+        readPos = 0;
+        commandCount = 0;
+        Arrays.fill(objects, 0, objectCount, null);
+        objectCount = 0;
+        Arrays.fill(views, 0, viewCount, null);
+        viewCount = 0;
+    }
+
+    /**
+     * Binds this buffer to the recorder type using the given opcode format, if not yet bound.
+     * @throws GLException if this buffer is bound to another recorder type
+     */
+    public final void checkFormat(String name) throws GLException {
+        if( null == format ) {
+            format = name;
+        } else if( !format.equals(name) ) {
+            throw new GLException("Command buffer of "+format+" used by "+name);
+        }
+    }
+
+    private final void ensure(int bytes) {
+        final int required = writePos + bytes;
+        if( required > data.capacity() ) {
+            final ByteBuffer tmp = Buffers.newDirectByteBuffer(Math.max(required, data.capacity() * 2));
+            data.position(0);
+            data.limit(writePos);
+            tmp.put(data);
+            tmp.clear();
+            data = tmp;
+            // views of the copied buffers refer to the old storage
+            Arrays.fill(views, 0, viewCount, null);
+        }
+    }
+
+    //
+    // Recording
+    //
+
+    /** Starts a new command with the given opcode. */
+    public final void putOp(int op) {
+        putInt(op);
+        commandCount++;
+    }
+
+    public final void putInt(int v) {
+        ensure(4);
+        data.putInt(writePos, v);
+        writePos += 4;
+    }
+
+    public final void putLong(long v) {
+        ensure(8);
+        data.putLong(writePos, v);
+        writePos += 8;
+    }
+
+    public final void putFloat(float v) {
+        ensure(4);
+        data.putFloat(writePos, v);
+        writePos += 4;
+    }
+
+    public final void putDouble(double v) {
+        ensure(8);
+        data.putDouble(writePos, v);
+        writePos += 8;
+    }
+
+    public final void putShort(short v) {
+        ensure(2);
+        data.putShort(writePos, v);
+        writePos += 2;
+    }
+
+    public final void putChar(char v) {
+        ensure(2);
+        data.putChar(writePos, v);
+        writePos += 2;
+    }
+
+    public final void putByte(byte v) {
+        ensure(1);
+        data.put(writePos, v);
+        writePos += 1;
+    }
+
+    public final void putBoolean(boolean v) {
+        putByte( v ? (byte)1 : (byte)0 );
+    }
+
+    /** Captures the given object by reference. */
+    public final void putObject(Object o) {
+        if( objectCount == objects.length ) {
+            final Object[] tmp = new Object[objectCount * 2];
+            System.arraycopy(objects, 0, tmp, 0, objectCount);
+            objects = tmp;
+        }
+        putInt(objectCount);
+        objects[objectCount++] = o;
+    }
+
+    /** Captures the given array by copy or by reference, see {@link #isCopyingBuffers()}. */
+    public final void putArray(byte[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(short[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(char[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(int[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(long[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(float[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(double[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(boolean[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+    public final void putArray(Object[] a) { putObject( copyBuffers && null != a ? a.clone() : a ); }
+
+    /**
+     * Captures the given NIO buffer by copy or by reference, see {@link #isCopyingBuffers()}.
+     * A copy contains the remaining elements and is stored within the command buffer.
+     */
+    public final void putBuffer(Buffer b) {
+        if( null == b ) {
+            putByte(ARG_NULL);
+            return;
+        }
+        if( !copyBuffers ) {
+            putByte(ARG_REFERENCE);
+            putObject(b);
+            return;
+        }
+        final byte type = getType(b);
+        final int bytes = b.remaining() * getElementSize(type);
+        putByte(ARG_COPY);
+        putByte(type);
+        putInt(bytes);
+        if( viewCount == views.length ) {
+            final Buffer[] tmp = new Buffer[viewCount * 2];
+            System.arraycopy(views, 0, tmp, 0, viewCount);
+            views = tmp;
+        }
+        putInt(viewCount++);
+        final int off = align(writePos);
+        ensure(off - writePos + bytes);
+        writePos = off;
+        final ByteBuffer dst = slice(off, bytes);
+        switch(type) {
+            case TYPE_BYTE: dst.put(((ByteBuffer)b).duplicate()); break;
+            case TYPE_SHORT: dst.asShortBuffer().put(((ShortBuffer)b).duplicate()); break;
+            case TYPE_CHAR: dst.asCharBuffer().put(((CharBuffer)b).duplicate()); break;
+            case TYPE_INT: dst.asIntBuffer().put(((IntBuffer)b).duplicate()); break;
+            case TYPE_LONG: dst.asLongBuffer().put(((LongBuffer)b).duplicate()); break;
+            case TYPE_FLOAT: dst.asFloatBuffer().put(((FloatBuffer)b).duplicate()); break;
+            case TYPE_DOUBLE: dst.asDoubleBuffer().put(((DoubleBuffer)b).duplicate()); break;
+        }
+        writePos += bytes;
+    }
+
+    //
+    // Replay
+    //
+
+    /** Restarts reading at the first command. */
+    public final void rewind() {
+        readPos = 0;
+    }
+
+    /** Returns true if there are commands left to be read. */
+    public final boolean hasRemaining() {
+        return readPos < writePos;
+    }
+
+    public final int getInt() {
+        final int v = data.getInt(readPos);
+        readPos += 4;
+        return v;
+    }
+
+    public final long getLong() {
+        final long v = data.getLong(readPos);
+        readPos += 8;
+        return v;
+    }
+
+    public final float getFloat() {
+        final float v = data.getFloat(readPos);
+        readPos += 4;
+        return v;
+    }
+
+    public final double getDouble() {
+        final double v = data.getDouble(readPos);
+        readPos += 8;
+        return v;
+    }
+
+    public final short getShort() {
+        final short v = data.getShort(readPos);
+        readPos += 2;
+        return v;
+    }
+
+    public final char getChar() {
+        final char v = data.getChar(readPos);
+        readPos += 2;
+        return v;
+    }
+
+    public final byte getByte() {
+        return data.get(readPos++);
+    }
+
+    public final boolean getBoolean() {
+        return 0 != getByte();
+    }
+
+    /** Returns an object or array captured via {@link #putObject(Object)} or one of the <code>putArray</code> methods. */
+    public final Object getObject() {
+        return objects[getInt()];
+    }
+
+    /** Returns a buffer captured via {@link #putBuffer(Buffer)}, a copy is returned as a view of the command buffer. */
+    public final Buffer getBuffer() {
+        switch( getByte() ) {
+            case ARG_NULL:
+                return null;
+            case ARG_REFERENCE:
+                return (Buffer) getObject();
+            default:
+                break;
+        }
+        final byte type = getByte();
+        final int bytes = getInt();
+        final int idx = getInt();
+        final int off = align(readPos);
+        readPos = off + bytes;
+        Buffer view = views[idx];
+        if( null == view ) {
+            final ByteBuffer bb = slice(off, bytes);
+            switch(type) {
+                case TYPE_BYTE: view = bb; break;
+                case TYPE_SHORT: view = bb.asShortBuffer(); break;
+                case TYPE_CHAR: view = bb.asCharBuffer(); break;
+                case TYPE_INT: view = bb.asIntBuffer(); break;
+                case TYPE_LONG: view = bb.asLongBuffer(); break;
+                case TYPE_FLOAT: view = bb.asFloatBuffer(); break;
+                default: view = bb.asDoubleBuffer(); break;
+            }
+            views[idx] = view;
+        }
+        return view;
+    }
+
+    //
+    // Utilities
+    //
+
+    private static final int align(int pos) {
+        return ( pos + 7 ) & ~7;
+    }
+
+    private final ByteBuffer slice(int off, int bytes) {
+        final ByteBuffer bb = data.duplicate();
+        bb.position(off);
+        bb.limit(off + bytes);
+        return bb.slice().order(ByteOrder.nativeOrder());
+    }
+
+    private static final byte getType(Buffer b) {
+        if( b instanceof ByteBuffer ) {
+            return TYPE_BYTE;
+        } else if( b instanceof ShortBuffer ) {
+            return TYPE_SHORT;
+        } else if( b instanceof CharBuffer ) {
+            return TYPE_CHAR;
+        } else if( b instanceof IntBuffer ) {
+            return TYPE_INT;
+        } else if( b instanceof LongBuffer ) {
+            return TYPE_LONG;
+        } else if( b instanceof FloatBuffer ) {
+            return TYPE_FLOAT;
+        } else if( b instanceof DoubleBuffer ) {
+            return TYPE_DOUBLE;
+        }
+        throw new GLException("Unsupported buffer type "+b.getClass().getName());
+    }
+
+    private static final int getElementSize(byte type) {
+        switch(type) {
+            case TYPE_BYTE: return Buffers.SIZEOF_BYTE;
+            case TYPE_SHORT: return Buffers.SIZEOF_SHORT;
+            case TYPE_CHAR: return Buffers.SIZEOF_CHAR;
+            case TYPE_INT: return Buffers.SIZEOF_INT;
+            case TYPE_LONG: return Buffers.SIZEOF_LONG;
+            case TYPE_FLOAT: return Buffers.SIZEOF_FLOAT;
+            default: return Buffers.SIZEOF_DOUBLE;
+        }
+    }
+
+    public String toString() {
+        return "GLCommandBuffer["+format+", commands "+commandCount+", bytes "+writePos+"/"+data.capacity()+
+               ", objects "+objectCount+", copied buffers "+viewCount+", copy "+copyBuffers+"]";
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLException;
+
+/**
+ * Implemented by the generated <code>RecordGL*</code> classes, 
+ * which record OpenGL calls into a {@link GLCommandBuffer} instead of executing them.
+ * The recorded commands are replayed later against a real {@link GL} in a single pass.
+ * <p>
+ * This allows building a frame's commands on worker threads, one recorder and command buffer per thread,
+ * and to reuse static command lists across frames:
+ * <pre>
+ *     // worker thread, recorder created w/ the context's GL 
+ *     GLCommandRecorder rec = (GLCommandRecorder) GLPipelineFactory.create("javax.media.opengl.Record", null, gl, null);
+ *     GL2ES2 rgl = ((GL)rec).getGL2ES2();
+ *     rgl.glUseProgram(program);
+ *     rgl.glUniform4fv(loc, 1, color, 0);
+ *     rgl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+ *     GLCommandBuffer cmds = rec.getCommandBuffer(); // hand over to the GL thread
+ *
+ *     // GL thread, e.g. within GLEventListener.display(..)
+ *     rec.replay(cmds, drawable.getGL());
+ * </pre></p>
+ * <p>
+ * All <code>void</code> GL functions are recorded, see {@link GLCommandBuffer} for the capture of their arguments.
+ * GL functions returning a value cannot be deferred and throw a {@link GLException}.
+ * Other methods of the GL interface, e.g. {@link GL#isFunctionAvailable(String)} or {@link GL#getGLProfile()},
+ * are passed to the GL given at construction.</p>
+ * <p>
+ * The opcodes are specific to the recorder class, 
+ * a command buffer can only be replayed by a recorder of the same class.</p>
+ */
+public interface GLCommandRecorder {
+    /** Returns the command buffer the calls are recorded to. */
+    public GLCommandBuffer getCommandBuffer();
+
+    /**
+     * Sets the command buffer the calls are recorded to, e.g. a new one for the next frame.
+     * @throws GLException if the buffer has been recorded by another recorder class
+     */
+    public void setCommandBuffer(GLCommandBuffer buf) throws GLException;
+
+    /**
+     * Replays the commands of the given buffer against the given GL, which must be current.
+     * The buffer is left unmodified and may be replayed again.
+     * @throws GLException if the buffer has been recorded by another recorder class
+     */
+    public void replay(GLCommandBuffer buf, GL gl) throws GLException;
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl;
+
+/**
+ * Implemented by the generated <code>StateCacheGL*</code> composable pipelines,
+ * which shadow the OpenGL state and drop calls not changing it.
+ * <p>
+ * Higher level code like {@link com.jogamp.opengl.util.glsl.ShaderState} or
+ * {@link com.jogamp.opengl.util.texture.Texture} re-issues the same state setting calls every frame.
+ * The pipeline filters the redundant ones for the following state:
+ * <ul>
+ *   <li>buffer bindings, {@link javax.media.opengl.GL#glBindBuffer(int, int) glBindBuffer}, incl. the vertex array object binding</li>
+ *   <li>texture bindings per texture unit, {@link javax.media.opengl.GL#glBindTexture(int, int) glBindTexture}
+ *       and {@link javax.media.opengl.GL#glActiveTexture(int) glActiveTexture}</li>
+ *   <li>the program in use, <code>glUseProgram</code></li>
+ *   <li>capabilities, {@link javax.media.opengl.GL#glEnable(int) glEnable} and {@link javax.media.opengl.GL#glDisable(int) glDisable}</li>
+ *   <li>blend function and equation, depth function and depth mask</li>
+ * </ul>
+ * All state is unknown after creation and after {@link #invalidate()}, 
+ * hence the first call setting it is always passed downstream.
+ * Calls changing the state in ways not shadowed, e.g. <code>glPopAttrib</code> or deleting a bound object,
+ * invalidate the affected state.</p>
+ * <p>
+ * The pipeline is installed like the trace pipeline:
+ * <pre>
+ *     GL gl = drawable.setGL(GLPipelineFactory.create("javax.media.opengl.StateCache", null, drawable.getGL(), null));
+ * </pre>
+ * or at context creation via the property <code>jogl.debug.StateCacheGL</code>.</p>
+ * <p>
+ * Code modifying the OpenGL state bypassing the pipeline, e.g. external native code,
+ * shall call {@link #invalidate()} afterwards.</p>
+ * <p>
+ * The counters allow to measure the eliminated calls per frame, e.g. within {@link javax.media.opengl.GLEventListener#display(javax.media.opengl.GLAutoDrawable) display}:
+ * <pre>
+ *     GLStateCache cache = (GLStateCache) drawable.getGL();
+ *     ..
+ *     System.err.println("eliminated calls "+cache.getRedundantCallCount()+" / "+cache.getTrackedCallCount());
+ *     cache.resetCounters();
+ * </pre>
+ * The state and counters are not synchronized and shall be accessed on the GL thread.</p>
+ */
+public interface GLStateCache {
+    /** 
+     * Marks all shadowed state as unknown, 
+     * to be called after the OpenGL state has been modified bypassing this pipeline.
+     */
+    public void invalidate();
+
+    /** 
+     * Enables or disables dropping redundant calls, enabled by default.
+     * If disabled, all calls are passed downstream while the state is still shadowed and counted,
+     * allowing to compare both modes.
+     */
+    public void setFiltering(boolean enable);
+
+    public boolean isFiltering();
+
+    /** Returns the number of calls setting shadowed state since the last {@link #resetCounters()}. */
+    public long getTrackedCallCount();
+
+    /** 
+     * Returns the number of calls not changing the shadowed state since the last {@link #resetCounters()},
+     * which were eliminated if {@link #isFiltering() filtering} is enabled.
+     */
+    public long getRedundantCallCount();
+
+    /** Resets the call counters. */
+    public void resetCounters();
+}
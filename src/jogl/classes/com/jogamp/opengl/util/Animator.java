@@ -185,6 +185,7 @@ public class Animator extends AnimatorBase {
                     if(DEBUG) {
                         System.err.println("Animator stop " + Thread.currentThread() + ": " + toString());
                     }
+                    disposeParallelDisplay();
                     stopIssued = false;
                     pauseIssued = false;
                     animThread = null;
@@ -32,6 +32,7 @@ import com.jogamp.common.util.locks.LockFactory;
 import com.jogamp.common.util.locks.RecursiveLock;
 import jogamp.opengl.Debug;
 import jogamp.opengl.FPSCounterImpl;
+import jogamp.opengl.FrameJitterCounter;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
@@ -61,12 +62,16 @@ public abstract class AnimatorBase implements GLAnimatorControl {
 
     protected ArrayList<GLAutoDrawable> drawables = new ArrayList<GLAutoDrawable>();
     protected boolean drawablesEmpty;
-    protected AnimatorImpl impl;
+    protected volatile AnimatorImpl impl;
+    /** The sequential implementation, while {@link #impl} is a {@link ParallelAnimatorImpl} */
+    private AnimatorImpl sequentialImpl = null;
     protected String baseName;
     protected Thread animThread;
     protected boolean ignoreExceptions;
     protected boolean printExceptions;
     protected FPSCounterImpl fpsCounter = new FPSCounterImpl();    
+    /** Updated by pacing animators only, e.g. {@link FPSAnimator} */
+    protected FrameJitterCounter jitterCounter = new FrameJitterCounter();
     protected RecursiveLock stateSync = LockFactory.createRecursiveLock();
 
     /** Creates a new, empty Animator. */
@@ -143,12 +148,90 @@ public abstract class AnimatorBase implements GLAnimatorControl {
         fpsCounter.tickFPS();
     }
 
+    /**
+     * Enables or disables parallel rendering of the drawables.
+     * <p>
+     * If enabled, each drawable is displayed by its own worker thread,
+     * i.e. its GL context is always made current on the same thread.
+     * The buffers of all drawables are swapped after all of them are rendered, 
+     * so all surfaces present together.
+     * Intended for multiple independent, heavyweight drawables, e.g. NEWT GLWindows.
+     * </p>
+     * <p>
+     * The per drawable display duration is available via {@link #getAverageDisplayDuration(GLAutoDrawable)}, 
+     * {@link #getMaxDisplayDuration(GLAutoDrawable)} and {@link #getSlowestDrawable()}.
+     * </p>
+     * <p>
+     * A running animation is paused while switching.
+     * Disabling or stopping the animation stops all worker threads,
+     * they are started again by the next frame.
+     * </p>
+     */
+    public final synchronized void setParallelDisplay(boolean enable) {
+        if( enable == isParallelDisplay() ) {
+            return;
+        }
+        final boolean paused = pause();
+        if(enable) {
+            sequentialImpl = impl;
+            impl = new ParallelAnimatorImpl();
+        } else {
+            ((ParallelAnimatorImpl)impl).dispose();
+            impl = sequentialImpl;
+            sequentialImpl = null;
+        }
+        if(paused) {
+            resume();
+        }
+    }
+
+    /** Stops the worker threads of the {@link #setParallelDisplay(boolean) parallel display}, if enabled. */
+    protected final void disposeParallelDisplay() {
+        final AnimatorImpl _impl = impl;
+        if( _impl instanceof ParallelAnimatorImpl ) {
+            ((ParallelAnimatorImpl)_impl).dispose();
+        }
+    }
+
+    /** @return true if the drawables are rendered in parallel, see {@link #setParallelDisplay(boolean)} */
+    public final boolean isParallelDisplay() {
+        return impl instanceof ParallelAnimatorImpl;
+    }
+
+    /** 
+     * @return moving average of the drawable's display duration in nanoseconds w/o swapping the buffers, 
+     *         or 0 if not known or not {@link #setParallelDisplay(boolean) rendering in parallel}
+     */
+    public final long getAverageDisplayDuration(GLAutoDrawable drawable) {
+        final AnimatorImpl _impl = impl;
+        return _impl instanceof ParallelAnimatorImpl ? ((ParallelAnimatorImpl)_impl).getAverageDisplayDuration(drawable) : 0;
+    }
+
+    /** 
+     * @return maximum display duration of the drawable in nanoseconds w/o swapping the buffers, 
+     *         or 0 if not known or not {@link #setParallelDisplay(boolean) rendering in parallel}
+     */
+    public final long getMaxDisplayDuration(GLAutoDrawable drawable) {
+        final AnimatorImpl _impl = impl;
+        return _impl instanceof ParallelAnimatorImpl ? ((ParallelAnimatorImpl)_impl).getMaxDisplayDuration(drawable) : 0;
+    }
+
+    /** 
+     * @return the drawable with the highest average display duration, 
+     *         or null if not known or not {@link #setParallelDisplay(boolean) rendering in parallel}
+     */
+    public final GLAutoDrawable getSlowestDrawable() {
+        final AnimatorImpl _impl = impl;
+        return _impl instanceof ParallelAnimatorImpl ? ((ParallelAnimatorImpl)_impl).getSlowestDrawable() : null;
+    }
+
     public final void setUpdateFPSFrames(int frames, PrintStream out) {
         fpsCounter.setUpdateFPSFrames(frames, out);
     }
     
     public final void resetFPSCounter() {
         fpsCounter.resetFPSCounter();
+        jitterCounter.resetJitterCounter();
     }
 
     public final int getUpdateFPSFrames() {
@@ -183,6 +266,31 @@ public abstract class AnimatorBase implements GLAnimatorControl {
         return fpsCounter.getTotalFPS();
     }        
 
+    /** @return number of frames scheduled by a pacing animator, e.g. {@link FPSAnimator}, otherwise 0 */
+    public final long getPacedFrames() {
+        return jitterCounter.getPacedFrames();
+    }
+
+    /** @return number of frames skipped by a pacing animator to keep its rate */
+    public final long getSkippedFrames() {
+        return jitterCounter.getSkippedFrames();
+    }
+
+    /** @return average absolute deviation of the frame start from its schedule in nanoseconds */
+    public final long getAverageFrameJitter() {
+        return jitterCounter.getAverageJitter();
+    }
+
+    /** @return maximum absolute deviation of the frame start from its schedule in nanoseconds */
+    public final long getMaxFrameJitter() {
+        return jitterCounter.getMaxJitter();
+    }
+
+    /** @return standard deviation of the absolute frame jitter in nanoseconds */
+    public final long getFrameJitterDeviation() {
+        return jitterCounter.getJitterDeviation();
+    }
+
     public final Thread getThread() {
         stateSync.lock();
         try {
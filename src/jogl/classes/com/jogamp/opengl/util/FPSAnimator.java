@@ -39,18 +39,47 @@
  */
 package com.jogamp.opengl.util;
 
-import java.util.*;
 import javax.media.opengl.*;
 
+import jogamp.opengl.FramePacer;
+
 /** An Animator subclass which attempts to achieve a target
 frames-per-second rate to avoid using all CPU time. The target FPS
-is only an estimate and is not guaranteed. */
+is only an estimate and is not guaranteed.
+<p>
+Frames are paced with nanosecond precision by a dedicated thread,
+see {@link #PACING_FIXED_RATE}, {@link #PACING_FIXED_DELAY} and {@link #PACING_ADAPTIVE}.
+The deviation of each frame start from its schedule is reported via
+{@link #getAverageFrameJitter()}, {@link #getMaxFrameJitter()} and {@link #getFrameJitterDeviation()}.
+</p>
+<p>
+The animation thread does not run as a daemon thread,
+so it is able to keep an application from terminating.
+</p> */
 public class FPSAnimator extends AnimatorBase {
-    private Timer timer = null;
-    private TimerTask task = null;
+    /** 
+     * Fixed rate pacing: frames are scheduled on a fixed time grid,
+     * grid slots passed while rendering are skipped, see {@link #getSkippedFrames()}.
+     */
+    public static final int PACING_FIXED_RATE = FramePacer.POLICY_FIXED_RATE;
+    /** 
+     * Fixed delay pacing: the next frame is scheduled one period after the start of the previous frame,
+     * or right after its end if rendering took longer, as with <code>Timer.schedule(task, 0, period)</code>.
+     */
+    public static final int PACING_FIXED_DELAY = FramePacer.POLICY_FIXED_DELAY;
+    /** 
+     * Adaptive pacing: fixed rate while frames meet the period,
+     * otherwise the next frame starts right after the late one w/o skipping.
+     */
+    public static final int PACING_ADAPTIVE = FramePacer.POLICY_ADAPTIVE;
+
+    /** timeout in milliseconds, limiting the wait for the animation thread to stop or pause */
+    private static final long TO_WAIT_FOR_STOP = 15*16;
+
+    private boolean started = false;
+    private PacingTask task = null;
     private int fps;
-    private boolean scheduleAtFixedRate;
-    private volatile boolean shouldRun;
+    private volatile int pacingPolicy;
 
     protected String getBaseName(String prefix) {
         return "FPS" + prefix + "Animator" ;
@@ -79,19 +108,53 @@ public class FPSAnimator extends AnimatorBase {
 
     /** Creates an FPSAnimator with a given target frames-per-second
     value, an initial drawable to animate, and a flag indicating
-    whether to use fixed-rate scheduling. */
+    whether to use fixed-rate scheduling, i.e. {@link #PACING_FIXED_RATE},
+    otherwise {@link #PACING_FIXED_DELAY}. */
     public FPSAnimator(GLAutoDrawable drawable, int fps, boolean scheduleAtFixedRate) {
+        this(drawable, fps, scheduleAtFixedRate ? PACING_FIXED_RATE : PACING_FIXED_DELAY);
+    }
+
+    /** Creates an FPSAnimator with a given target frames-per-second
+    value, an initial drawable to animate, and the pacing policy,
+    one of {@link #PACING_FIXED_RATE}, {@link #PACING_FIXED_DELAY} or {@link #PACING_ADAPTIVE}. */
+    public FPSAnimator(GLAutoDrawable drawable, int fps, int pacingPolicy) {
         this.fps = fps;
+        setPacingPolicy(pacingPolicy);
         if (drawable != null) {
             add(drawable);
         }
-        this.scheduleAtFixedRate = scheduleAtFixedRate;
+    }
+
+    /** @return the target frames-per-second value */
+    public final int getFPS() {
+        return fps;
+    }
+
+    /** @return the pacing policy, one of {@link #PACING_FIXED_RATE}, {@link #PACING_FIXED_DELAY} or {@link #PACING_ADAPTIVE} */
+    public final int getPacingPolicy() {
+        return pacingPolicy;
+    }
+
+    /** Sets the pacing policy, takes effect with the next frame. */
+    public final void setPacingPolicy(int pacingPolicy) {
+        stateSync.lock();
+        try {
+            if(!FramePacer.isPolicy(pacingPolicy)) {
+                throw new IllegalArgumentException("Invalid pacing policy "+pacingPolicy);
+            }
+            this.pacingPolicy = pacingPolicy;
+            if(null != task) {
+                task.pacer.setPolicy(pacingPolicy);
+            }
+        } finally {
+            stateSync.unlock();
+        }
     }
 
     public final boolean isStarted() {
         stateSync.lock();
         try {
-            return (timer != null);
+            return started;
         } finally {
             stateSync.unlock();
         }
@@ -100,7 +163,7 @@ public class FPSAnimator extends AnimatorBase {
     public final boolean isAnimating() {
         stateSync.lock();
         try {
-            return (timer != null) && (task != null);
+            return started && (task != null);
         } finally {
             stateSync.unlock();
         }
@@ -109,44 +172,89 @@ public class FPSAnimator extends AnimatorBase {
     public final boolean isPaused() {
         stateSync.lock();
         try {
-            return (timer != null) && (task == null);
+            return started && (task == null);
         } finally {
             stateSync.unlock();
         }
     }
 
-    private void startTask() {
-        if(null != task) {
-            return;
+    class PacingTask implements Runnable {
+        final FramePacer pacer;
+        /** Cleared while holding the FPSAnimator monitor, after the last frame */
+        volatile boolean running = true;
+
+        PacingTask(FramePacer pacer) {
+            this.pacer = pacer;
         }
-        long delay = (long) (1000.0f / (float) fps);
-        task = new TimerTask() {
-            public void run() {
-                if(FPSAnimator.this.shouldRun) {
+
+        public void run() {
+            try {
+                while( pacer.waitForFrame() ) {
                     FPSAnimator.this.animThread = Thread.currentThread();
                     // display impl. uses synchronized block on the animator instance
                     display();
+                    pacer.frameDone();
+                }
+            } finally {
+                synchronized (FPSAnimator.this) {
+                    running = false;
+                    FPSAnimator.this.notifyAll();
                 }
             }
-        };
+        }
+    }
+
+    private void startTask() {
+        if(null != task) {
+            return;
+        }
+        final FramePacer pacer = new FramePacer(FramePacer.getPeriod(fps), pacingPolicy, jitterCounter);
+        pacer.reset();
+        task = new PacingTask(pacer);
 
         fpsCounter.resetFPSCounter();
-        shouldRun = true;
+        jitterCounter.resetJitterCounter();
+
+        final Thread thread = new Thread(task, Thread.currentThread().getName()+"-"+baseName);
+        thread.start();
+    }
 
-        if (scheduleAtFixedRate) {
-            timer.scheduleAtFixedRate(task, 0, delay);
-        } else {
-            timer.schedule(task, 0, delay);
+    /** 
+     * Cancels the pacing task and waits until its last frame is finished,
+     * if not issued on the animation thread. The monitor is released while waiting.
+     */
+    private void stopTask() {
+        final PacingTask _task;
+        final boolean blocking;
+        stateSync.lock();
+        try {
+            _task = task;
+            task = null;
+            if(null != _task) {
+                _task.pacer.cancel();
+            }
+            blocking = impl.blockUntilDone(animThread);
+            animThread = null;
+        } finally {
+            stateSync.unlock();
+        }
+        long remaining = blocking ? TO_WAIT_FOR_STOP : 0;
+        while ( remaining>0 && null != _task && _task.running ) {
+            final long td = System.currentTimeMillis();
+            try {
+                wait(remaining);
+            } catch (InterruptedException ie) { }
+            remaining -= (System.currentTimeMillis() - td) ;
         }
     }
 
     public synchronized boolean  start() {
-        if (timer != null) {
+        if (started) {
             return false;
         }
         stateSync.lock();
         try {
-            timer = new Timer();
+            started = true;
             startTask();
         } finally {
             stateSync.unlock();
@@ -154,28 +262,18 @@ public class FPSAnimator extends AnimatorBase {
         return true;
     }
 
-    /** Stops this FPSAnimator. Due to the implementation of the
-    FPSAnimator it is not guaranteed that the FPSAnimator will be
-    completely stopped by the time this method returns. */
+    /** Stops this FPSAnimator. If not invoked on the animation thread, 
+    it waits until the current frame has finished, 
+    bounded by a timeout. */
     public synchronized boolean stop() {
-        if (timer == null) {
+        if (!started) {
             return false;
         }
+        stopTask();
+        disposeParallelDisplay();
         stateSync.lock();
         try {
-            shouldRun = false;
-            if(null != task) {
-                task.cancel();
-                task = null;
-            }
-            if(null != timer) {
-                timer.cancel();
-                timer = null;
-            }
-            animThread = null;
-            try {
-                Thread.sleep(20); // ~ 1/60 hz wait, since we can't ctrl stopped threads
-            } catch (InterruptedException e) { }
+            started = false;
         } finally {
             stateSync.unlock();
         }
@@ -183,28 +281,15 @@ public class FPSAnimator extends AnimatorBase {
     }
 
     public synchronized boolean pause() {
-        if (timer == null) {
+        if (!started) {
             return false;
         }
-        stateSync.lock();
-        try {
-            shouldRun = false;
-            if(null != task) {
-                task.cancel();
-                task = null;
-            }
-            animThread = null;
-            try {
-                Thread.sleep(20); // ~ 1/60 hz wait, since we can't ctrl stopped threads
-            } catch (InterruptedException e) { }
-        } finally {
-            stateSync.unlock();
-        }
+        stopTask();
         return true;
     }
 
     public synchronized boolean resume() {
-        if (timer == null) {
+        if (!started) {
             return false;
         }
         stateSync.lock();
@@ -11,6 +11,7 @@ import javax.media.opengl.GL;
 import javax.media.opengl.GLException;
 import javax.media.opengl.fixedfunc.GLPointerFuncUtil;
 
+import jogamp.opengl.util.DirectBufferPool;
 import jogamp.opengl.util.GLArrayHandler;
 import jogamp.opengl.util.GLFixedArrayHandler;
 import jogamp.opengl.util.glsl.GLSLArrayHandler;
@@ -19,6 +20,17 @@ import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.util.glsl.ShaderState;
 
 
+/**
+ * Client side array data, growing its buffer on demand.
+ * <p>
+ * The buffer grows geometrically, at least doubling its capacity,
+ * hence filling it element by element copies each element only a constant number of times on average.
+ * Buffers allocated by this class are taken from a shared pool of direct buffers, see {@link DirectBufferPool#SHARED}.
+ * The buffer is returned to the pool only when {@link #destroy(GL) destroyed} and if it is not referenced
+ * by interleaved sub-arrays. A buffer replaced by growing is left to the garbage collector,
+ * since it may still be referenced, e.g. by {@link #getBuffer()} callers.
+ * </p>
+ */
 public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayDataEditable {
 
   /**
@@ -139,6 +151,7 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
   public void destroy(GL gl) {
     reset(gl);
     super.destroy(gl);
+    releasePooledBuffer();
   }
 
   public void reset(GL gl) {
@@ -269,6 +282,42 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
     Buffers.putf(buffer, v);
   }
 
+  public void put(float[] src, int offset, int length) {
+    if ( sealed ) return;
+    growBufferIfNecessary(length);
+    if( !(buffer instanceof FloatBuffer) ) {
+        throw new GLException("Buffer is not a FloatBuffer:\n\t"+this);
+    }
+    ((FloatBuffer)buffer).put(src, offset, length);
+  }
+
+  public void put(short[] src, int offset, int length) {
+    if ( sealed ) return;
+    growBufferIfNecessary(length);
+    if( !(buffer instanceof ShortBuffer) ) {
+        throw new GLException("Buffer is not a ShortBuffer:\n\t"+this);
+    }
+    ((ShortBuffer)buffer).put(src, offset, length);
+  }
+
+  public void put(int[] src, int offset, int length) {
+    if ( sealed ) return;
+    growBufferIfNecessary(length);
+    if( !(buffer instanceof IntBuffer) ) {
+        throw new GLException("Buffer is not an IntBuffer:\n\t"+this);
+    }
+    ((IntBuffer)buffer).put(src, offset, length);
+  }
+
+  public void put(byte[] src, int offset, int length) {
+    if ( sealed ) return;
+    growBufferIfNecessary(length);
+    if( !(buffer instanceof ByteBuffer) ) {
+        throw new GLException("Buffer is not a ByteBuffer:\n\t"+this);
+    }
+    ((ByteBuffer)buffer).put(src, offset, length);
+  }
+
   public String toString() {
     return "GLArrayDataClient["+name+
                        ", index "+index+
@@ -306,38 +355,62 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
     // add the stride delta
     additional += (additional/components)*(strideL-components);
 
-    int osize = (buffer!=null)?buffer.capacity():0;
+    final int osize = (buffer!=null)?buffer.capacity():0;
+    // amortized geometric growth, at least doubling a non empty buffer
+    final long nsize = Math.max( (long)osize + (long)additional * components, 2L * osize );
+    final int elemSize;
     if(componentClazz==ByteBuffer.class) {
-        ByteBuffer newBBuffer = Buffers.newDirectByteBuffer( (osize+additional) * components );
-        if(buffer!=null) {
-            buffer.flip();
-            newBBuffer.put((ByteBuffer)buffer);
-        }
-        buffer = newBBuffer;
+        elemSize = 1;
     } else if(componentClazz==ShortBuffer.class) {
-        ShortBuffer newSBuffer = Buffers.newDirectShortBuffer( (osize+additional) * components );
-        if(buffer!=null) {
-            buffer.flip();
-            newSBuffer.put((ShortBuffer)buffer);
-        }
-        buffer = newSBuffer;
+        elemSize = Buffers.SIZEOF_SHORT;
     } else if(componentClazz==IntBuffer.class) {
-        IntBuffer newIBuffer = Buffers.newDirectIntBuffer( (osize+additional) * components );
-        if(buffer!=null) {
-            buffer.flip();
-            newIBuffer.put((IntBuffer)buffer);
-        }
-        buffer = newIBuffer;
+        elemSize = Buffers.SIZEOF_INT;
     } else if(componentClazz==FloatBuffer.class) {
-        FloatBuffer newFBuffer = Buffers.newDirectFloatBuffer( (osize+additional) * components );
-        if(buffer!=null) {
-            buffer.flip();
-            newFBuffer.put((FloatBuffer)buffer);
-        }
-        buffer = newFBuffer;
+        elemSize = Buffers.SIZEOF_FLOAT;
     } else {
         throw new GLException("Given Buffer Class not supported: "+componentClazz+":\n\t"+this);
     }
+    if( nsize * elemSize > Integer.MAX_VALUE ) {
+        throw new GLException("Buffer size exceeds 2GB: "+nsize+" elements:\n\t"+this);
+    }
+    final ByteBuffer newPooledBuffer = DirectBufferPool.SHARED.acquire((int)nsize * elemSize);
+    final Buffer newBuffer;
+    if(componentClazz==ByteBuffer.class) {
+        newBuffer = newPooledBuffer;
+    } else if(componentClazz==ShortBuffer.class) {
+        newBuffer = newPooledBuffer.asShortBuffer();
+    } else if(componentClazz==IntBuffer.class) {
+        newBuffer = newPooledBuffer.asIntBuffer();
+    } else {
+        newBuffer = newPooledBuffer.asFloatBuffer();
+    }
+    if(buffer!=null) {
+        buffer.flip();
+        Buffers.put(newBuffer, buffer);
+    }
+    // the old buffer may still be referenced, hence it is not returned to the pool
+    buffer = newBuffer;
+    pooledBuffer = newPooledBuffer;
+    pooledBufferShared = false;
+  }
+
+  /**
+   * Marks the current buffer as referenced by other arrays, e.g. interleaved sub-arrays,
+   * hence it will not be returned to the pool on {@link #destroy(GL)}.
+   */
+  protected final void setBufferShared() {
+    pooledBufferShared = true;
+  }
+
+  /** Returns the buffer's pooled memory, if allocated by this instance and not shared, to the {@link DirectBufferPool#SHARED shared pool}. */
+  private void releasePooledBuffer() {
+    if(null != pooledBuffer) {
+        if(!pooledBufferShared) {
+            DirectBufferPool.SHARED.release(pooledBuffer);
+        }
+        pooledBuffer = null;
+        pooledBufferShared = false;
+    }
   }
 
   protected final void checkSeal(boolean test) throws GLException {
@@ -390,6 +463,10 @@ public class GLArrayDataClient extends GLArrayDataWrapper implements GLArrayData
   protected boolean enableBufferAlways;
 
   protected int initialSize;
+  /** Pooled memory backing {@link #buffer}, if allocated by {@link #growBuffer(int)}, otherwise null */
+  private ByteBuffer pooledBuffer;
+  /** True if {@link #pooledBuffer} is referenced by other arrays, see {@link #setBufferShared()} */
+  private boolean pooledBufferShared;
 
   protected GLArrayHandler glArrayHandler;
   protected boolean usesGLSL;
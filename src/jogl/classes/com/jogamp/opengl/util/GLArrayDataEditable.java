@@ -103,5 +103,15 @@ public interface GLArrayDataEditable extends GLArrayData {
     public void puti(int v);
     public void putx(int v);
     public void putf(float v);
+
+    /**
+     * Bulk relative put of <code>length</code> elements,
+     * growing the buffer at most once and avoiding per element checks.
+     * The buffer must be a {@link java.nio.FloatBuffer}, the same applies to the other array types.
+     */
+    public void put(float[] src, int offset, int length);
+    public void put(short[] src, int offset, int length);
+    public void put(int[] src, int offset, int length);
+    public void put(byte[] src, int offset, int length);
 }
 
@@ -225,6 +225,8 @@ public class GLArrayDataServer extends GLArrayDataClient implements GLArrayDataE
       if(usesGLSL) {
           throw new GLException("buffer uses GLSL");          
       }
+      // the sub-array references this array's buffer
+      setBufferShared();
       final GLArrayDataWrapper ad = GLArrayDataWrapper.createFixed(
               index, comps, getComponentType(), 
               getNormalized(), getStride(), getBuffer(), 
@@ -280,6 +282,8 @@ public class GLArrayDataServer extends GLArrayDataClient implements GLArrayDataE
       if(!usesGLSL) {
           throw new GLException("buffer uses fixed function");          
       }
+      // the sub-array references this array's buffer
+      setBufferShared();
       final GLArrayDataWrapper ad = GLArrayDataWrapper.createGLSL(
               name, comps, getComponentType(), 
               getNormalized(), getStride(), getBuffer(), 
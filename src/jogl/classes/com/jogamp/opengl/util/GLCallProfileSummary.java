@@ -0,0 +1,149 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLException;
+import javax.media.opengl.GLPipelineFactory;
+
+import com.jogamp.opengl.GLCallProfile;
+import com.jogamp.opengl.GLCallProfiler;
+
+/**
+ * {@link GLEventListener} reporting a per frame summary of a {@link GLCallProfiler} pipeline.
+ * <p>
+ * At {@link #init(GLAutoDrawable) init} the <code>ProfileGL*</code> pipeline is installed on the drawable,
+ * if not installed yet, see {@link #findProfiler(GL)}.
+ * Every <code>frameInterval</code> frames a snapshot is taken, the most expensive methods are printed
+ * with their values averaged per frame and the profiler is reset.
+ * The listener shall be added last, so a frame's calls are accounted within the same interval.</p>
+ * <pre>
+ *     drawable.addGLEventListener(new GLCallProfileSummary(System.err, 60, 10));
+ * </pre>
+ */
+public class GLCallProfileSummary implements GLEventListener {
+
+    /**
+     * @param out the stream the summary is printed to, may be null to only take snapshots, see {@link #getLastProfile()}
+     * @param frameInterval number of frames per summary
+     * @param maxMethods maximum number of methods listed per summary
+     */
+    public GLCallProfileSummary(PrintStream out, int frameInterval, int maxMethods) {
+        if( 0 >= frameInterval ) {
+            throw new IllegalArgumentException("frameInterval must be > 0: "+frameInterval);
+        }
+        this.out = out;
+        this.frameInterval = frameInterval;
+        this.maxMethods = maxMethods;
+    }
+
+    /** Returns the installed profiler, or null if not initialized. */
+    public final GLCallProfiler getProfiler() { return profiler; }
+
+    /** Returns the snapshot of the last completed interval, or null if none has completed yet. */
+    public final GLCallProfile getLastProfile() { return lastFrames > 0 ? profile : null; }
+
+    /** Returns the number of frames of the last completed interval. */
+    public final int getLastFrameCount() { return lastFrames; }
+
+    /**
+     * Returns the {@link GLCallProfiler} within the given GL pipeline, 
+     * walking down the composed pipelines via their <code>getDownstreamGL()</code>,
+     * or null if no profiler is installed.
+     */
+    public static GLCallProfiler findProfiler(GL gl) {
+        while( null != gl ) {
+            if( gl instanceof GLCallProfiler ) {
+                return (GLCallProfiler) gl;
+            }
+            gl = getDownstreamGL(gl);
+        }
+        return null;
+    }
+
+    /** Returns the downstream GL of a composable pipeline, or null if <code>gl</code> is not a pipeline. */
+    private static GL getDownstreamGL(GL gl) {
+        try {
+            final Object downstream = gl.getClass().getMethod("getDownstreamGL").invoke(gl);
+            return downstream instanceof GL ? (GL) downstream : null;
+        } catch (NoSuchMethodException nsme) {
+            return null;
+        } catch (IllegalAccessException iae) {
+            throw new GLException(iae);
+        } catch (InvocationTargetException ite) {
+            throw new GLException(ite.getTargetException());
+        }
+    }
+
+    public void init(GLAutoDrawable drawable) {
+        profiler = findProfiler(drawable.getGL());
+        if( null == profiler ) {
+            profiler = (GLCallProfiler) drawable.setGL( GLPipelineFactory.create("javax.media.opengl.Profile", null, drawable.getGL(), null) );
+        }
+        profiler.reset();
+        frames = 0;
+    }
+
+    public void dispose(GLAutoDrawable drawable) {
+        profiler = null;
+    }
+
+    public void display(GLAutoDrawable drawable) {
+        if( null == profiler ) {
+            return;
+        }
+        if( ++frames >= frameInterval ) {
+            profile = profiler.snapshot(profile);
+            profiler.reset();
+            lastFrames = frames;
+            frames = 0;
+            if( null != out ) {
+                sb.setLength(0);
+                out.println(profile.toString(sb, maxMethods, lastFrames));
+            }
+        }
+    }
+
+    public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
+    }
+
+    private final PrintStream out;
+    private final int frameInterval;
+    private final int maxMethods;
+    private final StringBuilder sb = new StringBuilder();
+    private GLCallProfiler profiler = null;
+    private GLCallProfile profile = null;
+    private int frames = 0;
+    private int lastFrames = 0;
+}
@@ -0,0 +1,481 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2GL3;
+import javax.media.opengl.GLDrawable;
+import javax.media.opengl.GLException;
+import javax.media.opengl.GLProfile;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+import com.jogamp.opengl.util.texture.spi.NetPbmTextureWriter;
+
+/**
+ * Captures a sequence of frames to numbered image files without stalling the GL thread,
+ * the multi-frame counterpart of {@link GLReadBufferUtil}.
+ * <p>
+ * Each {@link #capture(GL, GLDrawable)} issues <code>glReadPixels</code> into the next
+ * of a ring of pixel pack buffer objects and returns without waiting for the GPU.
+ * The oldest pending read back is then mapped and copied into a buffer of a fixed size pool,
+ * which is handed to a background encoder thread writing it via {@link TextureIO}
+ * as <code>TGA</code>, <code>PPM</code> or <code>PAM</code>, see {@link NetPbmTextureWriter}.
+ * If pixel buffer objects are not available, the frame is read synchronously into the pool buffer.
+ * </p>
+ * <p>
+ * If encoding falls behind and no pool buffer becomes free within {@link #setMaxBlockTime(long)},
+ * the frame is dropped and counted, see {@link #getDroppedFrameCount()}.
+ * This bounds both the memory in use and the time the GL thread may be held up.
+ * </p>
+ * <p>
+ * Usage, all methods taking a <code>GL</code> object must be called with the context current:
+ * <pre>
+ *   GLReadBufferCapture cap = new GLReadBufferCapture(false, true, 3, 8);
+ *   cap.start(dir, "frame-", NetPbmTextureWriter.PPM);
+ *   // in display(..), after rendering
+ *   cap.capture(gl, drawable);
+ *   // finally
+ *   cap.stop(gl);
+ * </pre>
+ * </p>
+ */
+public class GLReadBufferCapture {
+    /** Default maximum time in milliseconds {@link #capture(GL, GLDrawable)} waits for a free pool buffer, {@value}. */
+    public static final long DEFAULT_MAX_BLOCK_TIME = 20;
+
+    private static int encoderThreadNum = 0;
+
+    private final int components, alignment;
+    private final boolean flip;
+    private final GLPixelStorageModes psm;
+    private final PBOSlot[] slots;
+    private final BlockingQueue<Frame> freeFrames;
+    private final BlockingQueue<Frame> pendingFrames;
+    private final Frame stopFrame = new Frame();
+
+    private volatile long maxBlockTime = DEFAULT_MAX_BLOCK_TIME;
+
+    private File dir;
+    private String prefix, suffix;
+    private Thread encoderThread;
+    private long frameNumber;
+    private int slotIdx;
+    private int pboState; // 0: undecided, 1: in use, -1: n/a
+    private volatile GLProfile glProfile;
+
+    private volatile long capturedFrames, droppedFrames, writtenFrames, failedFrames;
+    private volatile Exception lastWriteException;
+
+    /**
+     * @param alpha true for RGBA readPixels, otherwise RGB readPixels
+     * @param flip whether to flip the data vertically before writing it, done by the encoder thread
+     * @param pboCount number of pixel pack buffer objects used round-robin, a value below 2 disables asynchronous read back
+     * @param poolSize number of pixel buffers available for frames read back but not yet written, at least 1
+     */
+    public GLReadBufferCapture(boolean alpha, boolean flip, int pboCount, int poolSize) {
+        if( 1 > poolSize ) {
+            throw new IllegalArgumentException("poolSize must be at least 1, has "+poolSize);
+        }
+        components = alpha ? 4 : 3 ;
+        alignment = alpha ? 4 : 1 ;
+        this.flip = flip;
+        psm = new GLPixelStorageModes();
+        slots = new PBOSlot[ 2 <= pboCount ? pboCount : 0 ];
+        for(int i=0; i<slots.length; i++) {
+            slots[i] = new PBOSlot();
+        }
+        freeFrames = new ArrayBlockingQueue<Frame>(poolSize);
+        pendingFrames = new ArrayBlockingQueue<Frame>(poolSize+1); // + stopFrame
+        for(int i=0; i<poolSize; i++) {
+            freeFrames.add(new Frame());
+        }
+    }
+
+    /**
+     * Starts the encoder thread, writing each frame to
+     * <code>dir/prefix+NNNNNN.suffix</code>, counting frames from zero.
+     *
+     * @param dir the destination directory
+     * @param prefix the file name prefix
+     * @param suffix {@link TextureIO#TGA}, {@link NetPbmTextureWriter#PPM} or {@link NetPbmTextureWriter#PAM}
+     * @throws IllegalArgumentException if the suffix is not supported, or is PPM while capturing alpha
+     * @throws GLException if already started
+     */
+    public synchronized void start(File dir, String prefix, String suffix) throws IllegalArgumentException, GLException {
+        if( null != encoderThread ) {
+            throw new GLException("Capture already started");
+        }
+        if( !TextureIO.TGA.equals(suffix) && !NetPbmTextureWriter.PPM.equals(suffix) && !NetPbmTextureWriter.PAM.equals(suffix) ) {
+            throw new IllegalArgumentException("Unsupported suffix: "+suffix+", should be "+TextureIO.TGA+", "+NetPbmTextureWriter.PPM+" or "+NetPbmTextureWriter.PAM);
+        }
+        if( 4 == components && NetPbmTextureWriter.PPM.equals(suffix) ) {
+            throw new IllegalArgumentException("PPM doesn't support RGBA, use PAM");
+        }
+        this.dir = dir;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        frameNumber = 0;
+        capturedFrames = 0;
+        droppedFrames = 0;
+        writtenFrames = 0;
+        failedFrames = 0;
+        lastWriteException = null;
+        encoderThread = new Thread(new Encoder(), getThreadName());
+        encoderThread.setDaemon(true);
+        encoderThread.start();
+    }
+
+    private static synchronized String getThreadName() {
+        return "GLReadBufferCapture-Encoder-"+(encoderThreadNum++);
+    }
+
+    public synchronized boolean isStarted() { return null != encoderThread; }
+
+    /**
+     * Sets the maximum time in milliseconds {@link #capture(GL, GLDrawable)} waits for a free pool buffer
+     * before dropping the frame, 0 drops immediately. Default is {@link #DEFAULT_MAX_BLOCK_TIME}.
+     */
+    public void setMaxBlockTime(long ms) { maxBlockTime = Math.max(0, ms); }
+
+    public long getMaxBlockTime() { return maxBlockTime; }
+
+    /** @return true if pixel buffer objects are used for asynchronous read back, only valid between the first {@link #capture(GL, GLDrawable)} and {@link #stop(GL)} */
+    public boolean isUsingPBOs() { return 0 < pboState; }
+
+    /** @return number of frames handed to the encoder thread */
+    public long getCapturedFrameCount() { return capturedFrames; }
+
+    /** @return number of frames dropped, since no pool buffer became free in time */
+    public long getDroppedFrameCount() { return droppedFrames; }
+
+    /** @return number of frames written to file */
+    public long getWrittenFrameCount() { return writtenFrames; }
+
+    /** @return number of frames which could not be written, see {@link #getLastWriteException()} */
+    public long getFailedFrameCount() { return failedFrames; }
+
+    /** @return number of frames waiting to be written */
+    public int getPendingFrameCount() { return pendingFrames.size(); }
+
+    /** @return the last exception thrown while writing a frame, e.g. an IOException or a GLException for an unsupported format, or null */
+    public Exception getLastWriteException() { return lastWriteException; }
+
+    /**
+     * Reads the drawable's pixels of the current frame, asynchronously if pixel buffer objects are in use.
+     * <p>
+     * Does nothing if not {@link #start(File, String, String) started}.
+     * </p>
+     * @param gl the current GL object
+     * @param drawable the drawable to read from
+     */
+    public synchronized void capture(GL gl, GLDrawable drawable) {
+        if( null == encoderThread ) {
+            return;
+        }
+        final int width = drawable.getWidth();
+        final int height = drawable.getHeight();
+        final int size = width * height * components;
+        if( 0 >= size ) {
+            return;
+        }
+        glProfile = gl.getGLProfile();
+        if( 0 == pboState ) {
+            pboState = 0 < slots.length && isPBOAvailable(gl) ? 1 : -1 ;
+        }
+        psm.setAlignment(gl, alignment, alignment);
+        try {
+            if( 0 < pboState ) {
+                final GL2GL3 gl2gl3 = gl.getGL2GL3();
+                final PBOSlot slot = slots[slotIdx];
+                if( slot.pending ) {
+                    // ring is full, the slot to be reused holds the oldest read back
+                    deliver(gl2gl3, slot);
+                }
+                if( 0 == slot.name ) {
+                    final int[] tmp = new int[1];
+                    gl2gl3.glGenBuffers(1, tmp, 0);
+                    slot.name = tmp[0];
+                }
+                gl2gl3.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, slot.name);
+                if( slot.capacity < size ) {
+                    gl2gl3.glBufferData(GL2GL3.GL_PIXEL_PACK_BUFFER, size, null, GL2GL3.GL_STREAM_READ);
+                    slot.capacity = size;
+                }
+                gl2gl3.glReadPixels(0, 0, width, height, getGLFormat(), GL.GL_UNSIGNED_BYTE, 0L);
+                gl2gl3.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, 0);
+                slot.width = width;
+                slot.height = height;
+                slot.number = frameNumber++;
+                slot.pending = true;
+                slotIdx = ( slotIdx + 1 ) % slots.length;
+            } else {
+                final Frame frame = acquireFrame(size);
+                if( null != frame ) {
+                    frame.set(width, height, frameNumber);
+                    gl.glReadPixels(0, 0, width, height, getGLFormat(), GL.GL_UNSIGNED_BYTE, frame.buffer);
+                    submitFrame(frame);
+                }
+                frameNumber++;
+            }
+        } finally {
+            psm.restore(gl);
+        }
+    }
+
+    /**
+     * Writes all pending read backs, waiting for free pool buffers as needed,
+     * releases the pixel buffer objects and stops the encoder thread after it wrote all frames.
+     *
+     * @param gl the current GL object
+     */
+    public synchronized void stop(GL gl) {
+        if( null == encoderThread ) {
+            return;
+        }
+        if( 0 < pboState ) {
+            final GL2GL3 gl2gl3 = gl.getGL2GL3();
+            final long _maxBlockTime = maxBlockTime;
+            maxBlockTime = Long.MAX_VALUE;
+            try {
+                for(int i=0; i<slots.length; i++) {
+                    final PBOSlot slot = slots[ ( slotIdx + i ) % slots.length ];
+                    if( slot.pending ) {
+                        deliver(gl2gl3, slot);
+                    }
+                }
+            } finally {
+                maxBlockTime = _maxBlockTime;
+            }
+        }
+        dispose(gl);
+        boolean interrupted = false;
+        while( !pendingFrames.offer(stopFrame) ) {
+            // cannot happen, pendingFrames holds the whole pool plus stopFrame
+            Thread.yield();
+        }
+        while( encoderThread.isAlive() ) {
+            try {
+                encoderThread.join();
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        encoderThread = null;
+        if( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Releases the pixel buffer objects, pending read backs are discarded.
+     * The encoder thread is not affected, see {@link #stop(GL)}.
+     *
+     * @param gl the current GL object
+     */
+    public synchronized void dispose(GL gl) {
+        final int[] tmp = new int[1];
+        for(int i=0; i<slots.length; i++) {
+            final PBOSlot slot = slots[i];
+            if( 0 != slot.name ) {
+                tmp[0] = slot.name;
+                gl.glDeleteBuffers(1, tmp, 0);
+            }
+            slot.name = 0;
+            slot.capacity = 0;
+            slot.pending = false;
+        }
+        slotIdx = 0;
+        pboState = 0;
+    }
+
+    private int getGLFormat() {
+        return 4 == components ? GL.GL_RGBA : GL.GL_RGB ;
+    }
+
+    private static boolean isPBOAvailable(GL gl) {
+        return gl.isGL2GL3() &&
+               gl.isFunctionAvailable("glMapBuffer") &&
+               ( gl.isExtensionAvailable("GL_VERSION_2_1") ||
+                 gl.isExtensionAvailable("GL_ARB_pixel_buffer_object") ||
+                 gl.isExtensionAvailable("GL_EXT_pixel_buffer_object") );
+    }
+
+    /** Copies the slot's read back into a pool buffer and hands it to the encoder, or drops it. */
+    private void deliver(GL2GL3 gl, PBOSlot slot) {
+        slot.pending = false;
+        final int size = slot.width * slot.height * components;
+        final Frame frame = acquireFrame(size);
+        if( null == frame ) {
+            return;
+        }
+        gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, slot.name);
+        try {
+            final ByteBuffer mapped = gl.glMapBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, GL2GL3.GL_READ_ONLY);
+            if( null == mapped ) {
+                freeFrames.offer(frame);
+                droppedFrames++;
+                return;
+            }
+            mapped.limit(size);
+            mapped.position(0);
+            frame.buffer.put(mapped);
+            frame.buffer.rewind();
+            gl.glUnmapBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER);
+        } finally {
+            gl.glBindBuffer(GL2GL3.GL_PIXEL_PACK_BUFFER, 0);
+        }
+        frame.set(slot.width, slot.height, slot.number);
+        submitFrame(frame);
+    }
+
+    /** @return a free pool buffer of at least <code>size</code> bytes, or null if none became free in time, counting the drop. */
+    private Frame acquireFrame(int size) {
+        Frame frame = freeFrames.poll();
+        if( null == frame ) {
+            final long _maxBlockTime = maxBlockTime;
+            if( 0 < _maxBlockTime ) {
+                try {
+                    frame = freeFrames.poll(_maxBlockTime, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if( null == frame ) {
+                droppedFrames++;
+                return null;
+            }
+        }
+        if( null == frame.buffer || frame.buffer.capacity() < size ) {
+            frame.buffer = Buffers.newDirectByteBuffer(size);
+        }
+        frame.buffer.clear();
+        frame.buffer.limit(size);
+        return frame;
+    }
+
+    private void submitFrame(Frame frame) {
+        frame.buffer.rewind();
+        pendingFrames.add(frame); // never exceeds capacity, all frames stem from the pool
+        capturedFrames++;
+    }
+
+    private class Encoder implements Runnable {
+        public void run() {
+            while( true ) {
+                final Frame frame;
+                try {
+                    frame = pendingFrames.take();
+                } catch (InterruptedException ie) {
+                    continue; // only stopFrame ends the encoder
+                }
+                if( stopFrame == frame ) {
+                    return;
+                }
+                final File file = new File(dir, prefix + toDigits(frame.number) + "." + suffix);
+                try {
+                    if( flip ) {
+                        flipVertically(frame);
+                    }
+                    final int format = getGLFormat();
+                    final TextureData data = new TextureData(glProfile, format, frame.width, frame.height, 0,
+                                                             format, GL.GL_UNSIGNED_BYTE,
+                                                             false, false, false, frame.buffer, null);
+                    TextureIO.write(data, file);
+                    writtenFrames++;
+                } catch (IOException ioe) {
+                    lastWriteException = ioe;
+                    failedFrames++;
+                } catch (RuntimeException re) {
+                    // e.g. unsupported format or suffix, keep the encoder alive
+                    lastWriteException = re;
+                    failedFrames++;
+                } finally {
+                    freeFrames.offer(frame);
+                }
+            }
+        }
+    }
+
+    private static String toDigits(long number) {
+        final String s = String.valueOf(number);
+        return s.length() >= 6 ? s : "000000".substring(s.length()) + s ;
+    }
+
+    private void flipVertically(Frame frame) {
+        final ByteBuffer buf = frame.buffer;
+        final int stride = frame.width * components;
+        if( null == frame.row || frame.row.length < 2 * stride ) {
+            frame.row = new byte[2 * stride];
+        }
+        final byte[] row = frame.row;
+        for(int top=0, bottom=frame.height-1; top<bottom; top++, bottom--) {
+            buf.position(top * stride);
+            buf.get(row, 0, stride);
+            buf.position(bottom * stride);
+            buf.get(row, stride, stride);
+            buf.position(top * stride);
+            buf.put(row, stride, stride);
+            buf.position(bottom * stride);
+            buf.put(row, 0, stride);
+        }
+        buf.rewind();
+    }
+
+    /** A pool buffer, owned either by the pool, the GL thread or the encoder thread. */
+    private static class Frame {
+        ByteBuffer buffer;
+        byte[] row;
+        int width, height;
+        long number;
+
+        void set(int width, int height, long number) {
+            this.width = width;
+            this.height = height;
+            this.number = number;
+        }
+    }
+
+    /** A pixel pack buffer object of the ring and the frame it holds. */
+    private static class PBOSlot {
+        int name;
+        int capacity;
+        boolean pending;
+        int width, height;
+        long number;
+    }
+}
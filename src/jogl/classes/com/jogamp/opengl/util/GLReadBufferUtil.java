@@ -42,6 +42,7 @@ import com.jogamp.opengl.util.texture.TextureIO;
 /**
  * Utility to read out the current FB to TextureData, optionally writing the data back to a texture object.
  * <p>May be used directly to write the TextureData to file (screenshot).</p>
+ * <p>For capturing a sequence of frames without stalling the GL thread, see {@link GLReadBufferCapture}.</p>
  */
 public class GLReadBufferUtil {
     protected final int components, alignment; 
@@ -15,7 +15,8 @@ public class ImmModeSink {
   public static final boolean DEBUG_BEGIN_END = false;
   public static final boolean DEBUG_DRAW = false;
 
-  // public static final int GL_QUADS      = 0x0007; // Needs data manipulation
+  /** Needs data manipulation, converted to indexed triangles in {@link #setStreaming(GL, int, boolean) indexed streaming mode} only */
+  public static final int GL_QUADS      = 0x0007;
   public static final int GL_QUAD_STRIP = 0x0008;
   public static final int GL_POLYGON    = 0x0009;
 
@@ -53,10 +54,57 @@ public class ImmModeSink {
 
   public static void setVBOUsage(boolean v) { vboUsage = v; }
 
+  /**
+   * Enables or disables the streaming mode.
+   * <p>
+   * In streaming mode each {@link #glEnd(GL, boolean) glEnd(..)} appends the batch's vertices
+   * to a CPU side copy of a persistent ring VBO and records the draw command,
+   * reusing the current batch's client arrays instead of allocating new ones.
+   * Consecutive batches of the same list primitive, i.e. points, lines or triangles, are merged into a single draw.
+   * Pending draws are issued by {@link #draw(GL, boolean) draw(..)} or an immediate <code>glEnd(..)</code>,
+   * uploading all new vertices with one <code>glBufferSubData</code> per attribute.
+   * If a batch does not fit into the remaining ring, pending draws are issued
+   * and the ring is orphaned via <code>glBufferData</code> w/o data, letting the driver avoid a sync.
+   * </p>
+   * <p>
+   * If <code>indexed</code> is true, {@link #GL_QUADS}, {@link #GL_QUAD_STRIP} and {@link #GL_POLYGON} batches
+   * are converted to indexed triangles and hence merged as well.
+   * Batches passing indices to {@link #glEnd(GL, Buffer)} are rebased into the ring's index array.
+   * </p>
+   * <p>
+   * Vertex arrays are always disabled after pending draws are issued.
+   * A batch exceeding the ring is drawn by the default path right away, after all pending draws.
+   * </p>
+   *
+   * @param gl the current GL object, used to release a previous ring
+   * @param ringVertices capacity of the ring in vertices, at most 65536 due to <code>GL_UNSIGNED_SHORT</code> indices.
+   *        0 disables the streaming mode.
+   * @param indexed if true, quads, quad strips and polygons are converted to indexed triangles
+   * @throws GLException if <code>ringVertices</code> exceeds 65536
+   */
+  public void setStreaming(GL gl, int ringVertices, boolean indexed) throws GLException {
+    if(ringVertices > StreamingRing.MAX_VERTICES) {
+        throw new GLException("Ring size "+ringVertices+" exceeds "+StreamingRing.MAX_VERTICES+" vertices");
+    }
+    if(null!=ring) {
+        ring.destroy(gl);
+        ring = null;
+    }
+    if(0<ringVertices) {
+        ring = new StreamingRing(vboSet, ringVertices, indexed);
+    }
+  }
+
+  /** @return true if the {@link #setStreaming(GL, int, boolean) streaming mode} is enabled */
+  public boolean isStreaming() { return null!=ring; }
+
   public void destroy(GL gl) {
     destroyList(gl);
 
     vboSet.destroy(gl);
+    if(null!=ring) {
+        ring.destroy(gl);
+    }
   }
 
   public void reset() {
@@ -66,6 +114,9 @@ public class ImmModeSink {
   public void reset(GL gl) {
     destroyList(gl);
     vboSet.reset(gl);
+    if(null!=ring) {
+        ring.reset();
+    }
   }
 
   public String toString() {
@@ -90,6 +141,9 @@ public class ImmModeSink {
         Exception e = new Exception("Info: ImmModeSink.draw(disableBufferAfterDraw: "+disableBufferAfterDraw+"):\n\t"+this);
         e.printStackTrace();
     }
+    if(null!=ring) {
+        ring.flush(gl);
+    }
     int n=0;
     for(Iterator i=vboSetList.iterator(); i.hasNext() ; n++) {
         ((VBOSet)i.next()).draw(gl, null, disableBufferAfterDraw, n);
@@ -101,6 +155,9 @@ public class ImmModeSink {
         Exception e = new Exception("Info: ImmModeSink.draw(disableBufferAfterDraw: "+disableBufferAfterDraw+"):\n\t"+this);
         e.printStackTrace();
     }
+    if(null!=ring) {
+        ring.flush(gl);
+    }
     int n=0;
     for(Iterator i=vboSetList.iterator(); i.hasNext() ; n++) {
         ((VBOSet)i.next()).draw(gl, indices, disableBufferAfterDraw, n);
@@ -146,7 +203,12 @@ public class ImmModeSink {
         Exception e = new Exception("Info: ImmModeSink START glEnd(immediate: "+immediateDraw+"):\n\t"+this);
         e.printStackTrace();
     }
-    if(immediateDraw) {
+    if(null!=ring && ring.append(gl, vboSet, indices)) {
+        vboSet.reset();
+        if(immediateDraw) {
+            ring.flush(gl);
+        }
+    } else if(immediateDraw || null!=ring) {
         vboSet.seal(gl, true);
         vboSet.draw(gl, indices, true, -1);
         reset(gl);
@@ -277,6 +339,7 @@ public class ImmModeSink {
 
   private VBOSet vboSet;
   private ArrayList vboSetList;
+  private StreamingRing ring;
   private static boolean vboUsage = true;
 
   protected static class VBOSet {
@@ -361,6 +424,11 @@ public class ImmModeSink {
         }
     }
 
+    /** @return the number of vertices written since the last {@link #reset()} */
+    protected final int getVertexCount() {
+        return ( vComps>0 && null!=vertexArray ) ? vertexArray.position() / vComps : 0 ;
+    }
+
     public void glVertexv(Buffer v) {
         checkSeal(false);
         GLBuffers.put(vertexArray, v);
@@ -889,8 +957,24 @@ public class ImmModeSink {
     }
 
     protected final boolean growBufferIfNecessary(int type, int spare) {
-        if(buffer==null || count < spare) { 
-            growBuffer(type, initialSize);
+        final Buffer dest;
+        final int comps;
+        switch (type) {
+            case VERTEX:
+                dest = vertexArray; comps = vComps;
+                break;
+            case COLOR:
+                dest = colorArray; comps = cComps;
+                break;
+            case NORMAL:
+                dest = normalArray; comps = nComps;
+                break;
+            default:
+                dest = textCoordArray; comps = tComps;
+        }
+        if(buffer==null || ( null!=dest && dest.remaining() < Math.max(spare, comps) ) ) {
+            // grow geometrically, so a large batch reallocates only a few times
+            growBuffer(type, Math.max(initialSize, count));
             return true;
         }
         return false;
@@ -972,5 +1056,386 @@ public class ImmModeSink {
     protected GL gl;
   }
 
+  /**
+   * Persistent ring VBO of the streaming mode, holding one region per attribute
+   * so a vertex index addresses all attributes, and the pending draw commands.
+   */
+  protected static class StreamingRing {
+    protected static final int MAX_VERTICES = 1 << 16;
+
+    protected StreamingRing(VBOSet layout, int capacity, boolean indexed) {
+        this.capacity = capacity;
+        this.indexed = indexed;
+        useGLSL = layout.useGLSL;
+        comps = new int[] { layout.vComps, layout.cComps, layout.nComps, layout.tComps };
+        types = new int[] { layout.vDataType, layout.cDataType, layout.nDataType, layout.tDataType };
+        widths = new int[4];
+        regionOffsets = new int[4];
+        int pos = 0;
+        for(int i=0; i<4; i++) {
+            widths[i] = comps[i] * GLBuffers.sizeOfGLType(types[i]);
+            regionOffsets[i] = pos;
+            pos += capacity * widths[i];
+        }
+        bSize = pos;
+        staging = GLBuffers.newDirectByteBuffer(bSize);
+        uploadView = staging.duplicate();
+        indices = GLBuffers.newDirectShortBuffer(256);
+        drawCmds = new int[4 * DRAW_CMD_SIZE];
+    }
+
+    /**
+     * Appends the batch's vertices and records its draw command,
+     * merging it with the previous one if possible.
+     *
+     * @return false if the batch exceeds the ring, in which case all pending draws have been issued
+     */
+    protected boolean append(GL gl, VBOSet set, Buffer userIndices) {
+        final int n = set.getVertexCount();
+        if(0 == n) {
+            return true;
+        }
+        if(n > capacity) {
+            flush(gl);
+            return false;
+        }
+        if(next + n > capacity) {
+            flush(gl);
+            orphan(gl);
+        }
+        final int first = next;
+
+        // copy each attribute region of the batch to the ring's staging copy
+        if(copyView == null || copyViewSource != set.buffer) {
+            copyView = set.buffer.duplicate();
+            copyViewSource = set.buffer;
+        }
+        for(int i=0; i<4; i++) {
+            if(0 < widths[i]) {
+                final int offset = getOffset(set, i);
+                copyView.clear();
+                copyView.position(offset);
+                copyView.limit(offset + n * widths[i]);
+                uploadView.clear();
+                uploadView.position(regionOffsets[i] + first * widths[i]);
+                uploadView.put(copyView);
+            }
+        }
+        next += n;
+
+        // select draw command
+        int mode = set.mode;
+        final int idxStart = indices.position();
+        if(null != userIndices) {
+            putUserIndices(userIndices, first);
+        } else if(indexed && putPrimitiveIndices(set.modeOrig, first, n)) {
+            mode = GL.GL_TRIANGLES;
+        }
+        final boolean isIndexed = indices.position() > idxStart;
+        if(null != userIndices && !isIndexed) {
+            return true; // no indices, nothing to draw
+        }
+
+        final int last = ( drawCount - 1 ) * DRAW_CMD_SIZE;
+        if( 0 < drawCount && drawCmds[last] == mode && isMergeable(mode) &&
+            ( drawCmds[last+3] != 0 ) == isIndexed ) {
+            if(isIndexed) {
+                drawCmds[last+3] += indices.position() - idxStart;
+            } else {
+                drawCmds[last+2] += n;
+            }
+            mergedBatches++;
+        } else {
+            if( drawCmds.length < ( drawCount + 1 ) * DRAW_CMD_SIZE ) {
+                final int[] tmp = new int[drawCmds.length * 2];
+                System.arraycopy(drawCmds, 0, tmp, 0, drawCmds.length);
+                drawCmds = tmp;
+            }
+            final int cmd = drawCount * DRAW_CMD_SIZE;
+            drawCmds[cmd  ] = mode;
+            drawCmds[cmd+1] = isIndexed ? idxStart : first;
+            drawCmds[cmd+2] = isIndexed ? 0 : n;
+            drawCmds[cmd+3] = isIndexed ? indices.position() - idxStart : 0;
+            drawCount++;
+        }
+        return true;
+    }
+
+    /** Uploads all new vertices and issues the pending draw commands. */
+    protected void flush(GL gl) {
+        if(0 == drawCount) {
+            return;
+        }
+        if(0 == vboName) {
+            final int[] tmp = new int[1];
+            gl.glGenBuffers(1, tmp, 0);
+            vboName = tmp[0];
+            createArrayData();
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vboName);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, bSize, null, GL2ES2.GL_STREAM_DRAW);
+        } else {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vboName);
+        }
+        if(uploaded < next) {
+            for(int i=0; i<4; i++) {
+                if(0 < widths[i]) {
+                    final int offset = regionOffsets[i] + uploaded * widths[i];
+                    final int size = ( next - uploaded ) * widths[i];
+                    uploadView.clear();
+                    uploadView.position(offset);
+                    uploadView.limit(offset + size);
+                    gl.glBufferSubData(GL.GL_ARRAY_BUFFER, offset, size, uploadView);
+                }
+            }
+            uploaded = next;
+        }
+
+        if(useGLSL) {
+            enableBufferGLSL(gl, true);
+        } else {
+            enableBufferFixed(gl, true);
+        }
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+
+        for(int i=0; i<drawCount; i++) {
+            final int cmd = i * DRAW_CMD_SIZE;
+            final int mode = drawCmds[cmd];
+            if(0 != drawCmds[cmd+3]) {
+                indices.limit(drawCmds[cmd+1] + drawCmds[cmd+3]);
+                indices.position(drawCmds[cmd+1]);
+                gl.glDrawElements(mode, drawCmds[cmd+3], GL.GL_UNSIGNED_SHORT, indices);
+            } else {
+                gl.glDrawArrays(mode, drawCmds[cmd+1], drawCmds[cmd+2]);
+            }
+        }
+        drawCalls += drawCount;
+
+        if(useGLSL) {
+            enableBufferGLSL(gl, false);
+        } else {
+            enableBufferFixed(gl, false);
+        }
+        drawCount = 0;
+        indices.clear();
+    }
+
+    /** Discards pending draw commands, new vertices are overwritten. */
+    protected void reset() {
+        drawCount = 0;
+        indices.clear();
+        next = uploaded;
+    }
+
+    protected void destroy(GL gl) {
+        reset();
+        if(0 != vboName) {
+            final int[] tmp = new int[] { vboName };
+            gl.glDeleteBuffers(1, tmp, 0);
+            vboName = 0;
+        }
+        next = 0;
+        uploaded = 0;
+    }
+
+    /** Restarts at the ring's begin, re-specifying the buffer w/o data lets the driver allocate new storage. */
+    private void orphan(GL gl) {
+        if(0 != vboName) {
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, vboName);
+            gl.glBufferData(GL.GL_ARRAY_BUFFER, bSize, null, GL2ES2.GL_STREAM_DRAW);
+            gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+            orphans++;
+        }
+        next = 0;
+        uploaded = 0;
+    }
+
+    private static int getOffset(VBOSet set, int type) {
+        switch(type) {
+            case VBOSet.VERTEX:
+                return set.vOffset;
+            case VBOSet.COLOR:
+                return set.cOffset;
+            case VBOSet.NORMAL:
+                return set.nOffset;
+            default:
+                return set.tOffset;
+        }
+    }
+
+    private static boolean isMergeable(int mode) {
+        switch(mode) {
+            case GL.GL_POINTS:
+            case GL.GL_LINES:
+            case GL.GL_TRIANGLES:
+            case GL_QUADS:
+                return true;
+        }
+        return false;
+    }
+
+    private void ensureIndices(int count) {
+        if(indices.remaining() < count) {
+            final ShortBuffer tmp = GLBuffers.newDirectShortBuffer(Math.max(indices.capacity() * 2, indices.position() + count));
+            indices.flip();
+            tmp.put(indices);
+            indices = tmp;
+        }
+    }
+
+    /** Puts triangle indices for quads, quad strips and polygons, returns false for other primitives. */
+    private boolean putPrimitiveIndices(int modeOrig, int first, int n) {
+        switch(modeOrig) {
+            case GL_QUADS: {
+                final int quads = n / 4;
+                ensureIndices(quads * 6);
+                for(int q=0, v=first; q<quads; q++, v+=4) {
+                    putTriangle(v, v+1, v+2);
+                    putTriangle(v, v+2, v+3);
+                }
+                return true;
+            }
+            case GL_QUAD_STRIP: {
+                final int quads = Math.max(0, ( n - 2 ) / 2);
+                ensureIndices(quads * 6);
+                for(int q=0, v=first; q<quads; q++, v+=2) {
+                    putTriangle(v, v+1, v+2);
+                    putTriangle(v+1, v+3, v+2);
+                }
+                return true;
+            }
+            case GL_POLYGON: {
+                final int tris = Math.max(0, n - 2);
+                ensureIndices(tris * 3);
+                for(int t=0; t<tris; t++) {
+                    putTriangle(first, first+t+1, first+t+2);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void putTriangle(int a, int b, int c) {
+        indices.put((short)a);
+        indices.put((short)b);
+        indices.put((short)c);
+    }
+
+    /** Puts the user's ubyte or ushort indices, rebased to the batch's first vertex in the ring. */
+    private void putUserIndices(Buffer userIndices, int first) throws GLException {
+        final int count = userIndices.remaining();
+        ensureIndices(count);
+        final int pos = userIndices.position();
+        if(userIndices instanceof ByteBuffer) {
+            final ByteBuffer b = (ByteBuffer) userIndices;
+            for(int i=0; i<count; i++) {
+                indices.put((short)( first + ( b.get(pos+i) & 0xff ) ));
+            }
+        } else if(userIndices instanceof ShortBuffer) {
+            final ShortBuffer b = (ShortBuffer) userIndices;
+            for(int i=0; i<count; i++) {
+                indices.put((short)( first + ( b.get(pos+i) & 0xffff ) ));
+            }
+        } else {
+            throw new GLException("Given Buffer Class not supported: "+userIndices.getClass()+", should be ubyte or ushort:\n\t"+this);
+        }
+    }
+
+    private void createArrayData() {
+        final int[] index = { GLPointerFunc.GL_VERTEX_ARRAY, GLPointerFunc.GL_COLOR_ARRAY,
+                              GLPointerFunc.GL_NORMAL_ARRAY, GLPointerFunc.GL_TEXTURE_COORD_ARRAY };
+        arrayData = new GLArrayDataWrapper[4];
+        for(int i=0; i<4; i++) {
+            if(0 < comps[i]) {
+                arrayData[i] = GLArrayDataWrapper.createFixed(index[i], comps[i], types[i], false, 0,
+                                                              null, vboName, regionOffsets[i], GL2ES2.GL_STREAM_DRAW, GL.GL_ARRAY_BUFFER);
+            }
+        }
+    }
+
+    private void enableBufferFixed(GL gl, boolean enable) {
+        final GL2ES1 glf = gl.getGL2ES1();
+        final GLArrayDataWrapper v = arrayData[VBOSet.VERTEX], c = arrayData[VBOSet.COLOR],
+                                 n = arrayData[VBOSet.NORMAL], t = arrayData[VBOSet.TEXTCOORD];
+        if(enable) {
+            if(null!=v) {
+               glf.glEnableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+               glf.glVertexPointer(v);
+            }
+            if(null!=c) {
+               glf.glEnableClientState(GLPointerFunc.GL_COLOR_ARRAY);
+               glf.glColorPointer(c);
+            }
+            if(null!=n) {
+               glf.glEnableClientState(GLPointerFunc.GL_NORMAL_ARRAY);
+               glf.glNormalPointer(n);
+            }
+            if(null!=t) {
+               glf.glEnableClientState(GLPointerFunc.GL_TEXTURE_COORD_ARRAY);
+               glf.glTexCoordPointer(t);
+            }
+        } else {
+            if(null!=v) {
+               glf.glDisableClientState(GLPointerFunc.GL_VERTEX_ARRAY);
+            }
+            if(null!=c) {
+               glf.glDisableClientState(GLPointerFunc.GL_COLOR_ARRAY);
+            }
+            if(null!=n) {
+               glf.glDisableClientState(GLPointerFunc.GL_NORMAL_ARRAY);
+            }
+            if(null!=t) {
+               glf.glDisableClientState(GLPointerFunc.GL_TEXTURE_COORD_ARRAY);
+            }
+        }
+    }
+
+    private void enableBufferGLSL(GL gl, boolean enable) {
+        final ShaderState st = ShaderState.getShaderState(gl);
+        if(null==st) {
+            throw new GLException("No ShaderState in "+gl);
+        }
+        final GL2ES2 glsl = gl.getGL2ES2();
+        for(int i=0; i<4; i++) {
+            final GLArrayDataWrapper ad = arrayData[i];
+            if(null!=ad) {
+                if(enable) {
+                    st.enableVertexAttribArray(glsl, ad);
+                    st.vertexAttribPointer(glsl, ad);
+                } else {
+                    st.disableVertexAttribArray(glsl, ad);
+                }
+            }
+        }
+    }
+
+    public String toString() {
+        return "StreamingRing[capacity "+capacity+
+                            ", indexed "+indexed+
+                            ", next "+next+
+                            ", uploaded "+uploaded+
+                            ", pending draws "+drawCount+
+                            ", draw calls "+drawCalls+
+                            ", merged batches "+mergedBatches+
+                            ", orphans "+orphans+"]";
+    }
+
+    // mode, first vertex or index, vertex count, index count (0 if not indexed)
+    private static final int DRAW_CMD_SIZE = 4;
+
+    protected final int capacity, bSize;
+    protected final boolean indexed, useGLSL;
+    protected final int[] comps, types, widths, regionOffsets;
+    protected final ByteBuffer staging, uploadView;
+    protected ByteBuffer copyView, copyViewSource;
+    protected ShortBuffer indices;
+    protected GLArrayDataWrapper[] arrayData;
+    protected int[] drawCmds;
+    protected int drawCount;
+    protected int next, uploaded;
+    protected int vboName;
+    protected long drawCalls, mergedBatches, orphans;
+  }
+
 }
 
@@ -37,8 +37,6 @@ import com.jogamp.common.nio.Buffers;
 import jogamp.opengl.ProjectFloat;
 
 import java.nio.*;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.media.opengl.*;
 import javax.media.opengl.fixedfunc.GLMatrixFunc;
@@ -104,6 +102,8 @@ public class PMVMatrix implements GLMatrixFunc {
           
           vec3f         = new float[3];
           matrixMult    = new float[16];
+          matrixTmpMv   = new float[16];
+          matrixTmpMvi  = new float[16];
           matrixTrans   = new float[16];
           matrixRot     = new float[16];
           matrixScale   = new float[16];
@@ -115,8 +115,9 @@ public class PMVMatrix implements GLMatrixFunc {
           ProjectFloat.gluMakeIdentityf(matrixOrtho, 0);
           ProjectFloat.gluMakeZero(matrixFrustum, 0);
 
-          matrixPStack = new ArrayList<float[]>();
-          matrixMvStack= new ArrayList<float[]>();
+          matrixTStack  = new MatrixStack("texture",    2, DEFAULT_MAX_STACK_DEPTH);
+          matrixPStack  = new MatrixStack("projection", 2, DEFAULT_MAX_STACK_DEPTH);
+          matrixMvStack = new MatrixStack("modelview", 32, DEFAULT_MAX_STACK_DEPTH);
 
           // default values and mode
           glMatrixMode(GL_PROJECTION);
@@ -140,24 +141,17 @@ public class PMVMatrix implements GLMatrixFunc {
 
         vec3f         = null;
         matrixMult    = null;
+        matrixTmpMv   = null;
+        matrixTmpMvi  = null;
         matrixTrans   = null;
         matrixRot     = null;
         matrixScale   = null;
         matrixOrtho   = null;
         matrixFrustum = null;
         
-        if(null!=matrixPStack) {
-            matrixPStack.clear(); matrixPStack=null;
-        }
-        if(null!=matrixMvStack) {
-            matrixMvStack.clear(); matrixMvStack=null;
-        }
-        if(null!=matrixPStack) {
-            matrixPStack.clear(); matrixPStack=null;
-        }
-        if(null!=matrixTStack) {
-            matrixTStack.clear(); matrixTStack=null;
-        }
+        matrixTStack  = null;
+        matrixPStack  = null;
+        matrixMvStack = null;
     }
 
 
@@ -247,6 +241,8 @@ public class PMVMatrix implements GLMatrixFunc {
 
     public void setDirty() {
           modified   = DIRTY_MODELVIEW | DIRTY_PROJECTION | DIRTY_TEXTURE ;
+          dirtyDerived = DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW ;
+          modelviewType = MV_GENERAL; // matrices may have been written directly
           matrixMode = GL_MODELVIEW;
     }
 
@@ -277,18 +273,22 @@ public class PMVMatrix implements GLMatrixFunc {
     }
 
     /**
-     * Update the derived Mvi, Mvit and Pmv matrices
-     * in case Mv or P has changed.
+     * Update the derived Mvi and Mvit matrices in case Mv has changed,
+     * as far as they have been requested once via their getter methods,
+     * e.g. {@link #glGetMviMatrixf()}.
+     * <p>
+     * The getter methods compute the derived matrices on demand,
+     * hence calling update is only required if the FloatBuffer 
+     * of a derived matrix is retained and used later on, 
+     * e.g. as the data of a uniform.
+     * </p>
      * 
-     * @return
+     * @return true if any matrix has been modified since the last update
      */
     public boolean update() {
-        if(0==modified) return false;
+        updateDerived(usesMviMvit);
 
         final int res = modified;
-        if( (res&DIRTY_MODELVIEW)!=0 ) {
-            setMviMvit();
-        }
         modified=0;
         return res!=0;
     }
@@ -310,7 +310,8 @@ public class PMVMatrix implements GLMatrixFunc {
     }
 
     public final FloatBuffer glGetPMvMviMatrixf() {
-        usesMviMvit |= 1;
+        usesMviMvit |= DIRTY_INVERSE_MODELVIEW;
+        updateDerived(DIRTY_INVERSE_MODELVIEW);
         return matrixPMvMvi;
     }
 
@@ -319,17 +320,20 @@ public class PMVMatrix implements GLMatrixFunc {
     }
 
     public final FloatBuffer glGetMviMatrixf() {
-        usesMviMvit |= 1;
+        usesMviMvit |= DIRTY_INVERSE_MODELVIEW;
+        updateDerived(DIRTY_INVERSE_MODELVIEW);
         return matrixMvi;
     }
 
     public final FloatBuffer glGetPMvMvitMatrixf() {
-        usesMviMvit |= 1 | 2;
+        usesMviMvit |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW;
+        updateDerived(DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW);
         return matrixPMvMvit;
     }
     
     public final FloatBuffer glGetMvitMatrixf() {
-        usesMviMvit |= 1 | 2;
+        usesMviMvit |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW;
+        updateDerived(DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW);
         return matrixMvit;
     }
     
@@ -446,7 +450,7 @@ public class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMv.put(values, offset, len);
             matrixMv.reset();
-            modified |= DIRTY_MODELVIEW ;
+            setModelviewDirty(MV_GENERAL);
         } else if(matrixMode==GL_PROJECTION) {
             matrixP.put(values, offset, len);
             matrixP.reset();
@@ -463,7 +467,7 @@ public class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMv.put(m);
             matrixMv.reset();
-            modified |= DIRTY_MODELVIEW ;
+            setModelviewDirty(MV_GENERAL);
         } else if(matrixMode==GL_PROJECTION) {
             matrixP.put(m);
             matrixP.reset();
@@ -476,32 +480,80 @@ public class PMVMatrix implements GLMatrixFunc {
         m.position(spos);
     }
 
+    /**
+     * Pops the current matrix stack, replacing the current matrix with the one below it.
+     * @throws GLException GL_STACK_UNDERFLOW if the stack contains no pushed matrix
+     */
     public final void glPopMatrix() {
-        float[] stackEntry=null;
         if(matrixMode==GL_MODELVIEW) {
-            stackEntry = matrixMvStack.remove(0);
+            // restore the classification of the popped matrix, which is only escalated by setModelviewDirty
+            modelviewType = matrixMvStack.pop(matrixMv);
+            setModelviewDirty(modelviewType);
         } else if(matrixMode==GL_PROJECTION) {
-            stackEntry = matrixPStack.remove(0);
+            matrixPStack.pop(matrixP);
+            modified |= DIRTY_PROJECTION ;
         } else if(matrixMode==GL.GL_TEXTURE) {
-            stackEntry = matrixTStack.remove(0);
+            matrixTStack.pop(matrixTex);
+            modified |= DIRTY_TEXTURE ;
         } 
-        glLoadMatrixf(stackEntry, 0);
     }
 
+    /**
+     * Pushes the current matrix stack down by one, duplicating the current matrix.
+     * @throws GLException GL_STACK_OVERFLOW if the stack already reached its
+     *                     {@link #getMaxStackDepth(int) maximum depth}
+     */
     public final void glPushMatrix() {
-        float[] stackEntry = new float[1*16];
         if(matrixMode==GL_MODELVIEW) {
-            matrixMv.get(stackEntry);
-            matrixMv.reset();
-            matrixMvStack.add(0, stackEntry);
+            matrixMvStack.push(matrixMv, modelviewType);
         } else if(matrixMode==GL_PROJECTION) {
-            matrixP.get(stackEntry);
-            matrixP.reset();
-            matrixPStack.add(0, stackEntry);
+            matrixPStack.push(matrixP, 0);
         } else if(matrixMode==GL.GL_TEXTURE) {
-            matrixTex.get(stackEntry);
-            matrixTex.reset();
-            matrixTStack.add(0, stackEntry);
+            matrixTStack.push(matrixTex, 0);
+        }
+    }
+
+    /**
+     * @param matrixName GL_MODELVIEW, GL_PROJECTION or GL.GL_TEXTURE
+     * @return the number of matrices pushed on the given matrix stack
+     */
+    public final int getStackDepth(final int matrixName) {
+        return getStack(matrixName).depth();
+    }
+
+    /**
+     * @param matrixName GL_MODELVIEW, GL_PROJECTION or GL.GL_TEXTURE
+     * @return the maximum number of matrices which can be pushed on the given matrix stack
+     */
+    public final int getMaxStackDepth(final int matrixName) {
+        return getStack(matrixName).maxDepth;
+    }
+
+    /**
+     * Sets the maximum number of matrices which can be pushed on the given matrix stack,
+     * exceeding it causes {@link #glPushMatrix()} to throw a GL_STACK_OVERFLOW GLException.
+     * The default is {@link #DEFAULT_MAX_STACK_DEPTH}.
+     * 
+     * @param matrixName GL_MODELVIEW, GL_PROJECTION or GL.GL_TEXTURE
+     * @param maxDepth the maximum depth, must not be less than the current depth
+     */
+    public final void setMaxStackDepth(final int matrixName, final int maxDepth) {
+        final MatrixStack stack = getStack(matrixName);
+        if(maxDepth < stack.depth() || maxDepth < 0) {
+            throw new GLException("GL_INVALID_VALUE: max stack depth "+maxDepth+" < current depth "+stack.depth());
+        }
+        stack.maxDepth = maxDepth;
+    }
+
+    private final MatrixStack getStack(final int matrixName) {
+        if(matrixName==GL_MODELVIEW) {
+            return matrixMvStack;
+        } else if(matrixName==GL_PROJECTION) {
+            return matrixPStack;
+        } else if(matrixName==GL.GL_TEXTURE) {
+            return matrixTStack;
+        } else {
+            throw new GLException("unsupported matrixName: "+matrixName);
         }
     }
 
@@ -509,7 +561,8 @@ public class PMVMatrix implements GLMatrixFunc {
         if(matrixMode==GL_MODELVIEW) {
             matrixMv.put(matrixIdent);
             matrixMv.reset();
-            modified |= DIRTY_MODELVIEW ;
+            modelviewType = MV_RIGID;
+            setModelviewDirty(MV_RIGID);
         } else if(matrixMode==GL_PROJECTION) {
             matrixP.put(matrixIdent);
             matrixP.reset();
@@ -525,7 +578,7 @@ public class PMVMatrix implements GLMatrixFunc {
     public final void glMultMatrixf(final FloatBuffer m) {
         if(matrixMode==GL_MODELVIEW) {
             glMultMatrixf(matrixMv, m, matrixMv);
-            modified |= DIRTY_MODELVIEW ;
+            setModelviewDirty(MV_GENERAL);
         } else if(matrixMode==GL_PROJECTION) {
             glMultMatrixf(matrixP, m, matrixP);
             modified |= DIRTY_PROJECTION ;
@@ -536,9 +589,17 @@ public class PMVMatrix implements GLMatrixFunc {
     }
 
     public void glMultMatrixf(float[] m, int m_offset) {
+        multMatrixf(m, m_offset, MV_GENERAL);
+    }
+
+    /**
+     * @param mvType the class of the given matrix, if multiplied onto the modelview:
+     *               {@link #MV_RIGID}, {@link #MV_AFFINE} or {@link #MV_GENERAL} 
+     */
+    private final void multMatrixf(float[] m, int m_offset, int mvType) {
         if(matrixMode==GL_MODELVIEW) {
             glMultMatrixf(matrixMv, m, m_offset, matrixMv);
-            modified |= DIRTY_MODELVIEW ;
+            setModelviewDirty(mvType);
         } else if(matrixMode==GL_PROJECTION) {
             glMultMatrixf(matrixP, m, m_offset, matrixP);
             modified |= DIRTY_PROJECTION ;
@@ -557,7 +618,7 @@ public class PMVMatrix implements GLMatrixFunc {
         matrixTrans[0+4*3] = x;
         matrixTrans[1+4*3] = y;
         matrixTrans[2+4*3] = z;
-        glMultMatrixf(matrixTrans, 0);
+        multMatrixf(matrixTrans, 0, MV_RIGID);
     }
 
     public final void glRotatef(final float angdeg, float x, float y, float z) {
@@ -593,7 +654,7 @@ public class PMVMatrix implements GLMatrixFunc {
         matrixRot[2*4+1] = yz*ic-xs;
         matrixRot[2*4+2] = z*z*ic+c;
 
-        glMultMatrixf(matrixRot, 0);
+        multMatrixf(matrixRot, 0, MV_RIGID);
     }
 
     public final void glScalef(final float x, final float y, final float z) {
@@ -606,7 +667,7 @@ public class PMVMatrix implements GLMatrixFunc {
         matrixScale[1+4*1] = y;
         matrixScale[2+4*2] = z;
 
-        glMultMatrixf(matrixScale, 0);
+        multMatrixf(matrixScale, 0, MV_AFFINE);
     }
 
     public final void glOrthof(final float left, final float right, final float bottom, final float top, final float zNear, final float zFar) {
@@ -629,7 +690,7 @@ public class PMVMatrix implements GLMatrixFunc {
         matrixOrtho[1+4*3] = ty;
         matrixOrtho[2+4*3] = tz;
 
-        glMultMatrixf(matrixOrtho, 0);
+        multMatrixf(matrixOrtho, 0, MV_AFFINE);
     }
 
     public final void glFrustumf(final float left, final float right, final float bottom, final float top, final float zNear, final float zFar) {
@@ -663,71 +724,211 @@ public class PMVMatrix implements GLMatrixFunc {
         matrixFrustum[2+4*3] = D;
         matrixFrustum[3+4*2] = -1.0f;
 
-        glMultMatrixf(matrixFrustum, 0);
+        multMatrixf(matrixFrustum, 0, MV_GENERAL);
     }
 
     //
     // private 
     //
-    private int nioBackupArraySupported = 0; // -1 not supported, 0 - TBD, 1 - supported
     private final String msgCantComputeInverse = "Invalid source Mv matrix, can't compute inverse";
 
-    private final void setMviMvit() {
-        if( 0 != (usesMviMvit & 1) ) {
-            if(nioBackupArraySupported>=0) {
-                try {
-                    setMviMvitNIOBackupArray();
-                    nioBackupArraySupported = 1;
-                    return;
-                } catch(UnsupportedOperationException uoe) {
-                    nioBackupArraySupported = -1;
-                }
-            }
-            setMviMvitNIODirectAccess();
+    /** Modelview composed of rotations and translations only */
+    private static final int MV_RIGID   = 0;
+    /** Modelview with a last row of (0, 0, 0, 1) */
+    private static final int MV_AFFINE  = 1;
+    /** Modelview of unknown class */
+    private static final int MV_GENERAL = 2;
+
+    private final void setModelviewDirty(final int mvType) {
+        modified |= DIRTY_MODELVIEW ;
+        dirtyDerived |= DIRTY_INVERSE_MODELVIEW | DIRTY_INVERSE_TRANSPOSED_MODELVIEW ;
+        if( mvType > modelviewType ) {
+            modelviewType = mvType;
         }
     }
-    private final void setMviMvitNIOBackupArray() {
-        final float[] _matrixMvi = matrixMvi.array();
-        final int _matrixMviOffset = matrixMvi.position();
-        if(!projectFloat.gluInvertMatrixf(matrixMv.array(), matrixMv.position(), _matrixMvi, _matrixMviOffset)) {
-            throw new GLException(msgCantComputeInverse);
+
+    /**
+     * Computes the requested derived matrices, if dirty.
+     * @param requested {@link #DIRTY_INVERSE_MODELVIEW} and/or {@link #DIRTY_INVERSE_TRANSPOSED_MODELVIEW}
+     */
+    private final void updateDerived(final int requested) {
+        if( 0 == ( requested & dirtyDerived ) ) {
+            return;
+        }
+        if( 0 != ( dirtyDerived & DIRTY_INVERSE_MODELVIEW ) ) {
+            setMvi();
+            dirtyDerived &= ~DIRTY_INVERSE_MODELVIEW;
+        }
+        if( 0 != ( requested & dirtyDerived & DIRTY_INVERSE_TRANSPOSED_MODELVIEW ) ) {
+            setMvit();
+            dirtyDerived &= ~DIRTY_INVERSE_TRANSPOSED_MODELVIEW;
         }
-        if( 0 != (usesMviMvit & 2) ) {
-            // transpose matrix 
-            final float[] _matrixMvit = matrixMvit.array();
-            final int _matrixMvitOffset = matrixMvit.position();
-            for (int i = 0; i < 4; i++) {
-                for (int j = 0; j < 4; j++) {
-                    _matrixMvit[_matrixMvitOffset+j+i*4] = _matrixMvi[_matrixMviOffset+i+j*4];
-                }
-            }
-        }        
     }
-    
-    private final void setMviMvitNIODirectAccess() {
-        if(!projectFloat.gluInvertMatrixf(matrixMv, matrixMvi)) {
+
+    private final void setMvi() {
+        final float[] mv = matrixTmpMv;
+        final float[] mvi = matrixTmpMvi;
+        matrixMv.get(mv);
+        matrixMv.reset();
+
+        final boolean ok;
+        if( MV_RIGID == modelviewType ) {
+            invertRigid(mv, mvi);
+            ok = true;
+        } else if( mv[3] == 0f && mv[7] == 0f && mv[11] == 0f && mv[15] == 1f ) {
+            ok = invertAffine(mv, mvi);
+        } else {
+            ok = projectFloat.gluInvertMatrixf(mv, 0, mvi, 0);
+        }
+        if(!ok) {
             throw new GLException(msgCantComputeInverse);
         }
-        if( 0 != (usesMviMvit & 2) ) {
-            // transpose matrix 
-            for (int i = 0; i < 4; i++) {
-                for (int j = 0; j < 4; j++) {
-                    matrixMvit.put(j+i*4, matrixMvi.get(i+j*4));
-                }
+        matrixMvi.put(mvi);
+        matrixMvi.reset();
+    }
+
+    private final void setMvit() {
+        // transpose matrix, matrixTmpMvi holds the current Mvi
+        final float[] mvi = matrixTmpMvi;
+        final float[] mvit = matrixTmpMv;
+        for (int i = 0; i < 4; i++) {
+            mvit[i*4+0] = mvi[i+0*4];
+            mvit[i*4+1] = mvi[i+1*4];
+            mvit[i*4+2] = mvi[i+2*4];
+            mvit[i*4+3] = mvi[i+3*4];
+        }
+        matrixMvit.put(mvit);
+        matrixMvit.reset();
+    }
+
+    /**
+     * Inverts a column major matrix composed of rotations and translations only,
+     * i.e. computes the transposed rotation and the back-rotated negated translation. 
+     */
+    static final void invertRigid(final float[] m, final float[] inv) {
+        final float tx = m[12], ty = m[13], tz = m[14];
+        inv[ 0] = m[0]; inv[ 1] = m[4]; inv[ 2] = m[ 8]; inv[ 3] = 0f;
+        inv[ 4] = m[1]; inv[ 5] = m[5]; inv[ 6] = m[ 9]; inv[ 7] = 0f;
+        inv[ 8] = m[2]; inv[ 9] = m[6]; inv[10] = m[10]; inv[11] = 0f;
+        inv[12] = -( m[0]*tx + m[1]*ty + m[ 2]*tz );
+        inv[13] = -( m[4]*tx + m[5]*ty + m[ 6]*tz );
+        inv[14] = -( m[8]*tx + m[9]*ty + m[10]*tz );
+        inv[15] = 1f;
+    }
+
+    /**
+     * Inverts a column major matrix with a last row of (0, 0, 0, 1),
+     * i.e. the upper 3x3 via its adjugate and the back-transformed negated translation.
+     * @return false if the matrix is singular
+     */
+    static final boolean invertAffine(final float[] m, final float[] inv) {
+        final float a00 = m[0], a10 = m[1], a20 = m[ 2];
+        final float a01 = m[4], a11 = m[5], a21 = m[ 6];
+        final float a02 = m[8], a12 = m[9], a22 = m[10];
+
+        final float c00 = a11*a22 - a12*a21;
+        final float c01 = a12*a20 - a10*a22;
+        final float c02 = a10*a21 - a11*a20;
+        final float det = a00*c00 + a01*c01 + a02*c02;
+        if( 0f == det ) {
+            return false;
+        }
+        final float s = 1f / det;
+        inv[ 0] = c00 * s;
+        inv[ 1] = c01 * s;
+        inv[ 2] = c02 * s;
+        inv[ 3] = 0f;
+        inv[ 4] = ( a02*a21 - a01*a22 ) * s;
+        inv[ 5] = ( a00*a22 - a02*a20 ) * s;
+        inv[ 6] = ( a01*a20 - a00*a21 ) * s;
+        inv[ 7] = 0f;
+        inv[ 8] = ( a01*a12 - a02*a11 ) * s;
+        inv[ 9] = ( a02*a10 - a00*a12 ) * s;
+        inv[10] = ( a00*a11 - a01*a10 ) * s;
+        inv[11] = 0f;
+        final float tx = m[12], ty = m[13], tz = m[14];
+        inv[12] = -( inv[0]*tx + inv[4]*ty + inv[ 8]*tz );
+        inv[13] = -( inv[1]*tx + inv[5]*ty + inv[ 9]*tz );
+        inv[14] = -( inv[2]*tx + inv[6]*ty + inv[10]*tz );
+        inv[15] = 1f;
+        return true;
+    }
+
+    /**
+     * Stack of 4x4 matrices stored back to back in one float array,
+     * which grows on demand up to the maximum depth.
+     * Push and pop only copy the 16 elements of the top matrix.
+     * Each entry also holds the matrix classification, e.g. {@link #MV_RIGID}.
+     */
+    protected static final class MatrixStack {
+        private final String name;
+        private float[] stack;
+        private int[] types;
+        private int top = 0; // float index of the next free slot
+        private int maxDepth;
+
+        MatrixStack(String name, int initialDepth, int maxDepth) {
+            this.name = name;
+            this.stack = new float[Math.min(initialDepth, maxDepth)*16];
+            this.types = new int[Math.min(initialDepth, maxDepth)];
+            this.maxDepth = maxDepth;
+        }
+
+        final int depth() {
+            return top / 16;
+        }
+
+        final void push(final FloatBuffer m, final int type) {
+            if( top >= maxDepth*16 ) {
+                throw new GLException("GL_STACK_OVERFLOW: "+name+" matrix stack depth "+maxDepth+" exceeded");
             }
-        }        
+            if( top == stack.length ) {
+                final int newDepth = (int) Math.min( (long)maxDepth, Math.max( 1L, 2L * depth() ) );
+                final float[] newStack = new float[newDepth*16];
+                System.arraycopy(stack, 0, newStack, 0, top);
+                stack = newStack;
+                final int[] newTypes = new int[newDepth];
+                System.arraycopy(types, 0, newTypes, 0, depth());
+                types = newTypes;
+            }
+            types[depth()] = type;
+            m.get(stack, top, 16);
+            m.reset();
+            top += 16;
+        }
+
+        /** @return the classification of the popped matrix, as passed to {@link #push(FloatBuffer, int)} */
+        final int pop(final FloatBuffer m) {
+            if( 0 == top ) {
+                throw new GLException("GL_STACK_UNDERFLOW: "+name+" matrix stack is empty");
+            }
+            top -= 16;
+            m.put(stack, top, 16);
+            m.reset();
+            return types[depth()];
+        }
     }
 
     protected Buffer matrixBuffer;
     protected FloatBuffer matrixIdent, matrixPMvMvit, matrixPMvMvi, matrixPMv, matrixP, matrixTex, matrixMv, matrixMvi, matrixMvit;
     protected float[] matrixMult, matrixTrans, matrixRot, matrixScale, matrixOrtho, matrixFrustum, vec3f;
-    protected List<float[]> matrixTStack, matrixPStack, matrixMvStack;
+    private float[] matrixTmpMv, matrixTmpMvi;
+    protected MatrixStack matrixTStack, matrixPStack, matrixMvStack;
     protected int matrixMode = GL_MODELVIEW;
     protected int modified = 0;
-    protected int usesMviMvit = 0; // 0 - none, 1 - Mvi, 2 - Mvit, 3 - MviMvit (ofc no Mvit w/o Mvi!)
+    protected int dirtyDerived = 0; // DIRTY_INVERSE_MODELVIEW, DIRTY_INVERSE_TRANSPOSED_MODELVIEW
+    protected int usesMviMvit = 0; // derived matrices requested for update: DIRTY_INVERSE_MODELVIEW, DIRTY_INVERSE_TRANSPOSED_MODELVIEW
+    private int modelviewType = MV_GENERAL; // MV_RIGID, MV_AFFINE or MV_GENERAL
     protected ProjectFloat projectFloat;
 
+    /** Default maximum depth of each matrix stack, see {@link #setMaxStackDepth(int, int)} */
+    public static final int DEFAULT_MAX_STACK_DEPTH = 1024;
+
     public static final int DIRTY_MODELVIEW  = 1 << 0;
     public static final int DIRTY_PROJECTION = 1 << 1;
     public static final int DIRTY_TEXTURE    = 1 << 2;
+    /** Dirty bit of the derived inverse modelview, Mvi */
+    public static final int DIRTY_INVERSE_MODELVIEW = 1 << 3;
+    /** Dirty bit of the derived inverse transposed modelview, Mvit */
+    public static final int DIRTY_INVERSE_TRANSPOSED_MODELVIEW = 1 << 4;
 }
@@ -0,0 +1,321 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLRunnable;
+
+/**
+ * Renders the drawables of an Animator in parallel, see {@link AnimatorBase#setParallelDisplay(boolean)}.
+ * <p>
+ * Each drawable is displayed by its own worker thread, hence its GL context
+ * is always made current on the same thread.
+ * A frame is issued to all workers, which render their drawable w/o swapping the buffers.
+ * After all drawables are rendered, the workers swap the buffers, so all surfaces present together.
+ * The barrier and the swap are performed by a {@link GLRunnable} within the drawable's display,
+ * i.e. while its context is still current, as required e.g. by <code>eglSwapBuffers</code>.
+ * The animator thread waits until all buffers are swapped.
+ * </p>
+ * <p>
+ * Intended for independent, heavyweight drawables, e.g. NEWT GLWindows w/o shared contexts.
+ * A GLEventListener shall not issue {@link GLAutoDrawable#invoke(boolean, javax.media.opengl.GLRunnable) invoke(true, ..)}
+ * on its drawable from within display, since it's not running on the animator thread.
+ * </p>
+ */
+class ParallelAnimatorImpl implements AnimatorBase.AnimatorImpl {
+    private final Map<GLAutoDrawable, Worker> workers = new IdentityHashMap<GLAutoDrawable, Worker>();
+    private int workerCount = 0;
+
+    /** Per frame synchronization of the workers */
+    static final class Frame {
+        final CountDownLatch rendered;
+        final CountDownLatch swap = new CountDownLatch(1);
+        final CountDownLatch swapped;
+
+        Frame(int n) {
+            rendered = new CountDownLatch(n);
+            swapped = new CountDownLatch(n);
+        }
+    }
+
+    static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Thread-affine worker of one drawable */
+    static final class Worker extends Thread {
+        final GLAutoDrawable drawable;
+        private volatile Frame pending = null;
+        private volatile boolean shouldStop = false;
+        /** Written by this worker, read after the frame's swapped latch */
+        RuntimeException error = null;
+
+        // timing in nanoseconds
+        volatile long avgDisplay = 0, maxDisplay = 0;
+        private long frames = 0;
+
+        Worker(GLAutoDrawable drawable, String name) {
+            super(name);
+            this.drawable = drawable;
+            setDaemon(true);
+        }
+
+        final void post(Frame frame) {
+            pending = frame;
+            LockSupport.unpark(this);
+        }
+
+        final void shutdown() {
+            shouldStop = true;
+            LockSupport.unpark(this);
+        }
+
+        public void run() {
+            while(!shouldStop) {
+                final Frame frame = pending;
+                if(null == frame) {
+                    LockSupport.park(this);
+                } else {
+                    pending = null;
+                    runFrame(frame);
+                }
+            }
+        }
+
+        /** Frame barrier and buffer swap, executed at the end of the drawable's display w/ its context current */
+        final class Present implements GLRunnable {
+            final Frame frame;
+            final boolean autoSwap;
+            final long t0;
+            volatile boolean executed = false;
+            volatile boolean canceled = false;
+
+            Present(Frame frame, boolean autoSwap, long t0) {
+                this.frame = frame;
+                this.autoSwap = autoSwap;
+                this.t0 = t0;
+            }
+
+            public boolean run(GLAutoDrawable drawable) {
+                if(canceled) {
+                    return true; // left over by a failed display
+                }
+                executed = true;
+                updateDisplayTiming(System.nanoTime() - t0);
+                frame.rendered.countDown();
+
+                // frame barrier, present together
+                awaitUninterruptibly(frame.swap);
+                if( autoSwap ) {
+                    drawable.swapBuffers();
+                }
+                return true;
+            }
+        }
+
+        private void runFrame(Frame frame) {
+            error = null;
+            boolean autoSwap = false;
+            Present present = null;
+            try {
+                autoSwap = drawable.getAutoSwapBufferMode();
+                if(autoSwap) {
+                    drawable.setAutoSwapBufferMode(false);
+                }
+                present = new Present(frame, autoSwap, System.nanoTime());
+                // deferred to the following display, since we are not the animator thread,
+                // otherwise executed right away by a display within invoke
+                drawable.invoke(false, present);
+                if(!present.executed) {
+                    drawable.display();
+                }
+            } catch (Throwable t) {
+                // keep the worker alive, the animator thread handles the error
+                error = t instanceof RuntimeException ? (RuntimeException)t : new RuntimeException(t);
+            } finally {
+                if(null == present || !present.executed) {
+                    // display failed or was skipped, e.g. not realized
+                    if(null != present) {
+                        present.canceled = true;
+                    }
+                    frame.rendered.countDown();
+                }
+                if(autoSwap) {
+                    drawable.setAutoSwapBufferMode(true);
+                }
+                frame.swapped.countDown();
+            }
+        }
+
+        private void updateDisplayTiming(long d) {
+            avgDisplay = 0 == frames ? d : ( 15 * avgDisplay + d ) / 16;
+            if( d > maxDisplay ) {
+                maxDisplay = d;
+            }
+            frames++;
+        }
+    }
+
+    public void display(ArrayList<GLAutoDrawable> drawables,
+                        boolean ignoreExceptions,
+                        boolean printExceptions) {
+        final int n = drawables.size();
+        final Worker[] frameWorkers = new Worker[n];
+        synchronized(workers) {
+            syncWorkers(drawables);
+            for (int i=0; i<n; i++) {
+                frameWorkers[i] = workers.get(drawables.get(i));
+            }
+        }
+        if( 0 == n ) {
+            return;
+        }
+        final Frame frame = new Frame(n);
+        for (int i=0; i<n; i++) {
+            frameWorkers[i].post(frame);
+        }
+        awaitUninterruptibly(frame.rendered);
+        frame.swap.countDown();
+        awaitUninterruptibly(frame.swapped);
+
+        for (int i=0; i<n; i++) {
+            final RuntimeException e = frameWorkers[i].error;
+            if( null != e ) {
+                if (ignoreExceptions) {
+                    if (printExceptions) {
+                        e.printStackTrace();
+                    }
+                } else {
+                    throw(e);
+                }
+            }
+        }
+    }
+
+    /** Starts workers for new drawables and stops the ones of removed drawables. */
+    private void syncWorkers(ArrayList<GLAutoDrawable> drawables) {
+        for (int i=0; i<drawables.size(); i++) {
+            final GLAutoDrawable drawable = drawables.get(i);
+            if( !workers.containsKey(drawable) ) {
+                final Worker w = new Worker(drawable, Thread.currentThread().getName()+"-Worker-"+(workerCount++));
+                workers.put(drawable, w);
+                w.start();
+            }
+        }
+        if( workers.size() > drawables.size() ) {
+            final Map<GLAutoDrawable, GLAutoDrawable> current = new IdentityHashMap<GLAutoDrawable, GLAutoDrawable>();
+            for (int i=0; i<drawables.size(); i++) {
+                current.put(drawables.get(i), drawables.get(i));
+            }
+            for (Iterator<Map.Entry<GLAutoDrawable, Worker>> iter = workers.entrySet().iterator(); iter.hasNext(); ) {
+                final Map.Entry<GLAutoDrawable, Worker> e = iter.next();
+                if( !current.containsKey(e.getKey()) ) {
+                    e.getValue().shutdown();
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /** Stops all workers, the next {@link #display(ArrayList, boolean, boolean) display} starts new ones */
+    void dispose() {
+        synchronized(workers) {
+            for (Iterator<Worker> iter = workers.values().iterator(); iter.hasNext(); ) {
+                iter.next().shutdown();
+            }
+            workers.clear();
+        }
+    }
+
+    private Worker getWorker(GLAutoDrawable drawable) {
+        synchronized(workers) {
+            return workers.get(drawable);
+        }
+    }
+
+    /** @return moving average of the display duration of the drawable in nanoseconds, w/o swapping the buffers, or 0 if unknown */
+    long getAverageDisplayDuration(GLAutoDrawable drawable) {
+        final Worker w = getWorker(drawable);
+        return null != w ? w.avgDisplay : 0;
+    }
+
+    /** @return maximum display duration of the drawable in nanoseconds, w/o swapping the buffers, or 0 if unknown */
+    long getMaxDisplayDuration(GLAutoDrawable drawable) {
+        final Worker w = getWorker(drawable);
+        return null != w ? w.maxDisplay : 0;
+    }
+
+    /** @return the drawable with the highest average display duration, or null if none has been displayed yet */
+    GLAutoDrawable getSlowestDrawable() {
+        synchronized(workers) {
+            GLAutoDrawable slowest = null;
+            long max = 0;
+            for (Iterator<Worker> iter = workers.values().iterator(); iter.hasNext(); ) {
+                final Worker w = iter.next();
+                if( w.avgDisplay > max ) {
+                    max = w.avgDisplay;
+                    slowest = w.drawable;
+                }
+            }
+            return slowest;
+        }
+    }
+
+    public boolean blockUntilDone(Thread thread) {
+        final Thread ct = Thread.currentThread();
+        if( ct == thread ) {
+            return false;
+        }
+        synchronized(workers) {
+            for (Iterator<Worker> iter = workers.values().iterator(); iter.hasNext(); ) {
+                if( ct == iter.next() ) {
+                    return false; // issued from within display
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -207,11 +207,19 @@ public class ShaderProgram {
         }
         
         add(newShader);
-        if(attachedShaderCode.add(newShader)) {
-            ShaderUtil.attachShader(gl, shaderProgram, newShader.shader());
+        // a program loaded via ShaderProgramCache has no compiled shader code attached yet
+        for(Iterator<ShaderCode> iter=allShaderCode.iterator(); iter.hasNext(); ) {
+            final ShaderCode shaderCode = iter.next();
+            if(!shaderCode.compile(gl, verboseOut)) {
+                return false;
+            }
+            if(attachedShaderCode.add(shaderCode)) {
+                ShaderUtil.attachShader(gl, shaderProgram, shaderCode.shader());
+            }
         }
         
         gl.glLinkProgram(shaderProgram);
+        programLinkCount++;
         
         programLinked = ShaderUtil.isProgramValid(gl, shaderProgram, System.err);
         if ( programLinked && shaderWasInUse )  {
@@ -248,6 +256,7 @@ public class ShaderProgram {
 
         // Link the program
         gl.glLinkProgram(shaderProgram);
+        programLinkCount++;
 
         programLinked = ShaderUtil.isProgramValid(gl, shaderProgram, System.err);
 
@@ -292,6 +301,8 @@ public class ShaderProgram {
 
     protected boolean programLinked = false;
     protected boolean programInUse = false;
+    /** Incremented with each <code>glLinkProgram</code>, allows {@link ShaderState} to detect a relink. */
+    protected int programLinkCount = 0;
     protected int shaderProgram=-1;
     protected HashSet<ShaderCode> allShaderCode = new HashSet<ShaderCode>();
     protected HashSet<ShaderCode> attachedShaderCode = new HashSet<ShaderCode>();
@@ -0,0 +1,560 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.util.glsl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GL2GL3;
+import javax.media.opengl.GLException;
+
+import jogamp.opengl.Debug;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Persistent on-disk cache of linked {@link ShaderProgram} binaries,
+ * using <code>glGetProgramBinary</code> and <code>glProgramBinary</code>
+ * (GL 4.1, <code>GL_ARB_get_program_binary</code> or <code>GL_OES_get_program_binary</code>).
+ * <p>
+ * {@link #link(GL2ES2, ShaderProgram, PrintStream)} replaces {@link ShaderProgram#link(GL2ES2, PrintStream)}:
+ * on a hit the program is loaded from its binary and the shader code is not compiled at all,
+ * on a miss the program is compiled and linked as usual and its binary is stored afterwards.</p>
+ * <p>
+ * An entry is keyed by a SHA-1 hash of the shader sources, including all defines prepended to them,
+ * the attribute locations bound before linking,
+ * the GL vendor, renderer and version strings and the {@link javax.media.opengl.GLProfile} name.
+ * Since attribute locations are part of the linked binary, they shall be passed to
+ * {@link #link(GL2ES2, ShaderProgram, Map, PrintStream)} instead of being bound by the caller.
+ * The key is stored in the entry as well and validated together with a CRC32 of the binary,
+ * a mismatching or corrupt entry as well as a binary rejected by the driver is deleted
+ * and the program is transparently recompiled.</p>
+ * <p>
+ * Entries are written to a temporary file first and renamed into place, 
+ * hence a concurrent reader or a crash never sees a partial entry.
+ * The total size of the cache directory is bounded, the least recently used entries are evicted.</p>
+ * <p>
+ * Cold and warm startup timing is provided via {@link #getMissNanos()} and {@link #getHitNanos()},
+ * together with the hit rate, see {@link #toString()}.</p>
+ */
+public class ShaderProgramCache {
+    public static final boolean DEBUG = Debug.debug("GLSLProgramCache");
+
+    /** Default maximum size of the cache directory in bytes, 32 MiB. */
+    public static final long DEFAULT_MAX_SIZE = 32L * 1024L * 1024L;
+
+    /** Suffix of a cache entry file */
+    public static final String SUFFIX_ENTRY = "glpb";
+
+    private static final int MAGIC = 0x4A504243; // 'JPBC'
+    private static final int VERSION = 2;
+
+    /**
+     * @param directory the cache directory, created if not existing
+     * @param maxSize the maximum total size of all entries in bytes, see {@link #DEFAULT_MAX_SIZE}
+     */
+    public ShaderProgramCache(File directory, long maxSize) {
+        if(null == directory) {
+            throw new IllegalArgumentException("directory is null");
+        }
+        if(0 >= maxSize) {
+            throw new IllegalArgumentException("maxSize must be > 0: "+maxSize);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    public final File getDirectory() { return directory; }
+
+    public final long getMaxSize() { return maxSize; }
+
+    /**
+     * @return true if the GL object supports retrieving and loading program binaries
+     */
+    public static boolean isAvailable(GL2ES2 gl) {
+        if( !gl.isFunctionAvailable("glGetProgramBinary") || !gl.isFunctionAvailable("glProgramBinary") ) {
+            return false;
+        }
+        final int[] formats = new int[1];
+        gl.glGetIntegerv(GL2ES2.GL_NUM_PROGRAM_BINARY_FORMATS, formats, 0);
+        return 0 < formats[0];
+    }
+
+    /**
+     * Links the program, either by loading its cached binary or by compiling and linking its shader code,
+     * see {@link ShaderProgram#link(GL2ES2, PrintStream)}.
+     * In the latter case the program binary is stored in this cache.
+     * <p>
+     * If the GL object does not support program binaries, see {@link #isAvailable(GL2ES2)},
+     * the program is linked as usual.</p>
+     *
+     * @return true if program was successfully linked and is valid, otherwise false
+     */
+    public boolean link(GL2ES2 gl, ShaderProgram program, PrintStream verboseOut) {
+        return link(gl, program, null, verboseOut);
+    }
+
+    /**
+     * Links the program like {@link #link(GL2ES2, ShaderProgram, PrintStream)},
+     * binding the given attribute locations via <code>glBindAttribLocation</code> before linking.
+     *
+     * @param attribLocations attribute name to {@link Integer} location map, may be null
+     * @return true if program was successfully linked and is valid, otherwise false
+     */
+    public synchronized boolean link(GL2ES2 gl, ShaderProgram program, Map<String, Integer> attribLocations, PrintStream verboseOut) {
+        final long t0 = System.nanoTime();
+        byte[] key = null;
+        if( isAvailable(gl) ) {
+            key = computeKey(gl, program, attribLocations);
+            if( null != key && load(gl, program, key, verboseOut) ) {
+                hitCount++;
+                hitNanos += System.nanoTime() - t0;
+                return true;
+            }
+        }
+        program.init(gl);
+        if( null != attribLocations ) {
+            for(Iterator<Map.Entry<String, Integer>> iter=attribLocations.entrySet().iterator(); iter.hasNext(); ) {
+                final Map.Entry<String, Integer> e = iter.next();
+                gl.glBindAttribLocation(program.program(), e.getValue().intValue(), e.getKey());
+            }
+        }
+        if( null != key && gl.isGL2GL3() && gl.isFunctionAvailable("glProgramParameteri") ) {
+            // drivers may not keep the binary otherwise, ES2 implementations always do
+            gl.getGL2GL3().glProgramParameteri(program.program(), GL2GL3.GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL.GL_TRUE);
+        }
+        final boolean res = program.link(gl, verboseOut);
+        if( res && null != key ) {
+            store(gl, program, key);
+        }
+        missCount++;
+        missNanos += System.nanoTime() - t0;
+        return res;
+    }
+
+    /**
+     * Computes the key of the given program for the GL object w/o attribute location bindings,
+     * see {@link #computeKey(GL2ES2, ShaderProgram, Map)}.
+     */
+    public static byte[] computeKey(GL2ES2 gl, ShaderProgram program) {
+        return computeKey(gl, program, null);
+    }
+
+    /**
+     * Computes the key of the given program for the GL object,
+     * i.e. a SHA-1 hash of the program's shader code, the attribute location bindings,
+     * the GL vendor, renderer and version strings and the {@link javax.media.opengl.GLProfile} name.
+     *
+     * @param attribLocations attribute name to {@link Integer} location map, may be null
+     * @return the key, or null if the program has no shader code
+     */
+    public static byte[] computeKey(GL2ES2 gl, ShaderProgram program, Map<String, Integer> attribLocations) {
+        final byte[][] codes = new byte[program.allShaderCode.size()][];
+        if( 0 == codes.length ) {
+            return null;
+        }
+        final MessageDigest md = getDigest();
+        int i=0;
+        for(Iterator<ShaderCode> iter=program.allShaderCode.iterator(); iter.hasNext(); ) {
+            final ShaderCode code = iter.next();
+            md.reset();
+            update(md, code.shaderType());
+            final String[][] sources = code.shaderSource();
+            final Buffer binary = code.shaderBinary();
+            if( null != sources ) {
+                for(int j=0; j<sources.length; j++) {
+                    for(int k=0; k<sources[j].length; k++) {
+                        update(md, sources[j][k]);
+                    }
+                }
+            } else if( binary instanceof ByteBuffer ) {
+                update(md, code.shaderBinaryFormat());
+                md.update(((ByteBuffer)binary).duplicate());
+            } else {
+                return null;
+            }
+            codes[i++] = md.digest();
+        }
+        // shader code is held in an unordered set
+        Arrays.sort(codes, new Comparator<byte[]>() {
+            public int compare(byte[] a, byte[] b) {
+                for(int j=0; j<a.length; j++) {
+                    if(a[j] != b[j]) {
+                        return a[j] - b[j];
+                    }
+                }
+                return 0;
+            }
+        });
+        md.reset();
+        update(md, VERSION);
+        update(md, gl.getGLProfile().getName());
+        update(md, gl.glGetString(GL.GL_VENDOR));
+        update(md, gl.glGetString(GL.GL_RENDERER));
+        update(md, gl.glGetString(GL.GL_VERSION));
+        for(i=0; i<codes.length; i++) {
+            md.update(codes[i]);
+        }
+        if( null != attribLocations ) {
+            // sorted by name for a stable key
+            final Map<String, Integer> sorted = new TreeMap<String, Integer>(attribLocations);
+            update(md, sorted.size());
+            for(Iterator<Map.Entry<String, Integer>> iter=sorted.entrySet().iterator(); iter.hasNext(); ) {
+                final Map.Entry<String, Integer> e = iter.next();
+                update(md, e.getKey());
+                update(md, e.getValue().intValue());
+            }
+        } else {
+            update(md, 0);
+        }
+        return md.digest();
+    }
+
+    /**
+     * Deletes all entries of this cache.
+     */
+    public synchronized void clear() {
+        final File[] files = listEntries();
+        for(int i=0; i<files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * @return the number of entries in this cache
+     */
+    public synchronized int getEntryCount() {
+        return listEntries().length;
+    }
+
+    /**
+     * @return the total size of all entries in bytes
+     */
+    public synchronized long getSize() {
+        final File[] files = listEntries();
+        long size = 0;
+        for(int i=0; i<files.length; i++) {
+            size += files[i].length();
+        }
+        return size;
+    }
+
+    /** Number of programs loaded from the cache. */
+    public final int getHitCount() { return hitCount; }
+    /** Number of programs compiled and linked, including rejected entries. */
+    public final int getMissCount() { return missCount; }
+    /** Number of stale, corrupt or driver rejected entries, which were deleted. */
+    public final int getRejectCount() { return rejectCount; }
+    /** Number of stored entries. */
+    public final int getStoreCount() { return storeCount; }
+    /** Number of entries evicted to meet the size bound. */
+    public final int getEvictCount() { return evictCount; }
+    /** Accumulated time linking programs via their cached binary in nanoseconds, i.e. warm startup. */
+    public final long getHitNanos() { return hitNanos; }
+    /** Accumulated time compiling and linking programs, including storing their binary, in nanoseconds, i.e. cold startup. */
+    public final long getMissNanos() { return missNanos; }
+
+    /**
+     * @return the hit rate [0..1]
+     */
+    public final float getHitRate() {
+        final int n = hitCount + missCount;
+        return 0 < n ? (float)hitCount / (float)n : 0f;
+    }
+
+    public synchronized void resetStatistics() {
+        hitCount = 0;
+        missCount = 0;
+        rejectCount = 0;
+        storeCount = 0;
+        evictCount = 0;
+        hitNanos = 0;
+        missNanos = 0;
+    }
+
+    public String toString() {
+        return "ShaderProgramCache["+directory+", max "+maxSize+" bytes, hits "+hitCount+" / "+(hitNanos/1000000L)+" ms, misses "+
+               missCount+" / "+(missNanos/1000000L)+" ms, hit-rate "+getHitRate()+", rejected "+rejectCount+
+               ", stored "+storeCount+", evicted "+evictCount+"]";
+    }
+
+    private final File getEntryFile(byte[] key) {
+        final StringBuilder sb = new StringBuilder(key.length*2+SUFFIX_ENTRY.length()+1);
+        for(int i=0; i<key.length; i++) {
+            final int v = key[i] & 0xff;
+            sb.append(Character.forDigit(v >>> 4, 16)).append(Character.forDigit(v & 0x0f, 16));
+        }
+        sb.append('.').append(SUFFIX_ENTRY);
+        return new File(directory, sb.toString());
+    }
+
+    private final File[] listEntries() {
+        final File[] files = directory.listFiles(new FileFilter() {
+            public boolean accept(File f) {
+                return f.isFile() && f.getName().endsWith("."+SUFFIX_ENTRY);
+            }
+        });
+        return null != files ? files : new File[0];
+    }
+
+    private final boolean load(GL2ES2 gl, ShaderProgram program, byte[] key, PrintStream verboseOut) {
+        final File file = getEntryFile(key);
+        if( !file.exists() ) {
+            return false;
+        }
+        int format = 0;
+        ByteBuffer binary = null;
+        try {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                if( MAGIC != in.readInt() || VERSION != in.readInt() ) {
+                    throw new IOException("invalid header");
+                }
+                final byte[] storedKey = new byte[in.readUnsignedShort()];
+                in.readFully(storedKey);
+                if( !Arrays.equals(key, storedKey) ) {
+                    throw new IOException("key mismatch");
+                }
+                format = in.readInt();
+                final int length = in.readInt();
+                final long crc = in.readLong();
+                if( 0 >= length || length != file.length() - headerSize(storedKey.length) ) {
+                    throw new IOException("invalid length "+length);
+                }
+                final byte[] data = new byte[length];
+                in.readFully(data);
+                final CRC32 crc32 = new CRC32();
+                crc32.update(data, 0, length);
+                if( crc != crc32.getValue() ) {
+                    throw new IOException("CRC mismatch");
+                }
+                binary = Buffers.newDirectByteBuffer(length);
+                binary.put(data);
+                binary.rewind();
+            } finally {
+                in.close();
+            }
+        } catch (IOException ioe) {
+            reject(file, ioe.getMessage());
+            return false;
+        }
+
+        program.init(gl);
+        gl.glProgramBinary(program.program(), format, binary, binary.capacity());
+        if( !ShaderUtil.isProgramStatusValid(gl, program.program(), GL2ES2.GL_LINK_STATUS) ) {
+            // e.g. driver update w/o version change
+            reject(file, "driver rejected binary");
+            if(null != verboseOut) {
+                verboseOut.println("ShaderProgramCache: binary rejected, recompiling: "+ShaderUtil.getProgramInfoLog(gl, program.program()));
+            }
+            return false;
+        }
+        program.programLinkCount++;
+        program.programLinked = true;
+        file.setLastModified(System.currentTimeMillis()); // LRU
+        if(DEBUG) {
+            System.err.println("ShaderProgramCache: hit "+file.getName()+", "+binary.capacity()+" bytes, format 0x"+Integer.toHexString(format));
+        }
+        return true;
+    }
+
+    private final void store(GL2ES2 gl, ShaderProgram program, byte[] key) {
+        final int[] tmp = new int[2];
+        gl.glGetProgramiv(program.program(), GL2ES2.GL_PROGRAM_BINARY_LENGTH, tmp, 0);
+        if( 0 >= tmp[0] ) {
+            return;
+        }
+        final ByteBuffer binary = Buffers.newDirectByteBuffer(tmp[0]);
+        gl.glGetProgramBinary(program.program(), tmp[0], tmp, 0, tmp, 1, binary);
+        final int length = tmp[0];
+        final int format = tmp[1];
+        if( GL.GL_NO_ERROR != gl.glGetError() || 0 >= length ) {
+            return;
+        }
+        final byte[] data = new byte[length];
+        binary.get(data, 0, length);
+        final CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, length);
+
+        final File file = getEntryFile(key);
+        File tmpFile = null;
+        try {
+            if( !directory.isDirectory() && !directory.mkdirs() ) {
+                throw new IOException("could not create directory");
+            }
+            tmpFile = File.createTempFile("jpbc", ".tmp", directory);
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeInt(format);
+                out.writeInt(length);
+                out.writeLong(crc32.getValue());
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            if( !tmpFile.renameTo(file) ) {
+                // rename doesn't replace an existing file on all platforms
+                file.delete();
+                if( !tmpFile.renameTo(file) ) {
+                    throw new IOException("could not rename "+tmpFile+" to "+file);
+                }
+            }
+            tmpFile = null;
+            storeCount++;
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: stored "+file.getName()+", "+length+" bytes, format 0x"+Integer.toHexString(format));
+            }
+        } catch (IOException ioe) {
+            if(DEBUG) {
+                System.err.println("ShaderProgramCache: store failed "+file+": "+ioe.getMessage());
+            }
+        } finally {
+            if( null != tmpFile ) {
+                tmpFile.delete();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used entries until the total size fits {@link #getMaxSize()}.
+     */
+    private final void evict() {
+        final File[] files = listEntries();
+        long size = 0;
+        final long[] lastModified = new long[files.length];
+        for(int i=0; i<files.length; i++) {
+            size += files[i].length();
+        }
+        if( size <= maxSize ) {
+            return;
+        }
+        // sort by last use, cache the time stamp for a consistent order
+        final Integer[] order = new Integer[files.length];
+        for(int i=0; i<files.length; i++) {
+            lastModified[i] = files[i].lastModified();
+            order[i] = new Integer(i);
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                final long la = lastModified[a.intValue()];
+                final long lb = lastModified[b.intValue()];
+                return la < lb ? -1 : ( la > lb ? 1 : 0 );
+            }
+        });
+        for(int i=0; i<order.length && size > maxSize; i++) {
+            final File f = files[order[i].intValue()];
+            final long len = f.length();
+            if( f.delete() ) {
+                size -= len;
+                evictCount++;
+                if(DEBUG) {
+                    System.err.println("ShaderProgramCache: evicted "+f.getName()+", "+len+" bytes");
+                }
+            }
+        }
+    }
+
+    private final void reject(File file, String reason) {
+        rejectCount++;
+        file.delete();
+        if(DEBUG) {
+            System.err.println("ShaderProgramCache: rejected "+file.getName()+": "+reason);
+        }
+    }
+
+    private static final int headerSize(int keyLength) {
+        return 4 + 4 + 2 + keyLength + 4 + 4 + 8;
+    }
+
+    private static final MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new GLException(nsae);
+        }
+    }
+
+    private static final void update(MessageDigest md, int v) {
+        md.update((byte)(v >>> 24));
+        md.update((byte)(v >>> 16));
+        md.update((byte)(v >>> 8));
+        md.update((byte)v);
+    }
+
+    private static final void update(MessageDigest md, String s) {
+        if( null == s ) {
+            update(md, -1);
+            return;
+        }
+        try {
+            final byte[] b = s.getBytes("UTF-8");
+            update(md, b.length);
+            md.update(b);
+        } catch (UnsupportedEncodingException uee) {
+            throw new GLException(uee);
+        }
+    }
+
+    private final File directory;
+    private final long maxSize;
+
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int rejectCount = 0;
+    private int storeCount = 0;
+    private int evictCount = 0;
+    private long hitNanos = 0;
+    private long missNanos = 0;
+}
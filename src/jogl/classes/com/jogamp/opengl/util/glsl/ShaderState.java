@@ -480,6 +480,71 @@ public class ShaderState {
         return location;
     }
     
+    /**
+     * Resolves the attribute <code>name</code> to a small integer slot,
+     * usable with {@link #getAttribLocation(GL2ES2, int)}.
+     * <p>
+     * The slot is independent of the attached program and stays valid for the lifetime of this ShaderState,
+     * hence it shall be resolved once, e.g. at initialization.</p>
+     *
+     * @return the slot of the named attribute, >= 0
+     *
+     * @see #getAttribLocation(GL2ES2, int)
+     */
+    public int getAttribSlot(String name) {
+        final Integer idx = attribSlotMap.get(name);
+        if(null != idx) {
+            return idx.intValue();
+        }
+        final int slot = attribSlotNames.length;
+        final String[] names = new String[slot+1];
+        final int[] locations = new int[slot+1];
+        System.arraycopy(attribSlotNames, 0, names, 0, slot);
+        System.arraycopy(attribSlotLocations, 0, locations, 0, slot);
+        names[slot] = name;
+        locations[slot] = SLOT_UNRESOLVED;
+        attribSlotNames = names;
+        attribSlotLocations = locations;
+        attribSlotMap.put(name, new Integer(slot));
+        return slot;
+    }
+
+    /**
+     * Gets the location of a shader attribute by its slot, see {@link #getAttribSlot(String)}.<br>
+     * The location is queried via {@link #getAttribLocation(GL2ES2, String)} only once per linked program
+     * and kept in an array indexed by the slot.
+     *
+     * @return -1 if there is no such attribute available,
+     *         otherwise >= 0
+     * @throws GLException if no program is attached
+     * @throws GLException if the program is not linked and no location was cached.
+     *
+     * @see #getAttribSlot(String)
+     */
+    public int getAttribLocation(GL2ES2 gl, int slot) {
+        if(null==shaderProgram) throw new GLException("No program is attached");
+        if(attribSlotProgram != shaderProgram || attribSlotLinkCount != shaderProgram.programLinkCount) {
+            invalidateAttribSlots();
+            attribSlotProgram = shaderProgram;
+            attribSlotLinkCount = shaderProgram.programLinkCount;
+        }
+        int location = attribSlotLocations[slot];
+        if(SLOT_UNRESOLVED == location) {
+            location = getAttribLocation(gl, attribSlotNames[slot]);
+            if(shaderProgram.linked()) {
+                attribSlotLocations[slot] = location;
+            }
+        }
+        return location;
+    }
+
+    private final void invalidateAttribSlots() {
+        for(int i=attribSlotLocations.length-1; i>=0; i--) {
+            attribSlotLocations[i] = SLOT_UNRESOLVED;
+        }
+        attribSlotProgram = null;
+    }
+    
     //
     // Enabled Vertex Arrays and its data
     //
@@ -704,6 +769,7 @@ public class ShaderState {
         enabledAttributes.clear();
         activeAttribLocationMap.clear();
         managedAttributes.clear();        
+        invalidateAttribSlots();
     }
         
     /**
@@ -773,6 +839,7 @@ public class ShaderState {
     private final void resetAllAttributes(GL2ES2 gl) {
         if(!shaderProgram.linked()) throw new GLException("Program is not linked");
         activeAttribLocationMap.clear();
+        invalidateAttribSlots();
         
         for(Iterator<GLArrayData> iter = managedAttributes.iterator(); iter.hasNext(); ) {
             iter.next().setLocation(-1);
@@ -949,6 +1016,13 @@ public class ShaderState {
                 System.err.println("Info: glUniform: "+data);
             }
             gl.glUniform(data);
+            if(0 < uniformSlotMap.size()) {
+                // the value of a slot sharing this uniform is no more known
+                final Integer slot = uniformSlotMap.get(data.getName());
+                if(null != slot) {
+                    uniformSlotSignatures[slot.intValue()] = 0;
+                }
+            }
         }
         return true;
     }
@@ -970,6 +1044,7 @@ public class ShaderState {
         activeUniformDataMap.clear();
         activeUniformLocationMap.clear();
         managedUniforms.clear();
+        invalidateUniformSlots();
     }
         
     /**
@@ -985,6 +1060,7 @@ public class ShaderState {
     private final void resetAllUniforms(GL2ES2 gl) {
         if(!shaderProgram.inUse()) throw new GLException("Program is not in use");        
         activeUniformLocationMap.clear();
+        invalidateUniformSlots();
         for(Iterator<GLUniformData> iter = managedUniforms.iterator(); iter.hasNext(); ) {
             iter.next().setLocation(-1);
         }        
@@ -995,6 +1071,295 @@ public class ShaderState {
         }
     }
 
+    //
+    // Slot based uniform handling
+    //
+
+    /**
+     * Resolves the uniform <code>name</code> to a small integer slot,
+     * usable with the slot based <code>uniform</code> methods, e.g. {@link #uniform(GL2ES2, int, float)}.
+     * <p>
+     * The slot is independent of the attached program and stays valid for the lifetime of this ShaderState,
+     * hence it shall be resolved once, e.g. at initialization.
+     * Setting a uniform via its slot avoids the name lookup and boxing of {@link #uniform(GL2ES2, GLUniformData)}:
+     * the location is queried once per linked program and kept in an array indexed by the slot.</p>
+     * <p>
+     * The last value passed per slot is cached as well and the <code>glUniform*</code> call is skipped
+     * if the value is unchanged.
+     * The location and value cache is dropped when the program is switched or relinked,
+     * or if the same uniform is set via {@link #uniform(GL2ES2, GLUniformData)}.
+     * Values set directly via the GL object bypass the cache,
+     * use {@link #invalidateUniformSlots()} in such case.</p>
+     *
+     * @return the slot of the named uniform, >= 0
+     */
+    public int getUniformSlot(String name) {
+        final Integer idx = uniformSlotMap.get(name);
+        if(null != idx) {
+            return idx.intValue();
+        }
+        final int slot = uniformSlotNames.length;
+        final String[] names = new String[slot+1];
+        final int[] locations = new int[slot+1];
+        final int[] signatures = new int[slot+1];
+        final int[][] values = new int[slot+1][];
+        System.arraycopy(uniformSlotNames, 0, names, 0, slot);
+        System.arraycopy(uniformSlotLocations, 0, locations, 0, slot);
+        System.arraycopy(uniformSlotSignatures, 0, signatures, 0, slot);
+        System.arraycopy(uniformSlotValues, 0, values, 0, slot);
+        names[slot] = name;
+        locations[slot] = SLOT_UNRESOLVED;
+        uniformSlotNames = names;
+        uniformSlotLocations = locations;
+        uniformSlotSignatures = signatures;
+        uniformSlotValues = values;
+        uniformSlotMap.put(name, new Integer(slot));
+        return slot;
+    }
+
+    /**
+     * Gets the location of a shader uniform by its slot, see {@link #getUniformSlot(String)}.
+     * <p>
+     * The current shader program ({@link #attachShaderProgram(GL2ES2, ShaderProgram)}) 
+     * must be in use ({@link #useProgram(GL2ES2, boolean) }) !</p>
+     *
+     * @return -1 if there is no such uniform available,
+     *         otherwise >= 0
+     * @throws GLException if the program is not in use
+     */
+    public final int getUniformLocation(GL2ES2 gl, int slot) {
+        if(null==shaderProgram || !shaderProgram.inUse()) throw new GLException("Program is not in use");
+        if(uniformSlotProgram != shaderProgram || uniformSlotLinkCount != shaderProgram.programLinkCount) {
+            invalidateUniformSlots();
+            uniformSlotProgram = shaderProgram;
+            uniformSlotLinkCount = shaderProgram.programLinkCount;
+        }
+        int location = uniformSlotLocations[slot];
+        if(SLOT_UNRESOLVED == location) {
+            // query the program, the name based cache survives a relink
+            location = gl.glGetUniformLocation(shaderProgram.program(), uniformSlotNames[slot]);
+            uniformSlotLocations[slot] = location;
+            if(0>location && verbose) {
+                Throwable tX = new Throwable("Info: glUniform failed, no location for slot "+slot+": "+uniformSlotNames[slot]);
+                tX.printStackTrace();
+            }
+        }
+        return location;
+    }
+
+    /**
+     * Drops all cached slot locations and values,
+     * forcing the next slot based <code>uniform</code> call to reach the GL.
+     *
+     * @see #getUniformSlot(String)
+     */
+    public final void invalidateUniformSlots() {
+        for(int i=uniformSlotLocations.length-1; i>=0; i--) {
+            uniformSlotLocations[i] = SLOT_UNRESOLVED;
+            uniformSlotSignatures[i] = 0;
+        }
+        uniformSlotProgram = null;
+    }
+
+    /**
+     * Sets the <code>int</code> uniform, e.g. a sampler, addressed by its slot.
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, int v) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_INT | 1<<4 | 1<<8, v, 0, 0, 0, 1)) {
+            gl.glUniform1i(location, v);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>float</code> uniform addressed by its slot.
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, float x) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_FLOAT | 1<<4 | 1<<8, Float.floatToRawIntBits(x), 0, 0, 0, 1)) {
+            gl.glUniform1f(location, x);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>vec2</code> uniform addressed by its slot.
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, float x, float y) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_FLOAT | 2<<4 | 1<<8, 
+                             Float.floatToRawIntBits(x), Float.floatToRawIntBits(y), 0, 0, 2)) {
+            gl.glUniform2f(location, x, y);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>vec3</code> uniform addressed by its slot.
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, float x, float y, float z) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_FLOAT | 3<<4 | 1<<8, 
+                             Float.floatToRawIntBits(x), Float.floatToRawIntBits(y), Float.floatToRawIntBits(z), 0, 3)) {
+            gl.glUniform3f(location, x, y, z);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>vec4</code> uniform addressed by its slot.
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, float x, float y, float z, float w) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_FLOAT | 4<<4 | 1<<8, 
+                             Float.floatToRawIntBits(x), Float.floatToRawIntBits(y), 
+                             Float.floatToRawIntBits(z), Float.floatToRawIntBits(w), 4)) {
+            gl.glUniform4f(location, x, y, z, w);
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>float</code>, <code>vec2</code>, <code>vec3</code> or <code>vec4</code> array uniform addressed by its slot.
+     *
+     * @param components number of components per element, [1..4]
+     * @param count number of elements
+     * @param v the source array holding <code>components * count</code> values starting at <code>v_offset</code>
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniform(GL2ES2 gl, int slot, int components, int count, float[] v, int v_offset) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_FLOAT | components<<4 | count<<8, v, v_offset, components*count)) {
+            switch(components) {
+                case 1: gl.glUniform1fv(location, count, v, v_offset); break;
+                case 2: gl.glUniform2fv(location, count, v, v_offset); break;
+                case 3: gl.glUniform3fv(location, count, v, v_offset); break;
+                case 4: gl.glUniform4fv(location, count, v, v_offset); break;
+                default: throw new GLException("Invalid components: "+components);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Sets the <code>mat2</code>, <code>mat3</code> or <code>mat4</code> [array] uniform addressed by its slot.
+     *
+     * @param dim the matrix dimension, [2..4]
+     * @param count number of matrices
+     * @param m the source array holding <code>dim * dim * count</code> values starting at <code>m_offset</code>
+     *
+     * @return false, if the uniform is not found in the current program, otherwise true
+     * @throws GLException if the program is not in use
+     * @see #getUniformSlot(String)
+     */
+    public boolean uniformMatrix(GL2ES2 gl, int slot, int dim, int count, boolean transpose, float[] m, int m_offset) {
+        final int location = getUniformLocation(gl, slot);
+        if(0>location) {
+            return false;
+        }
+        if(updateUniformSlot(slot, SLOT_MATRIX | (transpose ? SLOT_TRANSPOSE : 0) | dim<<4 | count<<8, m, m_offset, dim*dim*count)) {
+            switch(dim) {
+                case 2: gl.glUniformMatrix2fv(location, count, transpose, m, m_offset); break;
+                case 3: gl.glUniformMatrix3fv(location, count, transpose, m, m_offset); break;
+                case 4: gl.glUniformMatrix4fv(location, count, transpose, m, m_offset); break;
+                default: throw new GLException("Invalid matrix dimension: "+dim);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores up to 4 values (raw int bits) for the slot.
+     *
+     * @return true if the value differs from the cached one and shall be passed to the GL, otherwise false
+     */
+    private final boolean updateUniformSlot(int slot, int signature, int a, int b, int c, int d, int n) {
+        int[] v = uniformSlotValues[slot];
+        if(uniformSlotSignatures[slot] == signature) {
+            if( v[0] == a && ( n < 2 || v[1] == b ) && ( n < 3 || v[2] == c ) && ( n < 4 || v[3] == d ) ) {
+                return false;
+            }
+        } else {
+            if(null == v || v.length < 4) {
+                v = new int[4];
+                uniformSlotValues[slot] = v;
+            }
+            uniformSlotSignatures[slot] = signature;
+        }
+        v[0] = a; v[1] = b; v[2] = c; v[3] = d;
+        return true;
+    }
+
+    /**
+     * Stores <code>n</code> float values (raw int bits) for the slot.
+     *
+     * @return true if the value differs from the cached one and shall be passed to the GL, otherwise false
+     */
+    private final boolean updateUniformSlot(int slot, int signature, float[] src, int offset, int n) {
+        int[] v = uniformSlotValues[slot];
+        int i = 0;
+        if(uniformSlotSignatures[slot] == signature) {
+            while( i < n && v[i] == Float.floatToRawIntBits(src[offset+i]) ) {
+                i++;
+            }
+            if( i == n ) {
+                return false;
+            }
+        } else {
+            if(null == v || v.length < n) {
+                v = new int[Math.max(4, n)];
+                uniformSlotValues[slot] = v;
+            }
+            uniformSlotSignatures[slot] = signature;
+        }
+        for(; i < n; i++) {
+            v[i] = Float.floatToRawIntBits(src[offset+i]);
+        }
+        return true;
+    }
+
     public StringBuilder toString(StringBuilder sb) {
         if(null==sb) {
             sb = new StringBuilder();
@@ -1052,5 +1417,26 @@ public class ShaderState {
     private HashMap<String, Object> attachedObjectsByString = new HashMap<String, Object>();    
     private IntObjectHashMap attachedObjectsByInt = new IntObjectHashMap();   
     private boolean resetAllShaderData = false;
+
+    private static final int SLOT_UNRESOLVED = -2;
+    private static final int SLOT_INT = 1;
+    private static final int SLOT_FLOAT = 2;
+    private static final int SLOT_MATRIX = 3;
+    private static final int SLOT_TRANSPOSE = 1 << 3;
+    
+    private HashMap<String, Integer> attribSlotMap = new HashMap<String, Integer>();
+    private String[] attribSlotNames = new String[0];
+    private int[] attribSlotLocations = new int[0];
+    private ShaderProgram attribSlotProgram = null;
+    private int attribSlotLinkCount = 0;
+    
+    private HashMap<String, Integer> uniformSlotMap = new HashMap<String, Integer>();
+    private String[] uniformSlotNames = new String[0];
+    private int[] uniformSlotLocations = new int[0];
+    /** Describes the cached value per slot, type | components<<4 | count<<8, 0 if unknown */
+    private int[] uniformSlotSignatures = new int[0];
+    private int[][] uniformSlotValues = new int[0][];
+    private ShaderProgram uniformSlotProgram = null;
+    private int uniformSlotLinkCount = 0;
 }
 
@@ -0,0 +1,347 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLContext;
+import javax.media.opengl.GLProfile;
+
+/**
+ * Loads textures asynchronously, decoding their {@link TextureData} on
+ * an {@link Executor} through the {@link TextureIO} provider chain and
+ * uploading the decoded results on the GL thread within a per frame
+ * time budget.
+ * <p>
+ * Usage:
+ * <pre>
+ *   // any thread, no context required
+ *   Texture tex = TextureIO.newTexture(GL.GL_TEXTURE_2D);
+ *   loader.load(tex, file, true, null);
+ *
+ *   // GL thread, e.g. at the begin of GLEventListener.display(..)
+ *   loader.upload(gl, 2000000); // spend at most ~2ms per frame
+ * </pre>
+ * The given Texture is updated via {@link Texture#updateImage(GL, TextureData)}
+ * once its data has been decoded and its turn in the upload queue has come.
+ * </p>
+ * <p>
+ * Since decoding runs w/o current context, DXTn compressed DDS data is only decoded
+ * in software for a GL lacking S3TC support if that is known at {@link #load(Texture, File, boolean, String) load} time,
+ * i.e. if a context is current while loading, after the first {@link #upload(GL, long)},
+ * or if set via {@link #setS3TCAvailable(boolean)}.
+ * </p>
+ */
+public class AsyncTextureLoader {
+
+    /** Notified on the GL thread from within {@link AsyncTextureLoader#upload(GL, long)}. */
+    public static interface UploadListener {
+        /** The given texture has been updated with the given, already flushed, data. */
+        public void uploaded(Texture texture, TextureData data);
+
+        /** Decoding or uploading the data of the given texture failed. */
+        public void failed(Texture texture, Throwable t);
+    }
+
+    private final GLProfile glp;
+    private final Executor executor;
+    private final ConcurrentLinkedQueue<LoadTask> decoded = new ConcurrentLinkedQueue<LoadTask>();
+    private volatile UploadListener listener;
+    /** S3TC availability of the GL thread, null if unknown */
+    private volatile Boolean s3tcAvailable;
+
+    private final AtomicInteger decodeQueueDepth = new AtomicInteger();
+    private final AtomicInteger uploadQueueDepth = new AtomicInteger();
+    private final AtomicInteger decodedCount = new AtomicInteger();
+    private final AtomicInteger decodeFailedCount = new AtomicInteger();
+    private final AtomicLong waitNanos = new AtomicLong();
+    private final AtomicLong decodeNanos = new AtomicLong();
+    private final AtomicLong maxDecodeNanos = new AtomicLong();
+    // only modified on the GL thread
+    private int uploadedCount;
+    private int uploadFailedCount;
+    private long uploadNanos;
+    private long maxUploadNanos;
+
+    /**
+     * Creates a loader decoding on the {@link TextureIO#getAsyncExecutor() TextureIO async executor}.
+     * @param glp the OpenGL Profile the texture data should be created for
+     */
+    public AsyncTextureLoader(GLProfile glp) {
+        this(glp, null);
+    }
+
+    /**
+     * @param glp the OpenGL Profile the texture data should be created for
+     * @param executor the executor decoding the texture data, or null
+     *                 for the {@link TextureIO#getAsyncExecutor() TextureIO async executor}
+     */
+    public AsyncTextureLoader(GLProfile glp, Executor executor) {
+        this.glp = glp;
+        this.executor = null != executor ? executor : TextureIO.getAsyncExecutor();
+    }
+
+    public final void setUploadListener(UploadListener l) { listener = l; }
+    public final UploadListener getUploadListener() { return listener; }
+
+    /**
+     * Sets whether the GL the textures are uploaded to supports DXTn compressed textures,
+     * otherwise captured from the current context while loading or uploading.
+     */
+    public final void setS3TCAvailable(boolean available) { s3tcAvailable = Boolean.valueOf(available); }
+
+    /**
+     * Schedules decoding of the given file's texture data, which is
+     * uploaded to the given texture by a later {@link #upload(GL, long)}.
+     * Does no OpenGL work.
+     *
+     * @param texture the texture to be updated, e.g. created via {@link TextureIO#newTexture(int)}
+     * @param fileSuffix the file format hint or null, see {@link TextureIO#newTextureData(GLProfile, File, boolean, String)}
+     * @return the future texture data
+     */
+    public Future<TextureData> load(Texture texture, final File file, final boolean mipmap, final String fileSuffix) {
+        return submit(texture, new Callable<TextureData>() {
+                public TextureData call() throws IOException {
+                    return TextureIO.newTextureData(glp, file, mipmap, fileSuffix);
+                }
+            }, captureS3TCAvailable());
+    }
+
+    /**
+     * Schedules decoding of the given URL's texture data, which is
+     * uploaded to the given texture by a later {@link #upload(GL, long)}.
+     * Does no OpenGL work.
+     *
+     * @see #load(Texture, File, boolean, String)
+     */
+    public Future<TextureData> load(Texture texture, final URL url, final boolean mipmap, final String fileSuffix) {
+        return submit(texture, new Callable<TextureData>() {
+                public TextureData call() throws IOException {
+                    return TextureIO.newTextureData(glp, url, mipmap, fileSuffix);
+                }
+            }, captureS3TCAvailable());
+    }
+
+    /**
+     * Uploads decoded texture data in decoding completion order until
+     * the queue is empty or the given time budget is exceeded. At least
+     * one texture is uploaded if available, regardless of the budget,
+     * so that loading always makes progress. Each decoded TextureData
+     * is {@link TextureData#flush() flushed}, even if the upload fails.
+     * <p>
+     * Must be called on the GL thread with the context current.
+     * </p>
+     *
+     * @param gl the current GL
+     * @param budgetNanos the time budget in nanoseconds
+     * @return the number of processed textures, including failed ones
+     */
+    public int upload(GL gl, long budgetNanos) {
+        final long t0 = System.nanoTime();
+        if (null == s3tcAvailable && null != gl) {
+            s3tcAvailable = Boolean.valueOf(TextureIO.isS3TCAvailable(gl));
+        }
+        int n = 0;
+        LoadTask task;
+        while ( null != ( task = decoded.poll() ) ) {
+            uploadQueueDepth.decrementAndGet();
+            n++;
+            final UploadListener l = listener;
+            TextureData data = null;
+            try {
+                data = task.get();
+            } catch (ExecutionException e) {
+                // counted as decode failure by the task
+                if (null != l) {
+                    l.failed(task.texture, e.getCause());
+                }
+            } catch (InterruptedException e) {
+                // not reached, the task is done
+                Thread.currentThread().interrupt();
+            }
+            if (null != data) {
+                final long s = System.nanoTime();
+                final TextureData uploadData = data;
+                try {
+                    task.texture.updateImage(gl, uploadData);
+                } catch (RuntimeException e) {
+                    // e.g. GLException, fail this texture only
+                    uploadFailedCount++;
+                    if (null != l) {
+                        l.failed(task.texture, e);
+                    }
+                    data = null;
+                } finally {
+                    uploadData.flush();
+                }
+                final long dt = System.nanoTime() - s;
+                uploadNanos += dt;
+                maxUploadNanos = Math.max(maxUploadNanos, dt);
+                if (null != data) {
+                    uploadedCount++;
+                    if (null != l) {
+                        l.uploaded(task.texture, data);
+                    }
+                }
+            }
+            if (System.nanoTime() - t0 >= budgetNanos) {
+                break;
+            }
+        }
+        return n;
+    }
+
+    /** Returns the number of textures scheduled but not yet decoded. */
+    public final int getDecodeQueueDepth() { return decodeQueueDepth.get(); }
+
+    /** Returns the number of decoded textures waiting for {@link #upload(GL, long)}. */
+    public final int getUploadQueueDepth() { return uploadQueueDepth.get(); }
+
+    /** Returns the number of successfully decoded textures. */
+    public final int getDecodedCount() { return decodedCount.get(); }
+
+    /** Returns the number of successfully uploaded textures. */
+    public final int getUploadedCount() { return uploadedCount; }
+
+    /** Returns the number of textures failed to decode or upload, see {@link #getDecodeFailedCount()} and {@link #getUploadFailedCount()}. */
+    public final int getFailedCount() { return decodeFailedCount.get() + uploadFailedCount; }
+
+    /** Returns the number of textures failed to decode. */
+    public final int getDecodeFailedCount() { return decodeFailedCount.get(); }
+
+    /** Returns the number of decoded textures failed to upload. */
+    public final int getUploadFailedCount() { return uploadFailedCount; }
+
+    /** Returns the average time in nanoseconds a texture waited for a decoder thread, over all decoded and failed to decode textures. */
+    public final long getAverageWaitNanos() { return average(waitNanos.get(), decodedCount.get() + decodeFailedCount.get()); }
+
+    /** Returns the average decoding time in nanoseconds. */
+    public final long getAverageDecodeNanos() { return average(decodeNanos.get(), decodedCount.get()); }
+
+    /** Returns the maximum decoding time in nanoseconds. */
+    public final long getMaxDecodeNanos() { return maxDecodeNanos.get(); }
+
+    /** Returns the average upload time in nanoseconds, including mipmap generation. */
+    public final long getAverageUploadNanos() { return average(uploadNanos, uploadedCount); }
+
+    /** Returns the maximum upload time in nanoseconds. */
+    public final long getMaxUploadNanos() { return maxUploadNanos; }
+
+    public String toString() {
+        return "AsyncTextureLoader[queued "+getDecodeQueueDepth()+"/"+getUploadQueueDepth()+
+               ", decoded "+getDecodedCount()+", uploaded "+getUploadedCount()+", failed "+getFailedCount()+
+               ", wait "+getAverageWaitNanos()/1000+"us, decode "+getAverageDecodeNanos()/1000+"/"+getMaxDecodeNanos()/1000+
+               "us, upload "+getAverageUploadNanos()/1000+"/"+getMaxUploadNanos()/1000+"us]";
+    }
+
+    //----------------------------------------------------------------------
+    // Internals only below this point
+    //
+
+    private static long average(long sum, int count) {
+        return count > 0 ? sum / count : 0;
+    }
+
+    /** Returns the S3TC availability of the current context, if any, otherwise the last known one. */
+    private Boolean captureS3TCAvailable() {
+        final GLContext context = GLContext.getCurrent();
+        if (null != context) {
+            s3tcAvailable = Boolean.valueOf(TextureIO.isS3TCAvailable(context.getGL()));
+        }
+        return s3tcAvailable;
+    }
+
+    private Future<TextureData> submit(Texture texture, final Callable<TextureData> decoder, final Boolean s3tc) {
+        if (null == texture) {
+            throw new IllegalArgumentException("Null Texture");
+        }
+        final LoadTask task = new LoadTask(texture, new Callable<TextureData>() {
+                public TextureData call() throws Exception {
+                    // the decoding thread has no current context
+                    TextureIO.s3tcAvailableHint.set(s3tc);
+                    try {
+                        return decoder.call();
+                    } finally {
+                        TextureIO.s3tcAvailableHint.remove();
+                    }
+                }
+            });
+        decodeQueueDepth.incrementAndGet();
+        executor.execute(task);
+        return task;
+    }
+
+    private class LoadTask extends FutureTask<TextureData> {
+        final Texture texture;
+        final long submitted;
+        private long started;
+
+        LoadTask(Texture texture, final Callable<TextureData> decoder) {
+            super(decoder);
+            this.texture = texture;
+            this.submitted = System.nanoTime();
+        }
+
+        public void run() {
+            started = System.nanoTime();
+            waitNanos.addAndGet(started - submitted);
+            super.run();
+        }
+
+        protected void done() {
+            decodeQueueDepth.decrementAndGet();
+            if (isCancelled()) {
+                return;
+            }
+            final long dt = System.nanoTime() - started;
+            try {
+                get();
+                decodedCount.incrementAndGet();
+                decodeNanos.addAndGet(dt);
+                long max;
+                while ( dt > ( max = maxDecodeNanos.get() ) && !maxDecodeNanos.compareAndSet(max, dt) ) { }
+            } catch (Exception e) {
+                decodeFailedCount.incrementAndGet();
+                // reported by upload(..)
+            }
+            uploadQueueDepth.incrementAndGet();
+            decoded.offer(this);
+        }
+    }
+}
@@ -69,6 +69,7 @@ public class TextureData {
     protected Buffer buffer; // the actual data...
     private Buffer[] mipmapData; // ...or a series of mipmaps
     private Flusher flusher;
+    private boolean flushed;
     protected int rowLength;
     protected int alignment; // 1, 2, or 4 bytes
     protected int estimatedMemorySize;
@@ -330,14 +331,25 @@ public class TextureData {
     }
 
     /** Flushes resources associated with this TextureData by calling
-        Flusher.flush(). */
+        Flusher.flush(), once. */
     public void flush() {
-        if (flusher != null) {
+        if (flusher != null && !flushed) {
+            flushed = true;
             flusher.flush();
-            flusher = null;
         }
     }
 
+    /** Returns the flusher, also after {@link #flush()}, or null. */
+    Flusher getFlusher() {
+        return flusher;
+    }
+
+    /** Drops the references to the buffer and mipmap data, e.g. after releasing their memory. */
+    void clearData() {
+        buffer = null;
+        mipmapData = null;
+    }
+
     /** Calls flush()
      * @see #flush()
      */
@@ -49,8 +49,17 @@ import java.net.URL;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
@@ -60,9 +69,11 @@ import javax.media.opengl.GLProfile;
 
 import jogamp.opengl.Debug;
 
+import com.jogamp.common.nio.Buffers;
 import com.jogamp.common.util.IOUtil;
 import com.jogamp.opengl.util.texture.spi.DDSImage;
 import com.jogamp.opengl.util.texture.spi.NetPbmTextureWriter;
+import com.jogamp.opengl.util.texture.spi.S3TCCodec;
 import com.jogamp.opengl.util.texture.spi.SGIImage;
 import com.jogamp.opengl.util.texture.spi.TGAImage;
 import com.jogamp.opengl.util.texture.spi.TextureProvider;
@@ -94,18 +105,23 @@ import com.jogamp.opengl.util.texture.spi.TextureWriter;
     images from both files and streams. One handles DirectDraw Surface
     (".dds") images read from files, though can not read these images
     from streams. One handles Targa (".tga") images read from both
-    files and streams. These providers are executed in an arbitrary
-    order. Some of these providers require the file's suffix to either
-    be specified via the newTextureData methods or for the file to be
-    named with the appropriate suffix. In general a file suffix should
-    be provided to the newTexture and newTextureData methods if at all
-    possible. </P>
+    files and streams. The head of a file or stream is read once and
+    the provider is selected by its magic number, or by the file suffix
+    for formats without one, like Targa. Hence in general only one
+    provider is consulted. The Targa provider requires the file's
+    suffix to either be specified via the newTextureData methods or
+    for the file to be named with the appropriate suffix. In general a
+    file suffix should be provided to the newTexture and newTextureData
+    methods if at all possible. </P>
 
     <P> Note that additional TextureProviders, if reading images from
     InputStreams, must use the mark()/reset() methods on InputStream
     when probing for e.g. magic numbers at the head of the file to
     make sure not to disturb the state of the InputStream for
-    downstream TextureProviders. </P>
+    downstream TextureProviders. Such probing can be avoided by
+    registering the provider with its magic numbers and file
+    suffixes via {@link #addTextureProvider(TextureProvider, String[],
+    byte[][])}. </P>
 
     <P> There are analogous TextureWriters provided for writing
     textures back to disk if desired. As of this writing, there are
@@ -118,6 +134,11 @@ import com.jogamp.opengl.util.texture.spi.TextureWriter;
     DXTn compressed format. Whether this will occur is dependent on
     whether the texture's internal format is one of the DXTn
     compressed formats and whether the target file is .dds format.
+    Uncompressed textures can be written as DXTn compressed .dds files
+    by registering a {@link
+    com.jogamp.opengl.util.texture.spi.S3TCTextureWriter
+    S3TCTextureWriter}. DXTn compressed .dds files are decoded in
+    software if the current context lacks S3TC support.
 */
 
 public class TextureIO {
@@ -161,6 +182,9 @@ public class TextureIO {
     // observation)
     private static boolean texRectEnabled = true;
 
+    // Whether the Targa writer run length encodes its output
+    private static boolean tgaRLEEnabled = false;
+
     //----------------------------------------------------------------------
     // methods that *do not* require a current context
     // These methods assume RGB or RGBA textures.
@@ -404,6 +428,108 @@ public class TextureIO {
         return newTextureDataImpl(glp, url, internalFormat, pixelFormat, mipmap, fileSuffix);
     }
 
+    //----------------------------------------------------------------------
+    // asynchronous methods, *do not* require a current context
+    // The TextureData is decoded by the registered TextureProviders on
+    // the executor set via setAsyncExecutor(..). See AsyncTextureLoader
+    // for uploading the results within a per frame time budget.
+
+    /**
+     * Asynchronously creates a TextureData from the given file on the
+     * {@link #getAsyncExecutor() async executor}. Does no OpenGL work.
+     *
+     * @param glp the OpenGL Profile this texture data should be
+     *                  created for.
+     * @param file the file from which to read the texture data
+     * @param mipmap     whether mipmaps should be produced for this
+     *                   texture, see {@link #newTextureData(GLProfile, File, boolean, String)}
+     * @param fileSuffix the suffix of the file name to be used as a
+     *                   hint of the file format to the underlying
+     *                   texture provider, or null if none and should be
+     *                   auto-detected
+     * @return the future texture data, whose get() method throws an
+     *         ExecutionException caused by an IOException if none of
+     *         the registered texture providers could read the file
+     */
+    public static Future<TextureData> newTextureDataAsync(final GLProfile glp, final File file,
+                                                          final boolean mipmap,
+                                                          final String fileSuffix) {
+        return submitAsync(new Callable<TextureData>() {
+                public TextureData call() throws IOException {
+                    return newTextureData(glp, file, mipmap, fileSuffix);
+                }
+            });
+    }
+
+    /**
+     * Asynchronously creates a TextureData from the given URL on the
+     * {@link #getAsyncExecutor() async executor}. Does no OpenGL work.
+     *
+     * @see #newTextureDataAsync(GLProfile, File, boolean, String)
+     */
+    public static Future<TextureData> newTextureDataAsync(final GLProfile glp, final URL url,
+                                                          final boolean mipmap,
+                                                          final String fileSuffix) {
+        return submitAsync(new Callable<TextureData>() {
+                public TextureData call() throws IOException {
+                    return newTextureData(glp, url, mipmap, fileSuffix);
+                }
+            });
+    }
+
+    /**
+     * Sets the executor decoding the TextureData of the
+     * newTextureDataAsync(..) methods and of {@link AsyncTextureLoader}s
+     * created without an explicit executor. Passing null restores the
+     * default executor, using one daemon thread per available processor.
+     */
+    public static synchronized void setAsyncExecutor(Executor executor) {
+        asyncExecutor = executor;
+    }
+
+    /** Returns the executor used by the newTextureDataAsync(..) methods,
+        see {@link #setAsyncExecutor(Executor)}. */
+    public static synchronized Executor getAsyncExecutor() {
+        if (null == asyncExecutor) {
+            if (null == defaultAsyncExecutor) {
+                final int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+                defaultAsyncExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                        private int count = 0;
+                        public Thread newThread(Runnable r) {
+                            final Thread t = new Thread(r, "TextureIO-Worker-"+(count++));
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+            }
+            return defaultAsyncExecutor;
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Releases the memory mapping backing the given TextureData right
+     * away, instead of waiting for the garbage collector to do so, if
+     * it has been read from a memory-mapped DDS file, see {@link
+     * DDSImage#unmap()}. The TextureData is flushed and its buffer and
+     * mipmap data are cleared. <p>
+     *
+     * The caller must ensure that no buffer previously obtained from
+     * the TextureData is accessed after this call, since accessing
+     * unmapped memory crashes the JVM.
+     *
+     * @return true if a mapping has been released
+     */
+    public static boolean unmap(TextureData data) {
+        final TextureData.Flusher flusher = data.getFlusher();
+        if (!(flusher instanceof DDSFlusher)) {
+            return false;
+        }
+        data.flush();
+        data.clearData();
+        return ((DDSFlusher) flusher).image.unmap();
+    }
+
     //----------------------------------------------------------------------
     // methods that *do* require a current context
     //
@@ -705,12 +831,38 @@ public class TextureIO {
     //
 
     /** Adds a TextureProvider to support reading of a new file
-        format. */
+        format. Such a provider, registered without file suffixes and
+        magic numbers, is consulted before all providers registered via
+        {@link #addTextureProvider(TextureProvider, String[], byte[][])}. */
     public static void addTextureProvider(TextureProvider provider) {
+        addTextureProvider(provider, null, null);
+    }
+
+    /** Adds a TextureProvider to support reading of a new file format,
+        identified by the given file suffixes and/or the given magic
+        numbers at the head of the file. <P>
+
+        The head of files and streams is read once and matched against
+        the magic numbers of all such providers, dispatching to the
+        provider of the matching magic number. If no magic number
+        matches, the provider registered for the given file suffix is
+        used. All other providers are only consulted if the selected
+        provider can not read the data. Providers registered later take
+        precedence over earlier ones for equal suffixes or magic numbers.
+
+        @param provider the provider
+        @param fileSuffixes the lower case file suffixes of the format, may be null.
+                            The first one is passed as the file suffix hint to the
+                            provider if dispatched to by magic number.
+        @param magicNumbers the magic numbers of the format, may be null
+    */
+    public static synchronized void addTextureProvider(TextureProvider provider,
+                                                       String[] fileSuffixes,
+                                                       byte[][] magicNumbers) {
         // Must always add at the front so the ImageIO provider is last,
         // so we don't accidentally use it instead of a user's possibly
         // more optimal provider
-        textureProviders.add(0, provider);
+        registry = registry.add(provider, fileSuffixes, magicNumbers);
     }
 
     /** Adds a TextureWriter to support writing of a new file
@@ -751,13 +903,66 @@ public class TextureIO {
         return texRectEnabled;
     }
 
+    /** Toggles run length encoding of Targa (".tga") files written
+        via {@link #write(TextureData, File) write}. RLE encoded files
+        are usually considerably smaller, in particular for images with
+        large uniform areas, and are read back by the Targa provider.
+        The default is that files are written uncompressed. */
+    public static void setTGARLEEnabled(boolean enabled) {
+        tgaRLEEnabled = enabled;
+    }
+
+    /** Indicates whether Targa files are written run length encoded;
+        see {@link #setTGARLEEnabled setTGARLEEnabled}. */
+    public static boolean isTGARLEEnabled() {
+        return tgaRLEEnabled;
+    }
+
     //----------------------------------------------------------------------
     // Internals only below this point
     //
 
-    private static List/*<TextureProvider>*/ textureProviders = new ArrayList/*<TextureProvider>*/();
+    /** Closes the DDSImage on flush, keeps it for {@link TextureIO#unmap(TextureData)} */
+    static class DDSFlusher implements TextureData.Flusher {
+        final DDSImage image;
+
+        DDSFlusher(DDSImage image) {
+            this.image = image;
+        }
+
+        public void flush() {
+            image.close();
+        }
+    }
+
+    private static Executor asyncExecutor = null;
+    private static ExecutorService defaultAsyncExecutor = null;
+
+    /** S3TC availability of the decoding thread, used by the DDS provider if no context is current,
+        e.g. set by {@link AsyncTextureLoader} with the value captured on the GL thread. */
+    static final ThreadLocal/*<Boolean>*/ s3tcAvailableHint = new ThreadLocal/*<Boolean>*/();
+
+    /** Returns true if the given GL supports DXTn compressed textures. */
+    static boolean isS3TCAvailable(GL gl) {
+        return gl.isExtensionAvailable("GL_EXT_texture_compression_s3tc") ||
+               gl.isExtensionAvailable("GL_NV_texture_compression_vtc");
+    }
+
+    private static Future<TextureData> submitAsync(Callable<TextureData> callable) {
+        FutureTask<TextureData> task = new FutureTask<TextureData>(callable);
+        getAsyncExecutor().execute(task);
+        return task;
+    }
+
+    private static volatile ProviderRegistry registry = new ProviderRegistry();
     private static List/*<TextureWriter>*/   textureWriters   = new ArrayList/*<TextureWriter>*/();
 
+    private static final byte[] MAGIC_DDS  = { 'D', 'D', 'S', ' ' };
+    private static final byte[] MAGIC_SGI  = { 0x01, (byte) 0xDA };
+    private static final byte[] MAGIC_PNG  = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A };
+    private static final byte[] MAGIC_JPG  = { (byte) 0xFF, (byte) 0xD8, (byte) 0xFF };
+    private static final byte[] MAGIC_GIF  = { 'G', 'I', 'F', '8' };
+
     static {
         // ImageIO provider, the fall-back, must be the first one added
         if(GLProfile.isAWTAvailable()) {
@@ -765,7 +970,9 @@ public class TextureIO {
                 // Use reflection to avoid compile-time dependencies on AWT-related classes
                 TextureProvider provider = (TextureProvider)
                     Class.forName("com.jogamp.opengl.util.texture.spi.awt.IIOTextureProvider").newInstance();
-                addTextureProvider(provider);
+                addTextureProvider(provider,
+                                   new String[] { PNG, JPG, "jpeg", GIF, "bmp" },
+                                   new byte[][] { MAGIC_PNG, MAGIC_JPG, MAGIC_GIF });
             } catch (Exception e) {
                 if (DEBUG) {
                     e.printStackTrace();
@@ -774,9 +981,9 @@ public class TextureIO {
         }
 
         // Other special-case providers
-        addTextureProvider(new DDSTextureProvider());
-        addTextureProvider(new SGITextureProvider());
-        addTextureProvider(new TGATextureProvider());
+        addTextureProvider(new DDSTextureProvider(), new String[] { DDS }, new byte[][] { MAGIC_DDS });
+        addTextureProvider(new SGITextureProvider(), new String[] { SGI, SGI_RGB }, new byte[][] { MAGIC_SGI });
+        addTextureProvider(new TGATextureProvider(), new String[] { TGA }, null); // no magic number
 
         // ImageIO writer, the fall-back, must be the first one added
         if(GLProfile.isAWTAvailable()) {
@@ -804,10 +1011,10 @@ public class TextureIO {
     }
 
     // Implementation methods
-    private static TextureData newTextureDataImpl(GLProfile glp, File file,
-                                                  int internalFormat,
-                                                  int pixelFormat,
-                                                  boolean mipmap,
+    private static TextureData newTextureDataImpl(final GLProfile glp, final File file,
+                                                  final int internalFormat,
+                                                  final int pixelFormat,
+                                                  final boolean mipmap,
                                                   String fileSuffix) throws IOException {
         if (file == null) {
             throw new IOException("File was null");
@@ -815,25 +1022,23 @@ public class TextureIO {
 
         fileSuffix = toLowerCase(fileSuffix);
 
-        for (Iterator iter = textureProviders.iterator(); iter.hasNext(); ) {
-            TextureProvider provider = (TextureProvider) iter.next();
-            TextureData data = provider.newTextureData(glp, file,
-                                                       internalFormat,
-                                                       pixelFormat,
-                                                       mipmap,
-                                                       fileSuffix);
-            if (data != null) {
-                return data;
-            }
+        final ProviderRegistry reg = registry;
+        TextureData data = reg.dispatch(new ProviderCall() {
+                public TextureData newTextureData(TextureProvider provider, String suffix) throws IOException {
+                    return provider.newTextureData(glp, file, internalFormat, pixelFormat, mipmap, suffix);
+                }
+            }, reg.sniff(file), fileSuffix);
+        if (data != null) {
+            return data;
         }
 
         throw new IOException("No suitable reader for given file "+file.getAbsolutePath());
     }
 
-    private static TextureData newTextureDataImpl(GLProfile glp, InputStream stream,
-                                                  int internalFormat,
-                                                  int pixelFormat,
-                                                  boolean mipmap,
+    private static TextureData newTextureDataImpl(final GLProfile glp, InputStream stream,
+                                                  final int internalFormat,
+                                                  final int pixelFormat,
+                                                  final boolean mipmap,
                                                   String fileSuffix) throws IOException {
         if (stream == null) {
             throw new IOException("Stream was null");
@@ -846,25 +1051,24 @@ public class TextureIO {
             stream = new BufferedInputStream(stream);
         }
 
-        for (Iterator iter = textureProviders.iterator(); iter.hasNext(); ) {
-            TextureProvider provider = (TextureProvider) iter.next();
-            TextureData data = provider.newTextureData(glp, stream,
-                                                       internalFormat,
-                                                       pixelFormat,
-                                                       mipmap,
-                                                       fileSuffix);
-            if (data != null) {
-                return data;
-            }
+        final InputStream bstream = stream;
+        final ProviderRegistry reg = registry;
+        TextureData data = reg.dispatch(new ProviderCall() {
+                public TextureData newTextureData(TextureProvider provider, String suffix) throws IOException {
+                    return provider.newTextureData(glp, bstream, internalFormat, pixelFormat, mipmap, suffix);
+                }
+            }, reg.sniff(bstream), fileSuffix);
+        if (data != null) {
+            return data;
         }
 
         throw new IOException("No suitable reader for given stream");
     }
 
-    private static TextureData newTextureDataImpl(GLProfile glp, URL url,
-                                                  int internalFormat,
-                                                  int pixelFormat,
-                                                  boolean mipmap,
+    private static TextureData newTextureDataImpl(final GLProfile glp, final URL url,
+                                                  final int internalFormat,
+                                                  final int pixelFormat,
+                                                  final boolean mipmap,
                                                   String fileSuffix) throws IOException {
         if (url == null) {
             throw new IOException("URL was null");
@@ -872,23 +1076,221 @@ public class TextureIO {
 
         fileSuffix = toLowerCase(fileSuffix);
 
-        for (Iterator iter = textureProviders.iterator(); iter.hasNext(); ) {
-            TextureProvider provider = (TextureProvider) iter.next();
-            TextureData data = provider.newTextureData(glp, url,
-                                                       internalFormat,
-                                                       pixelFormat,
-                                                       mipmap,
-                                                       fileSuffix);
-            if (data != null) {
-                return data;
-            }
+        // URLs are dispatched by file suffix only, sniffing would require
+        // an additional connection
+        TextureData data = registry.dispatch(new ProviderCall() {
+                public TextureData newTextureData(TextureProvider provider, String suffix) throws IOException {
+                    return provider.newTextureData(glp, url, internalFormat, pixelFormat, mipmap, suffix);
+                }
+            }, null, fileSuffix);
+        if (data != null) {
+            return data;
         }
 
         throw new IOException("No suitable reader for given URL "+url);
     }
 
+    /** Invokes one of the TextureProvider's newTextureData methods. */
+    private static interface ProviderCall {
+        TextureData newTextureData(TextureProvider provider, String fileSuffix) throws IOException;
+    }
+
+    /**
+     * Immutable set of the registered TextureProviders, indexed by file
+     * suffix and magic number. Replaced as a whole when a provider is
+     * added, hence it may be used by multiple threads without locking.
+     */
+    private static class ProviderRegistry {
+        /** all providers in order of precedence */
+        final TextureProvider[] providers;
+        /** whether the provider at the same index has suffixes or magic numbers */
+        final boolean[] keyed;
+        final Map/*<String, TextureProvider>*/ suffixes;
+        final byte[][] magics;
+        final TextureProvider[] magicProviders;
+        final String[] magicSuffixes;
+        final int sniffLength;
+
+        ProviderRegistry() {
+            providers = new TextureProvider[0];
+            keyed = new boolean[0];
+            suffixes = new HashMap();
+            magics = new byte[0][];
+            magicProviders = new TextureProvider[0];
+            magicSuffixes = new String[0];
+            sniffLength = 0;
+        }
+
+        private ProviderRegistry(ProviderRegistry old, TextureProvider provider,
+                                 String[] fileSuffixes, byte[][] magicNumbers) {
+            final int nSuffixes = null != fileSuffixes ? fileSuffixes.length : 0;
+            final int nMagics = null != magicNumbers ? magicNumbers.length : 0;
+
+            providers = new TextureProvider[old.providers.length + 1];
+            keyed = new boolean[providers.length];
+            providers[0] = provider;
+            keyed[0] = nSuffixes > 0 || nMagics > 0;
+            System.arraycopy(old.providers, 0, providers, 1, old.providers.length);
+            System.arraycopy(old.keyed, 0, keyed, 1, old.keyed.length);
+
+            suffixes = new HashMap(old.suffixes);
+            for (int i = 0; i < nSuffixes; i++) {
+                suffixes.put(toLowerCase(fileSuffixes[i]), provider);
+            }
+
+            magics = new byte[old.magics.length + nMagics][];
+            magicProviders = new TextureProvider[magics.length];
+            magicSuffixes = new String[magics.length];
+            int len = old.sniffLength;
+            for (int i = 0; i < nMagics; i++) {
+                magics[i] = magicNumbers[i];
+                magicProviders[i] = provider;
+                magicSuffixes[i] = nSuffixes > 0 ? toLowerCase(fileSuffixes[0]) : null;
+                len = Math.max(len, magicNumbers[i].length);
+            }
+            System.arraycopy(old.magics, 0, magics, nMagics, old.magics.length);
+            System.arraycopy(old.magicProviders, 0, magicProviders, nMagics, old.magics.length);
+            System.arraycopy(old.magicSuffixes, 0, magicSuffixes, nMagics, old.magics.length);
+            sniffLength = len;
+        }
+
+        ProviderRegistry add(TextureProvider provider, String[] fileSuffixes, byte[][] magicNumbers) {
+            return new ProviderRegistry(this, provider, fileSuffixes, magicNumbers);
+        }
+
+        /** Reads the head of the file, or returns null if no magic numbers are registered. */
+        byte[] sniff(File file) throws IOException {
+            if (0 == sniffLength) {
+                return null;
+            }
+            InputStream in = new FileInputStream(file);
+            try {
+                return readHead(in);
+            } finally {
+                in.close();
+            }
+        }
+
+        /** Reads the head of the stream non-destructively via mark/reset,
+            or returns null if no magic numbers are registered. */
+        byte[] sniff(InputStream in) throws IOException {
+            if (0 == sniffLength) {
+                return null;
+            }
+            in.mark(sniffLength);
+            try {
+                return readHead(in);
+            } finally {
+                in.reset();
+            }
+        }
+
+        private byte[] readHead(InputStream in) throws IOException {
+            byte[] head = new byte[sniffLength];
+            int n = 0;
+            while (n < head.length) {
+                int r = in.read(head, n, head.length - n);
+                if (r < 0) {
+                    break;
+                }
+                n += r;
+            }
+            if (n < head.length) {
+                byte[] tmp = new byte[n];
+                System.arraycopy(head, 0, tmp, 0, n);
+                head = tmp;
+            }
+            return head;
+        }
+
+        /** Returns the index of the magic number matching the given head, or -1 */
+        int match(byte[] head) {
+            if (null == head) {
+                return -1;
+            }
+            for (int i = 0; i < magics.length; i++) {
+                final byte[] magic = magics[i];
+                if (magic.length <= head.length) {
+                    int j = 0;
+                    while (j < magic.length && magic[j] == head[j]) {
+                        j++;
+                    }
+                    if (j == magic.length) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Consults the providers in the following order until one
+         * returns non null data:
+         * <ol>
+         *   <li>providers registered without suffixes and magic numbers</li>
+         *   <li>the provider of the magic number matching the head</li>
+         *   <li>the provider of the given file suffix</li>
+         *   <li>all remaining providers</li>
+         * </ol>
+         */
+        TextureData dispatch(ProviderCall call, byte[] head, String fileSuffix) throws IOException {
+            TextureData data;
+            for (int i = 0; i < providers.length; i++) {
+                if (!keyed[i]) {
+                    data = call.newTextureData(providers[i], fileSuffix);
+                    if (data != null) {
+                        return data;
+                    }
+                }
+            }
+
+            TextureProvider byMagic = null;
+            final int m = match(head);
+            if (m >= 0) {
+                byMagic = magicProviders[m];
+                if (DEBUG) {
+                    System.err.println("TextureIO: magic number match -> "+byMagic.getClass().getName());
+                }
+                // keep the caller's suffix if it belongs to the provider, e.g. "jpg" for a shared IIO provider,
+                // otherwise a missing or misleading suffix is replaced by the one registered with the magic number
+                final String magicSuffix = ( null != fileSuffix && byMagic == suffixes.get(fileSuffix) ) || null == magicSuffixes[m] ?
+                                           fileSuffix : magicSuffixes[m];
+                data = call.newTextureData(byMagic, magicSuffix);
+                if (data != null) {
+                    return data;
+                }
+            }
+
+            TextureProvider bySuffix = null;
+            if (null != fileSuffix) {
+                bySuffix = (TextureProvider) suffixes.get(fileSuffix);
+                if (null != bySuffix && bySuffix != byMagic) {
+                    data = call.newTextureData(bySuffix, fileSuffix);
+                    if (data != null) {
+                        return data;
+                    }
+                }
+            }
+
+            for (int i = 0; i < providers.length; i++) {
+                final TextureProvider p = providers[i];
+                if (keyed[i] && p != byMagic && p != bySuffix) {
+                    data = call.newTextureData(p, fileSuffix);
+                    if (data != null) {
+                        return data;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
     //----------------------------------------------------------------------
-    // DDS provider -- supports files only for now
+    // DDS provider -- memory-maps files and local file URLs, copies
+    // streams and other URLs onto the heap. Flushing the resulting
+    // TextureData closes the file, while the mapping is left to the GC,
+    // since the TextureData's buffers are slices of it, or released
+    // explicitly via unmap(TextureData).
     static class DDSTextureProvider implements TextureProvider {
         public TextureData newTextureData(GLProfile glp, File file,
                                           int internalFormat,
@@ -925,6 +1327,11 @@ public class TextureIO {
                                           int pixelFormat,
                                           boolean mipmap,
                                           String fileSuffix) throws IOException {
+            // Memory-map local files instead of copying them onto the heap
+            final File file = toFile(url);
+            if (file != null) {
+                return newTextureData(glp, file, internalFormat, pixelFormat, mipmap, fileSuffix);
+            }
             InputStream stream = new BufferedInputStream(url.openStream());
             try {
                 return newTextureData(glp, stream, internalFormat, pixelFormat, mipmap, fileSuffix);
@@ -933,11 +1340,28 @@ public class TextureIO {
             }
         }
 
+        private static File toFile(URL url) {
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+            try {
+                final File file = new File(url.toURI());
+                return file.isFile() ? file : null;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
         private TextureData newTextureData(GLProfile glp, final DDSImage image,
                                            int internalFormat,
                                            int pixelFormat,
                                            boolean mipmap) {
             DDSImage.ImageInfo info = image.getMipMap(0);
+            if (info.isCompressed() &&
+                S3TCCodec.isSupported(info.getCompressionFormat()) &&
+                !isS3TCAvailable()) {
+                return newDecompressedTextureData(glp, image, internalFormat, mipmap);
+            }
             if (pixelFormat == 0) {
                 switch (image.getPixelFormat()) {
                 case DDSImage.D3DFMT_R8G8B8:
@@ -974,11 +1398,7 @@ public class TextureIO {
                     break;
                 }
             }
-            TextureData.Flusher flusher = new TextureData.Flusher() {
-                    public void flush() {
-                        image.close();
-                    }
-                };
+            TextureData.Flusher flusher = new DDSFlusher(image);
             TextureData data;
             if (mipmap && image.getNumMipMaps() > 0) {
                 Buffer[] mipmapData = new Buffer[image.getNumMipMaps()];
@@ -1013,6 +1433,82 @@ public class TextureIO {
             }
             return data;
         }
+
+        /** Decodes DXTn compressed data in software to GL_RGBA, used if
+            the current context lacks S3TC support. */
+        private TextureData newDecompressedTextureData(GLProfile glp, DDSImage image,
+                                                       int internalFormat,
+                                                       boolean mipmap) {
+            try {
+                DDSImage.ImageInfo info = image.getMipMap(0);
+                int format = info.getCompressionFormat();
+                if (internalFormat == 0 || isCompressedFormat(internalFormat)) {
+                    internalFormat = GL.GL_RGBA;
+                }
+                int numLevels = (mipmap && image.getNumMipMaps() > 0) ? image.getNumMipMaps() : 1;
+                Buffer[] levels = new Buffer[numLevels];
+                for (int i = 0; i < numLevels; i++) {
+                    DDSImage.ImageInfo level = image.getMipMap(i);
+                    ByteBuffer rgba = Buffers.newDirectByteBuffer(level.getWidth() * level.getHeight() * 4);
+                    S3TCCodec.decode(format, level.getWidth(), level.getHeight(), level.getData(), rgba);
+                    rgba.rewind();
+                    levels[i] = rgba;
+                }
+                if (DEBUG) {
+                    System.err.println("TextureIO: S3TC not available, decoded " + numLevels + " " +
+                                       DDSImage.getCompressionFormatName(format) + " level(s) in software");
+                }
+                if (numLevels > 1) {
+                    return new TextureData(glp, internalFormat,
+                                           info.getWidth(),
+                                           info.getHeight(),
+                                           0,
+                                           GL.GL_RGBA,
+                                           GL.GL_UNSIGNED_BYTE,
+                                           false,
+                                           true,
+                                           levels,
+                                           null);
+                }
+                return new TextureData(glp, internalFormat,
+                                       info.getWidth(),
+                                       info.getHeight(),
+                                       0,
+                                       GL.GL_RGBA,
+                                       GL.GL_UNSIGNED_BYTE,
+                                       mipmap,
+                                       false,
+                                       true,
+                                       levels[0],
+                                       null);
+            } finally {
+                image.close();
+            }
+        }
+
+        private static boolean isCompressedFormat(int internalFormat) {
+            switch (internalFormat) {
+            case GL.GL_COMPRESSED_RGB_S3TC_DXT1_EXT:
+            case GL.GL_COMPRESSED_RGBA_S3TC_DXT1_EXT:
+            case GL.GL_COMPRESSED_RGBA_S3TC_DXT3_EXT:
+            case GL.GL_COMPRESSED_RGBA_S3TC_DXT5_EXT:
+                return true;
+            default:
+                return false;
+            }
+        }
+
+        /** Returns false only if a context is current which lacks DXTn support,
+            or if no context is current and the decoding thread has been told so,
+            see {@link TextureIO#s3tcAvailableHint}. */
+        private static boolean isS3TCAvailable() {
+            GLContext context = GLContext.getCurrent();
+            if (context == null) {
+                final Boolean hint = (Boolean) s3tcAvailableHint.get();
+                return null == hint || hint.booleanValue(); // no information, keep the compressed data
+            }
+            return TextureIO.isS3TCAvailable(context.getGL());
+        }
     }
 
     //----------------------------------------------------------------------
@@ -1096,13 +1592,15 @@ public class TextureIO {
                                           boolean mipmap,
                                           String fileSuffix) throws IOException {
             if (TGA.equals(fileSuffix)) {
-                TGAImage image = TGAImage.read(stream);
+                TGAImage image = TGAImage.read(glp, stream);
                 if (pixelFormat == 0) {
                     pixelFormat = image.getGLFormat();
                 }
                 if (internalFormat == 0) {
-                    GL gl = GLContext.getCurrentGL();
-                    if(gl.isGL2()) {
+                    if(image.getBytesPerPixel() < 3) {
+                        // grayscale, GL_LUMINANCE or GL_LUMINANCE_ALPHA
+                        internalFormat = image.getGLFormat();
+                    } else if(glp.isGL2()) {
                         internalFormat = GL.GL_RGBA8;
                     } else {
                         internalFormat = (image.getBytesPerPixel()==4)?GL.GL_RGBA:GL.GL_RGB;
@@ -1251,7 +1749,7 @@ public class TextureIO {
                                                              ((data.getBuffer() != null) ?
                                                               (ByteBuffer) data.getBuffer() :
                                                               (ByteBuffer) data.getMipmapData()[0]));
-                    image.write(file);
+                    image.write(file, tgaRLEEnabled);
                     return true;
                 }
 
@@ -42,6 +42,7 @@ package com.jogamp.opengl.util.texture.spi;
 import java.io.*;
 import java.nio.*;
 import java.nio.channels.*;
+import java.util.concurrent.ExecutorService;
 
 import javax.media.opengl.*;
 import com.jogamp.opengl.util.*;
@@ -65,13 +66,39 @@ public class DDSImage {
         private boolean isCompressed;
         private int compressionFormat;
 
+        // Lazy slice of the owning DDSImage's data, see DDSImage.getMipMap(..)
+        private DDSImage owner;
+        private int offset;
+        private int size;
+
         public ImageInfo(ByteBuffer data, int width, int height, boolean compressed, int compressionFormat) {
             this.data = data; this.width = width; this.height = height;
             this.isCompressed = compressed; this.compressionFormat = compressionFormat;
         }
+
+        ImageInfo(DDSImage owner, int offset, int size, int width, int height, boolean compressed, int compressionFormat) {
+            this(null, width, height, compressed, compressionFormat);
+            this.owner = owner; this.offset = offset; this.size = size;
+        }
+
         public int        getWidth()  { return width;  }
         public int        getHeight() { return height; }
-        public ByteBuffer getData()   { return data;   }
+
+        /** Returns the image data. If this ImageInfo was obtained from a
+            DDSImage, the data is sliced from the DDSImage's buffer on the
+            first call, i.e. for a memory-mapped DDSImage no data is touched
+            before it is actually read, e.g. uploaded to OpenGL.
+            @throws IllegalStateException if the data has not been obtained
+            before the owning DDSImage has been closed */
+        public ByteBuffer getData()   {
+            if (null == data && null != owner) {
+                data = owner.slice(offset, size);
+            }
+            return data;
+        }
+
+        /** Returns the size of the image data in bytes. */
+        public int        getSize()   { return null != owner ? size : data.remaining(); }
         public boolean    isCompressed() { return isCompressed; }
         public int        getCompressionFormat() {
             if (!isCompressed())
@@ -83,6 +110,10 @@ public class DDSImage {
     private FileInputStream fis;
     private FileChannel     chan;
     private ByteBuffer buf;
+    private boolean    mapped;
+    /** the file mapping, kept after close for {@link #unmap()} */
+    private ByteBuffer mapping;
+    private boolean    closed;
     private Header header;
 
     //
@@ -160,7 +191,11 @@ public class DDSImage {
     }
   
     /** Reads a DirectDraw surface from the specified file, returning
-        the resulting DDSImage.
+        the resulting DDSImage. The file is memory-mapped read-only and
+        the mipmap levels and cubemap sides are lazily sliced from the
+        mapping, hence no image data is copied onto the Java heap. The
+        mapping is released once garbage collected, or explicitly by
+        {@link #unmap()}.
 
         @param file File object
         @return DDS image object
@@ -187,8 +222,43 @@ public class DDSImage {
 
     /** Closes open files and resources associated with the open
         DDSImage. No other methods may be called on this object once
-        this is called. */
+        this is called. <p>
+
+        Data buffers already obtained from this DDSImage or any of its
+        {@link ImageInfo}s stay valid, since a memory mapping is only
+        released once it is garbage collected, see {@link #unmap()}.
+        However, {@link ImageInfo#getData()} of an ImageInfo whose data
+        has not been obtained before throws an IllegalStateException,
+        since the data is sliced lazily. */
     public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeFile();
+    }
+
+    /** Closes this DDSImage, if not yet closed, and explicitly releases
+        its memory mapping right away, if supported by the JVM, instead
+        of waiting for the garbage collector to do so. <p>
+
+        The caller must ensure that no data buffer obtained from this
+        DDSImage or any of its {@link ImageInfo}s, e.g. a {@link
+        com.jogamp.opengl.util.texture.TextureData}'s buffer or mipmap
+        data, is accessed after this call. Accessing unmapped memory
+        crashes the JVM.
+
+        @return true if the mapping has been released, false if this
+        DDSImage is not memory-mapped, has already been unmapped or the
+        JVM does not support explicit unmapping */
+    public boolean unmap() {
+        close();
+        final ByteBuffer _mapping = mapping;
+        mapping = null;
+        return null != _mapping && unmap(_mapping);
+    }
+
+    private void closeFile() {
         try {
             if (chan != null) {
                 chan.close();
@@ -198,10 +268,16 @@ public class DDSImage {
                 fis.close();
                 fis = null;
             }
-            buf = null;
         } catch (IOException e) {
             e.printStackTrace();
         }
+        buf = null;
+    }
+
+    /** Indicates whether this DDSImage's data is a read-only memory
+        mapping of its file, see {@link #read(File)}. */
+    public boolean isMapped() {
+        return mapped;
     }
 
     /** 
@@ -229,6 +305,48 @@ public class DDSImage {
         return image;
     }
 
+    /**
+     * Creates a new DXTn compressed DDSImage from uncompressed RGB or
+     * RGBA data supplied by the user, compressing each mipmap level
+     * via {@link S3TCCodec}. The resulting DDSImage can be written to
+     * disk using the write() method.
+     *
+     * @param d3dFormat the compressed format, one of D3DFMT_DXT1,
+     *                  D3DFMT_DXT3 or D3DFMT_DXT5
+     * @param width  the width in pixels of the topmost mipmap image
+     * @param height the height in pixels of the topmost mipmap image
+     * @param bytesPerPixel 3 for tightly packed RGB, 4 for RGBA data
+     * @param mipmapData the uncompressed data for each mipmap level of
+     *                   the resulting DDSImage; either only one mipmap
+     *                   level should be specified, or they all must be
+     * @param executor optional executor compressing the block rows of
+     *                 each level in parallel, may be null
+     * @throws IllegalArgumentException if the data does not match the
+     *   specified arguments
+     * @return DDS image object
+     */
+    public static DDSImage createFromData(int d3dFormat,
+                                          int width,
+                                          int height,
+                                          int bytesPerPixel,
+                                          ByteBuffer[] mipmapData,
+                                          ExecutorService executor) throws IllegalArgumentException {
+        if (!S3TCCodec.isSupported(d3dFormat)) {
+            throw new IllegalArgumentException("d3dFormat must be one of D3DFMT_DXT1, D3DFMT_DXT3 or D3DFMT_DXT5");
+        }
+        ByteBuffer[] compressed = new ByteBuffer[mipmapData.length];
+        int w = width;
+        int h = height;
+        for (int i = 0; i < mipmapData.length; i++) {
+            compressed[i] = ByteBuffer.allocate(S3TCCodec.getCompressedSize(d3dFormat, w, h));
+            S3TCCodec.encode(d3dFormat, w, h, mipmapData[i], bytesPerPixel, compressed[i], executor);
+            compressed[i].rewind();
+            w = Math.max(w >> 1, 1);
+            h = Math.max(h >> 1, 1);
+        }
+        return createFromData(d3dFormat, width, height, compressed);
+    }
+
     /** Determines from the magic number whether the given InputStream
         points to a DDS image. The given InputStream must return true
         from markSupported() and support a minimum of four bytes of
@@ -424,12 +542,7 @@ public class DDSImage {
         for (int i = 0; i < map; i++) {
             seek += mipMapSizeInBytes(i);
         }
-        buf.limit(seek + mipMapSizeInBytes(map));
-        buf.position(seek);
-        ByteBuffer next = buf.slice();
-        buf.position(0);
-        buf.limit(buf.capacity());
-        return new ImageInfo(next, mipMapWidth(map), mipMapHeight(map), isCompressed(), getCompressionFormat());
+        return new ImageInfo(this, seek, mipMapSizeInBytes(map), mipMapWidth(map), mipMapHeight(map), isCompressed(), getCompressionFormat());
     }
 
     /** Returns an array of ImageInfos corresponding to all mipmap
@@ -716,10 +829,17 @@ public class DDSImage {
 
     private void readFromFile(File file) throws IOException {
         fis = new FileInputStream(file);
-        chan = fis.getChannel();
-        ByteBuffer buf = chan.map(FileChannel.MapMode.READ_ONLY,
-                                  0, (int) file.length());
-        readFromBuffer(buf);
+        try {
+            chan = fis.getChannel();
+            ByteBuffer buf = chan.map(FileChannel.MapMode.READ_ONLY,
+                                      0, (int) file.length());
+            mapped = true;
+            mapping = buf;
+            readFromBuffer(buf);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
     }
 
     private void readFromBuffer(ByteBuffer buf) throws IOException {
@@ -758,6 +878,8 @@ public class DDSImage {
     
         // Now check the mipmaps against this size
         int curSize = topmostMipmapSize;
+        int curWidth = width;
+        int curHeight = height;
         int totalSize = 0;
         for (int i = 0; i < mipmapData.length; i++) {
             if (mipmapData[i].remaining() != curSize) {
@@ -765,8 +887,13 @@ public class DDSImage {
                                                    " didn't match expected data size (expected " + curSize + ", got " +
                                                    mipmapData[i].remaining() + ")");
             }
-            curSize /= 4;
             totalSize += mipmapData[i].remaining();
+            // Compressed levels are at least one block in size
+            curWidth  = Math.max(curWidth  >> 1, 1);
+            curHeight = Math.max(curHeight >> 1, 1);
+            curSize = isCompressed ?
+                      computeCompressedBlockSize(curWidth, curHeight, 1, d3dFormat) :
+                      curWidth * curHeight * ( topmostMipmapSize / ( width * height ) );
         }
 
         // OK, create one large ByteBuffer to hold all of the mipmap data
@@ -832,6 +959,50 @@ public class DDSImage {
         }
     }
 
+    /** Returns an independent slice of the image data, leaving the
+        position and limit of the shared buffer untouched. */
+    private ByteBuffer slice(int offset, int size) {
+        if (closed) {
+            throw new IllegalStateException("DDSImage already closed");
+        }
+        ByteBuffer dup = buf.duplicate();
+        dup.limit(offset + size);
+        dup.position(offset);
+        return dup.slice();
+    }
+
+    /** Releases the memory mapping of the given buffer right away, if
+        supported by the JVM. Otherwise the mapping is released once
+        the buffer is garbage collected. */
+    private static boolean unmap(ByteBuffer buf) {
+        if (!buf.isDirect()) {
+            return false;
+        }
+        try {
+            // Java 9+: sun.misc.Unsafe.invokeCleaner(ByteBuffer)
+            Class unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field f = unsafeClass.getDeclaredField("theUnsafe");
+            f.setAccessible(true);
+            Object unsafe = f.get(null);
+            java.lang.reflect.Method m = unsafeClass.getMethod("invokeCleaner", new Class[] { ByteBuffer.class });
+            m.invoke(unsafe, new Object[] { buf });
+            return true;
+        } catch (Throwable t) { /* not available, try below */ }
+        try {
+            // Java 1.5 - 8: ((sun.nio.ch.DirectBuffer)buf).cleaner().clean()
+            java.lang.reflect.Method cleanerMethod = buf.getClass().getMethod("cleaner", new Class[0]);
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buf, new Object[0]);
+            if (cleaner != null) {
+                java.lang.reflect.Method cleanMethod = cleaner.getClass().getMethod("clean", new Class[0]);
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner, new Object[0]);
+                return true;
+            }
+        } catch (Throwable t) { /* leave it to the GC */ }
+        return false;
+    }
+
     private static int computeCompressedBlockSize(int width,
                                                   int height,
                                                   int depth,
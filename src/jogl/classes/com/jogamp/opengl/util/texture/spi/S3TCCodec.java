@@ -0,0 +1,573 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture.spi;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Pure Java S3TC (DXT1, DXT3 and DXT5) block compression codec.
+ * <p>
+ * The encoder fits the color endpoints of each 4x4 block along the
+ * principal axis of its colors. It may use an {@link ExecutorService}
+ * to compress the block rows of an image in parallel, each block row
+ * being one task. The decoder is used as a fallback if the
+ * GL_EXT_texture_compression_s3tc extension is not available.
+ * </p>
+ * <p>
+ * Uncompressed data is always tightly packed, 8 bits per component,
+ * in R, G, B (3 bytes per pixel) or R, G, B, A (4 bytes per pixel) order.
+ * Compressed data is laid out as defined by the
+ * EXT_texture_compression_s3tc specification, i.e. as stored in DDS files.
+ * </p>
+ */
+public class S3TCCodec {
+    /** Block rows per image below which no tasks are spawned */
+    private static final int PARALLEL_MIN_BLOCK_ROWS = 4;
+
+    private static ExecutorService defaultExecutor = null;
+
+    private S3TCCodec() {}
+
+    /**
+     * Returns a shared executor, lazily created with one daemon thread
+     * per available processor, suitable for {@link #encode(int, int, int, ByteBuffer, int, ByteBuffer, ExecutorService) encode}.
+     */
+    public static synchronized ExecutorService getDefaultExecutor() {
+        if (null == defaultExecutor) {
+            final int threads = Math.max(1, Runtime.getRuntime().availableProcessors());
+            defaultExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                private int count = 0;
+                public Thread newThread(Runnable r) {
+                    final Thread t = new Thread(r, "S3TCCodec-Worker-"+(count++));
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+
+    /** Returns true if the given D3DFMT_ constant is one of the supported DXTn formats. */
+    public static boolean isSupported(int d3dFormat) {
+        switch (d3dFormat) {
+        case DDSImage.D3DFMT_DXT1:
+        case DDSImage.D3DFMT_DXT3:
+        case DDSImage.D3DFMT_DXT5:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    /** Returns the size in bytes of one 4x4 block of the given DXTn format. */
+    public static int getBlockSize(int d3dFormat) {
+        switch (d3dFormat) {
+        case DDSImage.D3DFMT_DXT1:
+            return 8;
+        case DDSImage.D3DFMT_DXT3:
+        case DDSImage.D3DFMT_DXT5:
+            return 16;
+        default:
+            throw new IllegalArgumentException("Unsupported format "+DDSImage.getCompressionFormatName(d3dFormat));
+        }
+    }
+
+    /** Returns the size in bytes of a width x height image compressed in the given DXTn format. */
+    public static int getCompressedSize(int d3dFormat, int width, int height) {
+        return ( ( width + 3 ) / 4 ) * ( ( height + 3 ) / 4 ) * getBlockSize(d3dFormat);
+    }
+
+    /**
+     * Compresses the given image, using the {@link #getDefaultExecutor() default executor}.
+     *
+     * @return a new ByteBuffer of size {@link #getCompressedSize(int, int, int) getCompressedSize(..)}
+     * @see #encode(int, int, int, ByteBuffer, int, ByteBuffer, ExecutorService)
+     */
+    public static ByteBuffer encode(int d3dFormat, int width, int height, ByteBuffer src, int bytesPerPixel) {
+        final ByteBuffer dst = ByteBuffer.allocate(getCompressedSize(d3dFormat, width, height));
+        encode(d3dFormat, width, height, src, bytesPerPixel, dst, getDefaultExecutor());
+        dst.rewind();
+        return dst;
+    }
+
+    /**
+     * Compresses the given image.
+     * <p>
+     * For DXT1, blocks with pixels of alpha below 128 use the 3 color
+     * mode with transparent black, as described for GL_COMPRESSED_RGBA_S3TC_DXT1_EXT.
+     * </p>
+     *
+     * @param d3dFormat one of {@link DDSImage#D3DFMT_DXT1}, {@link DDSImage#D3DFMT_DXT3} or {@link DDSImage#D3DFMT_DXT5}
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param src the uncompressed RGB or RGBA data, starting at its current position, which is left unchanged
+     * @param bytesPerPixel 3 for RGB, 4 for RGBA
+     * @param dst the compressed destination, written starting at its current position,
+     *            which is advanced by the compressed size
+     * @param executor optional executor compressing block rows in parallel, may be null
+     * @throws IllegalArgumentException if the format or bytesPerPixel is not supported,
+     *         or src and dst are too small
+     */
+    public static void encode(final int d3dFormat, final int width, final int height,
+                              final ByteBuffer src, final int bytesPerPixel,
+                              final ByteBuffer dst, ExecutorService executor) throws IllegalArgumentException {
+        final int blockSize = getBlockSize(d3dFormat);
+        if (3 != bytesPerPixel && 4 != bytesPerPixel) {
+            throw new IllegalArgumentException("bytesPerPixel must be 3 or 4, is "+bytesPerPixel);
+        }
+        if (src.remaining() < width * height * bytesPerPixel) {
+            throw new IllegalArgumentException("Source too small: "+src.remaining()+" < "+(width * height * bytesPerPixel));
+        }
+        final int size = getCompressedSize(d3dFormat, width, height);
+        if (dst.remaining() < size) {
+            throw new IllegalArgumentException("Destination too small: "+dst.remaining()+" < "+size);
+        }
+        final int blockRows = ( height + 3 ) / 4;
+        final int rowSize = ( ( width + 3 ) / 4 ) * blockSize;
+        final int srcBase = src.position();
+        final int dstBase = dst.position();
+
+        if (null == executor || blockRows < PARALLEL_MIN_BLOCK_ROWS) {
+            final BlockEncoder enc = new BlockEncoder(d3dFormat, width, height, src, srcBase, bytesPerPixel);
+            final byte[] row = new byte[rowSize];
+            for (int by = 0; by < blockRows; by++) {
+                enc.encodeBlockRow(by, row);
+                putRow(dst, dstBase + by * rowSize, row);
+            }
+            src.position(srcBase);
+        } else {
+            final List<Future<?>> tasks = new ArrayList<Future<?>>(blockRows);
+            for (int by = 0; by < blockRows; by++) {
+                final int blockRow = by;
+                tasks.add(executor.submit(new Runnable() {
+                    public void run() {
+                        // Each task uses its own buffer views, absolute access only
+                        final BlockEncoder enc = new BlockEncoder(d3dFormat, width, height, src.duplicate(), srcBase, bytesPerPixel);
+                        final byte[] row = new byte[rowSize];
+                        enc.encodeBlockRow(blockRow, row);
+                        putRow(dst.duplicate(), dstBase + blockRow * rowSize, row);
+                    }
+                }));
+            }
+            waitFor(tasks);
+        }
+        dst.position(dstBase + size);
+    }
+
+    /**
+     * Decompresses the given image into RGBA, 4 bytes per pixel.
+     *
+     * @param d3dFormat one of {@link DDSImage#D3DFMT_DXT1}, {@link DDSImage#D3DFMT_DXT3} or {@link DDSImage#D3DFMT_DXT5}
+     * @param width the image width in pixels
+     * @param height the image height in pixels
+     * @param src the compressed data, starting at its current position, which is left unchanged
+     * @param dst the RGBA destination of at least width * height * 4 bytes, written starting
+     *            at its current position, which is advanced by the written size
+     * @throws IllegalArgumentException if the format is not supported or src and dst are too small
+     */
+    public static void decode(int d3dFormat, int width, int height, ByteBuffer src, ByteBuffer dst) throws IllegalArgumentException {
+        final int blockSize = getBlockSize(d3dFormat);
+        final int size = getCompressedSize(d3dFormat, width, height);
+        if (src.remaining() < size) {
+            throw new IllegalArgumentException("Source too small: "+src.remaining()+" < "+size);
+        }
+        if (dst.remaining() < width * height * 4) {
+            throw new IllegalArgumentException("Destination too small: "+dst.remaining()+" < "+(width * height * 4));
+        }
+        final int srcBase = src.position();
+        final int dstBase = dst.position();
+        final int blocksX = ( width + 3 ) / 4;
+        final int blocksY = ( height + 3 ) / 4;
+        final byte[] block = new byte[blockSize];
+        final byte[] rgba = new byte[16 * 4];
+        final int[] palette = new int[4];
+        final int[] alphas = new int[8];
+
+        for (int by = 0; by < blocksY; by++) {
+            for (int bx = 0; bx < blocksX; bx++) {
+                src.position(srcBase + ( by * blocksX + bx ) * blockSize);
+                src.get(block, 0, blockSize);
+                switch (d3dFormat) {
+                case DDSImage.D3DFMT_DXT1:
+                    decodeColor(block, 0, rgba, palette, true);
+                    break;
+                case DDSImage.D3DFMT_DXT3:
+                    decodeColor(block, 8, rgba, palette, false);
+                    for (int i = 0; i < 16; i++) {
+                        final int a = ( block[i >> 1] >> ( ( i & 1 ) * 4 ) ) & 0x0f;
+                        rgba[i * 4 + 3] = (byte) ( a * 17 );
+                    }
+                    break;
+                default: // DXT5
+                    decodeColor(block, 8, rgba, palette, false);
+                    alphaPalette(block[0] & 0xff, block[1] & 0xff, alphas);
+                    long bits = 0;
+                    for (int i = 0; i < 6; i++) {
+                        bits |= ( (long) ( block[2 + i] & 0xff ) ) << ( 8 * i );
+                    }
+                    for (int i = 0; i < 16; i++) {
+                        rgba[i * 4 + 3] = (byte) alphas[(int) ( ( bits >>> ( 3 * i ) ) & 0x07 )];
+                    }
+                    break;
+                }
+                // store the visible part of the block
+                for (int y = 0; y < 4; y++) {
+                    final int py = by * 4 + y;
+                    if (py >= height) {
+                        break;
+                    }
+                    final int n = Math.min(4, width - bx * 4);
+                    dst.position(dstBase + ( py * width + bx * 4 ) * 4);
+                    dst.put(rgba, y * 16, n * 4);
+                }
+            }
+        }
+        src.position(srcBase);
+        dst.position(dstBase + width * height * 4);
+    }
+
+    //----------------------------------------------------------------------
+    // Internals only below this point
+    //
+
+    private static void putRow(ByteBuffer dst, int offset, byte[] row) {
+        dst.position(offset);
+        dst.put(row, 0, row.length);
+    }
+
+    private static void waitFor(List<Future<?>> tasks) {
+        try {
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).get();
+            }
+        } catch (InterruptedException e) {
+            for (int i = 0; i < tasks.size(); i++) {
+                tasks.get(i).cancel(false);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while encoding", e);
+        } catch (ExecutionException e) {
+            final Throwable t = e.getCause();
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            throw new RuntimeException(t);
+        }
+    }
+
+    /** Decodes the color block at offset into rgba, alpha is set to 255, or 0 for DXT1 transparent black */
+    private static void decodeColor(byte[] block, int offset, byte[] rgba, int[] palette, boolean dxt1) {
+        final int c0 = ( block[offset] & 0xff ) | ( ( block[offset + 1] & 0xff ) << 8 );
+        final int c1 = ( block[offset + 2] & 0xff ) | ( ( block[offset + 3] & 0xff ) << 8 );
+        final boolean fourColors = !dxt1 || c0 > c1;
+        colorPalette(c0, c1, fourColors, palette);
+        final int bits = ( block[offset + 4] & 0xff ) | ( ( block[offset + 5] & 0xff ) << 8 ) |
+                         ( ( block[offset + 6] & 0xff ) << 16 ) | ( ( block[offset + 7] & 0xff ) << 24 );
+        for (int i = 0; i < 16; i++) {
+            final int idx = ( bits >>> ( 2 * i ) ) & 0x03;
+            final int c = palette[idx];
+            rgba[i * 4 + 0] = (byte) ( c >> 16 );
+            rgba[i * 4 + 1] = (byte) ( c >>  8 );
+            rgba[i * 4 + 2] = (byte) ( c       );
+            rgba[i * 4 + 3] = (byte) ( !fourColors && 3 == idx ? 0x00 : 0xff );
+        }
+    }
+
+    /** Fills the 0xRRGGBB palette of the given RGB565 endpoints */
+    private static void colorPalette(int c0, int c1, boolean fourColors, int[] palette) {
+        final int r0 = expand5(c0 >> 11), g0 = expand6(( c0 >> 5 ) & 0x3f), b0 = expand5(c0 & 0x1f);
+        final int r1 = expand5(c1 >> 11), g1 = expand6(( c1 >> 5 ) & 0x3f), b1 = expand5(c1 & 0x1f);
+        palette[0] = ( r0 << 16 ) | ( g0 << 8 ) | b0;
+        palette[1] = ( r1 << 16 ) | ( g1 << 8 ) | b1;
+        if (fourColors) {
+            palette[2] = ( ( ( 2 * r0 + r1 ) / 3 ) << 16 ) | ( ( ( 2 * g0 + g1 ) / 3 ) << 8 ) | ( ( 2 * b0 + b1 ) / 3 );
+            palette[3] = ( ( ( r0 + 2 * r1 ) / 3 ) << 16 ) | ( ( ( g0 + 2 * g1 ) / 3 ) << 8 ) | ( ( b0 + 2 * b1 ) / 3 );
+        } else {
+            palette[2] = ( ( ( r0 + r1 ) / 2 ) << 16 ) | ( ( ( g0 + g1 ) / 2 ) << 8 ) | ( ( b0 + b1 ) / 2 );
+            palette[3] = 0;
+        }
+    }
+
+    /** Fills the DXT5 8 entry alpha palette of the given endpoints */
+    private static void alphaPalette(int a0, int a1, int[] alphas) {
+        alphas[0] = a0;
+        alphas[1] = a1;
+        if (a0 > a1) {
+            for (int i = 1; i < 7; i++) {
+                alphas[1 + i] = ( ( 7 - i ) * a0 + i * a1 ) / 7;
+            }
+        } else {
+            for (int i = 1; i < 5; i++) {
+                alphas[1 + i] = ( ( 5 - i ) * a0 + i * a1 ) / 5;
+            }
+            alphas[6] = 0;
+            alphas[7] = 255;
+        }
+    }
+
+    private static int expand5(int c) { return ( c << 3 ) | ( c >> 2 ); }
+    private static int expand6(int c) { return ( c << 2 ) | ( c >> 4 ); }
+
+    private static int to565(int r, int g, int b) {
+        return ( ( ( r * 31 + 127 ) / 255 ) << 11 ) | ( ( ( g * 63 + 127 ) / 255 ) << 5 ) | ( ( b * 31 + 127 ) / 255 );
+    }
+
+    /** Per task block encoder state, not thread safe. */
+    private static class BlockEncoder {
+        final int format;
+        final int width;
+        final int height;
+        final ByteBuffer src;
+        final int srcBase;
+        final int bpp;
+        final int blockSize;
+
+        /** the up to 4 source rows of the current block row */
+        final byte[][] rows;
+        final int[] r = new int[16];
+        final int[] g = new int[16];
+        final int[] b = new int[16];
+        final int[] a = new int[16];
+        final int[] palette = new int[4];
+        final int[] alphas = new int[8];
+
+        BlockEncoder(int format, int width, int height, ByteBuffer src, int srcBase, int bpp) {
+            this.format = format;
+            this.width = width;
+            this.height = height;
+            this.src = src;
+            this.srcBase = srcBase;
+            this.bpp = bpp;
+            this.blockSize = getBlockSize(format);
+            this.rows = new byte[4][width * bpp];
+        }
+
+        void encodeBlockRow(int by, byte[] out) {
+            final int rowBytes = width * bpp;
+            for (int y = 0; y < 4; y++) {
+                // clamp to the last row, replicating edge pixels
+                final int py = Math.min(by * 4 + y, height - 1);
+                src.position(srcBase + py * rowBytes);
+                src.get(rows[y], 0, rowBytes);
+            }
+            final int blocksX = ( width + 3 ) / 4;
+            for (int bx = 0; bx < blocksX; bx++) {
+                fetchBlock(bx);
+                final int o = bx * blockSize;
+                switch (format) {
+                case DDSImage.D3DFMT_DXT1:
+                    encodeColor(out, o, true);
+                    break;
+                case DDSImage.D3DFMT_DXT3:
+                    encodeAlpha4(out, o);
+                    encodeColor(out, o + 8, false);
+                    break;
+                default: // DXT5
+                    encodeAlpha8(out, o);
+                    encodeColor(out, o + 8, false);
+                    break;
+                }
+            }
+        }
+
+        private void fetchBlock(int bx) {
+            for (int y = 0; y < 4; y++) {
+                final byte[] row = rows[y];
+                for (int x = 0; x < 4; x++) {
+                    // clamp to the last column, replicating edge pixels
+                    final int px = Math.min(bx * 4 + x, width - 1) * bpp;
+                    final int i = y * 4 + x;
+                    r[i] = row[px + 0] & 0xff;
+                    g[i] = row[px + 1] & 0xff;
+                    b[i] = row[px + 2] & 0xff;
+                    a[i] = 4 == bpp ? row[px + 3] & 0xff : 0xff;
+                }
+            }
+        }
+
+        /**
+         * Encodes the color block, choosing the endpoints as the extreme
+         * colors along the principal axis of the block's colors.
+         */
+        private void encodeColor(byte[] out, int o, boolean dxt1) {
+            boolean transparent = false;
+            int n = 0;
+            float mr = 0, mg = 0, mb = 0;
+            for (int i = 0; i < 16; i++) {
+                if (dxt1 && a[i] < 128) {
+                    transparent = true;
+                    continue;
+                }
+                mr += r[i]; mg += g[i]; mb += b[i];
+                n++;
+            }
+            if (0 == n) {
+                // fully transparent DXT1 block
+                putShort(out, o, 0);
+                putShort(out, o + 2, 0xffff);
+                putInt(out, o + 4, 0xffffffff);
+                return;
+            }
+            mr /= n; mg /= n; mb /= n;
+
+            // covariance of the (opaque) colors
+            float crr = 0, crg = 0, crb = 0, cgg = 0, cgb = 0, cbb = 0;
+            for (int i = 0; i < 16; i++) {
+                if (dxt1 && a[i] < 128) {
+                    continue;
+                }
+                final float dr = r[i] - mr, dg = g[i] - mg, db = b[i] - mb;
+                crr += dr * dr; crg += dr * dg; crb += dr * db;
+                cgg += dg * dg; cgb += dg * db; cbb += db * db;
+            }
+            // principal axis by power iteration
+            float vr = crr, vg = crg, vb = crb;
+            if (cgg > crr && cgg >= cbb) {
+                vr = crg; vg = cgg; vb = cgb;
+            } else if (cbb > crr && cbb > cgg) {
+                vr = crb; vg = cgb; vb = cbb;
+            }
+            for (int k = 0; k < 4; k++) {
+                final float tr = crr * vr + crg * vg + crb * vb;
+                final float tg = crg * vr + cgg * vg + cgb * vb;
+                final float tb = crb * vr + cgb * vg + cbb * vb;
+                final float m = Math.max(Math.abs(tr), Math.max(Math.abs(tg), Math.abs(tb)));
+                if (m == 0f) {
+                    break;
+                }
+                vr = tr / m; vg = tg / m; vb = tb / m;
+            }
+
+            int iMin = -1, iMax = -1;
+            float tMin = Float.MAX_VALUE, tMax = -Float.MAX_VALUE;
+            for (int i = 0; i < 16; i++) {
+                if (dxt1 && a[i] < 128) {
+                    continue;
+                }
+                final float t = r[i] * vr + g[i] * vg + b[i] * vb;
+                if (t < tMin) { tMin = t; iMin = i; }
+                if (t > tMax) { tMax = t; iMax = i; }
+            }
+            int c0 = to565(r[iMax], g[iMax], b[iMax]);
+            int c1 = to565(r[iMin], g[iMin], b[iMin]);
+
+            final boolean fourColors;
+            if (transparent) {
+                // 3 color mode requires c0 <= c1
+                if (c0 > c1) { final int t = c0; c0 = c1; c1 = t; }
+                fourColors = false;
+            } else {
+                // 4 color mode requires c0 > c1
+                if (c0 < c1) { final int t = c0; c0 = c1; c1 = t; }
+                fourColors = c0 != c1;
+            }
+            colorPalette(c0, c1, fourColors || !dxt1, palette);
+
+            int bits = 0;
+            if (c0 != c1 || transparent) {
+                final int count = fourColors ? 4 : 3;
+                for (int i = 0; i < 16; i++) {
+                    int idx;
+                    if (transparent && a[i] < 128) {
+                        idx = 3;
+                    } else {
+                        idx = 0;
+                        int best = Integer.MAX_VALUE;
+                        for (int j = 0; j < count; j++) {
+                            final int p = palette[j];
+                            final int dr = r[i] - ( ( p >> 16 ) & 0xff );
+                            final int dg = g[i] - ( ( p >>  8 ) & 0xff );
+                            final int db = b[i] - (   p         & 0xff );
+                            final int d = dr * dr + dg * dg + db * db;
+                            if (d < best) { best = d; idx = j; }
+                        }
+                    }
+                    bits |= idx << ( 2 * i );
+                }
+            }
+            putShort(out, o, c0);
+            putShort(out, o + 2, c1);
+            putInt(out, o + 4, bits);
+        }
+
+        /** DXT3 explicit 4 bit alpha */
+        private void encodeAlpha4(byte[] out, int o) {
+            for (int i = 0; i < 16; i += 2) {
+                final int a0 = ( a[i]     * 15 + 127 ) / 255;
+                final int a1 = ( a[i + 1] * 15 + 127 ) / 255;
+                out[o + ( i >> 1 )] = (byte) ( a0 | ( a1 << 4 ) );
+            }
+        }
+
+        /** DXT5 interpolated alpha, 8 alpha mode between block minimum and maximum */
+        private void encodeAlpha8(byte[] out, int o) {
+            int aMin = 255, aMax = 0;
+            for (int i = 0; i < 16; i++) {
+                aMin = Math.min(aMin, a[i]);
+                aMax = Math.max(aMax, a[i]);
+            }
+            out[o + 0] = (byte) aMax;
+            out[o + 1] = (byte) aMin;
+            long bits = 0;
+            if (aMax > aMin) {
+                alphaPalette(aMax, aMin, alphas);
+                for (int i = 0; i < 16; i++) {
+                    int idx = 0;
+                    int best = Integer.MAX_VALUE;
+                    for (int j = 0; j < 8; j++) {
+                        final int d = Math.abs(a[i] - alphas[j]);
+                        if (d < best) { best = d; idx = j; }
+                    }
+                    bits |= ( (long) idx ) << ( 3 * i );
+                }
+            }
+            for (int i = 0; i < 6; i++) {
+                out[o + 2 + i] = (byte) ( bits >>> ( 8 * i ) );
+            }
+        }
+
+        private static void putShort(byte[] out, int o, int v) {
+            out[o + 0] = (byte) v;
+            out[o + 1] = (byte) ( v >>> 8 );
+        }
+
+        private static void putInt(byte[] out, int o, int v) {
+            out[o + 0] = (byte) v;
+            out[o + 1] = (byte) ( v >>>  8 );
+            out[o + 2] = (byte) ( v >>> 16 );
+            out[o + 3] = (byte) ( v >>> 24 );
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.util.texture.spi;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+
+import javax.media.opengl.GL;
+
+import com.jogamp.common.util.IOUtil;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+
+/**
+ * Writes uncompressed GL_RGB or GL_RGBA byte textures as DXTn
+ * compressed DDS files with a full mipmap chain, compressed by
+ * {@link S3TCCodec} in software. No OpenGL context is required.
+ * <p>
+ * This writer is not registered by default, since the default DDS
+ * writer stores uncompressed textures uncompressed. Register it via
+ * {@link TextureIO#addTextureWriter(TextureWriter)} to have it take
+ * precedence for ".dds" files. Already compressed textures are left
+ * to the default DDS writer.
+ * </p>
+ */
+public class S3TCTextureWriter implements TextureWriter {
+    private final int d3dFormat;
+    private final boolean mipmaps;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a writer using DXT1 for GL_RGB and DXT5 for GL_RGBA
+     * textures, generating a full mipmap chain and compressing on the
+     * {@link S3TCCodec#getDefaultExecutor() default executor}.
+     */
+    public S3TCTextureWriter() {
+        this(0, true, S3TCCodec.getDefaultExecutor());
+    }
+
+    /**
+     * @param d3dFormat the compressed format, one of {@link DDSImage#D3DFMT_DXT1},
+     *                  {@link DDSImage#D3DFMT_DXT3} or {@link DDSImage#D3DFMT_DXT5},
+     *                  or 0 to use DXT1 for GL_RGB and DXT5 for GL_RGBA textures
+     * @param mipmaps if true and the TextureData contains no mipmaps,
+     *                a full mipmap chain is generated by box filtering
+     * @param executor optional executor compressing in parallel, may be null
+     */
+    public S3TCTextureWriter(int d3dFormat, boolean mipmaps, ExecutorService executor) {
+        if (0 != d3dFormat && !S3TCCodec.isSupported(d3dFormat)) {
+            throw new IllegalArgumentException("Unsupported format "+DDSImage.getCompressionFormatName(d3dFormat));
+        }
+        this.d3dFormat = d3dFormat;
+        this.mipmaps = mipmaps;
+        this.executor = executor;
+    }
+
+    public boolean write(File file,
+                         TextureData data) throws IOException {
+        if (!TextureIO.DDS.equals(IOUtil.getFileSuffix(file)) || data.isDataCompressed()) {
+            return false;
+        }
+        final int pixelFormat = data.getPixelFormat();
+        final int pixelType   = data.getPixelType();
+        if ((pixelFormat != GL.GL_RGB &&
+             pixelFormat != GL.GL_RGBA) ||
+            (pixelType != GL.GL_BYTE &&
+             pixelType != GL.GL_UNSIGNED_BYTE)) {
+            throw new IOException("S3TC DDS writer doesn't support this pixel format / type (only GL_RGB/A + bytes)");
+        }
+        final int bpp = ( pixelFormat == GL.GL_RGBA ) ? 4 : 3;
+        final int format = 0 != d3dFormat ? d3dFormat :
+                           ( 4 == bpp ? DDSImage.D3DFMT_DXT5 : DDSImage.D3DFMT_DXT1 );
+
+        ByteBuffer[] levels;
+        if (data.getMipmapData() != null) {
+            levels = new ByteBuffer[data.getMipmapData().length];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = (ByteBuffer) data.getMipmapData()[i];
+            }
+        } else if (mipmaps) {
+            levels = createMipmaps((ByteBuffer) data.getBuffer(), data.getWidth(), data.getHeight(), bpp);
+        } else {
+            levels = new ByteBuffer[] { (ByteBuffer) data.getBuffer() };
+        }
+
+        final DDSImage image = DDSImage.createFromData(format,
+                                                       data.getWidth(),
+                                                       data.getHeight(),
+                                                       bpp,
+                                                       levels,
+                                                       executor);
+        image.write(file);
+        return true;
+    }
+
+    /** Returns the full mipmap chain down to 1x1, the first level being the given buffer. */
+    private static ByteBuffer[] createMipmaps(ByteBuffer base, int width, int height, int bpp) {
+        int numLevels = 1;
+        for (int s = Math.max(width, height); s > 1; s >>= 1) {
+            numLevels++;
+        }
+        final ByteBuffer[] levels = new ByteBuffer[numLevels];
+        levels[0] = base;
+        int w = width;
+        int h = height;
+        byte[] src = new byte[w * h * bpp];
+        base.duplicate().get(src);
+        for (int l = 1; l < numLevels; l++) {
+            final int nw = Math.max(w >> 1, 1);
+            final int nh = Math.max(h >> 1, 1);
+            final byte[] dst = new byte[nw * nh * bpp];
+            for (int y = 0; y < nh; y++) {
+                final int y0 = Math.min(2 * y, h - 1);
+                final int y1 = Math.min(2 * y + 1, h - 1);
+                for (int x = 0; x < nw; x++) {
+                    final int x0 = Math.min(2 * x, w - 1);
+                    final int x1 = Math.min(2 * x + 1, w - 1);
+                    for (int c = 0; c < bpp; c++) {
+                        final int sum = ( src[( y0 * w + x0 ) * bpp + c] & 0xff ) +
+                                        ( src[( y0 * w + x1 ) * bpp + c] & 0xff ) +
+                                        ( src[( y1 * w + x0 ) * bpp + c] & 0xff ) +
+                                        ( src[( y1 * w + x1 ) * bpp + c] & 0xff );
+                        dst[( y * nw + x ) * bpp + c] = (byte) ( ( sum + 2 ) >> 2 );
+                    }
+                }
+            }
+            levels[l] = ByteBuffer.wrap(dst);
+            src = dst;
+            w = nw;
+            h = nh;
+        }
+        return levels;
+    }
+}
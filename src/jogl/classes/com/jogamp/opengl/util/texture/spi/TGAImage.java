@@ -43,6 +43,7 @@ import java.io.*;
 import java.nio.*;
 import java.nio.channels.*;
 import javax.media.opengl.*;
+import com.jogamp.common.nio.Buffers;
 import com.jogamp.opengl.util.*;
 import com.jogamp.opengl.util.texture.spi.*;
 import com.jogamp.opengl.util.texture.*;
@@ -75,6 +76,7 @@ public class TGAImage {
     private Header header;
     private int    format;
     private int    bpp;
+    private boolean rgbOrder; // decoded in RGB(A) instead of the file's BGR(A) order
     private ByteBuffer data;
 
     private TGAImage(Header header) {
@@ -221,6 +223,19 @@ public class TGAImage {
 
         public int size() { return 18 + idLength; }
 
+        /** Describes the decoded data, i.e. an uncompressed true color or
+            grayscale image of the given bytes per pixel w/o color map,
+            in bottom-to-top, left-to-right order. */
+        private void setDecoded(int bpp) {
+            imageType = bpp <= 2 ? UBLACKWHITE : UTRUECOLOR;
+            colorMapType = 0;
+            firstEntryIndex = 0;
+            colorMapLength = 0;
+            colorMapEntrySize = 0;
+            pixelDepth = (byte) (bpp * 8);
+            imageDescriptor = (byte) (bpp == 2 || bpp == 4 ? 8 : 0); // alpha bits, bottom-left origin
+        }
+
         // buf must be in little-endian byte order
         private void write(ByteBuffer buf) {
             buf.put((byte) idLength);
@@ -248,101 +263,333 @@ public class TGAImage {
 
 
     /**
-     * Identifies the image type of the tga image data and loads
-     * it into the JimiImage structure. This was taken from the
-     * prototype and modified for the new Jimi structure
+     * Identifies the image type of the tga image data and decodes it
+     * in a single streaming pass into a preallocated direct
+     * ByteBuffer. Supported are the uncompressed and RLE compressed
+     * variants of color mapped, true color (15, 16, 24 and 32 bit)
+     * and grayscale (8 bit, 16 bit with alpha) images.
+     * <p>
+     * The origin flags are applied while decoding, i.e. the resulting
+     * data is always in the bottom-to-top, left-to-right order
+     * expected by glTexImage2D.
+     * </p>
      */
-    private void decodeImage(LEDataInputStream dIn) throws IOException {
+    private void decodeImage(GLProfile glp, LEDataInputStream dIn) throws IOException {
+        final boolean rle;
         switch (header.imageType()) {
         case Header.UCOLORMAPPED:
-            throw new IOException("TGADecoder Uncompressed Colormapped images not supported");
+        case Header.UTRUECOLOR:
+        case Header.UBLACKWHITE:
+            rle = false;
+            break;
+        case Header.COLORMAPPED:
+        case Header.TRUECOLOR:
+        case Header.BLACKWHITE:
+            rle = true;
+            break;
+        case Header.NO_IMAGE:
+            throw new IOException("TGADecoder Image contains no image data");
+        default:
+            throw new IOException("TGADecoder Unknown image type "+header.imageType());
+        }
+
+        final boolean bgr = glp.isGL2GL3();
+        final RowDecoder decoder = new RowDecoder(header, bgr);
+        decoder.readColorMap(dIn);
+
+        bpp = decoder.dstBpp;
+        switch (bpp) {
+        case 1:
+            format = GL.GL_LUMINANCE;
+            break;
+        case 2:
+            format = GL.GL_LUMINANCE_ALPHA;
+            break;
+        case 3:
+            format = bgr ? GL2GL3.GL_BGR : GL.GL_RGB;
+            break;
+        default:
+            format = bgr ? GL2GL3.GL_BGRA : GL.GL_RGBA;
+            break;
+        }
+
+        data = Buffers.newDirectByteBuffer(header.width() * header.height() * bpp);
+        if (rle) {
+            decoder.decodeRLE(dIn, data);
+        } else {
+            decoder.decodeRaw(dIn, data);
+        }
+        data.clear();
+        rgbOrder = decoder.swap;
+        header.setDecoded(bpp);
+    }
+
+    /**
+     * Streaming pixel decoder converting the source pixels of one
+     * scanline at a time into the destination layout, i.e. with
+     * color map lookup, 15/16 bit expansion, channel swizzling and
+     * horizontal mirroring already applied. Completed scanlines are
+     * put directly at their final (vertically flipped if required)
+     * position of the destination buffer.
+     */
+    private static class RowDecoder {
+        private static final int MODE_COPY   = 0; // 8, 16 bit grayscale, 24, 32 bit true color
+        private static final int MODE_RGB16  = 1; // 15, 16 bit true color (A1R5G5B5)
+        private static final int MODE_MAPPED = 2; // color mapped, 8 or 16 bit indices
+
+        final int width;
+        final int height;
+        final boolean mirror;
+        final boolean flip;
+        final boolean swap;
+        final int srcBpp;
+        final int dstBpp;
+        final int mode;
+        final boolean alpha16;
+
+        /** color map header, entries in destination layout */
+        final int cmapFirst;
+        final int cmapLength;
+        final int cmapSrcBpp;
+        byte[] cmap;
+
+        /** source (raw) scanline / packet buffer */
+        final byte[] src;
+        /** destination scanline */
+        final byte[] row;
+        final int rowBytes;
+
+        RowDecoder(Header header, boolean bgr) throws IOException {
+            width = header.width();
+            height = header.height();
+            mirror = header.rightToLeft();
+            flip = header.topToBottom();
+            cmapFirst = header.firstEntryIndex();
+            cmapLength = header.colorMapType() == 1 ? header.colorMapLength() : 0;
+            cmapSrcBpp = ( header.colorMapEntrySize() + 7 ) / 8;
+
+            final int pixelDepth = header.pixelDepth() & 0xff;
+            srcBpp = ( pixelDepth + 7 ) / 8;
+
+            switch (header.imageType()) {
+            case Header.UCOLORMAPPED:
+            case Header.COLORMAPPED:
+                if (header.colorMapType() != 1 || 0 == cmapLength) {
+                    throw new IOException("TGADecoder Color mapped image without color map");
+                }
+                if (pixelDepth != 8 && pixelDepth != 16) {
+                    throw new IOException("TGADecoder Unsupported color map index depth "+pixelDepth);
+                }
+                mode = MODE_MAPPED;
+                switch (header.colorMapEntrySize()) {
+                case 15:
+                    alpha16 = false;
+                    dstBpp = 3;
+                    break;
+                case 16:
+                    alpha16 = header.attribPerPixel() > 0;
+                    dstBpp = alpha16 ? 4 : 3;
+                    break;
+                case 24:
+                    alpha16 = false;
+                    dstBpp = 3;
+                    break;
+                case 32:
+                    alpha16 = false;
+                    dstBpp = 4;
+                    break;
+                default:
+                    throw new IOException("TGADecoder Unsupported color map entry size "+header.colorMapEntrySize());
+                }
+                break;
 
-        case Header.UTRUECOLOR:    // pixelDepth 15, 16, 24 and 32
-            switch (header.pixelDepth) {
-            case 16:
-                throw new IOException("TGADecoder Compressed 16-bit True Color images not supported");
+            case Header.UTRUECOLOR:
+            case Header.TRUECOLOR:
+                switch (pixelDepth) {
+                case 15:
+                    mode = MODE_RGB16;
+                    alpha16 = false;
+                    dstBpp = 3;
+                    break;
+                case 16:
+                    mode = MODE_RGB16;
+                    alpha16 = header.attribPerPixel() > 0;
+                    dstBpp = alpha16 ? 4 : 3;
+                    break;
+                case 24:
+                case 32:
+                    mode = MODE_COPY;
+                    alpha16 = false;
+                    dstBpp = srcBpp;
+                    break;
+                default:
+                    throw new IOException("TGADecoder Unsupported true color depth "+pixelDepth);
+                }
+                break;
 
-            case 24:
-            case 32:
-                decodeRGBImageU24_32(dIn);
+            default: // UBLACKWHITE, BLACKWHITE
+                if (pixelDepth != 8 && pixelDepth != 16) {
+                    throw new IOException("TGADecoder Unsupported grayscale depth "+pixelDepth);
+                }
+                mode = MODE_COPY;
+                alpha16 = false;
+                dstBpp = srcBpp;
                 break;
             }
-            break;
+            swap = !bgr && dstBpp >= 3;
 
-        case Header.UBLACKWHITE:
-            throw new IOException("TGADecoder Uncompressed Grayscale images not supported");
+            rowBytes = width * dstBpp;
+            row = new byte[rowBytes];
+            // large enough for a scanline and for a maximal RLE raw packet
+            src = new byte[Math.max(width, 128) * srcBpp];
+        }
 
-        case Header.COLORMAPPED:
-            throw new IOException("TGADecoder Compressed Colormapped images not supported");
+        /** Reads, or skips, the color map following the image ID field. */
+        void readColorMap(LEDataInputStream dIn) throws IOException {
+            if (0 == cmapLength) {
+                return;
+            }
+            final byte[] raw = new byte[cmapLength * cmapSrcBpp];
+            dIn.readFully(raw, 0, raw.length);
+            if (MODE_MAPPED != mode) {
+                return; // not used by true color / grayscale images
+            }
+            cmap = new byte[cmapLength * dstBpp];
+            for (int i = 0; i < cmapLength; i++) {
+                if (cmapSrcBpp == 2) {
+                    put16(raw, i * 2, cmap, i * dstBpp);
+                } else {
+                    putCopy(raw, i * cmapSrcBpp, cmap, i * dstBpp);
+                }
+            }
+        }
 
-        case Header.TRUECOLOR:
-            throw new IOException("TGADecoder Compressed True Color images not supported");
+        /** Decodes an uncompressed image, one scanline per read. */
+        void decodeRaw(LEDataInputStream dIn, ByteBuffer dst) throws IOException {
+            final int srcRowBytes = width * srcBpp;
+            for (int y = 0; y < height; y++) {
+                dIn.readFully(src, 0, srcRowBytes);
+                for (int x = 0; x < width; x++) {
+                    putPixel(src, x * srcBpp, row, column(x));
+                }
+                putRow(dst, y);
+            }
+        }
 
-        case Header.BLACKWHITE:
-            throw new IOException("TGADecoder Compressed Grayscale images not supported");
+        /**
+         * Decodes a run length encoded image. Packets may span
+         * scanlines, as allowed by the original TGA specification.
+         */
+        void decodeRLE(LEDataInputStream dIn, ByteBuffer dst) throws IOException {
+            final byte[] pixel = new byte[dstBpp];
+            int x = 0;
+            int y = 0;
+            while (y < height) {
+                final int packet = dIn.readUnsignedByte();
+                int count = ( packet & 0x7f ) + 1;
+                if ( 0 != ( packet & 0x80 ) ) {
+                    // run-length packet: one pixel value repeated count times
+                    dIn.readFully(src, 0, srcBpp);
+                    putPixel(src, 0, pixel, 0);
+                    while (count-- > 0 && y < height) {
+                        final int off = column(x);
+                        for (int c = 0; c < dstBpp; c++) {
+                            row[off + c] = pixel[c];
+                        }
+                        if (++x == width) {
+                            putRow(dst, y++);
+                            x = 0;
+                        }
+                    }
+                } else {
+                    // raw packet: count literal pixels
+                    dIn.readFully(src, 0, count * srcBpp);
+                    for (int i = 0; i < count && y < height; i++) {
+                        putPixel(src, i * srcBpp, row, column(x));
+                        if (++x == width) {
+                            putRow(dst, y++);
+                            x = 0;
+                        }
+                    }
+                }
+            }
         }
-    }
-  
-    /**
-     * This assumes that the body is for a 24 bit or 32 bit for a
-     * RGB or ARGB image respectively.
-     */
-    private void decodeRGBImageU24_32(LEDataInputStream dIn) throws IOException {
-        int i;    // row index
-        int j;    // column index
-        int y;    // output row index
-        int raw;  // index through the raw input buffer
-        int rawWidth = header.width() * (header.pixelDepth() / 8);
-        byte[] rawBuf = new byte[rawWidth];
-        byte[] tmpData = new byte[rawWidth * header.height()];
-
-        for (i = 0; i < header.height(); ++i) {
-            dIn.readFully(rawBuf, 0, rawWidth);
-
-            if (header.topToBottom())
-                y = header.height - i - 1; // range 0 to (header.height - 1)
-            else
-                y = i;
-
-            System.arraycopy(rawBuf, 0, tmpData, y * rawWidth, rawBuf.length);
+
+        private final int column(int x) {
+            return ( mirror ? width - 1 - x : x ) * dstBpp;
+        }
+
+        private final void putRow(ByteBuffer dst, int y) {
+            final int dstY = flip ? height - 1 - y : y;
+            dst.position(dstY * rowBytes);
+            dst.put(row, 0, rowBytes);
         }
 
-        GL gl = GLContext.getCurrentGL();
-        if (header.pixelDepth() == 24) {
-            bpp=3;
-            if(gl.isGL2GL3()) {
-                format = GL2GL3.GL_BGR;
-            } else {
-                format = GL.GL_RGB;
-                swapBGR(tmpData, rawWidth, header.height(), bpp);
+        private final void putPixel(byte[] s, int sOff, byte[] d, int dOff) throws IOException {
+            switch (mode) {
+            case MODE_COPY:
+                putCopy(s, sOff, d, dOff);
+                break;
+            case MODE_RGB16:
+                put16(s, sOff, d, dOff);
+                break;
+            default: {
+                int idx = s[sOff] & 0xff;
+                if (srcBpp == 2) {
+                    idx |= ( s[sOff + 1] & 0xff ) << 8;
+                }
+                idx -= cmapFirst;
+                if (idx < 0 || idx >= cmapLength) {
+                    throw new IOException("TGADecoder Color map index out of range: "+(idx+cmapFirst));
+                }
+                System.arraycopy(cmap, idx * dstBpp, d, dOff, dstBpp);
+                break;
             }
-        } else {
-            assert header.pixelDepth() == 32;
-            bpp=4;
-
-            if(gl.isGL2GL3()) {
-                format = GL2GL3.GL_BGRA;
-            } else {
-                format = GL.GL_RGBA;
-                swapBGR(tmpData, rawWidth, header.height(), bpp);
             }
         }
 
-        data = ByteBuffer.wrap(tmpData);
-    }
+        /** Copies a 8, 16, 24 or 32 bit pixel, swapping B and R if required. */
+        private final void putCopy(byte[] s, int sOff, byte[] d, int dOff) {
+            switch (dstBpp) {
+            case 4:
+                d[dOff + 3] = s[sOff + 3];
+                // fall through
+            case 3:
+                d[dOff + 1] = s[sOff + 1];
+                if (swap) {
+                    d[dOff + 0] = s[sOff + 2];
+                    d[dOff + 2] = s[sOff + 0];
+                } else {
+                    d[dOff + 0] = s[sOff + 0];
+                    d[dOff + 2] = s[sOff + 2];
+                }
+                break;
+            case 2:
+                d[dOff + 1] = s[sOff + 1];
+                // fall through
+            default:
+                d[dOff + 0] = s[sOff + 0];
+                break;
+            }
+        }
 
-    private static void swapBGR(byte[] data, int bWidth, int height, int bpp) {
-        byte r,b;
-        int k;
-        for(int i=0; i<height; ++i) {
-            for(int j=0; j<bWidth; j+=bpp) {
-                k=i*bWidth+j;
-                b=data[k+0];
-                r=data[k+2];
-                data[k+0]=r;
-                data[k+2]=b;
+        /** Expands a little endian A1R5G5B5 pixel to 24 or 32 bit. */
+        private final void put16(byte[] s, int sOff, byte[] d, int dOff) {
+            final int v = ( s[sOff] & 0xff ) | ( ( s[sOff + 1] & 0xff ) << 8 );
+            final int b = expand5(   v         & 0x1f );
+            final int g = expand5( ( v >>  5 ) & 0x1f );
+            final int r = expand5( ( v >> 10 ) & 0x1f );
+            d[dOff + 0] = (byte) ( swap ? r : b );
+            d[dOff + 1] = (byte) g;
+            d[dOff + 2] = (byte) ( swap ? b : r );
+            if (alpha16) {
+                d[dOff + 3] = (byte) ( 0 != ( v & 0x8000 ) ? 0xff : 0x00 );
             }
         }
+
+        private static final int expand5(int c) {
+            return ( c << 3 ) | ( c >> 2 );
+        }
     }
 
     /** Returns the width of the image. */
@@ -351,7 +598,8 @@ public class TGAImage {
     /** Returns the height of the image. */
     public int getHeight()   { return header.height(); }
 
-    /** Returns the OpenGL format for this texture; e.g. GL.GL_BGR or GL.GL_BGRA. */
+    /** Returns the OpenGL format for this texture; e.g. GL.GL_BGR, GL.GL_BGRA
+        or GL.GL_LUMINANCE for grayscale images. */
     public int getGLFormat() { return format; }
 
     /** Returns the bytes per pixel */
@@ -366,13 +614,22 @@ public class TGAImage {
         return read(new FileInputStream(filename));
     }
 
-    /** Reads a Targa image from the specified InputStream. */
+    /** Reads a Targa image from the specified InputStream, decoded
+        for the GLProfile of the current context. */
     public static TGAImage read(InputStream in) throws IOException {
+        return read(GLContext.getCurrentGL().getGLProfile(), in);
+    }
+
+    /** Reads a Targa image from the specified InputStream, decoded for
+        the given GLProfile, i.e. in BGR(A) order if GL2GL3 is
+        supported, otherwise in RGB(A) order. Does no OpenGL work and
+        does not require a current context. */
+    public static TGAImage read(GLProfile glp, InputStream in) throws IOException {
         LEDataInputStream dIn = new LEDataInputStream(new BufferedInputStream(in));
 
         Header header = new Header(dIn);
         TGAImage res = new TGAImage(header);
-        res.decodeImage(dIn);
+        res.decodeImage(glp, dIn);
         return res;
     }
 
@@ -383,18 +640,127 @@ public class TGAImage {
 
     /** Writes the image in Targa format to the specified file. */
     public void write(File file) throws IOException {
+        write(file, false);
+    }
+
+    /** Writes the image in Targa format to the specified file name,
+        optionally run length encoded. */
+    public void write(String filename, boolean rle) throws IOException {
+        write(new File(filename), rle);
+    }
+
+    /** Writes the image in Targa format to the specified file,
+        optionally run length encoded. RLE encoding is only supported
+        for uncompressed true color and grayscale images, which
+        includes all images read by this class. Data decoded in RGB(A)
+        order is written in the file's BGR(A) order. */
+    public void write(File file, boolean rle) throws IOException {
+        final int imageType = header.imageType;
+        final ByteBuffer pixels = rgbOrder ? swapRB() : data;
+        ByteBuffer body = pixels;
+        if (rle) {
+            switch (imageType) {
+            case Header.UTRUECOLOR:
+                header.imageType = Header.TRUECOLOR;
+                break;
+            case Header.UBLACKWHITE:
+                header.imageType = Header.BLACKWHITE;
+                break;
+            default:
+                throw new IOException("TGA RLE encoding not supported for image type "+imageType);
+            }
+            body = encodeRLE(pixels);
+        }
         FileOutputStream stream = new FileOutputStream(file);
-        FileChannel chan = stream.getChannel();
-        ByteBuffer buf = ByteBuffer.allocate(header.size());
-        buf.order(ByteOrder.LITTLE_ENDIAN);
-        header.write(buf);
-        buf.rewind();
-        chan.write(buf);
-        chan.write(data);
-        data.rewind();
-        chan.force(true);
-        chan.close();
-        stream.close();
+        try {
+            FileChannel chan = stream.getChannel();
+            ByteBuffer buf = ByteBuffer.allocate(header.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            header.write(buf);
+            buf.rewind();
+            chan.write(buf);
+            chan.write(body);
+            body.rewind();
+            chan.force(true);
+            chan.close();
+        } finally {
+            header.imageType = imageType;
+            stream.close();
+        }
+    }
+
+    /**
+     * Run length encodes the image data. Packets never span
+     * scanlines, as recommended by the TGA 2.0 specification.
+     * Runs of two or more equal pixels become run-length packets,
+     * everything else is emitted as raw packets.
+     */
+    private ByteBuffer encodeRLE(ByteBuffer data) {
+        final int width = header.width();
+        final int height = header.height();
+        final int pbytes = ( ( header.pixelDepth() & 0xff ) + 7 ) / 8;
+        final int rowBytes = width * pbytes;
+        final int base = data.position();
+        // worst case: all raw packets, one header byte per 128 pixels
+        final ByteBuffer out = ByteBuffer.allocate(height * ( rowBytes + ( width + 127 ) / 128 ));
+        final byte[] in = new byte[rowBytes];
+
+        for (int y = 0; y < height; y++) {
+            data.position(base + y * rowBytes);
+            data.get(in, 0, rowBytes);
+            int x = 0;
+            while (x < width) {
+                int run = 1;
+                while (x + run < width && run < 128 && samePixel(in, x, x + run, pbytes)) {
+                    run++;
+                }
+                if (run > 1) {
+                    out.put((byte) ( 0x80 | ( run - 1 ) ));
+                    out.put(in, x * pbytes, pbytes);
+                    x += run;
+                } else {
+                    final int start = x;
+                    int n = 0;
+                    while (x < width && n < 128) {
+                        if (x + 1 < width && samePixel(in, x, x + 1, pbytes)) {
+                            break; // leave the run to the next packet
+                        }
+                        x++;
+                        n++;
+                    }
+                    out.put((byte) ( n - 1 ));
+                    out.put(in, start * pbytes, n * pbytes);
+                }
+            }
+        }
+        data.position(base);
+        out.flip();
+        return out;
+    }
+
+    /** Returns a copy of the image data with the red and blue channels swapped. */
+    private ByteBuffer swapRB() {
+        final int base = data.position();
+        final byte[] pixels = new byte[data.remaining()];
+        data.get(pixels);
+        data.position(base);
+        for (int i = 0; i + 2 < pixels.length; i += bpp) {
+            final byte t = pixels[i];
+            pixels[i] = pixels[i + 2];
+            pixels[i + 2] = t;
+        }
+        return ByteBuffer.wrap(pixels);
+    }
+
+    private static boolean samePixel(byte[] in, int a, int b, int pbytes) {
+        a *= pbytes;
+        b *= pbytes;
+        for (int c = 0; c < pbytes; c++) {
+            if (in[a + c] != in[b + c]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /** Creates a TGAImage from data supplied by the end user. Shares
@@ -75,11 +75,17 @@ public abstract class GLContext {
   public final static boolean DEBUG_GL;
   /** Reflects property jogl.debug.TraceGL. If true, the trace pipeline is enabled at context creation. */
   public final static boolean TRACE_GL;
+  /** Reflects property jogl.debug.ProfileGL. If true, the profile pipeline is enabled at context creation, see {@link com.jogamp.opengl.GLCallProfiler}. */
+  public final static boolean PROFILE_GL;
+  /** Reflects property jogl.debug.StateCacheGL. If true, the state cache pipeline is enabled at context creation, see {@link com.jogamp.opengl.GLStateCache}. */
+  public final static boolean STATE_CACHE_GL;
   
   static { 
       final AccessControlContext acl = AccessController.getContext();
       DEBUG_GL = Debug.isPropertyDefined("jogl.debug.DebugGL", true, acl);
       TRACE_GL = Debug.isPropertyDefined("jogl.debug.TraceGL", true, acl);
+      PROFILE_GL = Debug.isPropertyDefined("jogl.debug.ProfileGL", true, acl);
+      STATE_CACHE_GL = Debug.isPropertyDefined("jogl.debug.StateCacheGL", true, acl);
       TRACE_SWITCH = Debug.isPropertyDefined("jogl.debug.GLContext.TraceSwitch", true, acl);
   }
   
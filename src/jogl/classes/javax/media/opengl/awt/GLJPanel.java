@@ -41,6 +41,7 @@
 package javax.media.opengl.awt;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.beans.Beans;
 import java.security.AccessControlContext;
@@ -171,6 +172,11 @@ public class GLJPanel extends JPanel implements AWTGLAutoDrawable, WindowClosing
     Java2D.isOGLPipelineActive() &&
     !Debug.isPropertyDefined("jogl.gljpanel.noogl", true, localACC);
 
+  // Number of pixel pack buffer objects used round-robin by the
+  // read back backends, see setPBOReadbackCount(int)
+  private volatile int pboReadbackCount =
+    Debug.getIntProperty("jogl.gljpanel.pbo", true, localACC);
+
   // For handling reshape events lazily
   // private int reshapeX;
   // private int reshapeY;
@@ -429,6 +435,40 @@ public void reshape(int x, int y, int width, int height) {
     super.setOpaque(opaque);
   }
 
+  /**
+   * Sets the number of pixel buffer objects used round-robin for
+   * reading back the frame buffer in the pbuffer and software backends.
+   * <p>
+   * With a count of 2 or more, each frame's <code>glReadPixels</code> targets
+   * the next pixel pack buffer and returns without waiting for the GPU,
+   * while the oldest pending buffer is mapped and copied, vertically flipped
+   * if required, directly into the raster of the offscreen image.
+   * Hence read back of frame N overlaps rendering of frame N+1,
+   * at the price of <code>count-1</code> frames of latency.
+   * </p>
+   * <p>
+   * A count below 2 disables this mode, which is the default
+   * unless the property <code>jogl.gljpanel.pbo</code> is set.
+   * The synchronous read back is also used if pixel buffer objects
+   * are not available or fail.
+   * </p>
+   * <p>
+   * This setting has no effect if the Java2D / OpenGL pipeline is in use.
+   * </p>
+   */
+  public void setPBOReadbackCount(int count) {
+    pboReadbackCount = count;
+  }
+
+  /**
+   * @return the number of pixel buffer objects used for read back,
+   *         a value below 2 means synchronous read back.
+   * @see #setPBOReadbackCount(int)
+   */
+  public int getPBOReadbackCount() {
+    return pboReadbackCount;
+  }
+
   public void addGLEventListener(GLEventListener listener) {
     drawableHelper.addGLEventListener(listener);
   }
@@ -806,9 +846,11 @@ public void reshape(int x, int y, int width, int height) {
     // This image is exactly the correct size to render into the panel
     protected BufferedImage         offscreenImage;
     // One of these is used to store the read back pixels before storing
-    // in the BufferedImage
+    // in the BufferedImage. readBackInts is only allocated by the
+    // synchronous read back, pixel pack buffers copy into the raster directly.
     protected ByteBuffer            readBackBytes;
     protected IntBuffer             readBackInts;
+    private boolean                 readBackToInts;
     protected int                   readBackWidthInPixels;
     protected int                   readBackHeightInPixels;
 
@@ -821,6 +863,19 @@ public void reshape(int x, int y, int width, int height) {
     private int[] skiprows     = new int[1];
     private int[] skippixels   = new int[1];
     private int[] alignment    = new int[1];
+    private int[] packbuffer   = new int[1];
+
+    // Pixel pack buffer objects used round-robin for asynchronous
+    // read back, valid for pboContext only
+    private int[]     pbos;
+    private GLContext pboContext;
+    private int       pboSize;
+    // Index of the buffer receiving the next read back
+    private int       pboIdx;
+    // Number of buffers holding a pending read back, not copied yet
+    private int       pboFilled;
+    // Set if pixel buffer objects are not available or failed
+    private boolean   pboDisabled;
 
     public void setOpaque(boolean opaque) {
       if (opaque != isOpaque()) {
@@ -866,13 +921,17 @@ public void reshape(int x, int y, int width, int height) {
               glFormat = GL2.GL_BGR;
               glType   = GL2.GL_UNSIGNED_BYTE;
               readBackBytes = ByteBuffer.allocate(readBackWidthInPixels * readBackHeightInPixels * 3);
+              readBackInts  = null;
+              readBackToInts = false;
               break;
 
             case BufferedImage.TYPE_INT_RGB:
             case BufferedImage.TYPE_INT_ARGB:
               glFormat = GL2.GL_BGRA;
               glType   = getGLPixelType();
-              readBackInts = IntBuffer.allocate(readBackWidthInPixels * readBackHeightInPixels);
+              readBackBytes = null;
+              readBackInts  = null; // allocated on demand, see below
+              readBackToInts = true;
               break;
 
             default:
@@ -893,6 +952,14 @@ public void reshape(int x, int y, int width, int height) {
           gl.glGetIntegerv(GL2.GL_PACK_SKIP_ROWS,     skiprows, 0);
           gl.glGetIntegerv(GL2.GL_PACK_SKIP_PIXELS,   skippixels, 0);
           gl.glGetIntegerv(GL2.GL_PACK_ALIGNMENT,     alignment, 0);
+          if (pbos != null || usePBOs(gl)) {
+            gl.glGetIntegerv(GL2.GL_PIXEL_PACK_BUFFER_BINDING, packbuffer, 0);
+            if (packbuffer[0] != 0) {
+              gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+            }
+          } else {
+            packbuffer[0] = 0;
+          }
 
           gl.glPixelStorei(GL2.GL_PACK_SWAP_BYTES,    GL.GL_FALSE);
           gl.glPixelStorei(GL2.GL_PACK_ROW_LENGTH,    readBackWidthInPixels);
@@ -902,10 +969,21 @@ public void reshape(int x, int y, int width, int height) {
 
           // Actually read the pixels.
           gl.glReadBuffer(GL2.GL_FRONT);
-          if (readBackBytes != null) {
-            gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackBytes);
-          } else if (readBackInts != null) {
-            gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackInts);
+          boolean readBackDone = false;
+          if (readBackToInts && usePBOs(gl)) {
+            readBackDone = readPixelsPBO(gl);
+          } else {
+            disposePBOs(gl);
+          }
+          if (!readBackDone) {
+            if (readBackToInts && readBackInts == null) {
+              readBackInts = IntBuffer.allocate(readBackWidthInPixels * readBackHeightInPixels);
+            }
+            if (readBackBytes != null) {
+              gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackBytes);
+            } else if (readBackInts != null) {
+              gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, readBackInts);
+            }
           }
 
           // Restore saved modes.
@@ -914,8 +992,11 @@ public void reshape(int x, int y, int width, int height) {
           gl.glPixelStorei(GL2.GL_PACK_SKIP_ROWS,   skiprows[0]);
           gl.glPixelStorei(GL2.GL_PACK_SKIP_PIXELS, skippixels[0]);
           gl.glPixelStorei(GL2.GL_PACK_ALIGNMENT,   alignment[0]);
+          if (packbuffer[0] != 0) {
+            gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, packbuffer[0]);
+          }
 
-          if (readBackBytes != null || readBackInts != null) {
+          if (!readBackDone && (readBackBytes != null || readBackInts != null)) {
             // Copy temporary data into raster of BufferedImage for faster
             // blitting Note that we could avoid this copy in the cases
             // where !offscreenContext.offscreenImageNeedsVerticalFlip(),
@@ -959,6 +1040,126 @@ public void reshape(int x, int y, int width, int height) {
       }
     }
 
+    private boolean usePBOs(GL gl) {
+      return !pboDisabled && pboReadbackCount >= 2 &&
+             gl.isFunctionAvailable("glMapBuffer") &&
+             ( gl.isExtensionAvailable("GL_VERSION_2_1") ||
+               gl.isExtensionAvailable("GL_ARB_pixel_buffer_object") ||
+               gl.isExtensionAvailable("GL_EXT_pixel_buffer_object") );
+    }
+
+    /**
+     * Issues the read back of the current frame into the next pixel pack buffer
+     * and copies the oldest pending one into the offscreen image.
+     * Pixel pack buffers are (re)created if the context, size or count changed.
+     *
+     * @return false if pixel buffer objects failed, in which case they are disabled
+     *         and the caller shall perform a synchronous read back.
+     */
+    private boolean readPixelsPBO(GL2 gl) {
+      final int count = Math.max(2, pboReadbackCount);
+      final int size  = readBackWidthInPixels * readBackHeightInPixels * 4;
+      if (pbos != null && (pboContext != gl.getContext() || pbos.length != count || pboSize != size)) {
+        disposePBOs(gl);
+      }
+      final boolean created = pbos == null;
+      if (created) {
+        pbos = new int[count];
+        gl.glGenBuffers(count, pbos, 0);
+        pboContext = gl.getContext();
+        pboSize    = size;
+        pboIdx     = 0;
+        pboFilled  = 0;
+        // Validate the storage explicitly instead of querying glGetError,
+        // which would consume, or report, errors caused by the application
+        final int[] bufferSize = new int[1];
+        for (int i = 0; i < count; i++) {
+          gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[i]);
+          gl.glBufferData(GL2.GL_PIXEL_PACK_BUFFER, size, null, GL2.GL_STREAM_READ);
+          bufferSize[0] = 0;
+          gl.glGetBufferParameteriv(GL2.GL_PIXEL_PACK_BUFFER, GL.GL_BUFFER_SIZE, bufferSize, 0);
+          if (pbos[i] == 0 || bufferSize[0] != size) {
+            return disablePBOs(gl);
+          }
+        }
+        if (DEBUG) {
+          System.err.println("GLJPanel: Using "+count+" pixel buffer objects of "+size+" bytes for read back");
+        }
+      }
+
+      // Asynchronous read back of this frame
+      gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[pboIdx]);
+      gl.glReadPixels(0, 0, readBackWidthInPixels, readBackHeightInPixels, glFormat, glType, 0L);
+      pboFilled++;
+      final int readIdx;
+      if (created) {
+        // First frame after (re)creation, wait for it so the image is not left blank
+        readIdx = pboIdx;
+      } else if (pboFilled == count) {
+        // All buffers pending, the one following this frame's is the oldest
+        readIdx = (pboIdx + 1) % count;
+      } else {
+        // Warming up, only buffers holding a pending read back are copied
+        readIdx = -1;
+      }
+      if (readIdx >= 0) {
+        pboFilled--;
+      }
+      pboIdx = (pboIdx + 1) % count;
+
+      boolean res = true;
+      if (readIdx >= 0) {
+        gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, pbos[readIdx]);
+        final ByteBuffer mapped = gl.glMapBuffer(GL2.GL_PIXEL_PACK_BUFFER, GL2.GL_READ_ONLY);
+        if (mapped != null) {
+          copyToImage(mapped.order(ByteOrder.nativeOrder()).asIntBuffer());
+          res = gl.glUnmapBuffer(GL2.GL_PIXEL_PACK_BUFFER);
+        } else {
+          res = false;
+        }
+      }
+      gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+      return res ? true : disablePBOs(gl);
+    }
+
+    /** Copies the read back pixels in one pass into the raster of the offscreen image, flipping rows if required. */
+    private void copyToImage(IntBuffer src) {
+      final int[] dest = ((DataBufferInt) offscreenImage.getRaster().getDataBuffer()).getData();
+      final int destIncr = offscreenImage.getWidth();
+      final int height   = offscreenImage.getHeight();
+      final boolean flip = flipVertically();
+      for (int row = 0; row < height; row++) {
+        final int destRow = flip ? height - 1 - row : row;
+        src.position(row * readBackWidthInPixels);
+        src.get(dest, destRow * destIncr, destIncr);
+      }
+    }
+
+    private boolean disablePBOs(GL gl) {
+      if (DEBUG) {
+        System.err.println("Info: GLJPanel: Falling back on synchronous read back because of problems with pixel buffer objects");
+      }
+      gl.glBindBuffer(GL2.GL_PIXEL_PACK_BUFFER, 0);
+      disposePBOs(gl);
+      pboDisabled = true;
+      return false;
+    }
+
+    /**
+     * Deletes the pixel pack buffers if they belong to the current context,
+     * otherwise they have been released along with their context.
+     */
+    private void disposePBOs(GL gl) {
+      if (pbos != null) {
+        if (pboContext == gl.getContext()) {
+          gl.glDeleteBuffers(pbos.length, pbos, 0);
+        }
+        pbos       = null;
+        pboContext = null;
+        pboFilled  = 0;
+      }
+    }
+
     public void doPaintComponent(Graphics g) {
       doPaintComponentImpl();
       if (offscreenImage != null) {
@@ -27,15 +27,21 @@
  */
 package jogamp.graph.curve.opengl;
 
+import java.util.HashMap;
+import java.util.Iterator;
+
 import javax.media.opengl.GL2ES2;
 import javax.media.opengl.GLException;
 
 import jogamp.graph.curve.opengl.shader.AttributeNames;
+import jogamp.graph.curve.text.GlyphAtlas;
 import jogamp.graph.curve.text.GlyphString;
 
+import com.jogamp.graph.curve.Region;
 import com.jogamp.graph.curve.opengl.RenderState;
 import com.jogamp.graph.curve.opengl.TextRenderer;
 import com.jogamp.graph.font.Font;
+import com.jogamp.opengl.util.GLArrayDataServer;
 import com.jogamp.opengl.util.glsl.ShaderCode;
 import com.jogamp.opengl.util.glsl.ShaderProgram;
 import com.jogamp.opengl.util.glsl.ShaderState;
@@ -77,6 +83,18 @@ public class TextRendererImpl01 extends TextRenderer {
     @Override
     protected void destroyImpl(GL2ES2 gl) {
         super.destroyImpl(gl);
+        final ShaderState st = rs.getShaderState();
+        if(null != batchVertices) {
+            st.ownAttribute(batchVertices, false);
+            batchVertices.destroy(gl);
+            batchVertices = null;
+        }
+        if(null != batchTexCoords) {
+            st.ownAttribute(batchTexCoords, false);
+            batchTexCoords.destroy(gl);
+            batchTexCoords = null;
+        }
+        glyphQueues.clear();
     }
     
     @Override
@@ -85,12 +103,78 @@ public class TextRendererImpl01 extends TextRenderer {
             throw new GLException("TextRendererImpl01: not initialized!");
         }
         GlyphString glyphString = getCachedGlyphString(font, str, fontSize);
-        if(null == glyphString) {
+        if(null != glyphString) {
+            glyphString.renderString3D(gl, rs, vp_width, vp_height, texSize);
+        } else {
             glyphString = createString(gl, font, fontSize, str);
-            addCachedGlyphString(gl, font, str, fontSize, glyphString);
+            // render 1st, so the cache can account the VBO size
+            glyphString.renderString3D(gl, rs, vp_width, vp_height, texSize);
+            if( !addCachedGlyphString(gl, font, str, fontSize, glyphString) ) {
+                glyphString.destroy(gl, rs);
+            }
+        }
+    }
+
+    @Override
+    public void addString3D(GL2ES2 gl, Font font, String str, float[] position, int fontSize) {
+        if(!isInitialized()){
+            throw new GLException("TextRendererImpl01: not initialized!");
+        }
+        if(Region.isVBAA(renderModes)) {
+            throw new GLException("TextRendererImpl01: batched rendering requires single pass rendering");
+        }
+        GlyphAtlas.Instances queue = glyphQueues.get(font);
+        if(null == queue) {
+            // one atlas per font, triangulating each glyph once 
+            queue = new GlyphAtlas.Instances(new GlyphAtlas(font, rs.getVertexFactory()));
+            glyphQueues.put(font, queue);
+        }
+        if(null != position) {
+            queue.getAtlas().layout(str, fontSize, position[0], position[1], position[2], queue);
+        } else {
+            queue.getAtlas().layout(str, fontSize, 0f, 0f, 0f, queue);
         }
-        
-        glyphString.renderString3D(gl, rs, vp_width, vp_height, texSize);
     }
+
+    @Override
+    public void flushStrings3D(GL2ES2 gl) {
+        if(!isInitialized()){
+            throw new GLException("TextRendererImpl01: not initialized!");
+        }
+        if(null == batchVertices) {
+            final int initialSize = 1024;
+            final ShaderState st = rs.getShaderState();
+            batchVertices = GLArrayDataServer.createGLSL(AttributeNames.VERTEX_ATTR_NAME, 3, GL2ES2.GL_FLOAT, 
+                    false, initialSize, GL2ES2.GL_STREAM_DRAW);
+            st.ownAttribute(batchVertices, true);
+            batchTexCoords = GLArrayDataServer.createGLSL(AttributeNames.TEXCOORD_ATTR_NAME, 2, GL2ES2.GL_FLOAT, 
+                    false, initialSize, GL2ES2.GL_STREAM_DRAW);
+            st.ownAttribute(batchTexCoords, true);
+        }
+
+        // expand the glyph instances of all fonts into one vertex stream
+        batchVertices.seal(gl, false);
+        batchVertices.rewind();
+        batchTexCoords.seal(gl, false);
+        batchTexCoords.rewind();
+        int count = 0;
+        for(Iterator<GlyphAtlas.Instances> iter = glyphQueues.values().iterator(); iter.hasNext(); ) {
+            final GlyphAtlas.Instances queue = iter.next();
+            count += queue.getAtlas().expand(queue, batchVertices, batchTexCoords);
+            queue.clear();
+        }
+        batchVertices.seal(gl, true);
+        batchTexCoords.seal(gl, true);
+
+        if(0 < count) {
+            gl.glDrawArrays(GL2ES2.GL_TRIANGLES, 0, count);
+        }
+        batchVertices.enableBuffer(gl, false);
+        batchTexCoords.enableBuffer(gl, false);
+    }
+
+    private final HashMap<Font, GlyphAtlas.Instances> glyphQueues = new HashMap<Font, GlyphAtlas.Instances>();
+    private GLArrayDataServer batchVertices = null;
+    private GLArrayDataServer batchTexCoords = null;
     
 }
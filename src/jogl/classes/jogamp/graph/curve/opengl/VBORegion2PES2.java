@@ -285,6 +285,17 @@ public class VBORegion2PES2  extends GLRegion {
         indicesTxt.enableBuffer(gl, false);        
     }
     
+    public int getSizeInBytes() {
+        int bytes = 0;
+        if(null != indicesTxt) {
+            bytes += indicesTxt.getSizeInBytes() + verticeTxtAttr.getSizeInBytes() + texCoordTxtAttr.getSizeInBytes();
+        }
+        if(null != indicesFbo) {
+            bytes += indicesFbo.getSizeInBytes() + verticeFboAttr.getSizeInBytes() + texCoordFboAttr.getSizeInBytes();
+        }
+        return bytes;
+    }
+    
     public void destroy(GL2ES2 gl, RenderState rs) {
         if(DEBUG_INSTANCE) {
             System.err.println("VBORegion2PES2 Destroy: " + this);
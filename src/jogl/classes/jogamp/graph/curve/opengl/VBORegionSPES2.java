@@ -137,6 +137,13 @@ public class VBORegionSPES2 extends GLRegion {
         indices.enableBuffer(gl, false);
     }    
 
+    public final int getSizeInBytes() {
+        if(null == indices) {
+            return 0;
+        }
+        return indices.getSizeInBytes() + verticeAttr.getSizeInBytes() + texCoordAttr.getSizeInBytes();
+    }
+
     public final void destroy(GL2ES2 gl, RenderState rs) {
         if(DEBUG_INSTANCE) {
             System.err.println("VBORegionSPES2 Destroy: " + this);
@@ -0,0 +1,271 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.curve.text;
+
+import java.util.ArrayList;
+
+import jogamp.graph.font.FontInt;
+
+import com.jogamp.common.util.IntObjectHashMap;
+import com.jogamp.graph.curve.OutlineShape;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.geom.Triangle;
+import com.jogamp.graph.geom.Vertex;
+import com.jogamp.graph.geom.Vertex.Factory;
+import com.jogamp.opengl.util.GLArrayDataEditable;
+
+/**
+ * Triangulated glyphs of one {@link Font}, shared by all strings rendered with it.
+ * <p>
+ * Each glyph is triangulated only once, unscaled in font units, 
+ * and stored as unindexed triangle vertices of {@link #VERTEX_COMPONENTS} floats,
+ * x, y, z and the curve texture coordinates s, t.
+ * A string is laid out to a compact list of {@link Instances}, 
+ * i.e. glyph, position and scale, which is expanded to the vertex stream
+ * of all queued strings at once, see {@link #expand(Instances, GLArrayDataEditable, GLArrayDataEditable)}.
+ * </p>
+ * <p>
+ * The vertices produce the same single pass curve rendering as {@link GlyphString}'s region,
+ * since the curve texture coordinates are invariant to scale and translation.
+ * </p>
+ */
+public class GlyphAtlas {
+    /** Components per vertex in {@link #getVertexData()}: x, y, z, s, t */
+    public static final int VERTEX_COMPONENTS = 5;
+
+    private final FontInt font;
+    private final Factory<? extends Vertex> vertexFactory;
+    private final IntObjectHashMap char2Glyph = new IntObjectHashMap();
+
+    private float[] vertexData = new float[256 * VERTEX_COMPONENTS];
+    private int vertexCount = 0;
+    private int[] glyphFirst = new int[64];
+    private int[] glyphCount = new int[64];
+    private int glyphNum = 0;
+
+    /** Atlas entry of one glyph */
+    static class Entry {
+        final int index;
+        final float advance; // in font units
+
+        Entry(int index, float advance) {
+            this.index = index;
+            this.advance = advance;
+        }
+    }
+
+    /**
+     * A compact instance stream of glyphs of one {@link GlyphAtlas},
+     * i.e. glyph index, x, y, z and scale per instance.
+     */
+    public static class Instances {
+        private final GlyphAtlas atlas;
+        private int[] glyphs = new int[64];
+        private float[] transforms = new float[64*4];
+        private int size = 0;
+        private int vertexCount = 0;
+
+        public Instances(GlyphAtlas atlas) {
+            this.atlas = atlas;
+        }
+
+        public final GlyphAtlas getAtlas() { return atlas; }
+
+        /** @return the number of glyph instances */
+        public final int size() { return size; }
+
+        /** @return the number of vertices of all glyph instances */
+        public final int getVertexCount() { return vertexCount; }
+
+        public final void clear() {
+            size = 0;
+            vertexCount = 0;
+        }
+
+        final void add(int glyph, float x, float y, float z, float scale) {
+            if( size == glyphs.length ) {
+                final int[] newGlyphs = new int[size * 2];
+                System.arraycopy(glyphs, 0, newGlyphs, 0, size);
+                glyphs = newGlyphs;
+                final float[] newTransforms = new float[size * 2 * 4];
+                System.arraycopy(transforms, 0, newTransforms, 0, size * 4);
+                transforms = newTransforms;
+            }
+            glyphs[size] = glyph;
+            final int i = size * 4;
+            transforms[i+0] = x;
+            transforms[i+1] = y;
+            transforms[i+2] = z;
+            transforms[i+3] = scale;
+            size++;
+            vertexCount += atlas.glyphCount[glyph];
+        }
+    }
+
+    /**
+     * @param font the font of the glyphs
+     * @param vertexFactory vertex impl factory used for triangulation
+     */
+    public GlyphAtlas(Font font, Factory<? extends Vertex> vertexFactory) {
+        this.font = (FontInt) font;
+        this.vertexFactory = vertexFactory;
+    }
+
+    public final Font getFont() { return font; }
+
+    /** @return the number of triangulated glyphs */
+    public final int getGlyphCount() { return glyphNum; }
+
+    /** @return the number of vertices of all triangulated glyphs */
+    public final int getVertexCount() { return vertexCount; }
+
+    /** @return the vertices of all triangulated glyphs, see {@link #VERTEX_COMPONENTS} */
+    public final float[] getVertexData() { return vertexData; }
+
+    /**
+     * Returns the atlas entry of the given symbol, triangulating its glyph if not done yet.
+     */
+    final Entry getEntry(char symbol) {
+        Entry e = (Entry) char2Glyph.get(symbol);
+        if(null == e) {
+            final FontInt.Glyph glyph = (FontInt.Glyph) font.getGlyph(symbol);
+            final float refSize = 1000f;
+            final float advance = glyph.getAdvance(refSize, true) / font.getMetrics().getScale(refSize);
+            e = new Entry(addGlyph(glyph), advance);
+            char2Glyph.put(symbol, e);
+        }
+        return e;
+    }
+
+    private int addGlyph(FontInt.Glyph glyph) {
+        final int first = vertexCount;
+        if(' ' != glyph.getSymbol()) {
+            final OutlineShape shape = font.getOutlineShape(glyph, vertexFactory);
+            final GlyphShape glyphShape = new GlyphShape(vertexFactory, shape);
+            if(glyphShape.getNumVertices() >= 3) {
+                final ArrayList<Triangle> triangles = glyphShape.triangulate();
+                for(int i=0; i<triangles.size(); i++) {
+                    final Vertex[] t = triangles.get(i).getVertices();
+                    addVertex(t[0]);
+                    addVertex(t[1]);
+                    addVertex(t[2]);
+                }
+            }
+        }
+        if( glyphNum == glyphFirst.length ) {
+            final int[] newFirst = new int[glyphNum * 2];
+            System.arraycopy(glyphFirst, 0, newFirst, 0, glyphNum);
+            glyphFirst = newFirst;
+            final int[] newCount = new int[glyphNum * 2];
+            System.arraycopy(glyphCount, 0, newCount, 0, glyphNum);
+            glyphCount = newCount;
+        }
+        glyphFirst[glyphNum] = first;
+        glyphCount[glyphNum] = vertexCount - first;
+        return glyphNum++;
+    }
+
+    private void addVertex(Vertex v) {
+        if( ( vertexCount + 1 ) * VERTEX_COMPONENTS > vertexData.length ) {
+            final float[] newData = new float[vertexData.length * 2];
+            System.arraycopy(vertexData, 0, newData, 0, vertexCount * VERTEX_COMPONENTS);
+            vertexData = newData;
+        }
+        final float[] tex = v.getTexCoord();
+        final int i = vertexCount * VERTEX_COMPONENTS;
+        vertexData[i+0] = v.getX();
+        vertexData[i+1] = v.getY();
+        vertexData[i+2] = v.getZ();
+        vertexData[i+3] = tex[0];
+        vertexData[i+4] = tex[1];
+        vertexCount++;
+    }
+
+    /**
+     * Lays out the string like {@link GlyphString#createString(OutlineShape, Factory, Font, int, String)}
+     * and appends its glyph instances.
+     * 
+     * @param str the string
+     * @param pixelSize the font size
+     * @param x x-position of the string's origin
+     * @param y y-position of the string's origin
+     * @param z z-position of the string's origin
+     * @param out the instances of this atlas to append to
+     */
+    public void layout(CharSequence str, float pixelSize, float x, float y, float z, Instances out) {
+        if( this != out.atlas ) {
+            throw new IllegalArgumentException("Instances of another atlas");
+        }
+        final Font.Metrics metrics = font.getMetrics();
+        final float scale = metrics.getScale(pixelSize);
+        final float advanceY = metrics.getLineGap(pixelSize) - metrics.getDescent(pixelSize) + metrics.getAscent(pixelSize);
+        float advanceX = 0;
+        float lineY = 0;
+        final int len = str.length();
+        for(int i=0; i<len; i++) {
+            final char c = str.charAt(i);
+            if( '\n' == c ) {
+                lineY += advanceY;
+                advanceX = 0;
+                continue;
+            }
+            final Entry e = getEntry(c);
+            if( 0 < glyphCount[e.index] ) {
+                out.add(e.index, x + advanceX, y + lineY, z, scale);
+            }
+            advanceX += e.advance * scale;
+        }
+    }
+
+    /**
+     * Appends the vertices of all given glyph instances to the vertex and texture coordinate arrays.
+     * @param in the glyph instances of this atlas
+     * @param vertices destination of 3 component vertices
+     * @param texCoords destination of 2 component texture coordinates
+     * @return the number of appended vertices
+     */
+    public int expand(Instances in, GLArrayDataEditable vertices, GLArrayDataEditable texCoords) {
+        final float[] data = vertexData;
+        final float[] transforms = in.transforms;
+        final int[] glyphs = in.glyphs;
+        for(int j=0; j<in.size; j++) {
+            final int t = j * 4;
+            final float tx = transforms[t+0], ty = transforms[t+1], tz = transforms[t+2], s = transforms[t+3];
+            final int g = glyphs[j];
+            final int end = ( glyphFirst[g] + glyphCount[g] ) * VERTEX_COMPONENTS;
+            for(int i = glyphFirst[g] * VERTEX_COMPONENTS; i < end; i += VERTEX_COMPONENTS) {
+                vertices.putf(data[i+0] * s + tx);
+                vertices.putf(data[i+1] * s + ty);
+                vertices.putf(data[i+2] * s + tz);
+                texCoords.putf(data[i+3]);
+                texCoords.putf(data[i+4]);
+            }
+        }
+        return in.vertexCount;
+    }
+}
@@ -180,6 +180,13 @@ public class GlyphString {
         region.draw(gl, rs, vp_width, vp_height, size);
     }
     
+    /** @return the size in bytes of the OGL buffer objects of the associated Region, 
+     *          0 if not yet generated or rendered.
+     */
+    public int getSizeInBytes() {
+        return null != region ? region.getSizeInBytes() : 0;
+    }
+    
     /** Get the Origin of this GlyphString
      * @return 
      */
@@ -50,4 +50,11 @@ public interface FontInt extends Font {
     }
 
     public ArrayList<OutlineShape> getOutlineShapes(CharSequence string, float pixelSize, Factory<? extends Vertex> vertexFactory);
+
+    /**
+     * @param glyph the glyph of this font
+     * @param vertexFactory vertex impl factory
+     * @return the outline of the unscaled glyph in font units, see {@link Glyph#getPath()}
+     */
+    public OutlineShape getOutlineShape(Glyph glyph, Factory<? extends Vertex> vertexFactory);
 }
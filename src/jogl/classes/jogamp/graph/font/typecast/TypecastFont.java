@@ -219,6 +219,10 @@ class TypecastFont implements FontInt {
     	return TypecastRenderer.getOutlineShapes(this, string, pixelSize, transform, vertexFactory);
     }
 
+    public OutlineShape getOutlineShape(Glyph glyph, Factory<? extends Vertex> vertexFactory) {
+        return TypecastRenderer.getOutlineShape(glyph.getPath(), vertexFactory);
+    }
+
     public float getStringWidth(CharSequence string, float pixelSize) {
         float width = 0;
         final int len = string.length();
@@ -37,18 +37,34 @@ import javax.media.opengl.GLException;
 
 import jogamp.graph.font.FontConstructor;
 import jogamp.graph.font.typecast.ot.OTFontCollection;
+import jogamp.opengl.Debug;
 
 import com.jogamp.common.util.IOUtil;
 import com.jogamp.graph.font.Font;
 
 public class TypecastFontConstructor implements FontConstructor  {
+    /** 
+     * If true, font files are memory mapped and glyph outlines are decoded on demand,
+     * see {@link OTFontCollection#create(File, boolean)}.
+     * Enabled via property <code>jogl.font.lazy</code>.
+     */
+    static final boolean LAZY = Debug.isPropertyDefined("jogl.font.lazy", true, AccessController.getContext());
 
     public Font create(final File ffile) throws IOException {
+        return create(ffile, LAZY);
+    }
+    
+    /**
+     * @param ffile the font file
+     * @param lazy if true, the font file is memory mapped and glyph outlines are decoded on demand, 
+     *             otherwise all glyph outlines are decoded at creation.
+     */
+    public Font create(final File ffile, final boolean lazy) throws IOException {
         return AccessController.doPrivileged(new PrivilegedAction<Font>() {
             public Font run() {
                 OTFontCollection fontset;        
                 try {
-                    fontset = OTFontCollection.create(ffile);
+                    fontset = OTFontCollection.create(ffile, lazy);
                     return new TypecastFont(fontset);
                 } catch (IOException e) {
                     e.printStackTrace();
@@ -72,7 +88,10 @@ public class TypecastFontConstructor implements FontConstructor  {
                         throw new GLException("Font of stream "+furl+" was zero bytes");
                     }
                     f = create(tf);
-                    tf.delete();
+                    if(!tf.delete()) {
+                        // still memory mapped in lazy mode on some platforms
+                        tf.deleteOnExit();
+                    }
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
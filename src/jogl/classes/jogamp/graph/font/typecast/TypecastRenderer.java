@@ -100,18 +100,34 @@ public class TypecastRenderer {
             }
             OutlineShape shape = new OutlineShape(vertexFactory);
             shapes.add(shape);
-            PathIterator iterator = paths[index].iterator(transform);
-            if(null != iterator){
-                while(!iterator.isDone()){
-                    float[] coords = new float[6];
-                    int segmentType = iterator.currentSegment(coords);
-                    addPathVertexToOutline(shape, vertexFactory, coords, segmentType);
-                    iterator.next();
-                }
-            }
+            addPathToOutline(shape, vertexFactory, paths[index].iterator(transform));
         }
         return shapes;
     }
+
+    /**
+     * @param path the glyph path, e.g. the unscaled {@link TypecastGlyph#getPath()}
+     * @param vertexFactory vertex impl factory
+     * @return the {@link OutlineShape} of the path, untransformed
+     */
+    public static OutlineShape getOutlineShape(Path2D path, Factory<? extends Vertex> vertexFactory) {
+        OutlineShape shape = new OutlineShape(vertexFactory);
+        if(null != path) {
+            addPathToOutline(shape, vertexFactory, path.iterator());
+        }
+        return shape;
+    }
+
+    private static void addPathToOutline(OutlineShape shape, Factory<? extends Vertex> vertexFactory, PathIterator iterator) {
+        if(null != iterator){
+            while(!iterator.isDone()){
+                float[] coords = new float[6];
+                int segmentType = iterator.currentSegment(coords);
+                addPathVertexToOutline(shape, vertexFactory, coords, segmentType);
+                iterator.next();
+            }
+        }
+    }
     private static void addPathVertexToOutline(OutlineShape shape, Factory<? extends Vertex> vertexFactory, float[] coords, int segmentType){
         switch(segmentType) {
         case PathIterator.SEG_MOVETO:
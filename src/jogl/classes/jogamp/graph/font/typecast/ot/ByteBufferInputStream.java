@@ -0,0 +1,97 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.graph.font.typecast.ot;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} reading from a {@link ByteBuffer}, e.g. a memory mapped font file,
+ * w/o copying its content.
+ * <p>
+ * The stream operates on a duplicate of the given buffer, hence it does not modify
+ * the buffer's position or mark. {@link #mark(int)} and {@link #reset()} are supported 
+ * for any read limit.
+ * </p>
+ */
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buf;
+    private int mark;
+
+    /**
+     * @param buf the source, read from its current position up to its limit 
+     */
+    public ByteBufferInputStream(ByteBuffer buf) {
+        this.buf = buf.duplicate();
+        this.mark = this.buf.position();
+    }
+
+    public final int available() {
+        return buf.remaining();
+    }
+
+    public final boolean markSupported() {
+        return true;
+    }
+
+    public final void mark(int readlimit) {
+        mark = buf.position();
+    }
+
+    public final void reset() {
+        buf.position(mark);
+    }
+
+    public final long skip(long n) {
+        if( 0 >= n ) {
+            return 0;
+        }
+        final int s = (int) Math.min(n, buf.remaining());
+        buf.position(buf.position() + s);
+        return s;
+    }
+
+    public final int read() {
+        if( !buf.hasRemaining() ) {
+            return -1;
+        }
+        return buf.get() & 0xFF;
+    }
+
+    public final int read(byte[] b, int off, int len) {
+        if( 0 == len ) {
+            return 0;
+        }
+        if( !buf.hasRemaining() ) {
+            return -1;
+        }
+        final int n = Math.min(len, buf.remaining());
+        buf.get(b, off, n);
+        return n;
+    }
+}
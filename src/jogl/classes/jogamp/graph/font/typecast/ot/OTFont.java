@@ -81,6 +81,7 @@ public class OTFont {
 
     private OTFontCollection _fc;
     private TableDirectory _tableDirectory = null;
+    private int _tablesOrigin = 0;
     private Table[] _tables;
     private Os2Table _os2;
     private CmapTable _cmap;
@@ -200,6 +201,13 @@ public class OTFont {
         return _tableDirectory;
     }
     
+    /**
+     * @return The point the table offsets are calculated from within the font file data.
+     */
+    public int getTablesOrigin() {
+        return _tablesOrigin;
+    }
+    
     private Table readTable(
             DataInputStream dis,
             int tablesOrigin,
@@ -229,6 +237,8 @@ public class OTFont {
             int directoryOffset,
             int tablesOrigin) throws IOException {
         
+        _tablesOrigin = tablesOrigin;
+
         // Load the table directory
         dis.reset();
         dis.skip(directoryOffset);
@@ -25,7 +25,10 @@ import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 
 import jogamp.graph.font.typecast.ot.mac.ResourceHeader;
@@ -50,6 +53,7 @@ public class OTFontCollection {
     private OTFont[] _fonts;
     private ArrayList<Table> _tables = new ArrayList<Table>();
     private boolean _resourceFork = false;
+    private ByteBuffer _data = null;
 
     /** Creates new FontCollection */
     protected OTFontCollection() {
@@ -59,8 +63,18 @@ public class OTFontCollection {
      * @param file The OpenType font file
      */
     public static OTFontCollection create(File file) throws IOException {
+        return create(file, false);
+    }
+
+    /**
+     * @param file The OpenType font file
+     * @param lazy if true, the font file is memory mapped and glyph descriptions
+     * are only decoded when requested, see {@link #getFontData()}. 
+     * Otherwise the file is read once and all glyph descriptions are decoded.
+     */
+    public static OTFontCollection create(File file, boolean lazy) throws IOException {
         OTFontCollection fc = new OTFontCollection();
-        fc.read(file);
+        fc.read(file, lazy);
         return fc;
     }
 
@@ -80,6 +94,14 @@ public class OTFontCollection {
         return _fonts.length;
     }
     
+    /**
+     * @return the memory mapped font file if created in lazy mode, otherwise null.
+     * Tables may keep a slice of it and decode their content on demand. 
+     */
+    public ByteBuffer getFontData() {
+        return _data;
+    }
+
     public TTCHeader getTtcHeader() {
         return _ttcHeader;
     }
@@ -102,7 +124,7 @@ public class OTFontCollection {
     /**
      * @param file The OpenType font file
      */
-    protected void read(File file) throws IOException {
+    protected void read(File file, boolean lazy) throws IOException {
         _pathName = file.getPath();
         _fileName = file.getName();
 
@@ -120,9 +142,22 @@ public class OTFontCollection {
             _resourceFork = true;
         }
 
-        DataInputStream dis = new DataInputStream(
-            new BufferedInputStream(
-                new FileInputStream(file), (int) file.length()));
+        DataInputStream dis;
+        if (lazy) {
+            // Map the file, the mapping stays valid after closing the channel
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel fch = raf.getChannel();
+                _data = fch.map(FileChannel.MapMode.READ_ONLY, 0, fch.size());
+            } finally {
+                raf.close();
+            }
+            dis = new DataInputStream(new ByteBufferInputStream(_data));
+        } else {
+            dis = new DataInputStream(
+                new BufferedInputStream(
+                    new FileInputStream(file), (int) file.length()));
+        }
         dis.mark((int) file.length());
 
         if (_resourceFork || _pathName.endsWith(".dfont")) {
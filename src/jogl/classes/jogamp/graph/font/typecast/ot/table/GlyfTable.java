@@ -54,6 +54,9 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import jogamp.graph.font.typecast.ot.ByteBufferInputStream;
 
 /**
  * @version $Id: GlyfTable.java,v 1.6 2010-08-10 11:46:30 davidsch Exp $
@@ -63,6 +66,10 @@ public class GlyfTable implements Table {
 
     private DirectoryEntry _de;
     private GlyfDescript[] _descript;
+    
+    /** Lazy mode only: the table data and the glyph offsets, otherwise null */
+    private ByteBuffer _data;
+    private LocaTable _loca;
 
     protected GlyfTable(
             DirectoryEntry de,
@@ -108,13 +115,67 @@ public class GlyfTable implements Table {
         }
     }
 
+    /**
+     * Lazy mode, only keeping a reference to the table data of the
+     * memory mapped font file and the 'loca' offsets. A glyph description
+     * is decoded the first time it is requested via {@link #getDescription(int)}. 
+     * @param de the table's directory entry
+     * @param fontData the complete font file data
+     * @param tablesOrigin the point the table offsets are calculated from within <code>fontData</code>
+     */
+    protected GlyfTable(
+            DirectoryEntry de,
+            ByteBuffer fontData,
+            int tablesOrigin,
+            MaxpTable maxp,
+            LocaTable loca) throws IOException {
+        _de = (DirectoryEntry) de.clone();
+        _descript = new GlyfDescript[maxp.getNumGlyphs()];
+        _loca = loca;
+        
+        final ByteBuffer data = fontData.duplicate();
+        final int start = tablesOrigin + de.getOffset();
+        if (start + de.getLength() > data.capacity()) {
+            throw new IOException("glyf table exceeds font data: "+start+" + "+de.getLength()+" > "+data.capacity());
+        }
+        data.limit(start + de.getLength());
+        data.position(start);
+        _data = data.slice();
+    }
+
     public GlyfDescript getDescription(int i) {
         if (i < _descript.length) {
+            if (null == _descript[i] && null != _data) {
+                _descript[i] = readDescription(i);
+            }
             return _descript[i];
         } else {
             return null;
         }
     }
+    
+    /** Lazy mode: decodes the simple or composite glyph description, null if the glyph has no outline */
+    private GlyfDescript readDescription(int i) {
+        final int offset = _loca.getOffset(i);
+        final int len = _loca.getOffset(i + 1) - offset;
+        if (len <= 0 || offset + len > _data.limit()) {
+            return null;
+        }
+        final ByteBuffer glyph = _data.duplicate();
+        glyph.limit(offset + len);
+        glyph.position(offset);
+        try {
+            DataInputStream dis = new DataInputStream(new ByteBufferInputStream(glyph));
+            short numberOfContours = dis.readShort();
+            if (numberOfContours >= 0) {
+                return new GlyfSimpleDescript(this, i, numberOfContours, dis);
+            } else {
+                return new GlyfCompositeDescript(this, i, dis);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Malformed description of glyph "+i, e);
+        }
+    }
 
     public int getType() {
         return glyf;
@@ -136,7 +136,11 @@ public class TableFactory {
             t = new GaspTable(de, dis);
             break;
         case Table.glyf:
-            t = new GlyfTable(de, dis, font.getMaxpTable(), font.getLocaTable());
+            if (null != fc.getFontData()) {
+                t = new GlyfTable(de, fc.getFontData(), font.getTablesOrigin(), font.getMaxpTable(), font.getLocaTable());
+            } else {
+                t = new GlyfTable(de, dis, font.getMaxpTable(), font.getLocaTable());
+            }
             break;
         case Table.hdmx:
             t = new HdmxTable(de, dis, font.getMaxpTable());
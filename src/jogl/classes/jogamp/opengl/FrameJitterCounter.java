@@ -0,0 +1,115 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.opengl;
+
+/**
+ * Per frame jitter statistics of a paced renderer,
+ * i.e. the deviation of the actual frame start from its scheduled target time.
+ */
+public class FrameJitterCounter {
+    private long frames, skipped;
+    private long jitterSum, jitterMax;
+    private double jitterSqSum;
+
+    /** Creates a reset instance */
+    public FrameJitterCounter() {
+        resetJitterCounter();
+    }
+
+    /**
+     * Shall be called by the pacing renderer before displaying a new frame.
+     * @param target scheduled start time in nanoseconds, see {@link System#nanoTime()}
+     * @param actual actual start time in nanoseconds, see {@link System#nanoTime()}
+     */
+    public final synchronized void tickFrame(long target, long actual) {
+        final long jitter = Math.abs(actual - target);
+        frames++;
+        jitterSum += jitter;
+        jitterSqSum += (double)jitter * (double)jitter;
+        if(jitter > jitterMax) {
+            jitterMax = jitter;
+        }
+    }
+
+    /**
+     * Shall be called by the pacing renderer if scheduled frames were skipped.
+     * @param count number of skipped frames
+     */
+    public final synchronized void tickSkipped(long count) {
+        skipped += count;
+    }
+
+    public final synchronized void resetJitterCounter() {
+        frames = 0;
+        skipped = 0;
+        jitterSum = 0;
+        jitterMax = 0;
+        jitterSqSum = 0;
+    }
+
+    /** @return number of paced frames */
+    public final synchronized long getPacedFrames() {
+        return frames;
+    }
+
+    /** @return number of skipped frames */
+    public final synchronized long getSkippedFrames() {
+        return skipped;
+    }
+
+    /** @return average absolute jitter in nanoseconds */
+    public final synchronized long getAverageJitter() {
+        return 0 < frames ? jitterSum / frames : 0;
+    }
+
+    /** @return maximum absolute jitter in nanoseconds */
+    public final synchronized long getMaxJitter() {
+        return jitterMax;
+    }
+
+    /** @return standard deviation of the absolute jitter in nanoseconds */
+    public final synchronized long getJitterDeviation() {
+        if( 0 == frames ) {
+            return 0;
+        }
+        final double avg = (double)jitterSum / frames;
+        return (long) Math.sqrt( Math.max(0.0, jitterSqSum / frames - avg * avg) );
+    }
+
+    public StringBuilder toString(StringBuilder sb) {
+        if(null==sb) {
+            sb = new StringBuilder();
+        }
+        sb.append("frames "+frames+", skipped "+skipped+", jitter avg "+getAverageJitter()/1000+" us, max "+jitterMax/1000+" us, dev "+getJitterDeviation()/1000+" us");
+        return sb;
+    }
+
+    public String toString() {
+        return toString(null).toString();
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.opengl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Nanosecond precision frame scheduler based on {@link System#nanoTime()}.
+ * <p>
+ * Waiting for a frame parks the thread until shortly before the target time
+ * and spins the remaining time, yielding the CPU.
+ * The spin threshold adapts to the observed park overshoot of the platform.
+ * </p>
+ * <p>
+ * Usage by the single pacing thread:
+ * <pre>
+ *   pacer.reset();
+ *   while( pacer.waitForFrame() ) {
+ *       display();
+ *       pacer.frameDone();
+ *   }
+ * </pre>
+ * </p>
+ */
+public class FramePacer {
+    /**
+     * Fixed rate: frames are scheduled on a fixed time grid.
+     * Grid slots passed while rendering are skipped, i.e. the phase is kept.
+     */
+    public static final int POLICY_FIXED_RATE = 0;
+    /**
+     * Fixed delay: the next frame is scheduled one period after the actual start of the previous frame,
+     * or right after its end if rendering took longer, i.e. delays accumulate as with {@link java.util.Timer#schedule(java.util.TimerTask, long, long)}.
+     */
+    public static final int POLICY_FIXED_DELAY = 1;
+    /**
+     * Adaptive: fixed rate while frames meet the period,
+     * otherwise the schedule restarts at the end of the late frame, i.e. w/o skipping frames.
+     */
+    public static final int POLICY_ADAPTIVE = 2;
+
+    private static final long MIN_SPIN_THRESHOLD = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_SPIN_THRESHOLD = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private final FrameJitterCounter jitterCounter;
+    private volatile long period;
+    private volatile int policy;
+    private volatile boolean canceled = false;
+    private volatile Thread waiter = null;
+    private long spinThreshold = TimeUnit.MILLISECONDS.toNanos(1);
+    private long target; // of the current frame
+    private long start;  // actual start of the current frame
+    private long next;   // target of the next frame
+
+    /**
+     * @param period frame period in nanoseconds
+     * @param policy one of {@link #POLICY_FIXED_RATE}, {@link #POLICY_FIXED_DELAY} or {@link #POLICY_ADAPTIVE}
+     * @param jitterCounter receives the per frame jitter, may be null
+     */
+    public FramePacer(long period, int policy, FrameJitterCounter jitterCounter) {
+        setPeriod(period);
+        setPolicy(policy);
+        this.jitterCounter = jitterCounter;
+    }
+
+    /** @return frame period in nanoseconds for the given frames per second */
+    public static long getPeriod(int fps) {
+        return TimeUnit.SECONDS.toNanos(1) / Math.max(1, fps);
+    }
+
+    public final long getPeriod() {
+        return period;
+    }
+
+    /** @param period frame period in nanoseconds, takes effect with the next frame */
+    public final void setPeriod(long period) {
+        if(0 >= period) {
+            throw new IllegalArgumentException("Invalid period "+period);
+        }
+        this.period = period;
+    }
+
+    public final int getPolicy() {
+        return policy;
+    }
+
+    public final void setPolicy(int policy) {
+        if(!isPolicy(policy)) {
+            throw new IllegalArgumentException("Invalid policy "+policy);
+        }
+        this.policy = policy;
+    }
+
+    /** @return true if <code>policy</code> is one of {@link #POLICY_FIXED_RATE}, {@link #POLICY_FIXED_DELAY} or {@link #POLICY_ADAPTIVE} */
+    public static boolean isPolicy(int policy) {
+        switch(policy) {
+            case POLICY_FIXED_RATE:
+            case POLICY_FIXED_DELAY:
+            case POLICY_ADAPTIVE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** Schedules the first frame immediately and clears a previous {@link #cancel()}. */
+    public final void reset() {
+        canceled = false;
+        next = System.nanoTime();
+    }
+
+    /** Lets a pending and all subsequent {@link #waitForFrame()} calls return <code>false</code> until {@link #reset()}. */
+    public final void cancel() {
+        canceled = true;
+        final Thread t = waiter;
+        if(null != t) {
+            LockSupport.unpark(t);
+        }
+    }
+
+    public final boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * Waits until the next frame is due.
+     * @return true if the frame shall be rendered, false if {@link #cancel() canceled}
+     */
+    public final boolean waitForFrame() {
+        target = next;
+        waiter = Thread.currentThread();
+        try {
+            long remaining;
+            while( !canceled && 0 < ( remaining = target - System.nanoTime() ) ) {
+                if( remaining > spinThreshold ) {
+                    final long sleep = remaining - spinThreshold;
+                    final long t0 = System.nanoTime();
+                    LockSupport.parkNanos(this, sleep);
+                    adaptSpinThreshold( System.nanoTime() - t0 - sleep );
+                } else {
+                    Thread.yield();
+                }
+            }
+        } finally {
+            waiter = null;
+        }
+        if( canceled ) {
+            return false;
+        }
+        start = System.nanoTime();
+        if( null != jitterCounter ) {
+            jitterCounter.tickFrame(target, start);
+        }
+        return true;
+    }
+
+    /** Schedules the next frame according to the policy, shall be called after rendering the frame. */
+    public final void frameDone() {
+        final long end = System.nanoTime();
+        final long p = period;
+        switch(policy) {
+            case POLICY_FIXED_RATE:
+                next = target + p;
+                if( end - next > 0 ) {
+                    // skip missed grid slots, keep the phase
+                    final long missed = ( end - next + p - 1 ) / p;
+                    next += missed * p;
+                    if( null != jitterCounter ) {
+                        jitterCounter.tickSkipped(missed);
+                    }
+                }
+                break;
+            case POLICY_FIXED_DELAY:
+                next = start + p;
+                if( end - next > 0 ) {
+                    next = end;
+                }
+                break;
+            case POLICY_ADAPTIVE:
+                next = target + p;
+                if( end - next > 0 ) {
+                    next = end;
+                }
+                break;
+        }
+    }
+
+    /** Moving average of twice the park overshoot, ignoring early wake-ups, e.g. by {@link #cancel()}. */
+    private void adaptSpinThreshold(long overshoot) {
+        if( 0 <= overshoot ) {
+            final long t = ( 7 * spinThreshold + 2 * overshoot ) / 8;
+            spinThreshold = Math.max(MIN_SPIN_THRESHOLD, Math.min(MAX_SPIN_THRESHOLD, t));
+        }
+    }
+}
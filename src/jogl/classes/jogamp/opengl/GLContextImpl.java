@@ -465,6 +465,10 @@ public abstract class GLContextImpl extends GLContext {
         
         glDebugHandler.init( isGL2GL3() && isGLDebugEnabled() );
 
+        if(STATE_CACHE_GL) {
+            // innermost, the other pipelines see all calls
+            gl = gl.getContext().setGL( GLPipelineFactory.create("javax.media.opengl.StateCache", null, gl, null) );
+        }
         if(DEBUG_GL) {
             gl = gl.getContext().setGL( GLPipelineFactory.create("javax.media.opengl.Debug", null, gl, null) );
             if(glDebugHandler.isEnabled()) {
@@ -474,6 +478,9 @@ public abstract class GLContextImpl extends GLContext {
         if(TRACE_GL) {
             gl = gl.getContext().setGL( GLPipelineFactory.create("javax.media.opengl.Trace", null, gl, new Object[] { System.err } ) );
         }               
+        if(PROFILE_GL) {
+            gl = gl.getContext().setGL( GLPipelineFactory.create("javax.media.opengl.Profile", null, gl, null) );
+        }
         if(TRACE_SWITCH) {
             System.err.println("GLContext.ContextSwitch: - switch - CONTEXT_CURRENT_NEW - "+Thread.currentThread().getName()+" - "+lock);
         }
@@ -51,6 +51,8 @@ import javax.media.opengl.GLEventListener;
 import javax.media.opengl.GLException;
 import javax.media.opengl.GLRunnable;
 
+import jogamp.nativewindow.ListenerArrays;
+
 import com.jogamp.opengl.util.Animator;
 
 /** Encapsulates the implementation of most of the GLAutoDrawable's
@@ -61,9 +63,15 @@ public class GLDrawableHelper {
   private static final boolean PERF_STATS = Debug.isPropertyDefined("jogl.debug.GLDrawable.PerfStats", true);
     
   protected static final boolean DEBUG = GLDrawableImpl.DEBUG;
+  private static final GLEventListener[] EMPTY_LISTENERS = new GLEventListener[0];
+
   private Object listenersLock = new Object();
-  private ArrayList<GLEventListener> listeners;
+  /** Copy-on-write, modified while holding listenersLock, see {@link ListenerArrays}. */
+  private volatile GLEventListener[] listeners;
+  /** Guarded by listenersLock */
   private HashSet<GLEventListener> listenersToBeInit;
+  /** Lock-free hint whether {@link #listenersToBeInit} is not empty, modified while holding listenersLock. */
+  private volatile boolean listenersToBeInitPending;
   private boolean autoSwapBufferMode;
   private Thread skipContextReleaseThread;
   private Object glRunnablesLock = new Object();
@@ -76,8 +84,9 @@ public class GLDrawableHelper {
 
   public final void reset() {
     synchronized(listenersLock) {
-        listeners = new ArrayList<GLEventListener>();
+        listeners = EMPTY_LISTENERS;
         listenersToBeInit = new HashSet<GLEventListener>();
+        listenersToBeInitPending = false;
     }
     autoSwapBufferMode = true;
     skipContextReleaseThread = null;
@@ -92,9 +101,9 @@ public class GLDrawableHelper {
     StringBuilder sb = new StringBuilder();
     sb.append("GLAnimatorControl: "+animatorCtrl+", ");
     synchronized(listenersLock) {
-        sb.append("GLEventListeners num "+listeners.size()+" [");
-        for (int i=0; i < listeners.size(); i++) {
-          Object l = listeners.get(i);
+        sb.append("GLEventListeners num "+listeners.length+" [");
+        for (int i=0; i < listeners.length; i++) {
+          Object l = listeners[i];
           sb.append(l);
           sb.append("[init ");
           sb.append( !listenersToBeInit.contains(l) );
@@ -111,20 +120,20 @@ public class GLDrawableHelper {
 
   public final void addGLEventListener(int index, GLEventListener listener) {
     synchronized(listenersLock) {
-        if(0>index) {
-            index = listeners.size();
-        }
+        final GLEventListener[] _listeners = ListenerArrays.add(listeners, index, listener);
         // GLEventListener may be added after context is created,
         // hence we earmark initialization for the next display call.
         listenersToBeInit.add(listener);
-        listeners.add(index, listener);
+        listenersToBeInitPending = true;
+        listeners = _listeners;
     }
   }
   
   public final void removeGLEventListener(GLEventListener listener) {
     synchronized(listenersLock) {
-        listeners.remove(listener);
+        listeners = ListenerArrays.remove(listeners, listener);
         listenersToBeInit.remove(listener);
+        listenersToBeInitPending = !listenersToBeInit.isEmpty();
     }
   }
 
@@ -138,15 +147,22 @@ public class GLDrawableHelper {
    * @param drawable
    */
   public final void dispose(GLAutoDrawable drawable) {
-    synchronized(listenersLock) {
-        for (int i=0; i < listeners.size(); i++) {
-          listeners.get(i).dispose(drawable);
-        }
+    final GLEventListener[] _listeners = listeners;
+    for (int i=0; i < _listeners.length; i++) {
+      _listeners[i].dispose(drawable);
     }
   }
   
   private boolean init(GLEventListener l, GLAutoDrawable drawable, boolean sendReshape) {
-      if(listenersToBeInit.remove(l)) {
+      if(!listenersToBeInitPending) {
+          return false; // fast path, no lock
+      }
+      final boolean doInit;
+      synchronized(listenersLock) {
+          doInit = listenersToBeInit.remove(l);
+          listenersToBeInitPending = !listenersToBeInit.isEmpty();
+      }
+      if(doInit) {
           l.init(drawable);
           if(sendReshape) {
               reshape(l, drawable, 0, 0, drawable.getWidth(), drawable.getHeight(), true /* setViewport */, false);
@@ -157,19 +173,21 @@ public class GLDrawableHelper {
   }
 
   public final void init(GLAutoDrawable drawable) {
-    synchronized(listenersLock) {
-        for (int i=0; i < listeners.size(); i++) {
-          final GLEventListener listener = listeners.get(i) ;
+    final GLEventListener[] _listeners = listeners;
+    for (int i=0; i < _listeners.length; i++) {
+      final GLEventListener listener = _listeners[i] ;
 
-          // If make current ctx, invoked by invokGL(..), results in a new ctx, init gets called.
-          // This may happen not just for initial setup, but for ctx recreation due to resource change (drawable/window),
-          // hence the must always be initialized unconditional.
+      // If make current ctx, invoked by invokGL(..), results in a new ctx, init gets called.
+      // This may happen not just for initial setup, but for ctx recreation due to resource change (drawable/window),
+      // hence the must always be initialized unconditional.
+      synchronized(listenersLock) {
           listenersToBeInit.add(listener);
+          listenersToBeInitPending = true;
+      }
 
-          if ( ! init( listener, drawable, false ) ) {
-            throw new GLException("GLEventListener "+listener+" already initialized: "+drawable);
-          }
-        }
+      if ( ! init( listener, drawable, false ) ) {
+        throw new GLException("GLEventListener "+listener+" already initialized: "+drawable);
+      }
     }
   }
 
@@ -180,14 +198,14 @@ public class GLDrawableHelper {
     }
   }
   private void displayImpl(GLAutoDrawable drawable) {
-      synchronized(listenersLock) {
-          for (int i=0; i < listeners.size(); i++) {
-            final GLEventListener listener = listeners.get(i) ;
-            // GLEventListener may need to be init, 
-            // in case this one is added after the realization of the GLAutoDrawable
-            init( listener, drawable, true ) ; 
-            listener.display(drawable);
-          }
+      // lock- and allocation-free dispatch on the current snapshot
+      final GLEventListener[] _listeners = listeners;
+      for (int i=0; i < _listeners.length; i++) {
+        final GLEventListener listener = _listeners[i] ;
+        // GLEventListener may need to be init, 
+        // in case this one is added after the realization of the GLAutoDrawable
+        init( listener, drawable, true ) ; 
+        listener.display(drawable);
       }
   }
 
@@ -205,10 +223,9 @@ public class GLDrawableHelper {
   }
 
   public final void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {
-    synchronized(listenersLock) {
-        for (int i=0; i < listeners.size(); i++) {
-          reshape((GLEventListener) listeners.get(i), drawable, x, y, width, height, 0==i, true);
-        }
+    final GLEventListener[] _listeners = listeners;
+    for (int i=0; i < _listeners.length; i++) {
+      reshape(_listeners[i], drawable, x, y, width, height, 0==i, true);
     }
   }
 
@@ -427,7 +444,7 @@ public class GLDrawableHelper {
             if(res == GLContext.CONTEXT_CURRENT_NEW) {
                 throw new GLException(currentThread.getName()+" GLDrawableHelper " + this + ".invokeGL(): Dispose case (no init action given): Native context was not created (new ctx): "+context);
             }
-            if(listeners.size()>0) {
+            if(listeners.length>0) {
                 dispose(disposeAutoDrawable);
             }
         }
@@ -514,7 +531,7 @@ public class GLDrawableHelper {
             if(res == GLContext.CONTEXT_CURRENT_NEW) {
                 throw new GLException(currentThread.getName()+" GLDrawableHelper " + this + ".invokeGL(): Dispose case (no init action given): Native context was not created (new ctx): "+context);
             }
-            if(listeners.size()>0) {
+            if(listeners.length>0) {
                 dispose(disposeAutoDrawable);
             }
         }
@@ -0,0 +1,349 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package jogamp.opengl;
+
+import javax.media.opengl.GL;
+
+import com.jogamp.common.util.IntIntHashMap;
+
+/**
+ * Shadows the OpenGL state filtered by the generated <code>StateCacheGL*</code> pipelines,
+ * see {@link com.jogamp.opengl.GLStateCache}.
+ * <p>
+ * All state starts unknown, since the pipeline may be installed on a context already in use.
+ * The setter methods record the new state and return <code>true</code> if the call shall be
+ * passed downstream, i.e. if the state was unknown or has changed, or if filtering is disabled.</p>
+ * <p>
+ * While a display list is compiled, see {@link #beginList()}, all calls are passed downstream
+ * w/o shadowing, since they are recorded into the list rather than, or in addition to, being executed.</p>
+ */
+public class GLStateShadow {
+  protected static final boolean DEBUG = Debug.debug("GLStateShadow");
+
+  /** Value of unknown state, as used by {@link GLBufferStateTracker} */
+  static final int UNKNOWN = 0xFFFFFFFF;
+
+  /** Buffer binding target -> buffer name */
+  private final IntIntHashMap buffers;
+  /** texture unit &lt;&lt; 16 | texture target -> texture name */
+  private final IntIntHashMap textures;
+  /** capability, or texture unit + 1 &lt;&lt; 16 | capability for texture unit capabilities -> 0 or 1 */
+  private final IntIntHashMap caps;
+
+  private int activeTexture;
+  private int program;
+  private int vertexArray;
+  private int blendSrcRGB, blendDstRGB, blendSrcAlpha, blendDstAlpha;
+  private int blendEqRGB, blendEqAlpha;
+  private int depthFunc;
+  private int depthMask;
+
+  private boolean filtering = true;
+  private boolean compilingList = false;
+  private long tracked;
+  private long redundant;
+
+  public GLStateShadow() {
+    buffers = new IntIntHashMap();
+    buffers.setKeyNotFoundValue(UNKNOWN);
+    textures = new IntIntHashMap();
+    textures.setKeyNotFoundValue(UNKNOWN);
+    caps = new IntIntHashMap();
+    caps.setKeyNotFoundValue(UNKNOWN);
+    invalidate();
+  }
+
+  public final void setFiltering(boolean enable) {
+    filtering = enable;
+  }
+
+  public final boolean isFiltering() {
+    return filtering;
+  }
+
+  public final long getTrackedCallCount() {
+    return tracked;
+  }
+
+  public final long getRedundantCallCount() {
+    return redundant;
+  }
+
+  public final void resetCounters() {
+    tracked = 0;
+    redundant = 0;
+  }
+
+  /** Counts a call changing the state, returns true */
+  private final boolean pass() {
+    tracked++;
+    return true;
+  }
+
+  /** Counts a call not changing the state, returns true if not filtering */
+  private final boolean drop() {
+    tracked++;
+    redundant++;
+    return !filtering;
+  }
+
+  //
+  // Shadowed state, returns true if the call shall be passed downstream
+  //
+
+  public final boolean bindBuffer(int target, int name) {
+    if( compilingList ) {
+      return true;
+    }
+    if( name == buffers.get(target) ) {
+      return drop();
+    }
+    buffers.put(target, name);
+    return pass();
+  }
+
+  public final boolean bindVertexArray(int name) {
+    if( compilingList ) {
+      return true;
+    }
+    if( name == vertexArray ) {
+      return drop();
+    }
+    vertexArray = name;
+    // the element array buffer binding is part of the vertex array object
+    buffers.put(GL.GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+    return pass();
+  }
+
+  public final boolean activeTexture(int texture) {
+    if( compilingList ) {
+      return true;
+    }
+    if( texture == activeTexture ) {
+      return drop();
+    }
+    activeTexture = texture;
+    return pass();
+  }
+
+  public final boolean bindTexture(int target, int name) {
+    if( compilingList ) {
+      return true;
+    }
+    if( UNKNOWN == activeTexture ) {
+      // binding point unknown
+      return pass();
+    }
+    final int key = ( ( activeTexture - GL.GL_TEXTURE0 ) << 16 ) | ( target & 0xFFFF );
+    if( name == textures.get(key) ) {
+      return drop();
+    }
+    textures.put(key, name);
+    return pass();
+  }
+
+  public final boolean useProgram(int name) {
+    if( compilingList ) {
+      return true;
+    }
+    if( name == program ) {
+      return drop();
+    }
+    program = name;
+    return pass();
+  }
+
+  public final boolean enable(int cap, boolean enable) {
+    if( compilingList ) {
+      return true;
+    }
+    int key = cap;
+    if( isTextureUnitCapability(cap) ) {
+      if( UNKNOWN == activeTexture ) {
+        return pass();
+      }
+      key = ( ( activeTexture - GL.GL_TEXTURE0 + 1 ) << 16 ) | cap;
+    }
+    final int v = enable ? 1 : 0;
+    if( v == caps.get(key) ) {
+      return drop();
+    }
+    caps.put(key, v);
+    return pass();
+  }
+
+  /** Returns true for the fixed function capabilities which are set per texture unit. */
+  private static final boolean isTextureUnitCapability(int cap) {
+    switch(cap) {
+      case 0x0DE0: // GL_TEXTURE_1D
+      case 0x0DE1: // GL_TEXTURE_2D
+      case 0x806F: // GL_TEXTURE_3D
+      case 0x8513: // GL_TEXTURE_CUBE_MAP
+      case 0x84F5: // GL_TEXTURE_RECTANGLE
+      case 0x8D65: // GL_TEXTURE_EXTERNAL_OES
+      case 0x0C60: // GL_TEXTURE_GEN_S
+      case 0x0C61: // GL_TEXTURE_GEN_T
+      case 0x0C62: // GL_TEXTURE_GEN_R
+      case 0x0C63: // GL_TEXTURE_GEN_Q
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public final boolean blendFuncSeparate(int srcRGB, int dstRGB, int srcAlpha, int dstAlpha) {
+    if( compilingList ) {
+      return true;
+    }
+    if( srcRGB == blendSrcRGB && dstRGB == blendDstRGB && srcAlpha == blendSrcAlpha && dstAlpha == blendDstAlpha ) {
+      return drop();
+    }
+    blendSrcRGB = srcRGB;
+    blendDstRGB = dstRGB;
+    blendSrcAlpha = srcAlpha;
+    blendDstAlpha = dstAlpha;
+    return pass();
+  }
+
+  public final boolean blendEquationSeparate(int modeRGB, int modeAlpha) {
+    if( compilingList ) {
+      return true;
+    }
+    if( modeRGB == blendEqRGB && modeAlpha == blendEqAlpha ) {
+      return drop();
+    }
+    blendEqRGB = modeRGB;
+    blendEqAlpha = modeAlpha;
+    return pass();
+  }
+
+  public final boolean depthFunc(int func) {
+    if( compilingList ) {
+      return true;
+    }
+    if( func == depthFunc ) {
+      return drop();
+    }
+    depthFunc = func;
+    return pass();
+  }
+
+  public final boolean depthMask(boolean flag) {
+    if( compilingList ) {
+      return true;
+    }
+    final int v = flag ? 1 : 0;
+    if( v == depthMask ) {
+      return drop();
+    }
+    depthMask = v;
+    return pass();
+  }
+
+  //
+  // Invalidation of state modified in ways not shadowed
+  //
+
+  /** Passes all calls w/o shadowing until {@link #endList()}, e.g. after <code>glNewList</code>. */
+  public final void beginList() {
+    compilingList = true;
+    // GL_COMPILE_AND_EXECUTE changes the state as well
+    invalidate();
+  }
+
+  /** Marks all state as unknown and resumes shadowing, e.g. after <code>glEndList</code>. */
+  public final void endList() {
+    compilingList = false;
+    invalidate();
+  }
+
+  /** Marks all state as unknown. */
+  public final void invalidate() {
+    buffers.clear();
+    textures.clear();
+    caps.clear();
+    activeTexture = UNKNOWN;
+    program = UNKNOWN;
+    vertexArray = UNKNOWN;
+    invalidateBlend();
+    depthFunc = UNKNOWN;
+    depthMask = UNKNOWN;
+    if(DEBUG) {
+      System.err.println("GLStateShadow.invalidate()");
+    }
+  }
+
+  /** Marks all buffer bindings as unknown, e.g. after deleting buffers. */
+  public final void invalidateBuffers() {
+    buffers.clear();
+  }
+
+  /** Marks the buffer binding of the given target as unknown, e.g. after <code>glBindBufferBase</code>. */
+  public final void invalidateBuffer(int target) {
+    buffers.put(target, UNKNOWN);
+  }
+
+  /** Marks the vertex array object and element array buffer binding as unknown, e.g. after deleting vertex arrays. */
+  public final void invalidateVertexArray() {
+    vertexArray = UNKNOWN;
+    buffers.put(GL.GL_ELEMENT_ARRAY_BUFFER, UNKNOWN);
+  }
+
+  /** Marks all texture bindings as unknown, e.g. after deleting textures. */
+  public final void invalidateTextures() {
+    textures.clear();
+  }
+
+  public final void invalidateProgram() {
+    program = UNKNOWN;
+  }
+
+  /** Marks the given capability as unknown, e.g. after <code>glEnablei</code>. */
+  public final void invalidateCapability(int cap) {
+    if( isTextureUnitCapability(cap) ) {
+      caps.clear();
+    } else {
+      caps.put(cap, UNKNOWN);
+    }
+  }
+
+  /** Marks the blend function and equation as unknown, e.g. after <code>glBlendFunci</code>. */
+  public final void invalidateBlend() {
+    blendSrcRGB = UNKNOWN;
+    blendDstRGB = UNKNOWN;
+    blendSrcAlpha = UNKNOWN;
+    blendDstAlpha = UNKNOWN;
+    blendEqRGB = UNKNOWN;
+    blendEqAlpha = UNKNOWN;
+  }
+
+  public String toString() {
+    return "GLStateShadow[filtering "+filtering+", tracked calls "+tracked+", redundant "+redundant+"]";
+  }
+}
@@ -0,0 +1,185 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package jogamp.opengl.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import com.jogamp.common.nio.Buffers;
+
+/**
+ * Pool of direct {@link ByteBuffer}s in native byte order, keyed by capacity class,
+ * i.e. the next power of two of the requested size.
+ * <p>
+ * Released buffers are kept for reuse instead of being left to the cleaner,
+ * which frees direct memory only late.
+ * The number of buffers per class and the total pooled bytes are bounded,
+ * buffers exceeding a bound are dropped.
+ * </p>
+ * <p>
+ * A released buffer must no more be referenced by its previous owner.
+ * </p>
+ * <p>
+ * Thread safe.
+ * </p>
+ */
+public class DirectBufferPool {
+    /** Smallest capacity class, {@value} bytes */
+    public static final int MIN_CAPACITY = 1 << 6;
+    /** Largest pooled capacity class, {@value} bytes, larger buffers are allocated exactly and not pooled */
+    public static final int MAX_CAPACITY = 1 << 26;
+
+    private static final int MIN_CLASS = 6;
+    private static final int MAX_CLASS = 26;
+
+    /** Pool shared by all {@link com.jogamp.opengl.util.GLArrayDataClient} instances */
+    public static final DirectBufferPool SHARED = new DirectBufferPool(8, 64 << 20);
+
+    private final int maxPerClass;
+    private final long maxPooledBytes;
+    private final ArrayList<ArrayList<ByteBuffer>> classes;
+    private volatile boolean enabled = true;
+    private long pooledBytes;
+    private long hits, misses, drops;
+
+    /**
+     * @param maxPerClass maximum number of buffers kept per capacity class
+     * @param maxPooledBytes maximum number of bytes kept in total
+     */
+    public DirectBufferPool(int maxPerClass, long maxPooledBytes) {
+        this.maxPerClass = maxPerClass;
+        this.maxPooledBytes = maxPooledBytes;
+        classes = new ArrayList<ArrayList<ByteBuffer>>(MAX_CLASS - MIN_CLASS + 1);
+        for(int i=MIN_CLASS; i<=MAX_CLASS; i++) {
+            classes.add(new ArrayList<ByteBuffer>());
+        }
+    }
+
+    /**
+     * Enables or disables pooling, default is enabled.
+     * Disabling drops all pooled buffers, while {@link #acquire(int)} allocates new ones.
+     */
+    public synchronized void setEnabled(boolean enable) {
+        enabled = enable;
+        if(!enable) {
+            clear();
+        }
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    /** @return the capacity of the class holding at least <code>size</code> bytes, or <code>size</code> if it is not poolable */
+    public static int getCapacityClass(int size) {
+        if(size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        } else if(size > MAX_CAPACITY) {
+            return size;
+        }
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * @param size minimum capacity in bytes
+     * @return a cleared direct buffer in native byte order with a capacity of at least <code>size</code> bytes,
+     *         i.e. {@link #getCapacityClass(int)}
+     */
+    public ByteBuffer acquire(int size) {
+        final int capacity = getCapacityClass(size);
+        if(capacity <= MAX_CAPACITY && enabled) {
+            synchronized(this) {
+                final ArrayList<ByteBuffer> list = classes.get(getClassIndex(capacity));
+                final int n = list.size();
+                if(0 < n) {
+                    final ByteBuffer bb = list.remove(n-1);
+                    pooledBytes -= capacity;
+                    hits++;
+                    bb.clear();
+                    return bb;
+                }
+                misses++;
+            }
+        }
+        return Buffers.newDirectByteBuffer(capacity);
+    }
+
+    /**
+     * Returns the buffer to the pool.
+     *
+     * @return true if the buffer has been pooled, false if it is not poolable or a bound is exceeded
+     */
+    public synchronized boolean release(ByteBuffer bb) {
+        if(null == bb || !enabled || !bb.isDirect()) {
+            return false;
+        }
+        final int capacity = bb.capacity();
+        if(capacity < MIN_CAPACITY || capacity > MAX_CAPACITY || 0 != ( capacity & ( capacity - 1 ) )) {
+            return false;
+        }
+        final ArrayList<ByteBuffer> list = classes.get(getClassIndex(capacity));
+        if(list.size() >= maxPerClass || pooledBytes + capacity > maxPooledBytes) {
+            drops++;
+            return false;
+        }
+        for(int i=list.size()-1; i>=0; i--) {
+            if(list.get(i) == bb) {
+                return true; // released twice
+            }
+        }
+        list.add(bb);
+        pooledBytes += capacity;
+        return true;
+    }
+
+    /** Drops all pooled buffers. */
+    public synchronized void clear() {
+        for(int i=0; i<classes.size(); i++) {
+            classes.get(i).clear();
+        }
+        pooledBytes = 0;
+    }
+
+    public synchronized long getPooledBytes() { return pooledBytes; }
+
+    /** @return number of {@link #acquire(int)} served from the pool */
+    public synchronized long getHits() { return hits; }
+
+    /** @return number of {@link #acquire(int)} of a poolable capacity which had to allocate */
+    public synchronized long getMisses() { return misses; }
+
+    /** @return number of {@link #release(ByteBuffer)} dropped due to the bounds */
+    public synchronized long getDrops() { return drops; }
+
+    private static int getClassIndex(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - MIN_CLASS;
+    }
+
+    public synchronized String toString() {
+        return "DirectBufferPool[pooled "+pooledBytes+" / "+maxPooledBytes+" bytes, hits "+hits+", misses "+misses+", drops "+drops+"]";
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.nativewindow;
+
+import java.lang.reflect.Array;
+
+/**
+ * Copy-on-write utilities for listener arrays.
+ * <p>
+ * A listener array is never modified after publication,
+ * modifications create a new array which shall be assigned to a <code>volatile</code> field
+ * while holding the owner's write lock.
+ * Dispatch simply iterates over a read snapshot of the field, lock- and allocation-free.
+ * </p>
+ */
+public class ListenerArrays {
+
+    /**
+     * @param a the current array
+     * @param index the insertion position, if negative the element is appended
+     * @param l the element to add
+     * @return a new array containing <code>l</code> at <code>index</code>
+     * @throws IndexOutOfBoundsException if <code>index</code> &gt; <code>a.length</code>
+     */
+    public static <T> T[] add(T[] a, int index, T l) throws IndexOutOfBoundsException {
+        final int n = a.length;
+        if(0>index) {
+            index = n;
+        } else if(index>n) {
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+n);
+        }
+        final T[] r = newArray(a, n+1);
+        System.arraycopy(a, 0, r, 0, index);
+        r[index] = l;
+        System.arraycopy(a, index, r, index+1, n-index);
+        return r;
+    }
+
+    /**
+     * @param a the current array
+     * @param l the element to remove, first occurrence using {@link Object#equals(Object)}
+     * @return a new array without <code>l</code>, or <code>a</code> itself if <code>l</code> is not contained
+     */
+    public static <T> T[] remove(T[] a, T l) {
+        final int i = indexOf(a, l);
+        if(0>i) {
+            return a;
+        }
+        final int n = a.length;
+        final T[] r = newArray(a, n-1);
+        System.arraycopy(a, 0, r, 0, i);
+        System.arraycopy(a, i+1, r, i, n-i-1);
+        return r;
+    }
+
+    /**
+     * @return the index of the first element equal to <code>l</code>, or -1 if not contained
+     */
+    public static <T> int indexOf(T[] a, T l) {
+        for(int i=0; i<a.length; i++) {
+            if( null != l ? l.equals(a[i]) : null == a[i] ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T[] newArray(T[] a, int n) {
+        return (T[]) Array.newInstance(a.getClass().getComponentType(), n);
+    }
+}
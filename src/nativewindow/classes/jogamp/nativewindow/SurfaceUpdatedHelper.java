@@ -28,20 +28,21 @@
 
 package jogamp.nativewindow;
 
-import java.util.ArrayList;
-
 import javax.media.nativewindow.NativeSurface;
 import javax.media.nativewindow.SurfaceUpdatedListener;
 
 public class SurfaceUpdatedHelper implements SurfaceUpdatedListener {
+    private static final SurfaceUpdatedListener[] EMPTY = new SurfaceUpdatedListener[0];
+
     private Object surfaceUpdatedListenersLock = new Object();
-    private ArrayList<SurfaceUpdatedListener> surfaceUpdatedListeners = new ArrayList<SurfaceUpdatedListener>();
+    /** Copy-on-write, modified while holding surfaceUpdatedListenersLock, see {@link ListenerArrays}. */
+    private volatile SurfaceUpdatedListener[] surfaceUpdatedListeners = EMPTY;
 
     //
     // Management Utils
     // 
-    public int size() { return surfaceUpdatedListeners.size(); }
-    public SurfaceUpdatedListener get(int i) { return surfaceUpdatedListeners.get(i); }
+    public int size() { return surfaceUpdatedListeners.length; }
+    public SurfaceUpdatedListener get(int i) { return surfaceUpdatedListeners[i]; }
     
     //
     // Implementation of NativeSurface SurfaceUpdatedListener methods
@@ -58,10 +59,7 @@ public class SurfaceUpdatedHelper implements SurfaceUpdatedListener {
             return;
         }
         synchronized(surfaceUpdatedListenersLock) {
-            if(0>index) { 
-                index = surfaceUpdatedListeners.size(); 
-            }
-            surfaceUpdatedListeners.add(index, l);
+            surfaceUpdatedListeners = ListenerArrays.add(surfaceUpdatedListeners, index, l);
         }
     }
 
@@ -70,16 +68,14 @@ public class SurfaceUpdatedHelper implements SurfaceUpdatedListener {
             return;
         }
         synchronized(surfaceUpdatedListenersLock) {
-            surfaceUpdatedListeners.remove(l);
+            surfaceUpdatedListeners = ListenerArrays.remove(surfaceUpdatedListeners, l);
         }
     }
 
     public void surfaceUpdated(Object updater, NativeSurface ns, long when) {
-        synchronized(surfaceUpdatedListenersLock) {
-          for(int i = 0; i < surfaceUpdatedListeners.size(); i++ ) {
-            SurfaceUpdatedListener l = surfaceUpdatedListeners.get(i);
-            l.surfaceUpdated(updater, ns, when);
-          }
+        final SurfaceUpdatedListener[] listeners = surfaceUpdatedListeners;
+        for(int i = 0; i < listeners.length; i++ ) {
+            listeners[i].surfaceUpdated(updater, ns, when);
         }
     }
 }
@@ -362,6 +362,33 @@ public interface Window extends NativeWindow, WindowClosingProtocol {
 
     void runOnEDTIfAvail(boolean wait, final Runnable task);
 
+    /**
+     * Enables or disables coalescing of queued events, default is disabled.
+     * <p>
+     * While a mouse motion event of this window is still queued on the EDT, 
+     * subsequent motion samples of the same type, button and modifiers are merged into it.
+     * The listener receives only the latest sample, the merged ones are available
+     * via {@link com.jogamp.newt.event.MouseEvent#getHistorySize()}.
+     * Any other queued mouse event terminates the merge, preserving the event order.
+     * </p>
+     * <p>
+     * While a resize or move event of this window is still queued on the EDT, 
+     * subsequent resize or move events are dropped, since the listener retrieves 
+     * the final geometry from the window.
+     * </p>
+     * <p>
+     * Listeners hence perform work proportional to the EDT's event dispatching rate 
+     * instead of the input rate. Events sent directly or waited for are never coalesced.
+     * </p>
+     */
+    void setEventCoalescing(boolean enable);
+
+    /**
+     * @return true if coalescing of queued events is enabled
+     * @see #setEventCoalescing(boolean)
+     */
+    boolean isEventCoalescing();
+
 
     //
     // WindowListener
@@ -63,6 +63,29 @@ public class MouseEvent extends InputEvent
         this.wheelRotation = rotation;
     }
 
+    /**
+     * Constructs a motion event with the positions of preceding, coalesced samples. 
+     * @param historySize number of historical samples, oldest first
+     * @param historyX x-coord of the historical samples
+     * @param historyY y-coord of the historical samples
+     * @param historyWhen time of the historical samples
+     * @see #getHistorySize()
+     */
+    public MouseEvent(int eventType, Object source, long when,
+            int modifiers, int x, int y, int clickCount, int button,
+            int rotation, int historySize, int[] historyX, int[] historyY, long[] historyWhen)
+    {
+        this(eventType, source, when, modifiers, x, y, clickCount, button, rotation);
+        if(0 < historySize && 
+           ( historyX.length < historySize || historyY.length < historySize || historyWhen.length < historySize ) ) {
+            throw new IllegalArgumentException("All history arrays must hold "+historySize+" samples");
+        }
+        this.historySize = historySize;
+        this.historyX = historyX;
+        this.historyY = historyY;
+        this.historyWhen = historyWhen;
+    }
+
     public MouseEvent(int eventType, Object source, long when,
             int modifiers, int[] x, int[] y, float[] pressure, int[] pointerids, int clickCount, int button,
             int rotation)
@@ -157,6 +180,30 @@ public class MouseEvent extends InputEvent
         return wheelRotation;
     }
 
+    /**
+     * @return number of motion samples merged into this event, preceding its position, oldest first.
+     *         Only non zero if event coalescing is enabled.
+     * @see com.jogamp.newt.Window#setEventCoalescing(boolean)
+     */
+    public int getHistorySize() {
+        return historySize;
+    }
+
+    /** @return x-coord of the historical sample at index, see {@link #getHistorySize()} */
+    public int getHistoricalX(int index) {
+        return historyX[index];
+    }
+
+    /** @return y-coord of the historical sample at index, see {@link #getHistorySize()} */
+    public int getHistoricalY(int index) {
+        return historyY[index];
+    }
+
+    /** @return time of the historical sample at index, see {@link #getHistorySize()} */
+    public long getHistoricalWhen(int index) {
+        return historyWhen[index];
+    }
+
     public String toString() {
         StringBuffer sb = new StringBuffer();
         sb.append("MouseEvent[").append(getEventTypeString(getEventType()))
@@ -195,6 +242,9 @@ public class MouseEvent extends InputEvent
     private final int x[], y[], clickCount, button, wheelRotation;
     private final float pressure[];
     private final int pointerids[];
+    private int historySize = 0;
+    private int historyX[], historyY[];
+    private long historyWhen[];
     
     public static final int EVENT_MOUSE_CLICKED  = 200;
     public static final int EVENT_MOUSE_ENTERED  = 201;
@@ -28,35 +28,96 @@
  
 package com.jogamp.newt.event;
 
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import jogamp.newt.event.EventRingQueue;
+
+/**
+ * FIFO of {@link NEWTEvent}s for multiple producers, 
+ * e.g. listeners running on the EDT, and a polling consumer.
+ * <p>
+ * The FIFO is unbounded by default, see {@link #NEWTEventFiFo()}.
+ * A bounded, lock-free FIFO is created via {@link #NEWTEventFiFo(int, boolean)}.
+ * If such a FIFO is full, {@link #put(NEWTEvent)} either blocks or drops the oldest queued event,
+ * see {@link #getDroppedCount()}.
+ * </p>
+ */
 public class NEWTEventFiFo
 {
-    private LinkedList/*<NEWTEvent>*/ events = new LinkedList/*<NEWTEvent>*/();
+    /** Suggested capacity for a bounded FIFO, see {@link #NEWTEventFiFo(int, boolean)}. */
+    public static final int DEFAULT_CAPACITY = 1024;
+    
+    /** bounded ring queue, null if unbounded */
+    private final EventRingQueue<NEWTEvent> events;
+    /** unbounded queue, null if bounded */
+    private final ConcurrentLinkedQueue<NEWTEvent> unbounded;
+
+    /** 
+     * Creates an unbounded FIFO, i.e. {@link #put(NEWTEvent)} never blocks nor drops events.
+     */
+    public NEWTEventFiFo() {
+        events = null;
+        unbounded = new ConcurrentLinkedQueue<NEWTEvent>();
+    }
+    
+    /**
+     * Creates a bounded, lock-free FIFO.
+     * @param capacity minimum capacity, rounded up to the next power of two, e.g. {@link #DEFAULT_CAPACITY}
+     * @param block if true, {@link #put(NEWTEvent)} blocks while the FIFO is full,
+     *        otherwise the oldest event is dropped. A blocking FIFO must not be filled by its consumer thread.
+     */
+    public NEWTEventFiFo(int capacity, boolean block) {
+        events = new EventRingQueue<NEWTEvent>(capacity, block ? EventRingQueue.POLICY_BLOCK : EventRingQueue.POLICY_DROP_OLDEST);
+        unbounded = null;
+    }
 
     /** Add NEWTEvent to tail */
-    public synchronized void put(NEWTEvent event) {
-        events.addLast(event);
-        notifyAll();
+    public void put(NEWTEvent event) {
+        if( null != events ) {
+            events.put(event);
+        } else {
+            unbounded.offer(event);
+        }
     }
 
     /** Remove NEWTEvent from head */
-    public synchronized NEWTEvent get() {
-        if (0 == events.size()) {
-            return null;
-        }
+    public NEWTEvent get() {
+        return null != events ? events.poll() : unbounded.poll();
+    }
 
-        return (NEWTEvent) events.removeFirst();
+    /** 
+     * Remove up to <code>max</code> NEWTEvents from head into <code>dest</code>, starting at <code>offset</code>. 
+     * @return number of removed NEWTEvents
+     */
+    public int drain(NEWTEvent[] dest, int offset, int max) {
+        if( null != events ) {
+            return events.drain(dest, offset, max);
+        }
+        int n = 0;
+        NEWTEvent e;
+        while( n < max && null != ( e = unbounded.poll() ) ) {
+            dest[offset + n++] = e;
+        }
+        return n;
     }
 
     /** Get NEWTEvents in queue */
-    public synchronized int size() {
-        return events.size();
+    public int size() {
+        return null != events ? events.size() : unbounded.size();
+    }
+
+    /** Get number of NEWTEvents dropped, since the bounded FIFO was full. Always 0 if unbounded. */
+    public long getDroppedCount() {
+        return null != events ? events.getDroppedCount() : 0;
     }
 
     /** Clear all NEWTEvents from queue */
-    public synchronized void clear() {
-        events.clear();
+    public void clear() {
+        if( null != events ) {
+            events.clear();
+        } else {
+            unbounded.clear();
+        }
     }
 
 }
@@ -762,6 +762,14 @@ public class GLWindow implements GLAutoDrawable, Window, NEWTEventConsumer, FPSC
         window.runOnEDTIfAvail(wait, task);
     }
 
+    public final void setEventCoalescing(boolean enable) {
+        window.setEventCoalescing(enable);
+    }
+
+    public final boolean isEventCoalescing() {
+        return window.isEventCoalescing();
+    }
+
     public final void removeSurfaceUpdatedListener(SurfaceUpdatedListener l) {
         window.removeSurfaceUpdatedListener(l);
     }
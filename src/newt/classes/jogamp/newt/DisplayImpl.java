@@ -39,9 +39,11 @@ import com.jogamp.newt.NewtFactory;
 import com.jogamp.newt.event.NEWTEvent;
 import com.jogamp.newt.event.NEWTEventConsumer;
 
+import jogamp.newt.event.EventRingQueue;
 import jogamp.newt.event.NEWTEventTask;
 import com.jogamp.newt.util.EDTUtil;
-import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import javax.media.nativewindow.AbstractGraphicsDevice;
 import javax.media.nativewindow.NativeWindowException;
 import javax.media.nativewindow.NativeWindowFactory;
@@ -165,9 +167,16 @@ public abstract class DisplayImpl extends Display {
         return true; 
     }
 
+    /** True if property <code>newt.edt.parking</code> is defined, selecting the {@link ParkingEDTUtil} */
+    static final boolean USE_PARKING_EDT = Debug.isPropertyDefined("newt.edt.parking", true);
+
     protected void createEDTUtil() {
         if(NewtFactory.useEDT()) {
-            edtUtil = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "Display-"+getFQName(), dispatchMessagesRunnable);            
+            if(USE_PARKING_EDT) {
+                edtUtil = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "Display-"+getFQName(), dispatchMessagesRunnable);
+            } else {
+                edtUtil = new DefaultEDTUtil(Thread.currentThread().getThreadGroup(), "Display-"+getFQName(), dispatchMessagesRunnable);            
+            }
             if(DEBUG) {
                 System.err.println("Display.createNative("+getFQName()+") Create EDTUtil: "+edtUtil.getClass().getName());
             }
@@ -340,9 +349,27 @@ public abstract class DisplayImpl extends Display {
 
     protected abstract void dispatchMessagesNative();
 
-    private Object eventsLock = new Object();
-    private ArrayList<NEWTEventTask> events = new ArrayList<NEWTEventTask>();
-    private volatile boolean haveEvents = false;
+    /** Minimum capacity of the event queue, default 1024, property <code>newt.event.queue.size</code> */
+    static final int EVENT_QUEUE_SIZE;
+    /** Maximum number of events dequeued at once */
+    static final int EVENT_BATCH_SIZE = 64;
+    
+    static {
+        final int size = Debug.getIntProperty("newt.event.queue.size", true);
+        EVENT_QUEUE_SIZE = 0 < size ? size : 1024;
+    }
+    
+    /** 
+     * Queued {@link NEWTEvent}s, or {@link NEWTEventTask}s if the issuer waits for the dispatch.
+     * If full, producers block until the EDT has freed a slot, see {@link #enqueue(Object)}.
+     */
+    private final EventRingQueue<Object> events = new EventRingQueue<Object>(EVENT_QUEUE_SIZE, EventRingQueue.POLICY_BLOCK);
+    private final Object[] eventBatch = new Object[EVENT_BATCH_SIZE];
+    private final AtomicBoolean eventBatchInUse = new AtomicBoolean(false);
+    /** Thread dispatching the {@link #eventBatch}, which owns the in-flight range below. */
+    private volatile Thread eventBatchThread = null;
+    /** In-flight range of the {@link #eventBatch}, i.e. drained events not dispatched yet. */
+    private int eventBatchPos = 0, eventBatchEnd = 0;
 
     class DispatchMessagesRunnable implements Runnable {
         public void run() {
@@ -359,6 +386,11 @@ public abstract class DisplayImpl extends Display {
             Thread.dumpStack();
             return;
         }
+        dispatchMessage(event);
+        eventTask.notifyIssuer();        
+    }
+    
+    final void dispatchMessage(final NEWTEvent event) {
         Object source = event.getSource();
         if(source instanceof NEWTEventConsumer) {
             NEWTEventConsumer consumer = (NEWTEventConsumer) source ;
@@ -369,7 +401,14 @@ public abstract class DisplayImpl extends Display {
         } else {
             throw new RuntimeException("Event source not NEWT: "+source.getClass().getName()+", "+source);
         }
-        eventTask.notifyIssuer();        
+    }
+    
+    private final void dispatchQueued(final Object queued) {
+        if(queued instanceof NEWTEventTask) {
+            dispatchMessage((NEWTEventTask) queued);
+        } else {
+            dispatchMessage((NEWTEvent) queued);
+        }
     }
     
     public void dispatchMessages() {
@@ -381,21 +420,56 @@ public abstract class DisplayImpl extends Display {
             return;
         }
 
-        ArrayList<NEWTEventTask> _events = null;
+        final Thread current = Thread.currentThread();
+        final boolean nested = current == eventBatchThread;
+        if(nested) {
+            // entered recursively, e.g. by a listener: 
+            // the remaining in-flight events are older than any queued one.
+            dispatchBatch();
+        }
 
-        if(haveEvents) { // volatile: ok
-            synchronized(eventsLock) {
-                if(haveEvents) {
-                    // swap events list to free ASAP
-                    _events = events;
-                    events = new ArrayList<NEWTEventTask>();
-                    haveEvents = false;
+        // Only dispatch events queued so far, 
+        // events enqueued while dispatching are handled by the next pump.
+        int remaining = events.size();
+        if(0 < remaining) {
+            // the batch array is reused by recursive calls, but not by concurrent ones
+            if( nested || eventBatchInUse.compareAndSet(false, true) ) {
+                if(!nested) {
+                    eventBatchThread = current;
                 }
-                eventsLock.notifyAll();
-            }
-            if( null != _events ) {
-                for (int i=0; i < _events.size(); i++) {
-                    dispatchMessage(_events.get(i));
+                try {
+                    while(0 < remaining) {
+                        final int n = events.drain(eventBatch, 0, Math.min(remaining, eventBatch.length));
+                        if(0 == n) {
+                            break;
+                        }
+                        remaining -= n;
+                        eventBatchPos = 0;
+                        eventBatchEnd = n;
+                        dispatchBatch();
+                    }
+                } finally {
+                    if(!nested) {
+                        while(eventBatchPos < eventBatchEnd) {
+                            eventBatch[eventBatchPos++] = null;
+                        }
+                        eventBatchThread = null;
+                        eventBatchInUse.set(false);
+                    }
+                }
+            } else {
+                final Object[] batch = new Object[EVENT_BATCH_SIZE];
+                while(0 < remaining) {
+                    final int n = events.drain(batch, 0, Math.min(remaining, batch.length));
+                    if(0 == n) {
+                        break;
+                    }
+                    remaining -= n;
+                    for (int i=0; i < n; i++) {
+                        final Object queued = batch[i];
+                        batch[i] = null;
+                        dispatchQueued(queued);
+                    }
                 }
             }
         }
@@ -404,6 +478,56 @@ public abstract class DisplayImpl extends Display {
         dispatchMessagesNative();
     }
 
+    /** Dispatches the in-flight events of the {@link #eventBatch}, owned by the current thread. */
+    private final void dispatchBatch() {
+        while(eventBatchPos < eventBatchEnd) {
+            final Object queued = eventBatch[eventBatchPos];
+            eventBatch[eventBatchPos++] = null;
+            dispatchQueued(queued);
+        }
+    }
+
+    /**
+     * Appends a {@link NEWTEvent} or {@link NEWTEventTask} to the event queue.
+     * <p>
+     * If the queue is full, a non EDT producer parks until the EDT has freed a slot. 
+     * The EDT can't wait for itself, hence it dispatches the oldest events until a slot is free,
+     * i.e. the remaining events of an in-flight batch first, if called while dispatching it, 
+     * and the oldest queued events thereafter.
+     * </p>
+     * @return true if queued, false if the EDT has been stopped while waiting for a free slot
+     */
+    private boolean enqueue(Object queued) {
+        boolean onEDT = false;
+        boolean checkedEDT = false;
+        while( !events.offer(queued) ) {
+            if(!checkedEDT) {
+                onEDT = edtUtil.isCurrentThreadEDT();
+                checkedEDT = true;
+            }
+            if(onEDT) {
+                if( Thread.currentThread() == eventBatchThread && eventBatchPos < eventBatchEnd ) {
+                    final Object oldest = eventBatch[eventBatchPos];
+                    eventBatch[eventBatchPos++] = null;
+                    dispatchQueued(oldest);
+                } else {
+                    final Object oldest = events.poll();
+                    if(null != oldest) {
+                        dispatchQueued(oldest);
+                    }
+                }
+            } else if(!isEDTRunning()) {
+                if(DEBUG) {
+                    System.err.println("Warning: EDT stopped while event queue is full, dropped "+queued);
+                }
+                return false;
+            } else {
+                LockSupport.parkNanos(50000);
+            }
+        }
+        return true;
+    }
+
     public void enqueueEvent(boolean wait, NEWTEvent e) {
         if(!isEDTRunning()) {
             // oops .. we are already dead
@@ -416,19 +540,23 @@ public abstract class DisplayImpl extends Display {
         
         // can't wait if we are on EDT -> consume right away
         if(wait && edtUtil.isCurrentThreadEDT()) {
-            dispatchMessage(new NEWTEventTask(e, null));
+            dispatchMessage(e);
+            return;
+        }
+        
+        if(!wait) {
+            // no wrapper required
+            if( enqueue(e) ) {
+                requestDispatch();
+            }
             return;
         }
         
         Object lock = new Object();
-        NEWTEventTask eTask = new NEWTEventTask(e, wait?lock:null);
+        NEWTEventTask eTask = new NEWTEventTask(e, lock);
         synchronized(lock) {
-            synchronized(eventsLock) {
-                events.add(eTask);
-                haveEvents = true;
-                eventsLock.notifyAll();
-            }
-            if( wait ) {
+            if( enqueue(eTask) ) {
+                requestDispatch();
                 try {
                     lock.wait();
                 } catch (InterruptedException ie) {
@@ -438,6 +566,14 @@ public abstract class DisplayImpl extends Display {
         }
     }
 
+    /** Wakes up an idle {@link ParkingEDTUtil} to dispatch the queued events w/o waiting for the next poll period. */
+    private void requestDispatch() {
+        final EDTUtil _edtUtil = edtUtil;
+        if(_edtUtil instanceof ParkingEDTUtil) {
+            ((ParkingEDTUtil)_edtUtil).requestDispatch();
+        }
+    }
+
     public interface DisplayRunnable<T> {
         T run(long dpy);
     }    
@@ -0,0 +1,524 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.newt;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.media.nativewindow.NativeWindowException;
+
+import jogamp.common.util.locks.LockDebugUtil;
+
+import com.jogamp.common.util.locks.Lock;
+import com.jogamp.newt.util.EDTUtil;
+
+/**
+ * {@link EDTUtil} implementation using a lock-free task queue,
+ * where the EDT parks while idle instead of polling a monitor.
+ * <p>
+ * Differences to {@link DefaultEDTUtil}:
+ * <ul>
+ *   <li>Enqueuing a task neither takes a lock nor allocates a monitor,
+ *       the EDT is only unparked if it is idle.</li>
+ *   <li>Issuers waiting for a task's completion park until the EDT unparks them.</li>
+ *   <li>The EDT executes up to {@link #getBatchSize()} queued tasks at once
+ *       and issues the message dispatch at least every {@link #getPollPeriod()} milliseconds,
+ *       or as soon as possible after {@link #requestDispatch()}.</li>
+ *   <li>Queue length and task latency metrics are available, e.g. {@link #getQueueLength()}.</li>
+ * </ul>
+ * Used by {@link DisplayImpl} if the property <code>newt.edt.parking</code> is set.
+ * </p>
+ */
+public class ParkingEDTUtil implements EDTUtil {
+    public static final boolean DEBUG = DefaultEDTUtil.DEBUG;
+
+    /** Default number of tasks executed before the message dispatch cadence is checked again. */
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final ThreadGroup threadGroup;
+    private final String name;
+    private final Runnable dispatchMessages;
+    private final Object edtLock = new Object(); // locking the EDT start/stop state
+    private volatile EventDispatchThread edt;
+    private int start_iter=0;
+    private volatile long pollPeriod = EDTUtil.defaultEDTPollPeriod;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    // metrics, written by the EDT only
+    private volatile long taskCount = 0;
+    private volatile long batchCount = 0;
+    private volatile long dispatchCount = 0;
+    private volatile long latencySum = 0;
+    private volatile long latencyMax = 0;
+    private volatile int maxQueueLength = 0;
+
+    public ParkingEDTUtil(ThreadGroup tg, String name, Runnable dispatchMessages) {
+        this.threadGroup = tg;
+        this.name=Thread.currentThread().getName()+"-"+name+"-EDT-";
+        this.dispatchMessages=dispatchMessages;
+        this.edt = new EventDispatchThread(threadGroup, name);
+        this.edt.setDaemon(true); // don't stop JVM from shutdown ..
+    }
+
+    /** @return message dispatch period in milliseconds */
+    final public long getPollPeriod() {
+        return pollPeriod;
+    }
+
+    /** @param ms message dispatch period in milliseconds */
+    final public void setPollPeriod(long ms) {
+        pollPeriod = ms;
+        final EventDispatchThread _edt = edt;
+        if(_edt.idle) {
+            LockSupport.unpark(_edt); // apply new period
+        }
+    }
+
+    /** @return maximum number of tasks executed before the message dispatch cadence is checked again */
+    final public int getBatchSize() {
+        return batchSize;
+    }
+
+    /** @param n maximum number of tasks executed before the message dispatch cadence is checked again, at least 1 */
+    final public void setBatchSize(int n) {
+        batchSize = Math.max(1, n);
+    }
+
+    /**
+     * Requests the message dispatch to be issued as soon as possible,
+     * e.g. after events have been enqueued. Wakes up the EDT if idle.
+     */
+    public final void requestDispatch() {
+        final EventDispatchThread _edt = edt;
+        _edt.dispatchRequested = true;
+        if(_edt.idle) {
+            LockSupport.unpark(_edt);
+        }
+    }
+
+    /** @return the number of queued tasks not yet finished, including a running one */
+    public final int getQueueLength() {
+        return edt.pending.get();
+    }
+
+    /** @return the maximum number of queued tasks observed by the EDT since the last {@link #resetMetrics()} */
+    public final int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /** @return the number of executed tasks since the last {@link #resetMetrics()} */
+    public final long getTaskCount() {
+        return taskCount;
+    }
+
+    /** @return the number of executed non empty task batches since the last {@link #resetMetrics()} */
+    public final long getBatchCount() {
+        return batchCount;
+    }
+
+    /** @return the number of issued message dispatches since the last {@link #resetMetrics()} */
+    public final long getDispatchCount() {
+        return dispatchCount;
+    }
+
+    /** @return the average latency between enqueuing and executing a task in nanoseconds */
+    public final long getAverageLatency() {
+        final long n = taskCount;
+        return 0 < n ? latencySum / n : 0;
+    }
+
+    /** @return the maximum latency between enqueuing and executing a task in nanoseconds */
+    public final long getMaxLatency() {
+        return latencyMax;
+    }
+
+    /** Resets all metrics, should be called while the EDT is idle or stopped. */
+    public final void resetMetrics() {
+        taskCount = 0;
+        batchCount = 0;
+        dispatchCount = 0;
+        latencySum = 0;
+        latencyMax = 0;
+        maxQueueLength = 0;
+    }
+
+    public final void reset() {
+        synchronized(edtLock) {
+            waitUntilStopped();
+            if(DEBUG) {
+                if(edt.pending.get()>0) {
+                    System.err.println(Thread.currentThread()+": EDT reset, remaining tasks: "+edt.pending.get()+" - "+edt);
+                }
+                System.err.println(Thread.currentThread()+": EDT reset - edt: "+edt);
+            }
+            this.edt = new EventDispatchThread(threadGroup, name);
+            this.edt.setDaemon(true); // don't stop JVM from shutdown ..
+        }
+    }
+
+    public final void start() {
+        synchronized(edtLock) {
+            if(!edt.isRunning() && !edt.shouldStop) {
+                if(edt.isAlive()) {
+                    throw new RuntimeException("EDT Thread.isAlive(): true, isRunning: "+edt.isRunning()+", edt: "+edt+", tasks: "+edt.pending.get());
+                }
+                start_iter++;
+                edt.setName(name+start_iter);
+                if(DEBUG) {
+                    System.err.println(Thread.currentThread()+": EDT START - edt: "+edt);
+                }
+                edt.start();
+            }
+        }
+    }
+
+    public final boolean isCurrentThreadEDT() {
+        return edt == Thread.currentThread();
+    }
+
+    public final boolean isRunning() {
+        return edt.isRunning() ;
+    }
+
+    public final void invokeStop(Runnable task) {
+        invokeImpl(true, task, true);
+    }
+
+    public final void invoke(boolean wait, Runnable task) {
+        invokeImpl(wait, task, false);
+    }
+
+    private void invokeImpl(boolean wait, Runnable task, boolean stop) {
+        if(task == null) {
+            throw new RuntimeException("Null Runnable");
+        }
+        final EventDispatchThread _edt;
+        final Task rTask;
+        if(stop) {
+            // rare: the final task must be the last one enqueued, see EventDispatchThread.run()
+            synchronized(edtLock) {
+                _edt = edt;
+                if( _edt.shouldStop ) {
+                    if(DEBUG) {
+                        System.err.println("Warning: EDT about (1) to stop, won't enqueue new task: "+_edt);
+                        Thread.dumpStack();
+                    }
+                    return;
+                }
+                _edt.shouldStop = true;
+                if(DEBUG) {
+                    System.err.println(Thread.currentThread()+": EDT signal STOP (on edt: "+isCurrentThreadEDT()+") - tasks: "+_edt.pending.get()+" - "+_edt);
+                }
+                if( _edt == Thread.currentThread() ) {
+                    task.run();
+                    if(_edt.pending.get() > ( _edt.inTask ? 1 : 0 )) {
+                        System.err.println("Warning: EDT about (2) to stop, having remaining tasks: "+_edt.pending.get()+" - "+_edt);
+                    }
+                    return;
+                }
+                wait = wait && _edt.isRunning();
+                rTask = new Task(task, wait ? Thread.currentThread() : null, true);
+                _edt.enqueue(rTask);
+            }
+        } else {
+            _edt = edt;
+            if( _edt.shouldStop ) {
+                // drop task ..
+                if(DEBUG) {
+                    System.err.println("Warning: EDT about (1) to stop, won't enqueue new task: "+_edt);
+                    Thread.dumpStack();
+                }
+                return;
+            }
+            if( _edt == Thread.currentThread() ) {
+                task.run(); // running in same thread (EDT) -> no wait
+                return;
+            }
+            if(!_edt.isRunning()) {
+                start(); // start if not started yet and !shouldStop
+            }
+            wait = wait && _edt.isRunning();
+            rTask = new Task(task, wait ? Thread.currentThread() : null, false);
+            _edt.enqueue(rTask);
+        }
+        if( wait ) {
+            rTask.await(_edt);
+            final Throwable throwable = rTask.throwable;
+            if(null!=throwable) {
+                if(throwable instanceof NativeWindowException) {
+                    throw (NativeWindowException)throwable;
+                }
+                throw new RuntimeException(throwable);
+            }
+        }
+        if(DEBUG && stop) {
+            System.err.println(Thread.currentThread()+": EDT signal STOP X edt: "+_edt);
+        }
+    }
+
+    final public void waitUntilIdle() {
+        final EventDispatchThread _edt = edt;
+        if(!_edt.isRunning() || _edt == Thread.currentThread()) {
+            return;
+        }
+        while(_edt.isRunning() && _edt.pending.get()>0) {
+            LockSupport.parkNanos(this, IDLE_CHECK_PERIOD);
+        }
+    }
+
+    final public void waitUntilStopped() {
+        synchronized(edtLock) {
+            if(edt.isRunning() && edt != Thread.currentThread() ) {
+                while(edt.isRunning()) {
+                    try {
+                        edtLock.wait();
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        }
+    }
+
+    /** Period in nanoseconds of checking an EDT state change while waiting, i.e. idle or stopped. */
+    private static final long IDLE_CHECK_PERIOD = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** A queued task, unparking its waiting issuer after execution. */
+    static final class Task {
+        final Runnable runnable;
+        final Thread waiter;
+        final boolean isFinal;
+        final long enqueued;
+        volatile boolean done = false;
+        Throwable throwable = null; // published via done
+
+        Task(Runnable runnable, Thread waiter, boolean isFinal) {
+            this.runnable = runnable;
+            this.waiter = waiter;
+            this.isFinal = isFinal;
+            this.enqueued = System.nanoTime();
+        }
+
+        /** Runs the task and decrements <code>pending</code>, before notifying the waiting issuer. */
+        final void run(AtomicInteger pending) {
+            try {
+                runnable.run();
+            } catch (Throwable t) {
+                // always catch and report Exceptions, don't disturb EDT
+                throwable = t;
+                if(null == waiter) {
+                    // at least dump stack-trace in case nobody waits for result
+                    t.printStackTrace();
+                }
+            } finally {
+                pending.decrementAndGet();
+                done = true;
+                if(null != waiter) {
+                    LockSupport.unpark(waiter);
+                }
+            }
+        }
+
+        /** Parks the issuer until executed, or until the EDT has stopped w/o executing this task. */
+        final void await(EventDispatchThread edt) {
+            boolean interrupted = false;
+            while(!done) {
+                LockSupport.parkNanos(this, IDLE_CHECK_PERIOD*100);
+                if(Thread.interrupted()) {
+                    interrupted = true;
+                }
+                if(!done && !edt.isRunning() && edt.tasks.remove(this)) {
+                    // enqueued while the EDT stopped, dropped
+                    edt.pending.decrementAndGet();
+                    if(DEBUG) {
+                        System.err.println("Warning: EDT stopped, dropped task: "+runnable);
+                    }
+                    break;
+                }
+            }
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    class EventDispatchThread extends Thread {
+        volatile boolean shouldStop = false;
+        volatile boolean isRunning = false;
+        /** True while the EDT is about to park or parked, i.e. producers shall unpark it */
+        volatile boolean idle = false;
+        volatile boolean dispatchRequested = false;
+        final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<Task>(); // one shot tasks
+        final AtomicInteger pending = new AtomicInteger(0);
+        /** true while {@link #runTask(Task)} executes a task, accessed on this thread only */
+        boolean inTask = false;
+
+        public EventDispatchThread(ThreadGroup tg, String name) {
+            super(tg, name);
+        }
+
+        final public boolean isRunning() {
+            return isRunning;
+        }
+
+        @Override
+        final public void start() throws IllegalThreadStateException {
+            isRunning = true;
+            super.start();
+        }
+
+        final void enqueue(Task task) {
+            pending.incrementAndGet();
+            tasks.offer(task);
+            if(idle) {
+                LockSupport.unpark(this);
+            }
+        }
+
+        private final void validateNoRecursiveLocksHold() {
+            if(Lock.DEBUG) {
+                if(LockDebugUtil.getRecursiveLockTrace().size()>0) {
+                    LockDebugUtil.dumpRecursiveLockTrace(System.err);
+                    throw new InternalError("XXX");
+                }
+            }
+        }
+
+        /** 
+         * Executes one task and updates the metrics.
+         * The task is counted as pending until it has finished,
+         * so {@link ParkingEDTUtil#waitUntilIdle()} does not return while it's running.
+         */
+        private final void runTask(Task task) {
+            final int queued = pending.get();
+            if(queued > maxQueueLength) {
+                maxQueueLength = queued;
+            }
+            final long latency = System.nanoTime() - task.enqueued;
+            latencySum += latency;
+            if(latency > latencyMax) {
+                latencyMax = latency;
+            }
+            taskCount++;
+            inTask = true;
+            task.run(pending);
+            inTask = false;
+            validateNoRecursiveLocksHold();
+        }
+
+        /**
+         * Lock free task execution and event dispatching,
+         * locking only on EDT state changes.
+         */
+        @Override
+        final public void run() {
+            if(DEBUG) {
+                System.err.println(getName()+": EDT run() START "+ getName());
+            }
+            validateNoRecursiveLocksHold();
+            RuntimeException error = null;
+            boolean finalTaskDone = false;
+            try {
+                long nextDispatch = System.nanoTime();
+                do {
+                    // event dispatch at given cadence or on request
+                    if( !shouldStop && ( dispatchRequested || System.nanoTime() - nextDispatch >= 0 ) ) {
+                        dispatchRequested = false;
+                        dispatchMessages.run();
+                        dispatchCount++;
+                        nextDispatch = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pollPeriod);
+                    }
+                    // work on a batch of tasks
+                    final int max = batchSize;
+                    int n = 0;
+                    Task task;
+                    while( n < max && !finalTaskDone && null != ( task = tasks.poll() ) ) {
+                        runTask(task);
+                        finalTaskDone = task.isFinal;
+                        n++;
+                    }
+                    if( 0 < n ) {
+                        batchCount++;
+                    } else if( !shouldStop ) {
+                        // park until a task is enqueued, a dispatch is requested or the dispatch period elapsed
+                        idle = true;
+                        if( tasks.isEmpty() && !dispatchRequested ) {
+                            if( 0 >= pollPeriod ) {
+                                LockSupport.park(this); // no periodic dispatch
+                            } else {
+                                final long delay = nextDispatch - System.nanoTime();
+                                if( 0 < delay ) {
+                                    LockSupport.parkNanos(this, delay);
+                                }
+                            }
+                        }
+                        idle = false;
+                    }
+                } while( !shouldStop || ( !finalTaskDone && !tasks.isEmpty() ) ) ;
+            } catch (Throwable t) {
+                // handle errors ..
+                shouldStop = true;
+                if(t instanceof RuntimeException) {
+                    error = (RuntimeException) t;
+                } else {
+                    error = new RuntimeException("Within EDT", t);
+                }
+            } finally {
+                if(DEBUG) {
+                    System.err.println(getName()+": EDT run() END "+ getName()+", tasks: "+pending.get()+", "+error);
+                }
+                synchronized(edtLock) {
+                    if(null==error) {
+                        // drain remaining tasks until the final one (stop not on EDT),
+                        // the final task is enqueued while holding edtLock
+                        Task task;
+                        while ( !finalTaskDone && null != ( task = tasks.poll() ) ) {
+                            runTask(task);
+                            finalTaskDone = task.isFinal;
+                        }
+                        if(DEBUG && !tasks.isEmpty()) {
+                            System.err.println(getName()+" Warning: EDT exit: Remaining tasks Post Final: "+pending.get());
+                        }
+                    }
+                    isRunning = !shouldStop;
+                    if(!isRunning) {
+                        edtLock.notifyAll();
+                    }
+                }
+                if(DEBUG) {
+                    System.err.println(getName()+": EDT run() EXIT "+ getName()+", "+error);
+                }
+                if(null!=error) {
+                    throw error;
+                }
+            } // finally
+        } // run()
+    } // EventDispatchThread
+}
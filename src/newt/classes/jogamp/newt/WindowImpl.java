@@ -72,6 +72,7 @@ import javax.media.nativewindow.util.InsetsImmutable;
 import javax.media.nativewindow.util.Point;
 import javax.media.nativewindow.util.Rectangle;
 
+import jogamp.nativewindow.ListenerArrays;
 import jogamp.nativewindow.SurfaceUpdatedHelper;
 
 public abstract class WindowImpl implements Window, NEWTEventConsumer
@@ -121,18 +122,30 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     private Object childWindowsLock = new Object();
     private ArrayList<NativeWindow> childWindows = new ArrayList<NativeWindow>();
 
-    private ArrayList<MouseListener> mouseListeners = new ArrayList<MouseListener>();
+    private static final MouseListener[] EMPTY_MOUSE_LISTENERS = new MouseListener[0];
+    private static final KeyListener[] EMPTY_KEY_LISTENERS = new KeyListener[0];
+    private static final WindowListener[] EMPTY_WINDOW_LISTENERS = new WindowListener[0];
+
+    /** Guards modifications of the copy-on-write listener arrays, see {@link ListenerArrays}. */
+    private final Object listenersLock = new Object();
+    private volatile MouseListener[] mouseListeners = EMPTY_MOUSE_LISTENERS;
     private int  mouseButtonPressed = 0;  // current pressed mouse button number
     private long lastMousePressed = 0;    // last time when a mouse button was pressed
     private int  lastMouseClickCount = 0; // last mouse button click count
     private boolean mouseInWindow = false;// mouse entered window - is inside the window (may be synthetic)
     private Point lastMousePosition = new Point();
 
-    private ArrayList<KeyListener> keyListeners = new ArrayList<KeyListener>();
+    private volatile KeyListener[] keyListeners = EMPTY_KEY_LISTENERS;
 
-    private ArrayList<WindowListener> windowListeners  = new ArrayList<WindowListener>();
+    private volatile WindowListener[] windowListeners = EMPTY_WINDOW_LISTENERS;
     private boolean repaintQueued = false;
 
+    private volatile boolean coalesceEvents = false;
+    private final Object coalesceLock = new Object();
+    private CoalescingMouseEvent queuedMotion = null; // guarded by coalesceLock
+    private long queuedResizeWhen = 0;                 // guarded by coalesceLock
+    private long queuedMoveWhen = 0;                   // guarded by coalesceLock
+
     ScreenModeListenerImpl screenModeListenerImpl = new ScreenModeListenerImpl();
 
     // Workaround for initialization order problems on Mac OS X
@@ -1553,17 +1566,26 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         for (int i = 0; i < surfaceUpdatedHelper.size(); i++ ) {
           sb.append(surfaceUpdatedHelper.get(i)+", ");
         }
-        sb.append("], WindowListeners num "+windowListeners.size()+" [");
-        for (int i = 0; i < windowListeners.size(); i++ ) {
-          sb.append(windowListeners.get(i)+", ");
+        {
+            final WindowListener[] listeners = windowListeners;
+            sb.append("], WindowListeners num "+listeners.length+" [");
+            for (int i = 0; i < listeners.length; i++ ) {
+              sb.append(listeners[i]+", ");
+            }
         }
-        sb.append("], MouseListeners num "+mouseListeners.size()+" [");
-        for (int i = 0; i < mouseListeners.size(); i++ ) {
-          sb.append(mouseListeners.get(i)+", ");
+        {
+            final MouseListener[] listeners = mouseListeners;
+            sb.append("], MouseListeners num "+listeners.length+" [");
+            for (int i = 0; i < listeners.length; i++ ) {
+              sb.append(listeners[i]+", ");
+            }
         }
-        sb.append("], KeyListeners num "+keyListeners.size()+" [");
-        for (int i = 0; i < keyListeners.size(); i++ ) {
-          sb.append(keyListeners.get(i)+", ");
+        {
+            final KeyListener[] listeners = keyListeners;
+            sb.append("], KeyListeners num "+listeners.length+" [");
+            for (int i = 0; i < listeners.length; i++ ) {
+              sb.append(listeners[i]+", ");
+            }
         }
         sb.append("], surfaceLock "+surfaceLock);
         sb.append(", windowLock "+windowLock+"]");
@@ -1880,6 +1902,10 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     private void doEvent(boolean enqueue, boolean wait, com.jogamp.newt.event.NEWTEvent event) {
         boolean done = false;
 
+        if(event instanceof MouseEvent) {
+            flushQueuedMotion();
+        }
+
         if(!enqueue) {
             done = consumeEvent(event);
             wait = done; // don't wait if event can't be consumed now
@@ -1896,7 +1922,113 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         }
     }
 
+    public void setEventCoalescing(boolean enable) {
+        coalesceEvents = enable;
+        if(!enable) {
+            synchronized(coalesceLock) {
+                queuedMotion = null;
+                queuedResizeWhen = 0;
+                queuedMoveWhen = 0;
+            }
+        }
+    }
+
+    public boolean isEventCoalescing() {
+        return coalesceEvents;
+    }
+
+    /**
+     * Closes the queued motion event for further samples, so subsequent motion
+     * is not merged into it and delivered ahead of an event queued in between.
+     */
+    private void flushQueuedMotion() {
+        if(coalesceEvents) {
+            synchronized(coalesceLock) {
+                queuedMotion = null;
+            }
+        }
+    }
+
+    /**
+     * A queued mouse motion event, accumulating subsequent motion samples until consumed.
+     * It is never passed to listeners, see {@link #toMouseEvent()}.
+     */
+    @SuppressWarnings("serial")
+    private static final class CoalescingMouseEvent extends MouseEvent {
+        /** Maximum number of historical samples, older ones are dropped */
+        static final int MAX_HISTORY = 32;
+
+        private int lastX, lastY, lastModifiers;
+        private long lastWhen;
+        private int samples = 0;
+        private int[] samplesX, samplesY;
+        private long[] samplesWhen;
+
+        CoalescingMouseEvent(int eventType, Object source, long when, int modifiers, int x, int y, int clickCount, int button) {
+            super(eventType, source, when, modifiers, x, y, clickCount, button, 0);
+            lastX = x;
+            lastY = y;
+            lastWhen = when;
+            lastModifiers = modifiers;
+        }
+
+        final boolean canMerge(int eventType, int modifiers, int button, long when) {
+            return getEventType() == eventType && lastModifiers == modifiers && getButton() == button &&
+                   QUEUED_EVENT_TO > when - getWhen();
+        }
+
+        final void merge(long when, int x, int y) {
+            if(null == samplesX) {
+                samplesX = new int[MAX_HISTORY];
+                samplesY = new int[MAX_HISTORY];
+                samplesWhen = new long[MAX_HISTORY];
+            } else if(MAX_HISTORY == samples) {
+                System.arraycopy(samplesX, 1, samplesX, 0, MAX_HISTORY-1);
+                System.arraycopy(samplesY, 1, samplesY, 0, MAX_HISTORY-1);
+                System.arraycopy(samplesWhen, 1, samplesWhen, 0, MAX_HISTORY-1);
+                samples--;
+            }
+            samplesX[samples] = lastX;
+            samplesY[samples] = lastY;
+            samplesWhen[samples] = lastWhen;
+            samples++;
+            lastX = x;
+            lastY = y;
+            lastWhen = when;
+        }
+
+        /** @return the event of the latest sample, carrying the merged samples as history */
+        final MouseEvent toMouseEvent() {
+            return new MouseEvent(getEventType(), getSource(), lastWhen, lastModifiers, lastX, lastY,
+                                  getClickCount(), getButton(), 0, samples, samplesX, samplesY, samplesWhen);
+        }
+    }
+
+    /** Merges the motion sample into the queued motion event if possible, otherwise enqueues a new one. */
+    private void enqueueMotionCoalesced(int eventType, long when, int modifiers, int x, int y, int clickCount, int button) {
+        final CoalescingMouseEvent e;
+        synchronized(coalesceLock) {
+            final CoalescingMouseEvent q = queuedMotion;
+            if( null != q && q.canMerge(eventType, modifiers, button, when) ) {
+                q.merge(when, x, y);
+                return;
+            }
+            e = new CoalescingMouseEvent(eventType, this, when, modifiers, x, y, clickCount, button);
+            queuedMotion = e;
+        }
+        enqueueEvent(false, e);
+    }
+
     public boolean consumeEvent(NEWTEvent e) {
+        if(e instanceof CoalescingMouseEvent) {
+            // no more samples may be merged, deliver the latest one
+            synchronized(coalesceLock) {
+                if(queuedMotion == e) {
+                    queuedMotion = null;
+                }
+                e = ((CoalescingMouseEvent)e).toMouseEvent();
+            }
+        }
         switch(e.getEventType()) {
             // special repaint treatment
             case WindowEvent.EVENT_WINDOW_REPAINT:
@@ -1926,8 +2058,16 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
                         System.err.println("Window.consumeEvent: "+Thread.currentThread().getName()+" - queued "+e+", discard-to "+discardTO);
                         // Thread.dumpStack();
                     }
-                    return discardTO; // discardTO:=true -> consumed
+                    if(!discardTO) {
+                        return false;
+                    }
+                    clearQueuedWindowEvent(e.getEventType());
+                    return true; // consumed
                 }
+                clearQueuedWindowEvent(e.getEventType());
+                break;
+            case WindowEvent.EVENT_WINDOW_MOVED:
+                clearQueuedWindowEvent(e.getEventType());
                 break;
             default:
                 break;
@@ -2049,6 +2189,14 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
             }
             mouseButtonPressed=0;
         } else if(MouseEvent.EVENT_MOUSE_MOVED==eventType) {
+            if(enqueue && !wait && coalesceEvents) {
+                if (mouseButtonPressed>0) {
+                    enqueueMotionCoalesced(MouseEvent.EVENT_MOUSE_DRAGGED, when, modifiers, x, y, 1, mouseButtonPressed);
+                } else {
+                    enqueueMotionCoalesced(eventType, when, modifiers, x, y, 0, button);
+                }
+                return;
+            }
             if (mouseButtonPressed>0) {
                 e = new MouseEvent(MouseEvent.EVENT_MOUSE_DRAGGED, this, when,
                                    modifiers, x, y, 1, mouseButtonPressed, 0);
@@ -2079,45 +2227,40 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         if(l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<MouseListener> clonedListeners = (ArrayList<MouseListener>) mouseListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size(); 
+        synchronized(listenersLock) {
+            mouseListeners = ListenerArrays.add(mouseListeners, index, l);
         }
-        clonedListeners.add(index, l);
-        mouseListeners = clonedListeners;
     }
 
     public void removeMouseListener(MouseListener l) {
         if (l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<MouseListener> clonedListeners = (ArrayList<MouseListener>) mouseListeners.clone();
-        clonedListeners.remove(l);
-        mouseListeners = clonedListeners;
+        synchronized(listenersLock) {
+            mouseListeners = ListenerArrays.remove(mouseListeners, l);
+        }
     }
 
     public MouseListener getMouseListener(int index) {
-        @SuppressWarnings("unchecked")
-        ArrayList<MouseListener> clonedListeners = (ArrayList<MouseListener>) mouseListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size()-1; 
+        final MouseListener[] listeners = mouseListeners;
+        if(0>index) {
+            index = listeners.length-1;
         }
-        return clonedListeners.get(index);
+        return listeners[index];
     }
 
     public MouseListener[] getMouseListeners() {
-        return mouseListeners.toArray(new MouseListener[mouseListeners.size()]);
+        return mouseListeners.clone();
     }
 
     protected void consumeMouseEvent(MouseEvent e) {
         if(DEBUG_MOUSE_EVENT) {
             System.err.println("consumeMouseEvent: event:         "+e);
         }
+        final MouseListener[] listeners = mouseListeners;
         boolean consumed = false;
-        for(int i = 0; !consumed && i < mouseListeners.size(); i++ ) {
-            MouseListener l = mouseListeners.get(i);
+        for(int i = 0; !consumed && i < listeners.length; i++ ) {
+            final MouseListener l = listeners[i];
             switch(e.getEventType()) {
                 case MouseEvent.EVENT_MOUSE_CLICKED:
                     l.mouseClicked(e);
@@ -2154,10 +2297,12 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     // KeyListener/Event Support
     //
     public void sendKeyEvent(int eventType, int modifiers, int keyCode, char keyChar) {
+        flushQueuedMotion();
         consumeKeyEvent(new KeyEvent(eventType, this, System.currentTimeMillis(), modifiers, keyCode, keyChar) );
     }
 
     public void enqueueKeyEvent(boolean wait, int eventType, int modifiers, int keyCode, char keyChar) {
+        flushQueuedMotion();
         enqueueEvent(wait, new KeyEvent(eventType, this, System.currentTimeMillis(), modifiers, keyCode, keyChar) );
     }
 
@@ -2169,36 +2314,30 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         if(l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<KeyListener> clonedListeners = (ArrayList<KeyListener>) keyListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size();
+        synchronized(listenersLock) {
+            keyListeners = ListenerArrays.add(keyListeners, index, l);
         }
-        clonedListeners.add(index, l);
-        keyListeners = clonedListeners;
     }
 
     public void removeKeyListener(KeyListener l) {
         if (l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<KeyListener> clonedListeners = (ArrayList<KeyListener>) keyListeners.clone();
-        clonedListeners.remove(l);
-        keyListeners = clonedListeners;
+        synchronized(listenersLock) {
+            keyListeners = ListenerArrays.remove(keyListeners, l);
+        }
     }
 
     public KeyListener getKeyListener(int index) {
-        @SuppressWarnings("unchecked")
-        ArrayList<KeyListener> clonedListeners = (ArrayList<KeyListener>) keyListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size()-1;
+        final KeyListener[] listeners = keyListeners;
+        if(0>index) {
+            index = listeners.length-1;
         }
-        return clonedListeners.get(index);
+        return listeners[index];
     }
 
     public KeyListener[] getKeyListeners() {
-        return keyListeners.toArray(new KeyListener[keyListeners.size()]);
+        return keyListeners.clone();
     }
 
     private final boolean propagateKeyEvent(KeyEvent e, KeyListener l) {
@@ -2231,8 +2370,9 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
                 System.err.println("consumeKeyEvent: "+e);
             }
         }
-        for(int i = 0; !consumed && i < keyListeners.size(); i++ ) {
-            consumed = propagateKeyEvent(e, keyListeners.get(i));
+        final KeyListener[] listeners = keyListeners;
+        for(int i = 0; !consumed && i < listeners.length; i++ ) {
+            consumed = propagateKeyEvent(e, listeners[i]);
         }
     }
 
@@ -2244,7 +2384,34 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
     }
 
     public void enqueueWindowEvent(boolean wait, int eventType) {
-        enqueueEvent( wait, new WindowEvent(eventType, this, System.currentTimeMillis()) );
+        final long when = System.currentTimeMillis();
+        if(!wait && coalesceEvents &&
+           ( WindowEvent.EVENT_WINDOW_RESIZED == eventType || WindowEvent.EVENT_WINDOW_MOVED == eventType ) ) {
+            synchronized(coalesceLock) {
+                final long queuedWhen = WindowEvent.EVENT_WINDOW_RESIZED == eventType ? queuedResizeWhen : queuedMoveWhen;
+                if( 0 != queuedWhen && QUEUED_EVENT_TO > when - queuedWhen ) {
+                    return; // still queued, the listener will retrieve the final geometry
+                }
+                if( WindowEvent.EVENT_WINDOW_RESIZED == eventType ) {
+                    queuedResizeWhen = when;
+                } else {
+                    queuedMoveWhen = when;
+                }
+            }
+        }
+        enqueueEvent( wait, new WindowEvent(eventType, this, when) );
+    }
+
+    private void clearQueuedWindowEvent(int eventType) {
+        if(coalesceEvents) {
+            synchronized(coalesceLock) {
+                if( WindowEvent.EVENT_WINDOW_RESIZED == eventType ) {
+                    queuedResizeWhen = 0;
+                } else {
+                    queuedMoveWhen = 0;
+                }
+            }
+        }
     }
 
     public void addWindowListener(WindowListener l) {
@@ -2257,44 +2424,39 @@ public abstract class WindowImpl implements Window, NEWTEventConsumer
         if(l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<WindowListener> clonedListeners = (ArrayList<WindowListener>) windowListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size(); 
+        synchronized(listenersLock) {
+            windowListeners = ListenerArrays.add(windowListeners, index, l);
         }
-        clonedListeners.add(index, l);
-        windowListeners = clonedListeners;
     }
 
     public final void removeWindowListener(WindowListener l) {
         if (l == null) {
             return;
         }
-        @SuppressWarnings("unchecked")
-        ArrayList<WindowListener> clonedListeners = (ArrayList<WindowListener>) windowListeners.clone();
-        clonedListeners.remove(l);
-        windowListeners = clonedListeners;
+        synchronized(listenersLock) {
+            windowListeners = ListenerArrays.remove(windowListeners, l);
+        }
     }
 
     public WindowListener getWindowListener(int index) {
-        @SuppressWarnings("unchecked")
-        ArrayList<WindowListener> clonedListeners = (ArrayList<WindowListener>) windowListeners.clone();
-        if(0>index) { 
-            index = clonedListeners.size()-1; 
+        final WindowListener[] listeners = windowListeners;
+        if(0>index) {
+            index = listeners.length-1;
         }
-        return clonedListeners.get(index);
+        return listeners[index];
     }
 
     public WindowListener[] getWindowListeners() {
-        return windowListeners.toArray(new WindowListener[windowListeners.size()]);
+        return windowListeners.clone();
     }
 
     protected void consumeWindowEvent(WindowEvent e) {
         if(DEBUG_IMPLEMENTATION) {
             System.err.println("consumeWindowEvent: "+e+", visible "+isVisible()+" "+getX()+"/"+getY()+" "+getWidth()+"x"+getHeight());
         }
-        for(int i = 0; i < windowListeners.size(); i++ ) {
-            WindowListener l = windowListeners.get(i);
+        final WindowListener[] listeners = windowListeners;
+        for(int i = 0; i < listeners.length; i++ ) {
+            final WindowListener l = listeners[i];
             switch(e.getEventType()) {
                 case WindowEvent.EVENT_WINDOW_RESIZED:
                     l.windowResized(e);
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package jogamp.newt.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bounded, lock-free ring buffer queue for multiple producers, 
+ * e.g. native dispatch threads and the application, and the consuming EDT.
+ * <p>
+ * Each slot carries a sequence number, which hands the slot over between producers and consumers 
+ * w/o any monitor. Except for the queued elements themselves, 
+ * {@link #offer(Object)}, {@link #poll()} and {@link #drain(Object[], int, int)} don't allocate any object.
+ * Concurrent consumers are supported as well, which is required by the {@link #POLICY_DROP_OLDEST} policy.
+ * </p>
+ * <p>
+ * Back-pressure policy of {@link #put(Object)} if the queue is full:
+ * <ul>
+ *   <li>{@link #POLICY_BLOCK}: The producer spins and parks until a consumer frees a slot.
+ *       No element is lost, but a producer must not block on itself, 
+ *       i.e. the consuming thread shall use {@link #offer(Object)} and handle a full queue itself.</li>
+ *   <li>{@link #POLICY_DROP_OLDEST}: The producer removes the oldest queued elements until the new one fits,
+ *       the number of dropped elements is available via {@link #getDroppedCount()}.
+ *       The producer never blocks, suitable if the consumer may not drain the queue at all.</li>
+ * </ul>
+ * Coalescing of queued events, e.g. mouse motion, is not performed by this queue, 
+ * since a published element is owned by its consumer.
+ * </p>
+ */
+public class EventRingQueue<T> {
+    /** Back-pressure policy of {@link EventRingQueue#put(Object)}: Block the producer until a slot is free. */
+    public static final int POLICY_BLOCK = 0;
+    
+    /** Back-pressure policy of {@link EventRingQueue#put(Object)}: Drop the oldest queued elements. */
+    public static final int POLICY_DROP_OLDEST = 1;
+    
+    /** Number of {@link Thread#yield()} attempts of a blocked producer before parking. */ 
+    private static final int BLOCK_SPINS = 64;
+    
+    /** Park period of a blocked producer, 50 micro seconds. */
+    private static final long BLOCK_PARK_NANOS = 50000;
+    
+    private final Object[] buffer;
+    private final AtomicLongArray sequence;
+    private final int mask;
+    private final int policy;
+    
+    /** position of the next {@link #offer(Object)} */
+    private final AtomicLong tail = new AtomicLong(0);
+    
+    /** position of the next {@link #poll()} */
+    private final AtomicLong head = new AtomicLong(0);
+    
+    private final AtomicLong dropped = new AtomicLong(0);
+    
+    /**
+     * @param capacity minimum capacity, rounded up to the next power of two
+     * @param policy back-pressure policy of {@link #put(Object)}, 
+     *        i.e. {@link #POLICY_BLOCK} or {@link #POLICY_DROP_OLDEST} 
+     * @throws IllegalArgumentException if capacity is < 1 or &gt; 2^30, or the policy is unknown
+     */
+    public EventRingQueue(int capacity, int policy) {
+        if( 1 > capacity || 1 << 30 < capacity ) {
+            throw new IllegalArgumentException("Invalid capacity: "+capacity);
+        }
+        if( POLICY_BLOCK != policy && POLICY_DROP_OLDEST != policy ) {
+            throw new IllegalArgumentException("Invalid policy: "+policy);
+        }
+        int size = 1;
+        while( size < capacity ) {
+            size <<= 1;
+        }
+        buffer = new Object[size];
+        sequence = new AtomicLongArray(size);
+        for(int i=0; i<size; i++) {
+            sequence.set(i, i);
+        }
+        mask = size - 1;
+        this.policy = policy;
+    }
+    
+    /** @return the capacity, a power of two */
+    public final int capacity() { return buffer.length; }
+    
+    /** @return the back-pressure policy, {@link #POLICY_BLOCK} or {@link #POLICY_DROP_OLDEST} */
+    public final int getPolicy() { return policy; }
+    
+    /** @return number of elements dropped by {@link #put(Object)} due to {@link #POLICY_DROP_OLDEST} */
+    public final long getDroppedCount() { return dropped.get(); }
+    
+    /** @return the number of queued elements, a snapshot if accessed concurrently */
+    public final int size() {
+        final long h = head.get();
+        final long t = tail.get();
+        final long s = t - h;
+        return (int) ( s < 0 ? 0 : ( s > buffer.length ? buffer.length : s ) );
+    }
+    
+    /** @return true if no element is queued, a snapshot if accessed concurrently */
+    public final boolean isEmpty() {
+        return tail.get() == head.get();
+    }
+    
+    /**
+     * Appends the element if a slot is free.
+     * @return true if the element has been queued, false if the queue is full 
+     * @throws IllegalArgumentException if the element is null
+     */
+    public final boolean offer(T e) {
+        if( null == e ) {
+            throw new IllegalArgumentException("null element");
+        }
+        while( true ) {
+            final long pos = tail.get();
+            final int idx = (int) ( pos & mask );
+            final long dif = sequence.get(idx) - pos;
+            if( 0 == dif ) {
+                if( tail.compareAndSet(pos, pos + 1) ) {
+                    buffer[idx] = e;
+                    sequence.set(idx, pos + 1); // publish
+                    return true;
+                }
+            } else if( 0 > dif ) {
+                return false; // full
+            }
+            // else another producer claimed the slot, retry
+        }
+    }
+    
+    /**
+     * Appends the element, applying the back-pressure policy if the queue is full.
+     * @see #POLICY_BLOCK
+     * @see #POLICY_DROP_OLDEST
+     */
+    public final void put(T e) {
+        if( offer(e) ) {
+            return;
+        }
+        if( POLICY_DROP_OLDEST == policy ) {
+            do {
+                if( null != poll() ) {
+                    dropped.incrementAndGet();
+                }
+            } while( !offer(e) );
+        } else {
+            int spins = 0;
+            while( !offer(e) ) {
+                if( spins < BLOCK_SPINS ) {
+                    spins++;
+                    Thread.yield();
+                } else {
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Removes the oldest element.
+     * @return the removed element or null if the queue is empty
+     */
+    @SuppressWarnings("unchecked")
+    public final T poll() {
+        while( true ) {
+            final long pos = head.get();
+            final int idx = (int) ( pos & mask );
+            final long dif = sequence.get(idx) - ( pos + 1 );
+            if( 0 == dif ) {
+                if( head.compareAndSet(pos, pos + 1) ) {
+                    final T e = (T) buffer[idx];
+                    buffer[idx] = null;
+                    sequence.set(idx, pos + buffer.length); // release slot for the next round
+                    return e;
+                }
+            } else if( 0 > dif ) {
+                return null; // empty
+            }
+            // else another consumer took the slot, retry
+        }
+    }
+    
+    /**
+     * Removes up to <code>max</code> of the oldest elements in queue order into <code>dest</code>.
+     * <p>
+     * The whole batch of published elements is claimed with a single atomic operation,
+     * hence the consumer doesn't touch the shared queue position per element.
+     * </p>
+     * @param dest destination array
+     * @param offset index of the first removed element in <code>dest</code>
+     * @param max maximum number of elements to remove
+     * @return number of removed elements
+     */
+    @SuppressWarnings("unchecked")
+    public final int drain(T[] dest, int offset, int max) {
+        if( max > buffer.length ) {
+            max = buffer.length;
+        }
+        while( true ) {
+            final long pos = head.get();
+            int n = 0;
+            while( n < max && sequence.get( (int) ( ( pos + n ) & mask ) ) == pos + n + 1 ) {
+                n++;
+            }
+            if( 0 == n ) {
+                return 0; // empty
+            }
+            if( head.compareAndSet(pos, pos + n) ) {
+                for(int i=0; i<n; i++) {
+                    final int idx = (int) ( ( pos + i ) & mask );
+                    dest[offset + i] = (T) buffer[idx];
+                    buffer[idx] = null;
+                    sequence.set(idx, pos + i + buffer.length); // release slot for the next round
+                }
+                return n;
+            }
+            // else another consumer took elements, retry
+        }
+    }
+    
+    /** Removes all queued elements. */
+    public final void clear() {
+        while( null != poll() ) { }
+    }
+    
+    public String toString() {
+        return "EventRingQueue[size "+size()+"/"+capacity()+", policy "+policy+", dropped "+getDroppedCount()+"]";
+    }
+}
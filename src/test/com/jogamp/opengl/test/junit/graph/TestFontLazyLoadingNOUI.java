@@ -0,0 +1,199 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+
+import jogamp.graph.font.UbuntuFontLoader;
+import jogamp.graph.font.typecast.ot.OTFont;
+import jogamp.graph.font.typecast.ot.OTFontCollection;
+import jogamp.graph.font.typecast.ot.OTGlyph;
+import jogamp.graph.font.typecast.ot.Point;
+import jogamp.graph.font.typecast.ot.table.CmapFormat;
+import jogamp.graph.font.typecast.ot.table.ID;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.common.util.IOUtil;
+
+/**
+ * Validates the lazy, memory mapped font mode against the eager one
+ * and compares their startup time and heap usage.
+ * <p>
+ * The benchmark uses the first existing large system font, 
+ * or the one passed via <code>-font &lt;file&gt;</code>,
+ * falling back to the bundled Ubuntu font.
+ * </p>
+ */
+public class TestFontLazyLoadingNOUI {
+    static int iterations = 10;
+    static String fontFileName = null;
+    
+    static final String[] largeSystemFonts = {
+        "/usr/share/fonts/opentype/noto/NotoSansCJK-Regular.ttc",
+        "/usr/share/fonts/noto-cjk/NotoSansCJK-Regular.ttc",
+        "/usr/share/fonts/truetype/droid/DroidSansFallbackFull.ttf",
+        "/usr/share/fonts/truetype/arphic/uming.ttc",
+        "/usr/share/fonts/truetype/wqy/wqy-zenhei.ttc",
+        "/System/Library/Fonts/PingFang.ttc",
+        "/Library/Fonts/Arial Unicode.ttf",
+        "C:/Windows/Fonts/msgothic.ttc",
+        "C:/Windows/Fonts/simsun.ttc",
+        "C:/Windows/Fonts/arialuni.ttf"
+    };
+    
+    static File ubuntuFile;
+    static File benchFile;
+    
+    static final String latin = "Hello World 0123456789";
+
+    @BeforeClass
+    public static void init() throws IOException {
+        final URL url = IOUtil.getResource(UbuntuFontLoader.class, "fonts/ubuntu/Ubuntu-R.ttf");
+        Assert.assertNotNull(url);
+        ubuntuFile = IOUtil.createTempFile("joglfont", ".ttf");
+        Assert.assertTrue(IOUtil.copyURL2File(url, ubuntuFile) > 0);
+        
+        if(null != fontFileName) {
+            benchFile = new File(fontFileName);
+        } else {
+            for(int i=0; null == benchFile && i<largeSystemFonts.length; i++) {
+                final File f = new File(largeSystemFonts[i]);
+                if(f.canRead()) {
+                    benchFile = f;
+                }
+            }
+        }
+        if(null == benchFile) {
+            benchFile = ubuntuFile;
+        }
+    }
+    
+    @AfterClass
+    public static void release() {
+        if(null != ubuntuFile && !ubuntuFile.delete()) {
+            ubuntuFile.deleteOnExit();
+        }
+    }
+
+    static void assertEqualGlyphs(OTFont eager, OTFont lazy, int i) {
+        final OTGlyph ge = eager.getGlyph(i);
+        final OTGlyph gl = lazy.getGlyph(i);
+        if(null == ge) {
+            Assert.assertNull("glyph "+i, gl);
+            return;
+        }
+        Assert.assertNotNull("glyph "+i, gl);
+        Assert.assertEquals("glyph "+i, ge.getAdvanceWidth(), gl.getAdvanceWidth());
+        Assert.assertEquals("glyph "+i, ge.getPointCount(), gl.getPointCount());
+        for(int j=0; j<ge.getPointCount(); j++) {
+            final Point pe = ge.getPoint(j);
+            final Point pl = gl.getPoint(j);
+            Assert.assertEquals("glyph "+i+", point "+j, pe.x, pl.x);
+            Assert.assertEquals("glyph "+i+", point "+j, pe.y, pl.y);
+            Assert.assertEquals("glyph "+i+", point "+j, pe.onCurve, pl.onCurve);
+            Assert.assertEquals("glyph "+i+", point "+j, pe.endOfContour, pl.endOfContour);
+        }
+    }
+    
+    @Test
+    public void testLazyEqualsEager() throws IOException {
+        final OTFont eager = OTFontCollection.create(ubuntuFile, false).getFont(0);
+        final OTFont lazy = OTFontCollection.create(ubuntuFile, true).getFont(0);
+        Assert.assertEquals(eager.getNumGlyphs(), lazy.getNumGlyphs());
+        // descending, so composite glyphs are decoded before their components
+        for(int i=lazy.getNumGlyphs()-1; i>=0; i--) {
+            assertEqualGlyphs(eager, lazy, i);
+        }
+    }
+    
+    static long usedHeap() {
+        final Runtime rt = Runtime.getRuntime();
+        for(int i=0; i<3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+    
+    /** @return nanoseconds to load the font and retrieve the {@link #latin} glyphs */
+    static long loadLatin(File file, boolean lazy) throws IOException {
+        final long t0 = System.nanoTime();
+        final OTFont font = OTFontCollection.create(file, lazy).getFont(0);
+        final CmapFormat cmap = font.getCmapTable().getCmapFormat(ID.platformMicrosoft, ID.encodingUnicode);
+        for(int i=0; i<latin.length(); i++) {
+            font.getGlyph(null != cmap ? cmap.mapCharCode(latin.charAt(i)) : 0);
+        }
+        return System.nanoTime() - t0;
+    }
+    
+    /** @return retained heap bytes of the loaded font */
+    static long retainedHeap(File file, boolean lazy) throws IOException {
+        final long h0 = usedHeap();
+        final OTFontCollection fc = OTFontCollection.create(file, lazy);
+        final long h1 = usedHeap();
+        Assert.assertTrue(fc.getFontCount() > 0);
+        return h1 - h0;
+    }
+    
+    @Test
+    public void testStartupAndMemory() throws IOException {
+        System.err.println("Font: "+benchFile+", "+benchFile.length()+" bytes, "+
+                           OTFontCollection.create(benchFile, true).getFont(0).getNumGlyphs()+" glyphs");
+        // warm up
+        loadLatin(benchFile, false);
+        loadLatin(benchFile, true);
+        long tEager = 0, tLazy = 0;
+        for(int i=0; i<iterations; i++) {
+            tEager += loadLatin(benchFile, false);
+            tLazy += loadLatin(benchFile, true);
+        }
+        System.err.println("Startup + latin glyphs: eager "+(tEager/iterations/1000)+" us, lazy "+(tLazy/iterations/1000)+" us");
+        
+        final long mEager = retainedHeap(benchFile, false);
+        final long mLazy = retainedHeap(benchFile, true);
+        System.err.println("Retained heap: eager "+(mEager/1024)+" KiB, lazy "+(mLazy/1024)+" KiB");
+    }
+
+    public static void main(String args[]) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-iterations")) {
+                i++;
+                iterations = Integer.parseInt(args[i]);
+            } else if (args[i].equals("-font")) {
+                i++;
+                fontFileName = args[i];
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestFontLazyLoadingNOUI.class.getName());
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+
+import jogamp.graph.curve.text.GlyphAtlas;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.font.FontSet;
+import com.jogamp.graph.geom.opengl.SVertex;
+
+public class TestGlyphAtlasNOUI {
+
+    static Font getFont() throws IOException {
+        return FontFactory.get(FontFactory.UBUNTU).get(FontSet.FAMILY_REGULAR, 0);
+    }
+
+    @Test
+    public void testTriangulateOnce() throws IOException {
+        final GlyphAtlas atlas = new GlyphAtlas(getFont(), SVertex.factory());
+        final GlyphAtlas.Instances instances = new GlyphAtlas.Instances(atlas);
+
+        atlas.layout("Hello World", 24, 0f, 0f, 0f, instances);
+        // H e l o ' ' W r d
+        Assert.assertEquals(8, atlas.getGlyphCount());
+        // all glyphs w/o the space
+        Assert.assertEquals(10, instances.size());
+        final int vertices = atlas.getVertexCount();
+        Assert.assertTrue(vertices > 0);
+        Assert.assertEquals(0, vertices % 3);
+
+        // no further triangulation for known glyphs, any size
+        atlas.layout("World Hello", 48, 0f, 100f, 0f, instances);
+        atlas.layout("lol", 12, 10f, 0f, 0f, instances);
+        Assert.assertEquals(8, atlas.getGlyphCount());
+        Assert.assertEquals(vertices, atlas.getVertexCount());
+        Assert.assertEquals(23, instances.size());
+
+        instances.clear();
+        Assert.assertEquals(0, instances.size());
+        Assert.assertEquals(0, instances.getVertexCount());
+    }
+
+    @Test
+    public void testInstanceVertexCount() throws IOException {
+        final GlyphAtlas atlas = new GlyphAtlas(getFont(), SVertex.factory());
+        final GlyphAtlas.Instances one = new GlyphAtlas.Instances(atlas);
+        final GlyphAtlas.Instances two = new GlyphAtlas.Instances(atlas);
+        atlas.layout("abc", 24, 0f, 0f, 0f, one);
+        atlas.layout("abc\nabc", 24, 0f, 0f, 0f, two);
+        Assert.assertEquals(3, one.size());
+        Assert.assertEquals(6, two.size());
+        Assert.assertEquals(2 * one.getVertexCount(), two.getVertexCount());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testForeignInstances() throws IOException {
+        final GlyphAtlas a = new GlyphAtlas(getFont(), SVertex.factory());
+        final GlyphAtlas b = new GlyphAtlas(getFont(), SVertex.factory());
+        a.layout("a", 24, 0f, 0f, 0f, new GlyphAtlas.Instances(b));
+    }
+
+    public static void main(String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestGlyphAtlasNOUI.class.getName());
+    }
+}
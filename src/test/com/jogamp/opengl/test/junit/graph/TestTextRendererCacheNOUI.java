@@ -0,0 +1,173 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.graph;
+
+import java.io.IOException;
+
+import javax.media.opengl.GL2ES2;
+
+import jogamp.graph.curve.text.GlyphString;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.graph.curve.opengl.RenderState;
+import com.jogamp.graph.curve.opengl.TextRenderer;
+import com.jogamp.graph.font.Font;
+import com.jogamp.graph.font.FontFactory;
+import com.jogamp.graph.font.FontSet;
+
+/**
+ * Validates the LRU policy, limits and counters of the {@link TextRenderer} string cache
+ * w/o a GL context, using GlyphString's w/o a Region and a faked byte size.
+ */
+public class TestTextRendererCacheNOUI {
+    static Font fontR, fontB;
+
+    @BeforeClass
+    public static void init() throws IOException {
+        fontR = FontFactory.get(FontFactory.UBUNTU).get(FontSet.FAMILY_REGULAR, 0);
+        fontB = FontFactory.get(FontFactory.UBUNTU).get(FontSet.FAMILY_REGULAR, FontSet.STYLE_BOLD);
+    }
+
+    static class SizedGlyphString extends GlyphString {
+        final int bytes;
+        boolean destroyed = false;
+        
+        SizedGlyphString(String str, int bytes) {
+            super("test", str);
+            this.bytes = bytes;
+        }
+        public int getSizeInBytes() { return bytes; }
+        public void destroy(GL2ES2 gl, RenderState rs) { destroyed = true; }
+    }
+    
+    static class CacheOnlyTextRenderer extends TextRenderer {
+        CacheOnlyTextRenderer() {
+            super(null, 0);
+        }
+        protected boolean initShaderProgram(GL2ES2 gl) { return false; }
+        public void drawString3D(GL2ES2 gl, Font font, String str, float[] position, int fontSize, int texSize) { }
+        public void addString3D(GL2ES2 gl, Font font, String str, float[] position, int fontSize) { }
+        public void flushStrings3D(GL2ES2 gl) { }
+        
+        GlyphString get(Font font, String str, int fontSize) {
+            return getCachedGlyphString(font, str, fontSize);
+        }
+        boolean add(Font font, String str, int fontSize, GlyphString glyphString) {
+            return addCachedGlyphString(null, font, str, fontSize, glyphString);
+        }
+    }
+    
+    @Test
+    public void testLRUEviction() {
+        final CacheOnlyTextRenderer renderer = new CacheOnlyTextRenderer();
+        renderer.setCacheLimit(3);
+        final SizedGlyphString a = new SizedGlyphString("a", 10);
+        final SizedGlyphString b = new SizedGlyphString("b", 10);
+        final SizedGlyphString c = new SizedGlyphString("c", 10);
+        final SizedGlyphString d = new SizedGlyphString("d", 10);
+        Assert.assertTrue(renderer.add(fontR, "a", 10, a));
+        Assert.assertTrue(renderer.add(fontR, "b", 10, b));
+        Assert.assertTrue(renderer.add(fontR, "c", 10, c));
+        
+        // touch 'a', making 'b' the least recently used one
+        Assert.assertSame(a, renderer.get(fontR, "a", 10));
+        Assert.assertTrue(renderer.add(fontR, "d", 10, d));
+        
+        Assert.assertEquals(3, renderer.getCacheSize());
+        Assert.assertEquals(30, renderer.getCacheBytes());
+        Assert.assertTrue(b.destroyed);
+        Assert.assertFalse(a.destroyed);
+        Assert.assertNull(renderer.get(fontR, "b", 10));
+        Assert.assertSame(a, renderer.get(fontR, "a", 10));
+        Assert.assertSame(c, renderer.get(fontR, "c", 10));
+        Assert.assertSame(d, renderer.get(fontR, "d", 10));
+        
+        Assert.assertEquals(4, renderer.getCacheHits());
+        Assert.assertEquals(1, renderer.getCacheMisses());
+        Assert.assertEquals(1, renderer.getCacheEvictions());
+        
+        renderer.resetCacheStats();
+        Assert.assertEquals(0, renderer.getCacheHits());
+        Assert.assertEquals(0, renderer.getCacheMisses());
+        Assert.assertEquals(0, renderer.getCacheEvictions());
+    }
+
+    @Test
+    public void testByteLimit() {
+        final CacheOnlyTextRenderer renderer = new CacheOnlyTextRenderer();
+        renderer.setCacheByteLimit(100);
+        final SizedGlyphString a = new SizedGlyphString("a", 40);
+        final SizedGlyphString b = new SizedGlyphString("b", 40);
+        final SizedGlyphString c = new SizedGlyphString("c", 40);
+        final SizedGlyphString huge = new SizedGlyphString("huge", 101);
+        Assert.assertTrue(renderer.add(fontR, "a", 10, a));
+        Assert.assertTrue(renderer.add(fontR, "b", 10, b));
+        Assert.assertEquals(80, renderer.getCacheBytes());
+        
+        Assert.assertTrue(renderer.add(fontR, "c", 10, c));
+        Assert.assertEquals(2, renderer.getCacheSize());
+        Assert.assertEquals(80, renderer.getCacheBytes());
+        Assert.assertTrue(a.destroyed);
+        Assert.assertEquals(1, renderer.getCacheEvictions());
+        
+        // exceeding the limit by itself, not cached and nothing evicted
+        Assert.assertFalse(renderer.add(fontR, "huge", 10, huge));
+        Assert.assertFalse(huge.destroyed);
+        Assert.assertEquals(2, renderer.getCacheSize());
+        Assert.assertEquals(1, renderer.getCacheEvictions());
+    }
+
+    @Test
+    public void testStructuredKey() {
+        final CacheOnlyTextRenderer renderer = new CacheOnlyTextRenderer();
+        // "Aa" and "BB" share the same String hash code
+        Assert.assertEquals("Aa".hashCode(), "BB".hashCode());
+        final SizedGlyphString aa = new SizedGlyphString("Aa", 1);
+        Assert.assertTrue(renderer.add(fontR, "Aa", 10, aa));
+        Assert.assertNull(renderer.get(fontR, "BB", 10));
+        Assert.assertNull(renderer.get(fontR, "Aa", 12));
+        Assert.assertNull(renderer.get(fontB, "Aa", 10));
+        Assert.assertSame(aa, renderer.get(fontR, new String("Aa"), 10));
+    }
+
+    @Test
+    public void testCacheOff() {
+        final CacheOnlyTextRenderer renderer = new CacheOnlyTextRenderer();
+        renderer.setCacheLimit(0);
+        Assert.assertFalse(renderer.add(fontR, "a", 10, new SizedGlyphString("a", 1)));
+        Assert.assertEquals(0, renderer.getCacheSize());
+        Assert.assertNull(renderer.get(fontR, "a", 10));
+    }
+
+    public static void main(String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestTextRendererCacheNOUI.class.getName());
+    }
+}
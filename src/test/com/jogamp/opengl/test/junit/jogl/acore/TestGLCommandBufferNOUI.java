@@ -0,0 +1,233 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLException;
+import javax.media.opengl.RecordGL2ES2;
+
+import com.jogamp.common.nio.Buffers;
+import com.jogamp.opengl.GLCommandBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Records GL calls via the generated {@link com.jogamp.opengl.GLCommandRecorder} 
+ * and validates their replay against a mock GL logging the calls reaching it.
+ */
+public class TestGLCommandBufferNOUI {
+    static int loops = 1000;
+
+    static class MockGL implements InvocationHandler {
+        final ArrayList<String> calls = new ArrayList<String>();
+        int nextName = 100;
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            if( m.getName().startsWith("getGL") && m.getReturnType().isInstance(proxy) ) {
+                return proxy;
+            }
+            final StringBuilder sb = new StringBuilder();
+            sb.append(m.getName()).append('(');
+            for(int i=0; null != args && i<args.length; i++) {
+                if( i > 0 ) {
+                    sb.append(", ");
+                }
+                final Object a = args[i];
+                if( a instanceof float[] ) {
+                    sb.append(Arrays.toString((float[])a));
+                } else if( a instanceof int[] ) {
+                    sb.append(Arrays.toString((int[])a));
+                } else if( a instanceof Object[] ) {
+                    sb.append(Arrays.toString((Object[])a));
+                } else if( a instanceof FloatBuffer ) {
+                    final FloatBuffer fb = (FloatBuffer) a;
+                    final float[] f = new float[fb.remaining()];
+                    fb.duplicate().get(f);
+                    sb.append(Arrays.toString(f));
+                } else {
+                    sb.append(a);
+                }
+            }
+            calls.add(sb.append(')').toString());
+            if( m.getName().equals("glGenBuffers") ) {
+                final int[] names = (int[]) args[1];
+                for(int i=0; i<((Integer)args[0]).intValue(); i++) {
+                    names[((Integer)args[2]).intValue()+i] = nextName++;
+                }
+            }
+            final Class<?> ret = m.getReturnType();
+            if( ret == Boolean.TYPE ) {
+                return Boolean.FALSE;
+            } else if( ret == Integer.TYPE ) {
+                return new Integer(0);
+            }
+            return null;
+        }
+    }
+
+    static GL2ES2 createMockGL(MockGL mock) {
+        return (GL2ES2) Proxy.newProxyInstance(TestGLCommandBufferNOUI.class.getClassLoader(), new Class<?>[] { GL2ES2.class }, mock);
+    }
+
+    static void draw(GL2ES2 gl, float[] color, FloatBuffer colorBuffer) {
+        gl.glUseProgram(7);
+        gl.glEnable(GL.GL_BLEND);
+        gl.glDepthMask(false);
+        gl.glUniform4fv(1, 1, color, 0);
+        gl.glUniform4fv(2, 1, colorBuffer);
+        gl.glVertexAttribPointer(0, 3, GL.GL_FLOAT, false, 12, 1L<<33);
+        gl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+    }
+
+    @Test
+    public void testReplay() {
+        final MockGL direct = new MockGL();
+        final MockGL replayed = new MockGL();
+        final float[] color = new float[] { 1f, 0f, 0f, 1f };
+        final FloatBuffer colorBuffer = Buffers.newDirectFloatBuffer(4);
+        colorBuffer.put(color).rewind();
+
+        draw(createMockGL(direct), color, colorBuffer);
+
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(replayed));
+        draw(rec, color, colorBuffer);
+        Assert.assertEquals(0, replayed.calls.size());
+        Assert.assertEquals(7, rec.getCommandBuffer().getCommandCount());
+
+        rec.replay(rec.getCommandBuffer(), createMockGL(replayed));
+        Assert.assertEquals(direct.calls, replayed.calls);
+
+        // replay again, e.g. a static command list
+        replayed.calls.clear();
+        rec.replay(rec.getCommandBuffer(), createMockGL(replayed));
+        Assert.assertEquals(direct.calls, replayed.calls);
+    }
+
+    @Test
+    public void testCaptureByCopy() {
+        final MockGL replayed = new MockGL();
+        final float[] color = new float[] { 1f, 0f, 0f, 1f };
+        final FloatBuffer colorBuffer = Buffers.newDirectFloatBuffer(4);
+        colorBuffer.put(color).rewind();
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(replayed));
+        Assert.assertTrue(rec.getCommandBuffer().isCopyingBuffers());
+        rec.glUniform4fv(1, 1, color, 0);
+        rec.glUniform4fv(2, 1, colorBuffer);
+        color[1] = 1f;
+        colorBuffer.put(1, 1f);
+        rec.replay(rec.getCommandBuffer(), createMockGL(replayed));
+        Assert.assertEquals("glUniform4fv(1, 1, [1.0, 0.0, 0.0, 1.0], 0)", replayed.calls.get(0));
+        Assert.assertEquals("glUniform4fv(2, 1, [1.0, 0.0, 0.0, 1.0])", replayed.calls.get(1));
+    }
+
+    @Test
+    public void testCaptureByReference() {
+        final MockGL replayed = new MockGL();
+        final float[] color = new float[] { 1f, 0f, 0f, 1f };
+        final FloatBuffer colorBuffer = Buffers.newDirectFloatBuffer(4);
+        colorBuffer.put(color).rewind();
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(replayed));
+        rec.setCommandBuffer(new GLCommandBuffer(GLCommandBuffer.DEFAULT_CAPACITY, false));
+        rec.glUniform4fv(1, 1, color, 0);
+        rec.glUniform4fv(2, 1, colorBuffer);
+        color[1] = 1f;
+        colorBuffer.put(1, 1f);
+        rec.replay(rec.getCommandBuffer(), createMockGL(replayed));
+        Assert.assertEquals("glUniform4fv(1, 1, [1.0, 1.0, 0.0, 1.0], 0)", replayed.calls.get(0));
+        Assert.assertEquals("glUniform4fv(2, 1, [1.0, 1.0, 0.0, 1.0])", replayed.calls.get(1));
+    }
+
+    @Test
+    public void testOutputArguments() {
+        final MockGL replayed = new MockGL();
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(replayed));
+        final int[] names = new int[2];
+        rec.glGenBuffers(2, names, 0);
+        Assert.assertEquals(0, names[0]);
+        rec.replay(rec.getCommandBuffer(), createMockGL(replayed));
+        // captured by reference, even in copy mode
+        Assert.assertEquals(100, names[0]);
+        Assert.assertEquals(101, names[1]);
+    }
+
+    @Test(expected=GLException.class)
+    public void testNotRecordable() {
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(new MockGL()));
+        rec.glGetError();
+    }
+
+    @Test
+    public void testGrowth() {
+        final MockGL replayed = new MockGL();
+        final RecordGL2ES2 rec = new RecordGL2ES2(createMockGL(replayed));
+        final GLCommandBuffer buf = new GLCommandBuffer(64, true);
+        rec.setCommandBuffer(buf);
+        final FloatBuffer colorBuffer = Buffers.newDirectFloatBuffer(4);
+        for(int i=0; i<loops; i++) {
+            colorBuffer.put(0, i);
+            rec.glUniform4fv(i, 1, colorBuffer);
+            rec.glDrawArrays(GL.GL_TRIANGLES, i, 3);
+        }
+        System.err.println(buf);
+        Assert.assertEquals(2*loops, buf.getCommandCount());
+        rec.replay(buf, createMockGL(replayed));
+        Assert.assertEquals(2*loops, replayed.calls.size());
+        for(int i=0; i<loops; i++) {
+            Assert.assertEquals("glUniform4fv("+i+", 1, ["+(float)i+", 0.0, 0.0, 0.0])", replayed.calls.get(2*i));
+            Assert.assertEquals("glDrawArrays("+GL.GL_TRIANGLES+", "+i+", 3)", replayed.calls.get(2*i+1));
+        }
+
+        buf.clear();
+        Assert.assertTrue(buf.isEmpty());
+        replayed.calls.clear();
+        rec.replay(buf, createMockGL(replayed));
+        Assert.assertEquals(0, replayed.calls.size());
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-loops")) {
+                i++;
+                try {
+                    loops = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestGLCommandBufferNOUI.class.getName());
+    }
+}
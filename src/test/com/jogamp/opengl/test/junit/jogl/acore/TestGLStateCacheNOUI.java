@@ -0,0 +1,229 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.StateCacheGL2;
+import javax.media.opengl.StateCacheGL2ES2;
+
+import com.jogamp.opengl.GLStateCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the redundant call filtering of the generated {@link GLStateCache} pipeline
+ * against a mock GL counting the calls reaching it.
+ */
+public class TestGLStateCacheNOUI {
+    static int frames = 100;
+
+    static class MockGL implements InvocationHandler {
+        final HashMap<String, Integer> calls = new HashMap<String, Integer>();
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            final Integer n = calls.get(m.getName());
+            calls.put(m.getName(), new Integer( null != n ? n.intValue() + 1 : 1 ));
+            final Class<?> ret = m.getReturnType();
+            if( ret == Boolean.TYPE ) {
+                return Boolean.FALSE;
+            } else if( ret == Integer.TYPE ) {
+                return new Integer(0);
+            }
+            return null;
+        }
+
+        int getCalls(String name) {
+            final Integer n = calls.get(name);
+            return null != n ? n.intValue() : 0;
+        }
+    }
+
+    static GL2ES2 createMockGL(MockGL mock) {
+        return (GL2ES2) Proxy.newProxyInstance(TestGLStateCacheNOUI.class.getClassLoader(), new Class<?>[] { GL2ES2.class }, mock);
+    }
+
+    static GL2 createMockGL2(MockGL mock) {
+        return (GL2) Proxy.newProxyInstance(TestGLStateCacheNOUI.class.getClassLoader(), new Class<?>[] { GL2.class }, mock);
+    }
+
+    /** Issues the same state per frame, as done by ShaderState and Texture */
+    static void frame(GL2ES2 gl) {
+        gl.glUseProgram(1);
+        gl.glEnable(GL.GL_BLEND);
+        gl.glBlendFunc(GL.GL_SRC_ALPHA, GL.GL_ONE_MINUS_SRC_ALPHA);
+        gl.glActiveTexture(GL.GL_TEXTURE0);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 4);
+        gl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 0);
+        gl.glBindBuffer(GL.GL_ARRAY_BUFFER, 4);
+        gl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+    }
+
+    @Test
+    public void testRedundantCalls() {
+        final MockGL mock = new MockGL();
+        final StateCacheGL2ES2 gl = new StateCacheGL2ES2(createMockGL(mock));
+        for(int i=0; i<frames; i++) {
+            frame(gl);
+            if( 0 == i ) {
+                Assert.assertEquals(0, gl.getRedundantCallCount());
+                gl.resetCounters();
+            }
+        }
+        System.err.println("eliminated calls/frame "+gl.getRedundantCallCount()/(frames-1)+" of "+gl.getTrackedCallCount()/(frames-1));
+        Assert.assertEquals(1, mock.getCalls("glUseProgram"));
+        Assert.assertEquals(1, mock.getCalls("glEnable"));
+        Assert.assertEquals(1, mock.getCalls("glBlendFunc"));
+        Assert.assertEquals(1, mock.getCalls("glActiveTexture"));
+        Assert.assertEquals(1, mock.getCalls("glBindTexture"));
+        // the buffer binding changes within the frame, only the first bind of the following frames is redundant
+        Assert.assertEquals(3+2*(frames-1), mock.getCalls("glBindBuffer"));
+        Assert.assertEquals(2*frames, mock.getCalls("glDrawArrays"));
+        Assert.assertEquals(6*(frames-1), gl.getRedundantCallCount());
+        Assert.assertEquals(8*(frames-1), gl.getTrackedCallCount());
+    }
+
+    @Test
+    public void testTextureUnits() {
+        final MockGL mock = new MockGL();
+        final StateCacheGL2ES2 gl = new StateCacheGL2ES2(createMockGL(mock));
+        // unknown texture unit
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        Assert.assertEquals(2, mock.getCalls("glBindTexture"));
+
+        gl.glActiveTexture(GL.GL_TEXTURE0);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        gl.glActiveTexture(GL.GL_TEXTURE0+1);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        gl.glActiveTexture(GL.GL_TEXTURE0);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        Assert.assertEquals(4, mock.getCalls("glBindTexture"));
+
+        // deleting textures invalidates the bindings
+        gl.glDeleteTextures(1, new int[] { 3 }, 0);
+        gl.glBindTexture(GL.GL_TEXTURE_2D, 3);
+        Assert.assertEquals(5, mock.getCalls("glBindTexture"));
+    }
+
+    @Test
+    public void testInvalidate() {
+        final MockGL mock = new MockGL();
+        final StateCacheGL2ES2 gl = new StateCacheGL2ES2(createMockGL(mock));
+        gl.glEnable(GL.GL_DEPTH_TEST);
+        gl.glDepthMask(true);
+        gl.glEnable(GL.GL_DEPTH_TEST);
+        gl.glDepthMask(true);
+        Assert.assertEquals(1, mock.getCalls("glEnable"));
+        Assert.assertEquals(1, mock.getCalls("glDepthMask"));
+
+        // external code may have changed the state
+        gl.invalidate();
+        gl.glEnable(GL.GL_DEPTH_TEST);
+        gl.glDepthMask(true);
+        Assert.assertEquals(2, mock.getCalls("glEnable"));
+        Assert.assertEquals(2, mock.getCalls("glDepthMask"));
+
+        gl.glDisable(GL.GL_DEPTH_TEST);
+        gl.glDisable(GL.GL_DEPTH_TEST);
+        Assert.assertEquals(1, mock.getCalls("glDisable"));
+    }
+
+    @Test
+    public void testDisplayList() {
+        final MockGL mock = new MockGL();
+        final StateCacheGL2 gl = new StateCacheGL2(createMockGL2(mock));
+        gl.glEnable(GL.GL_BLEND);
+        Assert.assertEquals(1, mock.getCalls("glEnable"));
+
+        // recorded only, all calls reach the list
+        gl.glNewList(1, GL2.GL_COMPILE);
+        gl.glEnable(GL.GL_BLEND);
+        gl.glDisable(GL.GL_BLEND);
+        gl.glDisable(GL.GL_BLEND);
+        gl.glBlendFunc(GL.GL_ONE, GL.GL_ZERO);
+        gl.glBlendFunc(GL.GL_ONE, GL.GL_ZERO);
+        gl.glEndList();
+        Assert.assertEquals(2, mock.getCalls("glEnable"));
+        Assert.assertEquals(2, mock.getCalls("glDisable"));
+        Assert.assertEquals(2, mock.getCalls("glBlendFunc"));
+
+        // the compiled calls were not executed, hence not shadowed
+        gl.glDisable(GL.GL_BLEND);
+        gl.glBlendFunc(GL.GL_ONE, GL.GL_ZERO);
+        Assert.assertEquals(3, mock.getCalls("glDisable"));
+        Assert.assertEquals(3, mock.getCalls("glBlendFunc"));
+
+        gl.glNewList(2, GL2.GL_COMPILE_AND_EXECUTE);
+        gl.glDisable(GL.GL_BLEND);
+        gl.glEnable(GL.GL_BLEND);
+        gl.glEndList();
+        Assert.assertEquals(4, mock.getCalls("glDisable"));
+        Assert.assertEquals(3, mock.getCalls("glEnable"));
+
+        // shadowing resumes after the list
+        gl.glEnable(GL.GL_BLEND);
+        gl.glEnable(GL.GL_BLEND);
+        Assert.assertEquals(4, mock.getCalls("glEnable"));
+    }
+
+    @Test
+    public void testFilteringDisabled() {
+        final MockGL mock = new MockGL();
+        final StateCacheGL2ES2 gl = new StateCacheGL2ES2(createMockGL(mock));
+        gl.setFiltering(false);
+        for(int i=0; i<frames; i++) {
+            frame(gl);
+        }
+        // all calls pass, the redundant ones are still counted
+        Assert.assertEquals(frames, mock.getCalls("glUseProgram"));
+        Assert.assertEquals(6*(frames-1), gl.getRedundantCallCount());
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-frames")) {
+                i++;
+                try {
+                    frames = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestGLStateCacheNOUI.class.getName());
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.media.nativewindow.NativeSurface;
+import javax.media.nativewindow.SurfaceUpdatedListener;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLEventListener;
+
+import jogamp.nativewindow.ListenerArrays;
+import jogamp.nativewindow.SurfaceUpdatedHelper;
+import jogamp.opengl.GLDrawableHelper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the copy-on-write listener arrays and measures the dispatch cost
+ * of {@link GLDrawableHelper} and {@link SurfaceUpdatedHelper} versus the listener count.
+ */
+public class TestListenerDispatchPerfNOUI {
+    static int iterations = 200000;
+    static final int[] listenerCounts = { 1, 4, 16, 64 };
+
+    static class CountingListener implements GLEventListener, SurfaceUpdatedListener {
+        int init, display, dispose, updated;
+        public void init(GLAutoDrawable drawable) { init++; }
+        public void dispose(GLAutoDrawable drawable) { dispose++; }
+        public void display(GLAutoDrawable drawable) { display++; }
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) { }
+        public void surfaceUpdated(Object updater, NativeSurface ns, long when) { updated++; }
+    }
+
+    @Test
+    public void testListenerArrays() {
+        String[] a = new String[0];
+        a = ListenerArrays.add(a, -1, "b");
+        a = ListenerArrays.add(a, 0, "a");
+        a = ListenerArrays.add(a, 2, "c");
+        Assert.assertArrayEquals(new String[] { "a", "b", "c" }, a);
+        final String[] snapshot = a;
+        a = ListenerArrays.remove(a, "b");
+        Assert.assertArrayEquals(new String[] { "a", "c" }, a);
+        Assert.assertArrayEquals(new String[] { "a", "b", "c" }, snapshot);
+        Assert.assertSame(a, ListenerArrays.remove(a, "x"));
+        Assert.assertEquals(1, ListenerArrays.indexOf(a, "c"));
+        Assert.assertEquals(-1, ListenerArrays.indexOf(a, "b"));
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testListenerArraysBadIndex() {
+        ListenerArrays.add(new String[1], 2, "x");
+    }
+
+    @Test
+    public void testModificationWhileDispatching() {
+        final GLDrawableHelper helper = new GLDrawableHelper();
+        final CountingListener late = new CountingListener();
+        final CountingListener first = new CountingListener() {
+            public void display(GLAutoDrawable drawable) {
+                super.display(drawable);
+                // affects the next display call only
+                helper.removeGLEventListener(this);
+                helper.addGLEventListener(late);
+            }
+        };
+        final CountingListener second = new CountingListener();
+        helper.addGLEventListener(first);
+        helper.addGLEventListener(second);
+        helper.init(null);
+        Assert.assertEquals(1, first.init);
+        Assert.assertEquals(1, second.init);
+
+        helper.display(null);
+        Assert.assertEquals(1, first.display);
+        Assert.assertEquals(1, second.display);
+        Assert.assertEquals(0, late.init);
+        Assert.assertEquals(0, late.display);
+
+        helper.init(null); // late listener, w/o reshape
+        helper.display(null);
+        Assert.assertEquals(1, first.display);
+        Assert.assertEquals(2, second.display);
+        Assert.assertEquals(1, late.init);
+        Assert.assertEquals(1, late.display);
+
+        helper.dispose(null);
+        Assert.assertEquals(0, first.dispose);
+        Assert.assertEquals(1, second.dispose);
+        Assert.assertEquals(1, late.dispose);
+    }
+
+    @Test
+    public void testConcurrentModification() throws InterruptedException {
+        final SurfaceUpdatedHelper helper = new SurfaceUpdatedHelper();
+        final CountingListener stable = new CountingListener();
+        helper.addSurfaceUpdatedListener(stable);
+        final AtomicBoolean stop = new AtomicBoolean(false);
+        final Thread modifier = new Thread(new Runnable() {
+            public void run() {
+                while(!stop.get()) {
+                    final CountingListener l = new CountingListener();
+                    helper.addSurfaceUpdatedListener(0, l);
+                    helper.removeSurfaceUpdatedListener(l);
+                }
+            } }, "ListenerModifier");
+        modifier.start();
+        try {
+            for(int i=0; i<iterations; i++) {
+                helper.surfaceUpdated(this, null, i);
+            }
+        } finally {
+            stop.set(true);
+            modifier.join();
+        }
+        Assert.assertEquals(iterations, stable.updated);
+        Assert.assertEquals(1, helper.size());
+    }
+
+    @Test
+    public void testDispatchPerf() {
+        System.err.println("Dispatch cost, "+iterations+" iterations");
+        System.err.println("listeners, GLDrawableHelper.display [ns/listener], SurfaceUpdatedHelper.surfaceUpdated [ns/listener]");
+        for(int j=0; j<listenerCounts.length; j++) {
+            final int n = listenerCounts[j];
+            final GLDrawableHelper glHelper = new GLDrawableHelper();
+            final SurfaceUpdatedHelper suHelper = new SurfaceUpdatedHelper();
+            final CountingListener[] ls = new CountingListener[n];
+            for(int i=0; i<n; i++) {
+                ls[i] = new CountingListener();
+                glHelper.addGLEventListener(ls[i]);
+                suHelper.addSurfaceUpdatedListener(ls[i]);
+            }
+            glHelper.init(null);
+
+            // warm up
+            for(int i=0; i<iterations/10; i++) {
+                glHelper.display(null);
+                suHelper.surfaceUpdated(this, null, i);
+            }
+            long t0 = System.nanoTime();
+            for(int i=0; i<iterations; i++) {
+                glHelper.display(null);
+            }
+            final long tGL = System.nanoTime() - t0;
+            t0 = System.nanoTime();
+            for(int i=0; i<iterations; i++) {
+                suHelper.surfaceUpdated(this, null, i);
+            }
+            final long tSU = System.nanoTime() - t0;
+
+            final long total = (long)iterations*n;
+            System.err.printf("%4d, %8.2f, %8.2f%n", n, (double)tGL/total, (double)tSU/total);
+
+            for(int i=0; i<n; i++) {
+                Assert.assertEquals(iterations+iterations/10, ls[i].display);
+                Assert.assertEquals(iterations+iterations/10, ls[i].updated);
+            }
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-iterations")) {
+                i++;
+                try {
+                    iterations = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestListenerDispatchPerfNOUI.class.getName());
+    }
+}
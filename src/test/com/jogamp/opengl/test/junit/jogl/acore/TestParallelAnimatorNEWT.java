@@ -0,0 +1,193 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.acore;
+
+import java.io.IOException;
+
+import com.jogamp.newt.opengl.GLWindow;
+
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLProfile;
+import com.jogamp.opengl.util.Animator;
+
+import com.jogamp.opengl.test.junit.util.AWTRobotUtil;
+import com.jogamp.opengl.test.junit.util.UITestCase;
+import com.jogamp.opengl.test.junit.jogl.demos.es2.GearsES2;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Renders multiple independent GLWindows with an Animator in parallel display mode
+ * and validates the per drawable timing.
+ */
+public class TestParallelAnimatorNEWT extends UITestCase {
+    static GLCapabilities caps;
+    static int width, height;
+    static int windowCount = 4;
+    static long duration = 500; // ms
+
+    @BeforeClass
+    public static void initClass() {
+        final GLProfile glp = GLProfile.getGL2ES2();
+        Assert.assertNotNull(glp);
+        caps = new GLCapabilities(glp);
+        width  = 256;
+        height = 256;
+    }
+
+    protected GLWindow createWindow(Animator animator, int i) throws InterruptedException {
+        final GLWindow glWindow = GLWindow.create(caps);
+        Assert.assertNotNull(glWindow);
+        glWindow.setTitle("Parallel Animator NEWT Test: "+i);
+        glWindow.setSize(width, height);
+        glWindow.addGLEventListener(new GearsES2(0));
+        animator.add(glWindow);
+        glWindow.setVisible(true);
+        Assert.assertTrue(AWTRobotUtil.waitForRealized(glWindow, true));
+        Assert.assertTrue(AWTRobotUtil.waitForVisible(glWindow, true));
+        glWindow.setPosition( ( i % 4 ) * width, ( i / 4 ) * height );
+        return glWindow;
+    }
+
+    protected void animate(Animator animator) throws InterruptedException {
+        animator.resetFPSCounter();
+        while(animator.isAnimating() && animator.getTotalFPSDuration()<duration) {
+            Thread.sleep(100);
+        }
+    }
+
+    @Test
+    public void test01ParallelDisplay() throws InterruptedException {
+        final Animator animator = new Animator();
+        final GLWindow[] windows = new GLWindow[windowCount];
+        for(int i=0; i<windowCount; i++) {
+            windows[i] = createWindow(animator, i);
+        }
+        animator.setUpdateFPSFrames(60, System.err);
+        animator.start();
+
+        animate(animator);
+        final float sequentialFPS = animator.getTotalFPS();
+        Assert.assertFalse(animator.isParallelDisplay());
+        Assert.assertNull(animator.getSlowestDrawable());
+
+        animator.setParallelDisplay(true);
+        Assert.assertTrue(animator.isParallelDisplay());
+        Assert.assertTrue(animator.isAnimating());
+        animate(animator);
+        final float parallelFPS = animator.getTotalFPS();
+
+        final GLAutoDrawable slowest = animator.getSlowestDrawable();
+        Assert.assertNotNull(slowest);
+        for(int i=0; i<windowCount; i++) {
+            final long avg = animator.getAverageDisplayDuration(windows[i]);
+            final long max = animator.getMaxDisplayDuration(windows[i]);
+            System.err.println("Window "+i+": display avg "+avg/1000+" us, max "+max/1000+" us"+(slowest == windows[i] ? ", slowest" : ""));
+            Assert.assertTrue(avg > 0);
+            Assert.assertTrue(max >= avg);
+            Assert.assertTrue(windows[i].getAutoSwapBufferMode());
+        }
+        System.err.println("FPS sequential "+sequentialFPS+", parallel "+parallelFPS);
+
+        animator.setParallelDisplay(false);
+        Assert.assertFalse(animator.isParallelDisplay());
+        Assert.assertEquals(0, animator.getAverageDisplayDuration(windows[0]));
+        animate(animator);
+        animator.stop();
+
+        for(int i=0; i<windowCount; i++) {
+            windows[i].destroy();
+        }
+    }
+
+    /** @return number of live parallel display worker threads, waiting up to 1s for them to exit if <code>expectNone</code> */
+    static int countWorkers(boolean expectNone) throws InterruptedException {
+        int n = 0;
+        for(int wait=0; wait<10; wait++) {
+            final Thread[] threads = new Thread[Thread.activeCount() * 2];
+            final int count = Thread.enumerate(threads);
+            n = 0;
+            for(int i=0; i<count; i++) {
+                if( threads[i].getName().contains("-Worker-") && threads[i].isAlive() ) {
+                    n++;
+                }
+            }
+            if( !expectNone || 0 == n ) {
+                break;
+            }
+            Thread.sleep(100);
+        }
+        return n;
+    }
+
+    @Test
+    public void test02StopRestart() throws InterruptedException {
+        final Animator animator = new Animator();
+        final GLWindow[] windows = new GLWindow[windowCount];
+        for(int i=0; i<windowCount; i++) {
+            windows[i] = createWindow(animator, i);
+        }
+        animator.setParallelDisplay(true);
+        for(int j=0; j<2; j++) {
+            animator.start();
+            animate(animator);
+            Assert.assertTrue(animator.getAverageDisplayDuration(windows[0]) > 0);
+            Assert.assertEquals(windowCount, countWorkers(false));
+
+            // stopping releases the worker threads, the next start creates new ones
+            animator.stop();
+            Assert.assertTrue(animator.isParallelDisplay());
+            Assert.assertEquals(0, animator.getAverageDisplayDuration(windows[0]));
+            Assert.assertEquals(0, countWorkers(true));
+        }
+
+        for(int i=0; i<windowCount; i++) {
+            windows[i].destroy();
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-time")) {
+                i++;
+                try {
+                    duration = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            } else if(args[i].equals("-windows")) {
+                i++;
+                try {
+                    windowCount = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestParallelAnimatorNEWT.class.getName());
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Copyright 2012 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ * 
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ * 
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ * 
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.awt;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.lang.reflect.InvocationTargetException;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLProfile;
+import javax.media.opengl.awt.GLJPanel;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.opengl.test.junit.util.UITestCase;
+
+/**
+ * Renders a static pattern into an offscreen {@link GLJPanel} and verifies the
+ * asynchronous read back via pixel pack buffers, see {@link GLJPanel#setPBOReadbackCount(int)},
+ * results in the same image as the synchronous read back.
+ */
+public class TestGLJPanelReadbackAWT extends UITestCase {
+    static final int width = 128, height = 96;
+    static final int frames = 6; // more than the pixel pack buffer latency
+    static GLProfile glp;
+
+    @BeforeClass
+    public static void initClass() {
+        glp = GLProfile.getDefault();
+        Assert.assertNotNull(glp);
+    }
+
+    /** Clears four asymmetric quadrants in distinct colors, i.e. a pattern revealing flipped or shifted rows. */
+    static class Quadrants implements GLEventListener {
+        public void init(GLAutoDrawable drawable) {}
+        public void dispose(GLAutoDrawable drawable) {}
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {}
+        public void display(GLAutoDrawable drawable) {
+            final GL gl = drawable.getGL();
+            final int w = drawable.getWidth(), h = drawable.getHeight();
+            gl.glEnable(GL.GL_SCISSOR_TEST);
+            for (int i = 0; i < 4; i++) {
+                gl.glScissor(( i % 2 ) * w / 2, ( i / 2 ) * h / 3, w / 2, 0 == i / 2 ? h / 3 : h - h / 3);
+                gl.glClearColor(0 == i % 2 ? 1f : 0f, 0 != i % 3 ? 1f : 0f, 1 < i ? 1f : 0f, 1f);
+                gl.glClear(GL.GL_COLOR_BUFFER_BIT);
+            }
+            gl.glDisable(GL.GL_SCISSOR_TEST);
+        }
+    }
+
+    /** Paints the panel <code>frames</code> times, returning the last image. */
+    static int[] readback(final GLJPanel glJPanel, int pboCount) throws InterruptedException, InvocationTargetException {
+        glJPanel.setPBOReadbackCount(pboCount);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                for (int i = 0; i < frames; i++) {
+                    final Graphics g = image.getGraphics();
+                    glJPanel.paint(g);
+                    g.dispose();
+                }
+            } } );
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    @Test
+    public void testPBOReadback() throws InterruptedException, InvocationTargetException {
+        final GLCapabilities caps = new GLCapabilities(glp);
+        final JFrame frame = new JFrame("GLJPanel Readback");
+        final GLJPanel glJPanel = new GLJPanel(caps);
+        glJPanel.setOpaque(true);
+        glJPanel.setPreferredSize(new Dimension(width, height));
+        glJPanel.addGLEventListener(new Quadrants());
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                frame.getContentPane().add(glJPanel, BorderLayout.CENTER);
+                frame.pack();
+                frame.setVisible(true);
+            } } );
+        Assert.assertEquals(width, glJPanel.getWidth());
+        Assert.assertEquals(height, glJPanel.getHeight());
+
+        final int[] sync = readback(glJPanel, 0);
+        for (int count = 2; count <= 3; count++) {
+            final int[] async = readback(glJPanel, count);
+            Assert.assertArrayEquals("PBO read back with "+count+" buffers", sync, async);
+        }
+        // synchronous read back after PBOs have been used
+        Assert.assertArrayEquals(sync, readback(glJPanel, 0));
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            public void run() {
+                frame.setVisible(false);
+                frame.getContentPane().remove(glJPanel);
+                glJPanel.destroy();
+                frame.dispose();
+            } } );
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestGLJPanelReadbackAWT.class.getName());
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.glsl;
+
+import com.jogamp.opengl.util.glsl.ShaderCode;
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.ShaderProgramCache;
+import com.jogamp.opengl.test.junit.jogl.demos.es2.shader.RedSquareShader;
+import com.jogamp.opengl.test.junit.util.MiscUtils;
+import com.jogamp.opengl.test.junit.util.NEWTGLContext;
+import com.jogamp.opengl.test.junit.util.UITestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLProfile;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Links a set of shader program variants cold and warm via {@link ShaderProgramCache},
+ * validates rejection of corrupt entries and the size bound and reports the startup timing.
+ */
+public class TestShaderProgramCacheNEWT extends UITestCase {
+    static int variants = 40;
+
+    static ShaderProgram createProgram(int variant) {
+        final String define = "#define VARIANT "+variant+"\n";
+        final ShaderProgram sp = new ShaderProgram();
+        sp.add(new ShaderCode(GL2ES2.GL_VERTEX_SHADER, 1, new String[][] { { define, RedSquareShader.VERTEX_SHADER_TEXT } }));
+        sp.add(new ShaderCode(GL2ES2.GL_FRAGMENT_SHADER, 1, new String[][] { { define, RedSquareShader.FRAGMENT_SHADER_TEXT } }));
+        return sp;
+    }
+
+    static void linkAll(GL2ES2 gl, ShaderProgramCache cache) {
+        for(int i=0; i<variants; i++) {
+            final ShaderProgram sp = createProgram(i);
+            Assert.assertTrue(cache.link(gl, sp, System.err));
+            Assert.assertTrue(sp.linked());
+            sp.useProgram(gl, true);
+            sp.useProgram(gl, false);
+            Assert.assertEquals(GL.GL_NO_ERROR, gl.glGetError());
+            sp.destroy(gl);
+        }
+    }
+
+    static File createCacheDir() throws IOException {
+        final File dir = File.createTempFile("jogl-programcache", "");
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(dir.mkdirs());
+        return dir;
+    }
+
+    static void deleteCacheDir(File dir) {
+        final File[] files = dir.listFiles();
+        for(int i=0; null != files && i<files.length; i++) {
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void test01ColdWarm() throws InterruptedException, IOException {
+        final NEWTGLContext.WindowContext winctx = NEWTGLContext.createOnscreenWindow(GLProfile.getGL2ES2(), 64, 64, true);
+        final GL2ES2 gl = winctx.context.getGL().getGL2ES2();
+        final File dir = createCacheDir();
+        try {
+            final boolean available = ShaderProgramCache.isAvailable(gl);
+            System.err.println("Program binaries available: "+available);
+
+            final ShaderProgramCache cold = new ShaderProgramCache(dir, ShaderProgramCache.DEFAULT_MAX_SIZE);
+            linkAll(gl, cold);
+            System.err.println("cold: "+cold);
+            Assert.assertEquals(0, cold.getHitCount());
+            Assert.assertEquals(variants, cold.getMissCount());
+
+            final ShaderProgramCache warm = new ShaderProgramCache(dir, ShaderProgramCache.DEFAULT_MAX_SIZE);
+            linkAll(gl, warm);
+            System.err.println("warm: "+warm);
+            if( available && variants == cold.getStoreCount() ) {
+                Assert.assertEquals(variants, warm.getHitCount());
+                Assert.assertEquals(0, warm.getMissCount());
+                Assert.assertEquals(1f, warm.getHitRate(), 0f);
+            }
+
+            // corrupt one entry, it must be rejected and recompiled
+            final File[] entries = dir.listFiles();
+            if( null != entries && 0 < entries.length ) {
+                final RandomAccessFile raf = new RandomAccessFile(entries[0], "rw");
+                raf.seek(raf.length()-1);
+                final int b = raf.read();
+                raf.seek(raf.length()-1);
+                raf.write(~b);
+                raf.close();
+                final ShaderProgramCache corrupt = new ShaderProgramCache(dir, ShaderProgramCache.DEFAULT_MAX_SIZE);
+                linkAll(gl, corrupt);
+                System.err.println("corrupt: "+corrupt);
+                Assert.assertEquals(1, corrupt.getRejectCount());
+                Assert.assertEquals(1, corrupt.getMissCount());
+                Assert.assertEquals(variants, corrupt.getEntryCount());
+            }
+        } finally {
+            deleteCacheDir(dir);
+            NEWTGLContext.destroyWindow(winctx);
+        }
+    }
+
+    @Test
+    public void test02SizeBound() throws InterruptedException, IOException {
+        final NEWTGLContext.WindowContext winctx = NEWTGLContext.createOnscreenWindow(GLProfile.getGL2ES2(), 64, 64, true);
+        final GL2ES2 gl = winctx.context.getGL().getGL2ES2();
+        final File dir = createCacheDir();
+        try {
+            final ShaderProgramCache probe = new ShaderProgramCache(dir, ShaderProgramCache.DEFAULT_MAX_SIZE);
+            Assert.assertTrue(probe.link(gl, createProgram(0), System.err));
+            final long entrySize = probe.getSize();
+            if( 0 < entrySize ) {
+                final ShaderProgramCache cache = new ShaderProgramCache(dir, entrySize * 4);
+                linkAll(gl, cache);
+                System.err.println("bound: "+cache);
+                Assert.assertTrue(cache.getSize() <= cache.getMaxSize());
+                Assert.assertTrue(0 < cache.getEvictCount());
+            }
+        } finally {
+            deleteCacheDir(dir);
+            NEWTGLContext.destroyWindow(winctx);
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-variants")) {
+                variants = MiscUtils.atoi(args[++i], variants);
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestShaderProgramCacheNEWT.class.getName());
+    }
+}
@@ -0,0 +1,303 @@
+/**
+ * Copyright 2010 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+
+package com.jogamp.opengl.test.junit.jogl.glsl;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLUniformData;
+
+import com.jogamp.opengl.util.glsl.ShaderProgram;
+import com.jogamp.opengl.util.glsl.ShaderState;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the slot based uniform and attribute access of {@link ShaderState} against a mock GL,
+ * and benchmarks it against the name based {@link GLUniformData} path reporting the <code>glUniform*</code> calls avoided.
+ */
+public class TestShaderStateUniformSlotsNOUI {
+    static int frames = 1000;
+
+    static final String[] uniformNames = { "mgl_PMVMatrix", "mgl_ActiveTexture", "mgl_LightPos", "mgl_Ambient", 
+                                           "mgl_Diffuse", "mgl_Specular", "mgl_Shininess", "mgl_Time" };
+
+    /** Mock GL counting calls, resolving uniform and attribute locations by their name's index. */
+    static class MockGL implements InvocationHandler {
+        final GL2ES2 gl = (GL2ES2) Proxy.newProxyInstance(GL2ES2.class.getClassLoader(), new Class[] { GL2ES2.class }, this);
+        final Map<String, int[]> calls = new HashMap<String, int[]>();
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            final String name = m.getName();
+            int[] count = calls.get(name);
+            if( null == count ) {
+                count = new int[1];
+                calls.put(name, count);
+            }
+            count[0]++;
+            if( name.equals("glCreateProgram") ) {
+                return Integer.valueOf(1);
+            } else if( name.equals("glGetUniformLocation") ) {
+                final String uname = (String) args[1];
+                for(int i=0; i<uniformNames.length; i++) {
+                    if( uniformNames[i].equals(uname) ) {
+                        return Integer.valueOf(i);
+                    }
+                }
+                return Integer.valueOf(-1);
+            } else if( name.equals("glGetAttribLocation") ) {
+                return Integer.valueOf( "mgl_Vertex".equals(args[1]) ? 0 : -1 );
+            }
+            final Class<?> rt = m.getReturnType();
+            if( rt == boolean.class ) {
+                return Boolean.FALSE;
+            } else if( rt == int.class ) {
+                return Integer.valueOf(0);
+            } else if( rt == long.class ) {
+                return Long.valueOf(0);
+            }
+            return null;
+        }
+
+        int getCalls(String name) {
+            final int[] count = calls.get(name);
+            return null != count ? count[0] : 0;
+        }
+
+        int getUniformCalls() {
+            int n = 0;
+            for(Map.Entry<String, int[]> e : calls.entrySet()) {
+                if( e.getKey().startsWith("glUniform") ) {
+                    n += e.getValue()[0];
+                }
+            }
+            return n;
+        }
+
+        void clear() {
+            calls.clear();
+        }
+    }
+
+    /** Program linking without shader code, the mock GL cannot validate it. */
+    static class MockProgram extends ShaderProgram {
+        @Override
+        public synchronized boolean link(GL2ES2 gl, PrintStream verboseOut) {
+            init(gl);
+            gl.glLinkProgram(program());
+            programLinkCount++;
+            programLinked = true;
+            return true;
+        }
+    }
+
+    static ShaderState createState(MockGL mock, ShaderProgram prog) {
+        final ShaderState st = new ShaderState();
+        st.attachShaderProgram(mock.gl, prog);
+        prog.link(mock.gl, null);
+        prog.useProgram(mock.gl, true);
+        return st;
+    }
+
+    @Test
+    public void test01RedundantValuesSkipped() {
+        final MockGL mock = new MockGL();
+        final ShaderState st = createState(mock, new MockProgram());
+        final int sTex = st.getUniformSlot("mgl_ActiveTexture");
+        final int sLight = st.getUniformSlot("mgl_LightPos");
+        final int sNone = st.getUniformSlot("mgl_Unknown");
+        Assert.assertEquals(sTex, st.getUniformSlot("mgl_ActiveTexture"));
+
+        for(int i=0; i<10; i++) {
+            Assert.assertTrue(st.uniform(mock.gl, sTex, 0));
+            Assert.assertTrue(st.uniform(mock.gl, sLight, 1f, 2f, 3f));
+            Assert.assertFalse(st.uniform(mock.gl, sNone, 1f));
+        }
+        Assert.assertEquals(1, mock.getCalls("glUniform1i"));
+        Assert.assertEquals(1, mock.getCalls("glUniform3f"));
+        Assert.assertEquals(0, mock.getCalls("glUniform1f"));
+        Assert.assertEquals(3, mock.getCalls("glGetUniformLocation"));
+
+        st.uniform(mock.gl, sLight, 1f, 2f, 4f);
+        st.uniform(mock.gl, sTex, 1);
+        Assert.assertEquals(2, mock.getCalls("glUniform1i"));
+        Assert.assertEquals(2, mock.getCalls("glUniform3f"));
+
+        // same slot, different type and components
+        st.uniform(mock.gl, sLight, 1f, 2f, 4f, 1f);
+        Assert.assertEquals(1, mock.getCalls("glUniform4f"));
+        // -0f differs from 0f in its bits and is passed
+        st.uniform(mock.gl, sTex, 0f);
+        st.uniform(mock.gl, sTex, -0f);
+        Assert.assertEquals(2, mock.getCalls("glUniform1f"));
+    }
+
+    @Test
+    public void test02ArraysAndMatrices() {
+        final MockGL mock = new MockGL();
+        final ShaderState st = createState(mock, new MockProgram());
+        final int sMat = st.getUniformSlot("mgl_PMVMatrix");
+        final int sDiffuse = st.getUniformSlot("mgl_Diffuse");
+        final float[] m = new float[32];
+        for(int i=0; i<m.length; i++) {
+            m[i] = i;
+        }
+        st.uniformMatrix(mock.gl, sMat, 4, 2, false, m, 0);
+        st.uniformMatrix(mock.gl, sMat, 4, 2, false, m, 0);
+        Assert.assertEquals(1, mock.getCalls("glUniformMatrix4fv"));
+        m[31] = -1f;
+        st.uniformMatrix(mock.gl, sMat, 4, 2, false, m, 0);
+        st.uniformMatrix(mock.gl, sMat, 4, 2, false, m, 0);
+        Assert.assertEquals(2, mock.getCalls("glUniformMatrix4fv"));
+        st.uniformMatrix(mock.gl, sMat, 4, 2, true, m, 0);
+        Assert.assertEquals(3, mock.getCalls("glUniformMatrix4fv"));
+        st.uniformMatrix(mock.gl, sMat, 4, 1, true, m, 16);
+        Assert.assertEquals(4, mock.getCalls("glUniformMatrix4fv"));
+
+        st.uniform(mock.gl, sDiffuse, 4, 1, m, 0);
+        st.uniform(mock.gl, sDiffuse, 4, 1, m, 0);
+        Assert.assertEquals(1, mock.getCalls("glUniform4fv"));
+        st.uniform(mock.gl, sDiffuse, 4, 1, m, 4);
+        Assert.assertEquals(2, mock.getCalls("glUniform4fv"));
+    }
+
+    @Test
+    public void test03RelinkAndNamedUniformInvalidate() {
+        final MockGL mock = new MockGL();
+        final MockProgram prog = new MockProgram();
+        final ShaderState st = createState(mock, prog);
+        final int sTime = st.getUniformSlot("mgl_Time");
+        st.uniform(mock.gl, sTime, 1f);
+        st.uniform(mock.gl, sTime, 1f);
+        Assert.assertEquals(1, mock.getCalls("glUniform1f"));
+        Assert.assertEquals(1, mock.getCalls("glGetUniformLocation"));
+
+        // named path overrides the value behind the cache
+        st.uniform(mock.gl, new GLUniformData("mgl_Time", 2f));
+        st.uniform(mock.gl, sTime, 1f);
+        Assert.assertEquals(2, mock.getCalls("glUniform1f"));
+
+        // relink drops locations and values
+        prog.link(mock.gl, null);
+        st.uniform(mock.gl, sTime, 1f);
+        Assert.assertEquals(3, mock.getCalls("glUniform1f"));
+        Assert.assertEquals(3, mock.getCalls("glGetUniformLocation"));
+
+        st.invalidateUniformSlots();
+        st.uniform(mock.gl, sTime, 1f);
+        Assert.assertEquals(4, mock.getCalls("glUniform1f"));
+    }
+
+    @Test
+    public void test04AttribSlots() {
+        final MockGL mock = new MockGL();
+        final MockProgram prog = new MockProgram();
+        final ShaderState st = createState(mock, prog);
+        final int sVertex = st.getAttribSlot("mgl_Vertex");
+        final int sNone = st.getAttribSlot("mgl_Unknown");
+        for(int i=0; i<10; i++) {
+            Assert.assertEquals(0, st.getAttribLocation(mock.gl, sVertex));
+            Assert.assertEquals(-1, st.getAttribLocation(mock.gl, sNone));
+        }
+        Assert.assertEquals(2, mock.getCalls("glGetAttribLocation"));
+        prog.link(mock.gl, null);
+        Assert.assertEquals(0, st.getAttribLocation(mock.gl, sVertex));
+        Assert.assertEquals(2, mock.getCalls("glGetAttribLocation")); // still cached by name
+    }
+
+    /** Typical frame: only the matrix and the time change, the material and light state is static. */
+    @Test
+    public void test10Benchmark() {
+        final float[] mat = new float[16];
+        final MockGL mock = new MockGL();
+
+        // name based
+        final ShaderState stNamed = createState(mock, new MockProgram());
+        final GLUniformData[] named = new GLUniformData[uniformNames.length];
+        named[0] = new GLUniformData(uniformNames[0], 4, 4, java.nio.FloatBuffer.wrap(mat));
+        named[1] = new GLUniformData(uniformNames[1], 0);
+        for(int i=2; i<named.length; i++) {
+            named[i] = new GLUniformData(uniformNames[i], 0.5f);
+        }
+        mock.clear();
+        long t0 = System.nanoTime();
+        for(int f=0; f<frames; f++) {
+            mat[12] = f;
+            named[named.length-1].setData((float)f);
+            for(int i=0; i<named.length; i++) {
+                stNamed.uniform(mock.gl, named[i]);
+            }
+        }
+        final long tNamed = System.nanoTime() - t0;
+        final int callsNamed = mock.getCalls("glUniform");
+
+        // slot based
+        final ShaderState stSlots = createState(mock, new MockProgram());
+        final int[] slots = new int[uniformNames.length];
+        for(int i=0; i<slots.length; i++) {
+            slots[i] = stSlots.getUniformSlot(uniformNames[i]);
+        }
+        mock.clear();
+        t0 = System.nanoTime();
+        for(int f=0; f<frames; f++) {
+            mat[12] = f;
+            stSlots.uniformMatrix(mock.gl, slots[0], 4, 1, false, mat, 0);
+            stSlots.uniform(mock.gl, slots[1], 0);
+            for(int i=2; i<slots.length-1; i++) {
+                stSlots.uniform(mock.gl, slots[i], 0.5f);
+            }
+            stSlots.uniform(mock.gl, slots[slots.length-1], (float)f);
+        }
+        final long tSlots = System.nanoTime() - t0;
+        final int callsSlots = mock.getUniformCalls();
+
+        System.err.println("Frames "+frames+", uniforms per frame "+uniformNames.length);
+        System.err.println("  named: glUniform calls "+callsNamed+", "+(tNamed/1000)+" us");
+        System.err.println("  slots: glUniform calls "+callsSlots+", "+(tSlots/1000)+" us, avoided "+(callsNamed-callsSlots));
+        Assert.assertEquals(frames*uniformNames.length, callsNamed);
+        Assert.assertEquals(2*frames+uniformNames.length-2, callsSlots);
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-frames")) {
+                i++;
+                frames = Integer.parseInt(args[i]);
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestShaderStateUniformSlotsNOUI.class.getName());
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+ 
+package com.jogamp.opengl.test.junit.jogl.offscreen;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.jogamp.newt.opengl.GLWindow;
+
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.GLCapabilities;
+import javax.media.opengl.GLEventListener;
+import javax.media.opengl.GLProfile;
+import com.jogamp.opengl.util.Animator;
+import com.jogamp.opengl.util.GLReadBufferCapture;
+import com.jogamp.opengl.util.texture.TextureIO;
+import com.jogamp.opengl.util.texture.spi.NetPbmTextureWriter;
+
+import com.jogamp.opengl.test.junit.util.AWTRobotUtil;
+import com.jogamp.opengl.test.junit.util.UITestCase;
+import com.jogamp.opengl.test.junit.jogl.demos.es2.GearsES2;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Captures an animated GLWindow with {@link GLReadBufferCapture}
+ * and validates the written files against the frame counters.
+ */
+public class TestGLReadBufferCaptureNEWT extends UITestCase {
+    static GLCapabilities caps;
+    static int width, height;
+    static long duration = 500; // ms
+
+    @BeforeClass
+    public static void initClass() {
+        final GLProfile glp = GLProfile.getGL2ES2();
+        Assert.assertNotNull(glp);
+        caps = new GLCapabilities(glp);
+        width  = 256;
+        height = 256;
+    }
+
+    static File createDir(String name) throws IOException {
+        final File dir = File.createTempFile(name, "");
+        Assert.assertTrue(dir.delete());
+        Assert.assertTrue(dir.mkdir());
+        return dir;
+    }
+
+    static class CaptureListener implements GLEventListener {
+        final GLReadBufferCapture capture;
+        int frames = 0;
+
+        CaptureListener(GLReadBufferCapture capture) { this.capture = capture; }
+
+        public void init(GLAutoDrawable drawable) {}
+        public void dispose(GLAutoDrawable drawable) {
+            capture.stop(drawable.getGL());
+        }
+        public void display(GLAutoDrawable drawable) {
+            capture.capture(drawable.getGL(), drawable);
+            frames++;
+        }
+        public void reshape(GLAutoDrawable drawable, int x, int y, int width, int height) {}
+    }
+
+    protected void testCapture(String suffix, boolean alpha, long maxBlockTime) throws InterruptedException, IOException {
+        final File dir = createDir("capture-"+suffix+"-");
+        final GLReadBufferCapture capture = new GLReadBufferCapture(alpha, true, 3, 4);
+        capture.setMaxBlockTime(maxBlockTime);
+        capture.start(dir, "frame-", suffix);
+        Assert.assertTrue(capture.isStarted());
+
+        final GLWindow glWindow = GLWindow.create(caps);
+        Assert.assertNotNull(glWindow);
+        glWindow.setTitle("GLReadBufferCapture NEWT Test: "+suffix);
+        glWindow.setSize(width, height);
+        glWindow.addGLEventListener(new GearsES2(1));
+        final CaptureListener listener = new CaptureListener(capture);
+        glWindow.addGLEventListener(listener);
+        final Animator animator = new Animator(glWindow);
+        glWindow.setVisible(true);
+        Assert.assertTrue(AWTRobotUtil.waitForRealized(glWindow, true));
+        Assert.assertTrue(AWTRobotUtil.waitForVisible(glWindow, true));
+        animator.start();
+        while(animator.isAnimating() && animator.getTotalFPSDuration()<duration) {
+            Thread.sleep(100);
+        }
+        animator.stop();
+        final boolean usedPBOs = capture.isUsingPBOs();
+        glWindow.destroy(); // stops capture
+        Assert.assertFalse(capture.isStarted());
+
+        final File[] files = dir.listFiles();
+        System.err.println(suffix+": frames "+listener.frames+", PBOs "+usedPBOs+
+                           ", captured "+capture.getCapturedFrameCount()+", dropped "+capture.getDroppedFrameCount()+
+                           ", written "+capture.getWrittenFrameCount()+", failed "+capture.getFailedFrameCount()+
+                           ", files "+files.length);
+        Assert.assertNull(capture.getLastWriteException());
+        Assert.assertEquals(0, capture.getFailedFrameCount());
+        Assert.assertEquals(0, capture.getPendingFrameCount());
+        Assert.assertEquals(listener.frames, capture.getCapturedFrameCount() + capture.getDroppedFrameCount());
+        Assert.assertEquals(capture.getCapturedFrameCount(), capture.getWrittenFrameCount());
+        Assert.assertEquals(capture.getWrittenFrameCount(), files.length);
+        for(int i=0; i<files.length; i++) {
+            Assert.assertTrue(files[i].getName().endsWith("."+suffix));
+            Assert.assertTrue(files[i].length() >= width * height * ( alpha ? 4 : 3 ));
+            files[i].delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void test01CapturePPM() throws InterruptedException, IOException {
+        testCapture(NetPbmTextureWriter.PPM, false, GLReadBufferCapture.DEFAULT_MAX_BLOCK_TIME);
+    }
+
+    @Test
+    public void test02CapturePAM() throws InterruptedException, IOException {
+        testCapture(NetPbmTextureWriter.PAM, true, GLReadBufferCapture.DEFAULT_MAX_BLOCK_TIME);
+    }
+
+    @Test
+    public void test03CaptureTGADropping() throws InterruptedException, IOException {
+        testCapture(TextureIO.TGA, false, 0);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void test04PPMWithAlpha() {
+        new GLReadBufferCapture(true, true, 2, 1).start(new File("."), "frame-", NetPbmTextureWriter.PPM);
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-time")) {
+                i++;
+                try {
+                    duration = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestGLReadBufferCaptureNEWT.class.getName());
+    }
+}
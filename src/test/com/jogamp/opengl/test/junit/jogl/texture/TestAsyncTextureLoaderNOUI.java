@@ -0,0 +1,233 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.Executor;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLException;
+import javax.media.opengl.GLProfile;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.texture.AsyncTextureLoader;
+import com.jogamp.opengl.util.texture.Texture;
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+import com.jogamp.opengl.util.texture.spi.TGAImage;
+
+/**
+ * Validates the upload ordering, failure isolation and per frame upload budget
+ * of the {@link AsyncTextureLoader} w/o GL, using a stub executor running the
+ * decoding tasks on demand and textures recording their updates.
+ */
+public class TestAsyncTextureLoaderNOUI {
+    static final int width = 16;
+    static final int height = 16;
+
+    static GLProfile glp;
+    static File tga, dds, missing;
+
+    /** Runs the submitted decoding tasks on demand, in any order */
+    static class StubExecutor implements Executor {
+        final ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+
+        public void execute(Runnable r) {
+            tasks.add(r);
+        }
+
+        void run(int i) {
+            tasks.get(i).run();
+        }
+    }
+
+    /** Records updates instead of uploading, optionally failing or taking some time */
+    static class StubTexture extends Texture {
+        static final ArrayList<StubTexture> uploads = new ArrayList<StubTexture>();
+        final RuntimeException failure;
+        final long uploadMillis;
+        TextureData data;
+
+        StubTexture(RuntimeException failure, long uploadMillis) {
+            super(GL.GL_TEXTURE_2D);
+            this.failure = failure;
+            this.uploadMillis = uploadMillis;
+        }
+
+        public void updateImage(GL gl, TextureData data) throws GLException {
+            if (null != failure) {
+                throw failure;
+            }
+            if (0 < uploadMillis) {
+                try {
+                    Thread.sleep(uploadMillis);
+                } catch (InterruptedException ie) { }
+            }
+            this.data = data;
+            uploads.add(this);
+        }
+    }
+
+    static class Listener implements AsyncTextureLoader.UploadListener {
+        final ArrayList<Texture> uploaded = new ArrayList<Texture>();
+        final ArrayList<Texture> failed = new ArrayList<Texture>();
+
+        public void uploaded(Texture texture, TextureData data) {
+            uploaded.add(texture);
+        }
+
+        public void failed(Texture texture, Throwable t) {
+            failed.add(texture);
+        }
+    }
+
+    @BeforeClass
+    public static void initClass() throws IOException {
+        glp = GLProfile.getDefault();
+
+        tga = File.createTempFile("async", ".tga");
+        TGAImage.createFromData(width, height, true, false, ByteBuffer.allocate(width * height * 4)).write(tga);
+
+        dds = File.createTempFile("async", ".dds");
+        DDSImage.createFromData(DDSImage.D3DFMT_DXT1, width, height, 4,
+                                new ByteBuffer[] { ByteBuffer.allocate(width * height * 4) }, null).write(dds);
+
+        missing = new File(tga.getPath() + ".missing");
+    }
+
+    @AfterClass
+    public static void releaseClass() {
+        tga.delete();
+        dds.delete();
+    }
+
+    @Test
+    public void testCompletionOrder() {
+        final StubExecutor executor = new StubExecutor();
+        final AsyncTextureLoader loader = new AsyncTextureLoader(glp, executor);
+        final StubTexture[] textures = new StubTexture[4];
+        for (int i = 0; i < textures.length; i++) {
+            textures[i] = new StubTexture(null, 0);
+            loader.load(textures[i], tga, false, null);
+        }
+        Assert.assertEquals(4, loader.getDecodeQueueDepth());
+        Assert.assertEquals(0, loader.upload(null, Long.MAX_VALUE));
+
+        // decoding finishes in reverse order
+        StubTexture.uploads.clear();
+        for (int i = textures.length - 1; i >= 0; i--) {
+            executor.run(i);
+        }
+        Assert.assertEquals(0, loader.getDecodeQueueDepth());
+        Assert.assertEquals(4, loader.getUploadQueueDepth());
+        Assert.assertEquals(4, loader.upload(null, Long.MAX_VALUE));
+        for (int i = 0; i < textures.length; i++) {
+            Assert.assertSame(textures[textures.length - 1 - i], StubTexture.uploads.get(i));
+            Assert.assertEquals(width, textures[i].data.getWidth());
+        }
+        Assert.assertEquals(4, loader.getDecodedCount());
+        Assert.assertEquals(4, loader.getUploadedCount());
+        Assert.assertEquals(0, loader.getFailedCount());
+    }
+
+    @Test
+    public void testFailureIsolation() {
+        final StubExecutor executor = new StubExecutor();
+        final AsyncTextureLoader loader = new AsyncTextureLoader(glp, executor);
+        final Listener listener = new Listener();
+        loader.setUploadListener(listener);
+        final StubTexture ok0 = new StubTexture(null, 0);
+        final StubTexture decodeFails = new StubTexture(null, 0);
+        final StubTexture uploadFails = new StubTexture(new IllegalStateException("upload"), 0);
+        final StubTexture ok1 = new StubTexture(null, 0);
+        loader.load(ok0, tga, false, null);
+        loader.load(decodeFails, missing, false, null);
+        loader.load(uploadFails, tga, false, null);
+        loader.load(ok1, tga, false, null);
+        for (int i = 0; i < 4; i++) {
+            executor.run(i);
+        }
+        // a failing texture neither aborts the upload of the following ones
+        Assert.assertEquals(4, loader.upload(null, Long.MAX_VALUE));
+        Assert.assertEquals(0, loader.getUploadQueueDepth());
+        Assert.assertEquals(2, listener.uploaded.size());
+        Assert.assertSame(ok0, listener.uploaded.get(0));
+        Assert.assertSame(ok1, listener.uploaded.get(1));
+        Assert.assertEquals(2, listener.failed.size());
+        Assert.assertSame(decodeFails, listener.failed.get(0));
+        Assert.assertSame(uploadFails, listener.failed.get(1));
+        Assert.assertEquals(1, loader.getDecodeFailedCount());
+        Assert.assertEquals(1, loader.getUploadFailedCount());
+        Assert.assertEquals(2, loader.getUploadedCount());
+    }
+
+    @Test
+    public void testUploadBudget() {
+        final StubExecutor executor = new StubExecutor();
+        final AsyncTextureLoader loader = new AsyncTextureLoader(glp, executor);
+        for (int i = 0; i < 3; i++) {
+            loader.load(new StubTexture(null, 5), tga, false, null);
+            executor.run(i);
+        }
+        // at least one texture per frame, regardless of the budget
+        Assert.assertEquals(1, loader.upload(null, 1000000L));
+        Assert.assertEquals(2, loader.getUploadQueueDepth());
+        Assert.assertEquals(1, loader.upload(null, 0));
+        Assert.assertEquals(1, loader.upload(null, Long.MAX_VALUE));
+        Assert.assertEquals(0, loader.upload(null, Long.MAX_VALUE));
+        Assert.assertEquals(3, loader.getUploadedCount());
+    }
+
+    @Test
+    public void testS3TCUnavailable() {
+        final StubExecutor executor = new StubExecutor();
+        final AsyncTextureLoader loader = new AsyncTextureLoader(glp, executor);
+        final StubTexture compressed = new StubTexture(null, 0);
+        final StubTexture decompressed = new StubTexture(null, 0);
+        loader.load(compressed, dds, false, null);
+        loader.setS3TCAvailable(false);
+        loader.load(decompressed, dds, false, null);
+        executor.run(0);
+        executor.run(1);
+        Assert.assertEquals(2, loader.upload(null, Long.MAX_VALUE));
+        // no context while decoding, availability captured at load time
+        Assert.assertTrue(compressed.data.isDataCompressed());
+        Assert.assertFalse(decompressed.data.isDataCompressed());
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestAsyncTextureLoaderNOUI.class.getName());
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.texture;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.media.opengl.GLProfile;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+
+/**
+ * Validates the lazily sliced mipmap levels of a memory-mapped {@link DDSImage},
+ * as well as closing and explicitly unmapping it.
+ */
+public class TestDDSImageNOUI {
+    static final int width = 16;
+    static final int height = 8;
+    static final int levels = 5;
+
+    static File file;
+
+    @BeforeClass
+    public static void initClass() throws IOException {
+        final ByteBuffer[] mipmaps = new ByteBuffer[levels];
+        int w = width, h = height;
+        for (int i = 0; i < levels; i++) {
+            mipmaps[i] = ByteBuffer.allocate(w * h * 4);
+            for (int j = 0; j < mipmaps[i].capacity(); j++) {
+                mipmaps[i].put(j, (byte) i); // level number as content
+            }
+            w = Math.max(w >> 1, 1);
+            h = Math.max(h >> 1, 1);
+        }
+        file = File.createTempFile("mapped", ".dds");
+        DDSImage.createFromData(DDSImage.D3DFMT_A8R8G8B8, width, height, mipmaps).write(file);
+    }
+
+    @AfterClass
+    public static void releaseClass() {
+        file.delete();
+    }
+
+    @Test
+    public void testLazySlices() throws IOException {
+        final DDSImage image = DDSImage.read(file);
+        Assert.assertTrue(image.isMapped());
+        Assert.assertEquals(levels, image.getNumMipMaps());
+        int w = width, h = height;
+        for (int i = 0; i < levels; i++) {
+            final ByteBuffer data = image.getMipMap(i).getData();
+            Assert.assertEquals(w * h * 4, data.remaining());
+            Assert.assertEquals(i, data.get(0));
+            Assert.assertEquals(i, data.get(data.limit() - 1));
+            // consuming one slice leaves the others untouched
+            data.position(data.limit());
+            w = Math.max(w >> 1, 1);
+            h = Math.max(h >> 1, 1);
+        }
+        Assert.assertEquals(width * height * 4, image.getMipMap(0).getData().remaining());
+        image.close();
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        final DDSImage image = DDSImage.read(file);
+        final ByteBuffer level0 = image.getMipMap(0).getData();
+        final DDSImage.ImageInfo level1 = image.getMipMap(1);
+        image.close();
+        image.close(); // no-op
+        // the mapping is left to the GC, obtained data stays valid
+        Assert.assertEquals(0, level0.get(0));
+        try {
+            level1.getData();
+            Assert.fail("IllegalStateException expected for data sliced after close");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        try {
+            image.getMipMap(2).getData();
+            Assert.fail("IllegalStateException expected for mipmap data sliced after close");
+        } catch (IllegalStateException ise) {
+            // expected
+        }
+        // explicit unmap after close, if supported by the JVM
+        final boolean unmapped = image.unmap();
+        System.err.println("unmap after close: "+unmapped);
+        Assert.assertFalse(image.unmap());
+    }
+
+    @Test
+    public void testUnmapTextureData() throws IOException {
+        final TextureData data = TextureIO.newTextureData(GLProfile.getDefault(), file, false, TextureIO.DDS);
+        Assert.assertNotNull(data.getBuffer());
+        data.flush(); // as done after uploading, closes the file
+        Assert.assertNotNull(data.getBuffer());
+        final boolean unmapped = TextureIO.unmap(data);
+        System.err.println("TextureIO.unmap: "+unmapped);
+        Assert.assertNull(data.getBuffer());
+        Assert.assertNull(data.getMipmapData());
+        Assert.assertFalse(TextureIO.unmap(data));
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestDDSImageNOUI.class.getName());
+    }
+}
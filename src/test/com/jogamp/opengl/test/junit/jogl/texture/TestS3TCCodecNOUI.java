@@ -0,0 +1,135 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.texture;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+import com.jogamp.opengl.util.texture.spi.S3TCCodec;
+
+public class TestS3TCCodecNOUI {
+    static final int width = 61;  // not a multiple of the 4x4 block size
+    static final int height = 35;
+
+    static ByteBuffer createGradient(int bpp) {
+        ByteBuffer buf = ByteBuffer.allocate(width * height * bpp);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = ( y * width + x ) * bpp;
+                buf.put(i + 0, (byte) ( x * 4 ));
+                buf.put(i + 1, (byte) ( y * 7 ));
+                buf.put(i + 2, (byte) ( x + y ));
+                if (4 == bpp) {
+                    buf.put(i + 3, (byte) ( y * 7 ));
+                }
+            }
+        }
+        return buf;
+    }
+
+    static double rmse(ByteBuffer src, int bpp, ByteBuffer rgba, int channel) {
+        double err = 0;
+        for (int i = 0; i < width * height; i++) {
+            int d = ( src.get(i * bpp + channel) & 0xff ) - ( rgba.get(i * 4 + channel) & 0xff );
+            err += d * d;
+        }
+        return Math.sqrt(err / ( width * height ));
+    }
+
+    void testRoundTrip(int d3dFormat, int bpp, double maxColorError, double maxAlphaError) {
+        ByteBuffer src = createGradient(bpp);
+        ByteBuffer compressed = S3TCCodec.encode(d3dFormat, width, height, src, bpp);
+        Assert.assertEquals(S3TCCodec.getCompressedSize(d3dFormat, width, height), compressed.remaining());
+        Assert.assertEquals(0, src.position());
+
+        ByteBuffer sequential = ByteBuffer.allocate(compressed.remaining());
+        S3TCCodec.encode(d3dFormat, width, height, src, bpp, sequential, null);
+        sequential.rewind();
+        Assert.assertEquals("parallel and sequential encoding differ", compressed, sequential);
+
+        ByteBuffer rgba = ByteBuffer.allocate(width * height * 4);
+        S3TCCodec.decode(d3dFormat, width, height, compressed, rgba);
+        Assert.assertEquals(width * height * 4, rgba.position());
+        for (int c = 0; c < 3; c++) {
+            double err = rmse(src, bpp, rgba, c);
+            Assert.assertTrue("channel "+c+" error "+err, err <= maxColorError);
+        }
+        if (4 == bpp) {
+            double err = rmse(src, bpp, rgba, 3);
+            Assert.assertTrue("alpha error "+err, err <= maxAlphaError);
+        }
+    }
+
+    @Test
+    public void testDXT1() {
+        testRoundTrip(DDSImage.D3DFMT_DXT1, 3, 6.0, 0);
+    }
+
+    @Test
+    public void testDXT3() {
+        testRoundTrip(DDSImage.D3DFMT_DXT3, 4, 6.0, 10.0);
+    }
+
+    @Test
+    public void testDXT5() {
+        testRoundTrip(DDSImage.D3DFMT_DXT5, 4, 6.0, 2.0);
+    }
+
+    @Test
+    public void testDXT1Transparent() {
+        ByteBuffer src = ByteBuffer.allocate(4 * 4 * 4); // all transparent black
+        ByteBuffer compressed = S3TCCodec.encode(DDSImage.D3DFMT_DXT1, 4, 4, src, 4);
+        ByteBuffer rgba = ByteBuffer.allocate(4 * 4 * 4);
+        S3TCCodec.decode(DDSImage.D3DFMT_DXT1, 4, 4, compressed, rgba);
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals(0, rgba.get(i * 4 + 3));
+        }
+    }
+
+    @Test
+    public void testCompressedMipmapChain() {
+        int w = 16, h = 8;
+        ByteBuffer[] levels = new ByteBuffer[5];
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = ByteBuffer.allocate(w * h * 4);
+            w = Math.max(w >> 1, 1);
+            h = Math.max(h >> 1, 1);
+        }
+        DDSImage image = DDSImage.createFromData(DDSImage.D3DFMT_DXT5, 16, 8, 4, levels, null);
+        Assert.assertTrue(image.isCompressed());
+        Assert.assertEquals(5, image.getNumMipMaps());
+        Assert.assertEquals(16, image.getMipMap(4).getData().remaining()); // 1x1 is one block
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestS3TCCodecNOUI.class.getName());
+    }
+}
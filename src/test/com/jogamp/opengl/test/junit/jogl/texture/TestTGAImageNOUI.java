@@ -0,0 +1,286 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.texture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2GL3;
+import javax.media.opengl.GLProfile;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.texture.spi.TGAImage;
+
+/**
+ * Decodes synthetic Targa images of all six image types, i.e. color mapped, true color
+ * and grayscale, each raw and run length encoded, with 8, 16, 24 and 32 bit pixels and
+ * all origin flags. The RLE streams contain packets crossing scanlines.
+ * Each decoded image is written back, raw and RLE, and read again.
+ */
+public class TestTGAImageNOUI {
+    static final int width = 37;  // RLE packets of up to 128 pixels span several rows
+    static final int height = 9;
+    static final int cmapFirst = 3;
+    static final int ids = 16;
+    static final byte[] imageID = { 'j', 'o', 'g', 'l' };
+
+    static GLProfile glp;
+    static boolean bgr;
+
+    @BeforeClass
+    public static void initClass() {
+        glp = GLProfile.getDefault();
+        bgr = glp.isGL2GL3();
+    }
+
+    /** Pixel id of the i-th pixel in file order: a mix of raw stretches, short runs and a long run. */
+    static int id(int i) {
+        if (40 <= i && i < 200) {
+            return 5;
+        }
+        return 0 == ( i / 4 ) % 3 ? i % ids : ( i / 4 ) % ids;
+    }
+
+    static int expand5(int c) {
+        return ( c << 3 ) | ( c >> 2 );
+    }
+
+    /** Source pixel / color map entry in file layout for the given depth in bits. */
+    static byte[] srcPixel(int depth, int id) {
+        switch (depth) {
+        case 8:
+            return new byte[] { (byte) ( id * 15 ) };
+        case 16: {
+            final int v = ( id << 10 ) | ( ( 31 - id ) << 5 ) | ( ( id * 3 ) & 31 ) | ( 0 != ( id & 1 ) ? 0x8000 : 0 );
+            return new byte[] { (byte) v, (byte) ( v >> 8 ) };
+        }
+        case 24:
+            return new byte[] { (byte) ( id * 11 ), (byte) ( id * 7 + 1 ), (byte) ( 255 - id * 13 ) };
+        default:
+            return new byte[] { (byte) ( id * 11 ), (byte) ( id * 7 + 1 ), (byte) ( 255 - id * 13 ), (byte) ( id * 17 ) };
+        }
+    }
+
+    /** Expected decoded pixel in BGR(A) order for the given source depth in bits. */
+    static byte[] dstPixel(int depth, boolean gray, int id) {
+        if (gray && 16 == depth) {
+            return new byte[] { (byte) ( id * 15 ), (byte) ( 255 - id * 15 ) };
+        }
+        if (16 == depth) {
+            final int a = 0 != ( id & 1 ) ? 0xff : 0;
+            return new byte[] { (byte) expand5( ( id * 3 ) & 31 ), (byte) expand5( 31 - id ), (byte) expand5( id ), (byte) a };
+        }
+        return srcPixel(depth, id);
+    }
+
+    static void putShort(ByteArrayOutputStream out, int v) {
+        out.write(v & 0xff);
+        out.write(( v >> 8 ) & 0xff);
+    }
+
+    /**
+     * Creates a Targa file stream.
+     * @param imageType one of the TGAImage.Header types
+     * @param pixelDepth depth of the pixels, i.e. of the indices if color mapped
+     * @param cmapDepth depth of the color map entries, 0 if not color mapped
+     * @param descriptor alpha bits and origin flags
+     */
+    static byte[] createTGA(int imageType, int pixelDepth, int cmapDepth, int descriptor) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(imageID.length);
+        out.write(0 < cmapDepth ? 1 : 0);
+        out.write(imageType);
+        putShort(out, 0 < cmapDepth ? cmapFirst : 0);
+        putShort(out, 0 < cmapDepth ? ids : 0);
+        out.write(cmapDepth);
+        putShort(out, 0);
+        putShort(out, 0);
+        putShort(out, width);
+        putShort(out, height);
+        out.write(pixelDepth);
+        out.write(descriptor);
+        out.write(imageID, 0, imageID.length);
+        if (0 < cmapDepth) {
+            for (int id = 0; id < ids; id++) {
+                final byte[] e = srcPixel(cmapDepth, id);
+                out.write(e, 0, e.length);
+            }
+        }
+        final byte[][] pixels = new byte[width * height][];
+        for (int i = 0; i < pixels.length; i++) {
+            if (0 < cmapDepth) {
+                final int idx = id(i) + cmapFirst;
+                pixels[i] = 8 == pixelDepth ? new byte[] { (byte) idx } : new byte[] { (byte) idx, (byte) ( idx >> 8 ) };
+            } else if (16 == pixelDepth && isGray(imageType)) {
+                final int id = id(i);
+                pixels[i] = new byte[] { (byte) ( id * 15 ), (byte) ( 255 - id * 15 ) };
+            } else {
+                pixels[i] = srcPixel(pixelDepth, id(i));
+            }
+        }
+        if (imageType < 8) {
+            for (int i = 0; i < pixels.length; i++) {
+                out.write(pixels[i], 0, pixels[i].length);
+            }
+        } else {
+            // packets ignore scanlines
+            int i = 0;
+            while (i < pixels.length) {
+                int run = 1;
+                while (i + run < pixels.length && run < 128 && Arrays.equals(pixels[i], pixels[i + run])) {
+                    run++;
+                }
+                if (run > 1) {
+                    out.write(0x80 | ( run - 1 ));
+                    out.write(pixels[i], 0, pixels[i].length);
+                } else {
+                    while (i + run < pixels.length && run < 128 &&
+                           !Arrays.equals(pixels[i + run - 1], pixels[i + run])) {
+                        run++;
+                    }
+                    out.write(run - 1);
+                    for (int j = 0; j < run; j++) {
+                        out.write(pixels[i + j], 0, pixels[i + j].length);
+                    }
+                }
+                i += run;
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static boolean isGray(int imageType) {
+        return TGAImage.Header.UBLACKWHITE == imageType || TGAImage.Header.BLACKWHITE == imageType;
+    }
+
+    /** Expected decoded image, bottom-to-top, left-to-right. */
+    static byte[] expected(int imageType, int depth, int descriptor, int dstBpp) {
+        final byte[] exp = new byte[width * height * dstBpp];
+        for (int i = 0; i < width * height; i++) {
+            final int fx = i % width;
+            final int fy = i / width;
+            final int x = 0 != ( descriptor & TGAImage.Header.ID_RIGHTTOLEFT ) ? width - 1 - fx : fx;
+            final int y = 0 != ( descriptor & TGAImage.Header.ID_TOPTOBOTTOM ) ? height - 1 - fy : fy;
+            final byte[] p = dstPixel(depth, isGray(imageType), id(i));
+            final int off = ( y * width + x ) * dstBpp;
+            System.arraycopy(p, 0, exp, off, dstBpp);
+            if (!bgr && dstBpp >= 3) {
+                exp[off] = p[2];
+                exp[off + 2] = p[0];
+            }
+        }
+        return exp;
+    }
+
+    static byte[] get(ByteBuffer data) {
+        final byte[] b = new byte[data.remaining()];
+        data.duplicate().get(b);
+        return b;
+    }
+
+    void testType(int imageType, int pixelDepth, int cmapDepth, int alphaBits, int dstBpp, int glFormat) throws IOException {
+        final int[] origins = { 0, TGAImage.Header.ID_TOPTOBOTTOM, TGAImage.Header.ID_RIGHTTOLEFT,
+                                TGAImage.Header.ID_TOPTOBOTTOM | TGAImage.Header.ID_RIGHTTOLEFT };
+        for (int o = 0; o < origins.length; o++) {
+            final String msg = "type "+imageType+", depth "+pixelDepth+", cmap "+cmapDepth+", origin 0x"+Integer.toHexString(origins[o]);
+            final byte[] tga = createTGA(imageType, pixelDepth, cmapDepth, alphaBits | origins[o]);
+            final TGAImage image = TGAImage.read(glp, new ByteArrayInputStream(tga));
+            Assert.assertEquals(msg, width, image.getWidth());
+            Assert.assertEquals(msg, height, image.getHeight());
+            Assert.assertEquals(msg, dstBpp, image.getBytesPerPixel());
+            Assert.assertEquals(msg, glFormat, image.getGLFormat());
+            final byte[] exp = expected(imageType, 0 < cmapDepth ? cmapDepth : pixelDepth, origins[o], dstBpp);
+            Assert.assertArrayEquals(msg, exp, get(image.getData()));
+
+            // round trip of the decoded image, raw and run length encoded
+            for (int rle = 0; rle < 2; rle++) {
+                final File file = File.createTempFile("roundtrip", ".tga");
+                try {
+                    image.write(file, 1 == rle);
+                    final FileInputStream in = new FileInputStream(file);
+                    final TGAImage image2;
+                    try {
+                        image2 = TGAImage.read(glp, in);
+                    } finally {
+                        in.close();
+                    }
+                    Assert.assertEquals(msg, dstBpp, image2.getBytesPerPixel());
+                    Assert.assertEquals(msg, glFormat, image2.getGLFormat());
+                    Assert.assertArrayEquals(msg+", rle "+rle, exp, get(image2.getData()));
+                } finally {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    static int rgb() { return bgr ? GL2GL3.GL_BGR : GL.GL_RGB; }
+    static int rgba() { return bgr ? GL2GL3.GL_BGRA : GL.GL_RGBA; }
+
+    @Test
+    public void testTrueColor() throws IOException {
+        for (int t = 0; t < 2; t++) {
+            final int type = 0 == t ? TGAImage.Header.UTRUECOLOR : TGAImage.Header.TRUECOLOR;
+            testType(type, 16, 0, 1, 4, rgba());
+            testType(type, 24, 0, 0, 3, rgb());
+            testType(type, 32, 0, 8, 4, rgba());
+        }
+    }
+
+    @Test
+    public void testGrayscale() throws IOException {
+        for (int t = 0; t < 2; t++) {
+            final int type = 0 == t ? TGAImage.Header.UBLACKWHITE : TGAImage.Header.BLACKWHITE;
+            testType(type, 8, 0, 0, 1, GL.GL_LUMINANCE);
+            testType(type, 16, 0, 8, 2, GL.GL_LUMINANCE_ALPHA);
+        }
+    }
+
+    @Test
+    public void testColorMapped() throws IOException {
+        for (int t = 0; t < 2; t++) {
+            final int type = 0 == t ? TGAImage.Header.UCOLORMAPPED : TGAImage.Header.COLORMAPPED;
+            testType(type, 8, 16, 1, 4, rgba());
+            testType(type, 8, 24, 0, 3, rgb());
+            testType(type, 16, 32, 8, 4, rgba());
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestTGAImageNOUI.class.getName());
+    }
+}
@@ -0,0 +1,307 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.texture;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+import javax.imageio.ImageIO;
+import javax.media.opengl.GLProfile;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.texture.TextureData;
+import com.jogamp.opengl.util.texture.TextureIO;
+import com.jogamp.opengl.util.texture.spi.DDSImage;
+import com.jogamp.opengl.util.texture.spi.SGIImage;
+import com.jogamp.opengl.util.texture.spi.TGAImage;
+import com.jogamp.opengl.util.texture.spi.TextureProvider;
+import com.jogamp.opengl.util.texture.spi.awt.IIOTextureProvider;
+
+/**
+ * Verifies the magic number and file suffix based dispatch of
+ * {@link TextureIO}'s texture providers and measures the dispatch
+ * overhead against calling the format's reader directly, as well as
+ * against the former linear trial of all providers for a corpus of PNG images.
+ * <p>
+ * Run via main to get meaningful numbers, e.g. with
+ * <code>-iterations 20000</code>.
+ * </p>
+ */
+public class TestTextureIOProviderDispatchNOUI {
+    static final int width = 16;
+    static final int height = 16;
+    static int iterations = 200;
+
+    static GLProfile glp;
+    static byte[] dds, sgi, tga;
+    /** PNG corpus, decoded via ImageIO, empty if AWT is not available */
+    static byte[][] pngs = new byte[0][];
+
+    static byte[] readFile(File file) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        file.delete();
+        return out.toByteArray();
+    }
+
+    static byte[] createPixels(int bpp) {
+        byte[] data = new byte[width * height * bpp];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ( i * 31 );
+        }
+        return data;
+    }
+
+    @BeforeClass
+    public static void initClass() throws IOException {
+        glp = GLProfile.getDefault();
+
+        File file = File.createTempFile("dispatch", ".dds");
+        DDSImage.createFromData(DDSImage.D3DFMT_A8R8G8B8, width, height,
+                                new ByteBuffer[] { ByteBuffer.wrap(createPixels(4)) }).write(file);
+        dds = readFile(file);
+
+        file = File.createTempFile("dispatch", ".sgi");
+        SGIImage.createFromData(width, height, true, createPixels(4)).write(file, false);
+        sgi = readFile(file);
+
+        file = File.createTempFile("dispatch", ".tga");
+        TGAImage.createFromData(width, height, true, false, ByteBuffer.wrap(createPixels(4))).write(file);
+        tga = readFile(file);
+
+        if (GLProfile.isAWTAvailable()) {
+            final ArrayList<byte[]> corpus = new ArrayList<byte[]>();
+            final int[][] sizes = { { 16, 16 }, { 64, 64 }, { 256, 256 }, { 512, 128 } };
+            for (int i = 0; i < sizes.length; i++) {
+                final BufferedImage image = new BufferedImage(sizes[i][0], sizes[i][1],
+                                                              0 == i % 2 ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+                for (int y = 0; y < image.getHeight(); y++) {
+                    for (int x = 0; x < image.getWidth(); x++) {
+                        image.setRGB(x, y, 0xff000000 | ( ( x * 7 ) & 0xff ) << 16 | ( ( y * 5 ) & 0xff ) << 8 | ( ( x ^ y ) & 0xff ));
+                    }
+                }
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(image, TextureIO.PNG, out);
+                corpus.add(out.toByteArray());
+            }
+            final InputStream in = TestTextureIOProviderDispatchNOUI.class.getResourceAsStream("grayscale_texture.png");
+            if (null != in) {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buf = new byte[4096];
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                }
+                in.close();
+                corpus.add(out.toByteArray());
+            }
+            pngs = corpus.toArray(new byte[corpus.size()][]);
+        }
+    }
+
+    static final TextureProvider iioProvider = GLProfile.isAWTAvailable() ? new IIOTextureProvider() : null;
+
+    /**
+     * Emulates the former linear trial of all providers in reverse order of registration,
+     * each checking the suffix or probing the stream for its magic number,
+     * before TextureIO dispatched by magic number and file suffix.
+     */
+    static TextureData newTextureDataLinear(byte[] data, String suffix) throws IOException {
+        final InputStream stream = new BufferedInputStream(new ByteArrayInputStream(data));
+        if (TextureIO.TGA.equals(suffix)) {
+            return newTextureData(data, suffix);
+        }
+        if (TextureIO.SGI.equals(suffix) || TextureIO.SGI_RGB.equals(suffix) || SGIImage.isSGIImage(stream)) {
+            return newTextureData(data, suffix);
+        }
+        if (TextureIO.DDS.equals(suffix) || DDSImage.isDDSImage(stream)) {
+            return newTextureData(data, suffix);
+        }
+        return iioProvider.newTextureData(glp, stream, 0, 0, false, suffix);
+    }
+
+    static TextureData newTextureData(byte[] data, String suffix) throws IOException {
+        return TextureIO.newTextureData(glp, new ByteArrayInputStream(data), false, suffix);
+    }
+
+    static void checkSize(TextureData data) {
+        Assert.assertNotNull(data);
+        Assert.assertEquals(width, data.getWidth());
+        Assert.assertEquals(height, data.getHeight());
+    }
+
+    @Test
+    public void testDispatchByMagic() throws IOException {
+        // no or misleading suffix, selected by magic number
+        checkSize(newTextureData(dds, null));
+        checkSize(newTextureData(dds, TextureIO.TGA));
+        checkSize(newTextureData(sgi, null));
+        checkSize(newTextureData(sgi, "bin"));
+    }
+
+    @Test
+    public void testDispatchBySuffix() throws IOException {
+        // Targa has no magic number
+        checkSize(newTextureData(tga, TextureIO.TGA));
+        checkSize(newTextureData(dds, TextureIO.DDS));
+        checkSize(newTextureData(sgi, TextureIO.SGI_RGB));
+    }
+
+    @Test
+    public void testDispatchFile() throws IOException {
+        File file = File.createTempFile("dispatch", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(dds);
+            out.close();
+            TextureData data = TextureIO.newTextureData(glp, file, false, null);
+            checkSize(data);
+            data.destroy();
+        } finally {
+            file.delete();
+        }
+    }
+
+    static abstract class Op {
+        final String name;
+        Op(String name) { this.name = name; }
+        abstract Object run() throws IOException;
+    }
+
+    static long nanosPerOp(Op op, int n) throws IOException {
+        // warm up
+        for (int i = 0; i < n / 4 + 1; i++) {
+            op.run();
+        }
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            op.run();
+        }
+        return ( System.nanoTime() - t0 ) / n;
+    }
+
+    static void compare(Op direct, Op[] viaTextureIO) throws IOException {
+        final long d = nanosPerOp(direct, iterations);
+        System.err.println(direct.name+": "+d+" ns/op");
+        for (int i = 0; i < viaTextureIO.length; i++) {
+            final long t = nanosPerOp(viaTextureIO[i], iterations);
+            System.err.println("  "+viaTextureIO[i].name+": "+t+" ns/op, dispatch overhead "+( t - d )+" ns/op");
+        }
+    }
+
+    @Test
+    public void testDispatchOverhead() throws IOException {
+        compare(new Op("DDSImage.read") {
+                    Object run() throws IOException { return DDSImage.read(ByteBuffer.wrap(dds)); } },
+                new Op[] {
+                    new Op("TextureIO dds, suffix") {
+                        Object run() throws IOException { return newTextureData(dds, TextureIO.DDS); } },
+                    new Op("TextureIO dds, no suffix") {
+                        Object run() throws IOException { return newTextureData(dds, null); } } });
+        compare(new Op("SGIImage.read") {
+                    Object run() throws IOException { return SGIImage.read(new ByteArrayInputStream(sgi)); } },
+                new Op[] {
+                    new Op("TextureIO sgi, suffix") {
+                        Object run() throws IOException { return newTextureData(sgi, TextureIO.SGI); } },
+                    new Op("TextureIO sgi, no suffix") {
+                        Object run() throws IOException { return newTextureData(sgi, null); } } });
+        compare(new Op("TGAImage.read") {
+                    Object run() throws IOException { return TGAImage.read(glp, new ByteArrayInputStream(tga)); } },
+                new Op[] {
+                    new Op("TextureIO tga, suffix") {
+                        Object run() throws IOException { return newTextureData(tga, TextureIO.TGA); } } });
+    }
+
+    @Test
+    public void testPNGCorpus() throws IOException {
+        if (0 == pngs.length) {
+            System.err.println("AWT not available, no PNG corpus");
+            return;
+        }
+        for (int i = 0; i < pngs.length; i++) {
+            final TextureData dispatched = newTextureData(pngs[i], null);
+            final TextureData linear = newTextureDataLinear(pngs[i], null);
+            Assert.assertNotNull(dispatched);
+            Assert.assertNotNull(linear);
+            Assert.assertEquals(linear.getWidth(), dispatched.getWidth());
+            Assert.assertEquals(linear.getHeight(), dispatched.getHeight());
+            Assert.assertEquals(linear.getPixelFormat(), dispatched.getPixelFormat());
+        }
+        final int n = Math.max(1, iterations / 10);
+        for (int k = 0; k < 2; k++) {
+            final String suffix = 0 == k ? null : TextureIO.PNG;
+            final long linear = nanosPerOp(new Op("linear") {
+                    Object run() throws IOException {
+                        for (int i = 0; i < pngs.length; i++) {
+                            newTextureDataLinear(pngs[i], suffix);
+                        }
+                        return null;
+                    } }, n);
+            final long dispatched = nanosPerOp(new Op("dispatched") {
+                    Object run() throws IOException {
+                        for (int i = 0; i < pngs.length; i++) {
+                            newTextureData(pngs[i], suffix);
+                        }
+                        return null;
+                    } }, n);
+            System.err.println("PNG corpus of "+pngs.length+" images, suffix "+suffix+": linear trial "+linear/1000+" us, dispatched "+
+                               dispatched/1000+" us per corpus");
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-iterations")) {
+                i++;
+                iterations = Integer.parseInt(args[i]);
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestTextureIOProviderDispatchNOUI.class.getName());
+    }
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import jogamp.opengl.FrameJitterCounter;
+import jogamp.opengl.FramePacer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the pacing policies of the {@link FramePacer} as used by the FPSAnimator
+ * and reports the measured frame jitter.
+ */
+public class TestFramePacerNOUI {
+    static long duration = 500; // ms
+
+    static void work(long nanos) {
+        final long t0 = System.nanoTime();
+        while( System.nanoTime() - t0 < nanos ) { }
+    }
+
+    /** Runs the pacer for {@link #duration} with the given work per frame, returns the frame start times */
+    static long[] run(FramePacer pacer, long workNanos) {
+        final long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+        long[] starts = new long[1024];
+        int n = 0;
+        pacer.reset();
+        while( System.nanoTime() - end < 0 && pacer.waitForFrame() ) {
+            if( n == starts.length ) {
+                final long[] tmp = new long[n*2];
+                System.arraycopy(starts, 0, tmp, 0, n);
+                starts = tmp;
+            }
+            starts[n++] = System.nanoTime();
+            work(workNanos);
+            pacer.frameDone();
+        }
+        final long[] res = new long[n];
+        System.arraycopy(starts, 0, res, 0, n);
+        return res;
+    }
+
+    static void dump(String msg, FrameJitterCounter jc, long[] starts) {
+        System.err.println(msg+": "+starts.length+" frames, "+jc);
+    }
+
+    @Test
+    public void testFixedRate240Hz() {
+        final FrameJitterCounter jc = new FrameJitterCounter();
+        final FramePacer pacer = new FramePacer(FramePacer.getPeriod(240), FramePacer.POLICY_FIXED_RATE, jc);
+        final long[] starts = run(pacer, 0);
+        dump("FixedRate 240Hz", jc, starts);
+        final int expected = (int) ( duration * 240 / 1000 );
+        Assert.assertTrue("frames "+starts.length, Math.abs(starts.length - expected) <= expected / 10);
+        Assert.assertEquals(starts.length, jc.getPacedFrames());
+        Assert.assertEquals(0, jc.getSkippedFrames());
+        // millisecond timer resolution would alternate between 4 and 5 ms
+        Assert.assertTrue("avg jitter "+jc.getAverageJitter(), jc.getAverageJitter() < TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testFixedRateSkip() {
+        final FrameJitterCounter jc = new FrameJitterCounter();
+        final long period = FramePacer.getPeriod(100);
+        final FramePacer pacer = new FramePacer(period, FramePacer.POLICY_FIXED_RATE, jc);
+        final long[] starts = run(pacer, period + period / 2);
+        dump("FixedRate skip", jc, starts);
+        Assert.assertTrue(0 < jc.getSkippedFrames());
+        // every second grid slot is skipped, phase is kept
+        final int expected = (int) ( duration * 100 / 1000 / 2 );
+        Assert.assertTrue("frames "+starts.length, Math.abs(starts.length - expected) <= expected / 5);
+        Assert.assertTrue(jc.getPacedFrames() + jc.getSkippedFrames() >= 2 * starts.length - 2);
+    }
+
+    @Test
+    public void testFixedDelay() {
+        final FrameJitterCounter jc = new FrameJitterCounter();
+        final long period = FramePacer.getPeriod(200);
+        final FramePacer pacer = new FramePacer(period, FramePacer.POLICY_FIXED_DELAY, jc);
+        final long workNanos = TimeUnit.MILLISECONDS.toNanos(2);
+        final long[] starts = run(pacer, workNanos);
+        dump("FixedDelay", jc, starts);
+        for(int i=1; i<starts.length; i++) {
+            Assert.assertTrue("frame "+i, starts[i] - starts[i-1] >= period);
+        }
+        Assert.assertEquals(0, jc.getSkippedFrames());
+        // the period is measured from the frame start, hence rendering time does not lower the frame rate
+        final int expected = (int) ( duration * 200 / 1000 );
+        Assert.assertTrue("frames "+starts.length, starts.length >= expected - expected / 5);
+    }
+
+    @Test
+    public void testFixedDelayLate() {
+        final FrameJitterCounter jc = new FrameJitterCounter();
+        final long period = FramePacer.getPeriod(100);
+        final FramePacer pacer = new FramePacer(period, FramePacer.POLICY_FIXED_DELAY, jc);
+        final long workNanos = period + period / 2;
+        final long[] starts = run(pacer, workNanos);
+        dump("FixedDelay late", jc, starts);
+        // late frames are followed right away w/o skipping
+        Assert.assertEquals(0, jc.getSkippedFrames());
+        final int expected = (int) ( TimeUnit.MILLISECONDS.toNanos(duration) / workNanos );
+        Assert.assertTrue("frames "+starts.length, Math.abs(starts.length - expected) <= expected / 5);
+    }
+
+    @Test
+    public void testAdaptive() {
+        final FrameJitterCounter jc = new FrameJitterCounter();
+        final long period = FramePacer.getPeriod(100);
+        final FramePacer pacer = new FramePacer(period, FramePacer.POLICY_ADAPTIVE, jc);
+        final long workNanos = period + period / 2;
+        final long[] starts = run(pacer, workNanos);
+        dump("Adaptive", jc, starts);
+        // no skipping, frames follow each other w/o waiting
+        Assert.assertEquals(0, jc.getSkippedFrames());
+        final int expected = (int) ( TimeUnit.MILLISECONDS.toNanos(duration) / workNanos );
+        Assert.assertTrue("frames "+starts.length, Math.abs(starts.length - expected) <= expected / 5);
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final FramePacer pacer = new FramePacer(TimeUnit.SECONDS.toNanos(10), FramePacer.POLICY_FIXED_RATE, null);
+        pacer.reset();
+        Assert.assertTrue(pacer.waitForFrame()); // first frame is due immediately
+        pacer.frameDone();
+        final Thread canceler = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) { }
+                pacer.cancel();
+            } }, "Canceler");
+        canceler.start();
+        final long t0 = System.nanoTime();
+        Assert.assertFalse(pacer.waitForFrame());
+        Assert.assertTrue(System.nanoTime() - t0 < TimeUnit.SECONDS.toNanos(5));
+        canceler.join();
+        Assert.assertTrue(pacer.isCanceled());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidPolicy() {
+        new FramePacer(FramePacer.getPeriod(60), 42, null);
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-duration")) {
+                i++;
+                try {
+                    duration = Long.parseLong(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestFramePacerNOUI.class.getName());
+    }
+}
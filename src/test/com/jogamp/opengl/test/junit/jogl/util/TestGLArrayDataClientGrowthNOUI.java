@@ -0,0 +1,181 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import javax.media.opengl.GL;
+
+import jogamp.opengl.util.DirectBufferPool;
+
+import com.jogamp.opengl.util.GLArrayDataClient;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the geometric growth, buffer pooling and bulk puts of {@link GLArrayDataClient}
+ * and reports the fill throughput.
+ */
+public class TestGLArrayDataClientGrowthNOUI {
+    static int elements = 1 << 20;
+
+    static int fill(GLArrayDataClient adc, int count) {
+        int reallocs = 0;
+        Buffer last = adc.getBuffer();
+        for(int i=0; i<count; i++) {
+            adc.putf(i);
+            if(last != adc.getBuffer()) {
+                last = adc.getBuffer();
+                reallocs++;
+            }
+        }
+        return reallocs;
+    }
+
+    @Test
+    public void test01GeometricGrowth() {
+        final GLArrayDataClient adc = GLArrayDataClient.createGLSL("data", 1, GL.GL_FLOAT, false, 16);
+        final int reallocs = fill(adc, elements);
+        System.err.println("Growth: "+elements+" elements, "+reallocs+" reallocations, capacity "+adc.getBuffer().capacity());
+        Assert.assertTrue(reallocs <= 32 - Integer.numberOfLeadingZeros(elements));
+        adc.seal(true);
+        final FloatBuffer fb = (FloatBuffer) adc.getBuffer();
+        Assert.assertEquals(elements, fb.limit());
+        for(int i=0; i<elements; i+=4099) {
+            Assert.assertEquals(i, fb.get(i), 0f);
+        }
+        adc.destroy(null);
+    }
+
+    @Test
+    public void test02BulkPut() {
+        final float[] data = new float[3*1000];
+        for(int i=0; i<data.length; i++) {
+            data[i] = i * 0.5f;
+        }
+        final GLArrayDataClient bulk = GLArrayDataClient.createGLSL("bulk", 3, GL.GL_FLOAT, false, 16);
+        final GLArrayDataClient single = GLArrayDataClient.createGLSL("single", 3, GL.GL_FLOAT, false, 16);
+        for(int i=0; i<10; i++) {
+            bulk.put(data, 0, data.length);
+            for(int j=0; j<data.length; j++) {
+                single.putf(data[j]);
+            }
+        }
+        bulk.seal(true);
+        single.seal(true);
+        Assert.assertEquals(single.getBuffer(), bulk.getBuffer());
+        Assert.assertEquals(10*1000, bulk.getElementCount());
+
+        final GLArrayDataClient shorts = GLArrayDataClient.createGLSL("shorts", 1, GL.GL_SHORT, false, 4);
+        try {
+            shorts.put(data, 0, 3);
+            Assert.fail("GLException expected for FloatBuffer bulk put into ShortBuffer");
+        } catch (javax.media.opengl.GLException gle) {
+            // expected
+        }
+        shorts.put(new short[] { 1, 2, 3 }, 0, 3);
+        Assert.assertEquals(3, shorts.getBuffer().position());
+    }
+
+    @Test
+    public void test03PoolRecycling() {
+        final DirectBufferPool pool = new DirectBufferPool(2, 1 << 20);
+        final ByteBuffer a = pool.acquire(100);
+        Assert.assertEquals(128, a.capacity());
+        Assert.assertTrue(a.isDirect());
+        Assert.assertEquals(1, pool.getMisses());
+        Assert.assertTrue(pool.release(a));
+        Assert.assertEquals(128, pool.getPooledBytes());
+        final ByteBuffer b = pool.acquire(120);
+        Assert.assertSame(a, b);
+        Assert.assertEquals(1, pool.getHits());
+        Assert.assertEquals(0, pool.getPooledBytes());
+
+        // bounded per class
+        Assert.assertTrue(pool.release(b));
+        Assert.assertTrue(pool.release(pool.acquire(128))); // new allocation
+        Assert.assertTrue(pool.release(ByteBuffer.allocateDirect(128)));
+        Assert.assertFalse(pool.release(ByteBuffer.allocateDirect(128)));
+        Assert.assertEquals(1, pool.getDrops());
+        // not poolable
+        Assert.assertFalse(pool.release(ByteBuffer.allocate(128)));
+        Assert.assertFalse(pool.release(ByteBuffer.allocateDirect(100)));
+
+        // destroy recycles the client's buffer into the shared pool
+        final DirectBufferPool shared = DirectBufferPool.SHARED;
+        final GLArrayDataClient adc = GLArrayDataClient.createGLSL("data", 4, GL.GL_FLOAT, false, 1000);
+        final long pooled0 = shared.getPooledBytes();
+        adc.destroy(null);
+        Assert.assertNull(adc.getBuffer());
+        Assert.assertTrue(shared.getPooledBytes() > pooled0 || shared.getDrops() > 0);
+        final long hits0 = shared.getHits();
+        final GLArrayDataClient adc2 = GLArrayDataClient.createGLSL("data", 4, GL.GL_FLOAT, false, 1000);
+        Assert.assertTrue(shared.getHits() > hits0 || shared.getDrops() > 0);
+        adc2.destroy(null);
+    }
+
+    @Test
+    public void test10FillThroughput() {
+        final float[] vertex = new float[3];
+        for(int loop=0; loop<3; loop++) {
+            final GLArrayDataClient a = GLArrayDataClient.createGLSL("vertex", 3, GL.GL_FLOAT, false, 64);
+            long t0 = System.nanoTime();
+            for(int i=0; i<elements; i++) {
+                a.putf(i); a.putf(i); a.putf(i);
+            }
+            final long tPutf = System.nanoTime() - t0;
+            a.destroy(null);
+
+            final GLArrayDataClient b = GLArrayDataClient.createGLSL("vertex", 3, GL.GL_FLOAT, false, 64);
+            t0 = System.nanoTime();
+            for(int i=0; i<elements; i++) {
+                vertex[0] = i; vertex[1] = i; vertex[2] = i;
+                b.put(vertex, 0, 3);
+            }
+            final long tBulk = System.nanoTime() - t0;
+            b.destroy(null);
+            System.err.println("Fill "+elements+" vertices: putf "+tPutf/1000000+" ms, put(float[]) "+tBulk/1000000+" ms, "+DirectBufferPool.SHARED);
+        }
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-elements")) {
+                i++;
+                try {
+                    elements = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestGLArrayDataClientGrowthNOUI.class.getName());
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES2;
+import javax.media.opengl.GLAutoDrawable;
+import javax.media.opengl.ProfileGL2ES2;
+import javax.media.opengl.StateCacheGL2ES2;
+
+import com.jogamp.opengl.GLCallProfile;
+import com.jogamp.opengl.GLCallProfiler;
+import com.jogamp.opengl.util.GLCallProfileSummary;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates the generated ProfileGL* pipelines against a mock GL,
+ * the {@link GLCallProfile} snapshot and the installation by {@link GLCallProfileSummary}.
+ */
+public class TestGLCallProfileNOUI {
+    static final String[] names = GLCallProfile.splitNames(new String[] {
+            "glBindTexture(int,int)\nglClear(int)\n", "glDrawArrays(int,int,int)\nglUniform1f(int,float)\n" }, 4);
+
+    /** Counts the calls reaching the mock GL, glFinish takes 1ms. */
+    static class MockGL implements InvocationHandler {
+        final HashMap<String, Integer> calls = new HashMap<String, Integer>();
+
+        public Object invoke(Object proxy, Method m, Object[] args) throws InterruptedException {
+            final Integer n = calls.get(m.getName());
+            calls.put(m.getName(), new Integer( null != n ? n.intValue() + 1 : 1 ));
+            if( m.getName().equals("glFinish") ) {
+                Thread.sleep(1);
+            }
+            final Class<?> ret = m.getReturnType();
+            if( ret == Boolean.TYPE ) {
+                return Boolean.FALSE;
+            } else if( ret == Integer.TYPE ) {
+                return new Integer(0);
+            }
+            return null;
+        }
+
+        int getCalls(String name) {
+            final Integer n = calls.get(name);
+            return null != n ? n.intValue() : 0;
+        }
+    }
+
+    static GL2ES2 createMockGL(MockGL mock) {
+        return (GL2ES2) Proxy.newProxyInstance(TestGLCallProfileNOUI.class.getClassLoader(), new Class<?>[] { GL2ES2.class }, mock);
+    }
+
+    /** Mock drawable only holding its GL */
+    static class MockDrawable implements InvocationHandler {
+        GL gl;
+
+        MockDrawable(GL gl) { this.gl = gl; }
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            if( m.getName().equals("getGL") ) {
+                return gl;
+            } else if( m.getName().equals("setGL") ) {
+                gl = (GL) args[0];
+                return gl;
+            }
+            return null;
+        }
+    }
+
+    static GLAutoDrawable createMockDrawable(MockDrawable mock) {
+        return (GLAutoDrawable) Proxy.newProxyInstance(TestGLCallProfileNOUI.class.getClassLoader(), new Class<?>[] { GLAutoDrawable.class }, mock);
+    }
+
+    static int ordinal(GLCallProfiler profiler, String name) {
+        final String[] names = profiler.getMethodNames();
+        for(int i=0; i<names.length; i++) {
+            if( names[i].equals(name) ) {
+                return i;
+            }
+        }
+        Assert.fail("Method not profiled: "+name);
+        return -1;
+    }
+
+    @Test
+    public void testProfilePipeline() {
+        final MockGL mock = new MockGL();
+        final ProfileGL2ES2 gl = new ProfileGL2ES2(createMockGL(mock));
+        final String[] names = gl.getMethodNames();
+        Assert.assertEquals(names.length, gl.getMethodCount());
+        for(int i=1; i<names.length; i++) {
+            Assert.assertTrue(names[i-1]+" < "+names[i], names[i-1].compareTo(names[i]) < 0); // stable ordinals
+        }
+        final int drawArrays = ordinal(gl, "glDrawArrays(int,int,int)");
+        final int clear = ordinal(gl, "glClear(int)");
+        final int finish = ordinal(gl, "glFinish()");
+        Assert.assertTrue(gl.isTiming());
+
+        gl.glClear(GL.GL_COLOR_BUFFER_BIT);
+        for(int i=0; i<3; i++) {
+            gl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+        }
+        gl.glFinish();
+        // calls pass through
+        Assert.assertEquals(3, mock.getCalls("glDrawArrays"));
+        Assert.assertEquals(1, mock.getCalls("glClear"));
+        Assert.assertEquals(3, gl.getCallCount(drawArrays));
+        Assert.assertEquals(1, gl.getCallCount(clear));
+        Assert.assertEquals(1, gl.getCallCount(finish));
+        Assert.assertTrue(gl.getNanos(finish) >= 1000000L);
+
+        GLCallProfile p = gl.snapshot(null);
+        Assert.assertEquals(5, p.getTotalCallCount());
+        Assert.assertEquals("glDrawArrays(int,int,int)", p.getMethodName(drawArrays));
+        Assert.assertEquals(finish, p.getTopOrdinals(1)[0]);
+
+        // counting only
+        gl.reset();
+        Assert.assertEquals(0, gl.getCallCount(drawArrays));
+        Assert.assertEquals(0, gl.getNanos(finish));
+        gl.setTiming(false);
+        Assert.assertFalse(gl.isTiming());
+        gl.glFinish();
+        gl.glDrawArrays(GL.GL_TRIANGLES, 0, 3);
+        Assert.assertEquals(1, gl.getCallCount(finish));
+        Assert.assertEquals(1, gl.getCallCount(drawArrays));
+        Assert.assertEquals(0, gl.getNanos(finish));
+        p = gl.snapshot(p);
+        Assert.assertFalse(p.isTiming());
+        Assert.assertEquals(2, p.getTotalCallCount());
+    }
+
+    @Test
+    public void testSummaryInstall() {
+        final MockGL mock = new MockGL();
+        final GL2ES2 mockGL = createMockGL(mock);
+
+        // installs the profile pipeline on top
+        final MockDrawable drawable = new MockDrawable(mockGL);
+        final GLCallProfileSummary summary = new GLCallProfileSummary(null, 2, 10);
+        summary.init(createMockDrawable(drawable));
+        Assert.assertTrue(drawable.gl instanceof ProfileGL2ES2);
+        Assert.assertSame(drawable.gl, summary.getProfiler());
+        Assert.assertSame(mockGL, ((ProfileGL2ES2) drawable.gl).getDownstreamGL());
+        Assert.assertNull(summary.getLastProfile());
+        for(int i=0; i<2; i++) {
+            drawable.gl.glClear(GL.GL_COLOR_BUFFER_BIT);
+            summary.display(createMockDrawable(drawable));
+        }
+        Assert.assertEquals(2, summary.getLastFrameCount());
+        Assert.assertEquals(2, summary.getLastProfile().getTotalCallCount());
+        Assert.assertEquals(0, summary.getProfiler().getCallCount(ordinal(summary.getProfiler(), "glClear(int)")));
+
+        // finds an existing profiler below another pipeline
+        final ProfileGL2ES2 profileGL = new ProfileGL2ES2(mockGL);
+        final StateCacheGL2ES2 stateCacheGL = new StateCacheGL2ES2(profileGL);
+        Assert.assertSame(profileGL, GLCallProfileSummary.findProfiler(stateCacheGL));
+        Assert.assertNull(GLCallProfileSummary.findProfiler(mockGL));
+        final MockDrawable drawable2 = new MockDrawable(stateCacheGL);
+        final GLCallProfileSummary summary2 = new GLCallProfileSummary(null, 1, 10);
+        summary2.init(createMockDrawable(drawable2));
+        Assert.assertSame(stateCacheGL, drawable2.gl);
+        Assert.assertSame(profileGL, summary2.getProfiler());
+    }
+
+    @Test
+    public void testSplitNames() {
+        Assert.assertEquals(4, names.length);
+        Assert.assertEquals("glBindTexture(int,int)", names[0]);
+        Assert.assertEquals("glDrawArrays(int,int,int)", names[2]);
+        Assert.assertEquals("glUniform1f(int,float)", names[3]);
+    }
+
+    @Test
+    public void testTopOrdinals() {
+        final long[] calls = new long[] { 10, 1, 0, 5 };
+        final long[] nanos = new long[] { 100, 5000, 0, 300 };
+        final GLCallProfile p = new GLCallProfile();
+        p.set(names, calls, nanos, true);
+        calls[0] = 0; // snapshot owns its copy
+        Assert.assertEquals(16, p.getTotalCallCount());
+        Assert.assertEquals(5400, p.getTotalNanos());
+
+        // sorted by time while timing, unused methods are dropped
+        int[] top = p.getTopOrdinals(10);
+        Assert.assertEquals(3, top.length);
+        Assert.assertEquals(1, top[0]);
+        Assert.assertEquals(3, top[1]);
+        Assert.assertEquals(0, top[2]);
+
+        // sorted by call count otherwise
+        p.set(names, new long[] { 10, 1, 0, 5 }, nanos, false);
+        top = p.getTopOrdinals(2);
+        Assert.assertEquals(2, top.length);
+        Assert.assertEquals(0, top[0]);
+        Assert.assertEquals(3, top[1]);
+
+        final String s = p.toString(null, 2, 2).toString();
+        System.err.println(s);
+        Assert.assertTrue(s, s.indexOf("glBindTexture(int,int)") >= 0);
+        Assert.assertTrue(s, s.indexOf("glDrawArrays") < 0);
+    }
+
+    public static void main(String args[]) throws IOException {
+        org.junit.runner.JUnitCore.main(TestGLCallProfileNOUI.class.getName());
+    }
+}
@@ -0,0 +1,306 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2ES1;
+
+import com.jogamp.opengl.util.ImmModeSink;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates batch merging and indexing of the {@link ImmModeSink} streaming mode against a mock GL,
+ * and benchmarks it against the default mode reporting vertices per second and allocations per frame.
+ */
+public class TestImmModeSinkStreamingNOUI {
+    static int frames = 200;
+    static int quadsPerFrame = 1000;
+
+    /** Mock GL counting calls, drawn vertices and indices. */
+    static class MockGL implements InvocationHandler {
+        final GL2ES1 gl = (GL2ES1) Proxy.newProxyInstance(GL2ES1.class.getClassLoader(), new Class[] { GL2ES1.class }, this);
+        final Map<String, int[]> calls = new HashMap<String, int[]>();
+        int lastName = 0;
+        int drawnVertices = 0;
+        int drawnIndices = 0;
+        int orphans = 0;
+        short[] lastIndices;
+
+        public Object invoke(Object proxy, Method m, Object[] args) {
+            final String name = m.getName();
+            int[] count = calls.get(name);
+            if( null == count ) {
+                count = new int[1];
+                calls.put(name, count);
+            }
+            count[0]++;
+            if( name.startsWith("getGL") ) {
+                return proxy;
+            } else if( name.equals("glGenBuffers") ) {
+                final int[] names = (int[]) args[1];
+                final int off = ((Integer) args[2]).intValue();
+                for(int i=0; i<((Integer) args[0]).intValue(); i++) {
+                    names[off+i] = ++lastName;
+                }
+            } else if( name.equals("glBufferData") && null == args[2] ) {
+                orphans++;
+            } else if( name.equals("glDrawArrays") ) {
+                drawnVertices += ((Integer) args[2]).intValue();
+            } else if( name.equals("glDrawElements") && args[3] instanceof ShortBuffer ) {
+                final int n = ((Integer) args[1]).intValue();
+                final ShortBuffer sb = (ShortBuffer) args[3];
+                lastIndices = new short[n];
+                sb.duplicate().get(lastIndices);
+                drawnIndices += n;
+            }
+            final Class<?> rt = m.getReturnType();
+            if( rt == boolean.class ) {
+                return Boolean.FALSE;
+            } else if( rt == int.class ) {
+                return Integer.valueOf(0);
+            } else if( rt == long.class ) {
+                return Long.valueOf(0);
+            }
+            return null;
+        }
+
+        int getCalls(String name) {
+            final int[] count = calls.get(name);
+            return null != count ? count[0] : 0;
+        }
+
+        int getTotalCalls() {
+            int n = 0;
+            for(int[] count : calls.values()) {
+                n += count[0];
+            }
+            return n;
+        }
+
+        void clear() {
+            calls.clear();
+            drawnVertices = 0;
+            drawnIndices = 0;
+            orphans = 0;
+        }
+    }
+
+    static ImmModeSink createSink(GL gl) {
+        return ImmModeSink.createFixed(gl, GL.GL_STATIC_DRAW, 64,
+                                       3, GL.GL_FLOAT,  // vertex
+                                       4, GL.GL_FLOAT,  // color
+                                       0, GL.GL_FLOAT,  // normal
+                                       2, GL.GL_FLOAT); // texture
+    }
+
+    static void quad(ImmModeSink sink, float x, float y) {
+        sink.glColor4f(1f, 0f, 0f, 1f); sink.glTexCoord2f(0f, 0f); sink.glVertex3f(x,    y,    0f);
+        sink.glColor4f(0f, 1f, 0f, 1f); sink.glTexCoord2f(1f, 0f); sink.glVertex3f(x+1f, y,    0f);
+        sink.glColor4f(0f, 0f, 1f, 1f); sink.glTexCoord2f(1f, 1f); sink.glVertex3f(x+1f, y+1f, 0f);
+        sink.glColor4f(1f, 1f, 1f, 1f); sink.glTexCoord2f(0f, 1f); sink.glVertex3f(x,    y+1f, 0f);
+    }
+
+    @Test
+    public void test01MergeTriangles() {
+        final MockGL mock = new MockGL();
+        final ImmModeSink sink = createSink(mock.gl);
+        sink.setStreaming(mock.gl, 1024, false);
+        Assert.assertTrue(sink.isStreaming());
+        for(int i=0; i<10; i++) {
+            sink.glBegin(GL.GL_TRIANGLES);
+            for(int j=0; j<6; j++) {
+                sink.glColor4f(1f, 1f, 1f, 1f); sink.glTexCoord2f(0f, 0f); sink.glVertex3f(i, j, 0f);
+            }
+            sink.glEnd(mock.gl, false);
+        }
+        Assert.assertEquals(0, mock.getCalls("glDrawArrays"));
+        sink.draw(mock.gl, true);
+        Assert.assertEquals(1, mock.getCalls("glDrawArrays"));
+        Assert.assertEquals(60, mock.drawnVertices);
+        Assert.assertEquals(3, mock.getCalls("glBufferSubData")); // one per attribute
+        Assert.assertEquals(1, mock.getCalls("glGenBuffers"));
+
+        // a strip breaks the merge
+        mock.clear();
+        for(int i=0; i<3; i++) {
+            sink.glBegin(0 == i % 2 ? GL.GL_TRIANGLES : GL.GL_TRIANGLE_STRIP);
+            for(int j=0; j<4; j++) {
+                sink.glColor4f(1f, 1f, 1f, 1f); sink.glTexCoord2f(0f, 0f); sink.glVertex3f(i, j, 0f);
+            }
+            sink.glEnd(mock.gl, false);
+        }
+        sink.draw(mock.gl, true);
+        Assert.assertEquals(3, mock.getCalls("glDrawArrays"));
+        Assert.assertEquals(0, mock.getCalls("glGenBuffers"));
+        sink.destroy(mock.gl);
+        Assert.assertEquals(1, mock.getCalls("glDeleteBuffers"));
+    }
+
+    @Test
+    public void test02IndexedQuadsAndPolygons() {
+        final MockGL mock = new MockGL();
+        final ImmModeSink sink = createSink(mock.gl);
+        sink.setStreaming(mock.gl, 1024, true);
+        sink.glBegin(ImmModeSink.GL_QUADS);
+        quad(sink, 0f, 0f);
+        quad(sink, 1f, 0f);
+        sink.glEnd(mock.gl, false);
+        sink.glBegin(ImmModeSink.GL_POLYGON);
+        for(int j=0; j<5; j++) {
+            sink.glColor4f(1f, 1f, 1f, 1f); sink.glTexCoord2f(0f, 0f); sink.glVertex3f(j, j, 0f);
+        }
+        sink.glEnd(mock.gl); // immediate
+        Assert.assertEquals(1, mock.getCalls("glDrawElements"));
+        Assert.assertEquals(0, mock.getCalls("glDrawArrays"));
+        Assert.assertEquals(2*6 + 3*3, mock.drawnIndices);
+        final short[] expected = { 0, 1, 2,  0, 2, 3,   4, 5, 6,  4, 6, 7,
+                                   8, 9, 10, 8, 10, 11, 8, 11, 12 };
+        Assert.assertArrayEquals(expected, mock.lastIndices);
+
+        // user indices are rebased
+        mock.clear();
+        sink.glBegin(GL.GL_TRIANGLES);
+        quad(sink, 0f, 0f);
+        sink.glEnd(mock.gl, ShortBuffer.wrap(new short[] { 0, 1, 2, 2, 3, 0 }));
+        Assert.assertArrayEquals(new short[] { 13, 14, 15, 15, 16, 13 }, mock.lastIndices);
+        sink.destroy(mock.gl);
+    }
+
+    @Test
+    public void test03RingWrapAndOversizedBatch() {
+        final MockGL mock = new MockGL();
+        final ImmModeSink sink = createSink(mock.gl);
+        sink.setStreaming(mock.gl, 64, true);
+        for(int i=0; i<20; i++) {
+            sink.glBegin(ImmModeSink.GL_QUADS);
+            quad(sink, i, 0f);
+            sink.glEnd(mock.gl, false);
+        }
+        sink.draw(mock.gl, true);
+        Assert.assertEquals(2, mock.orphans); // allocation, 16 quads fit, wrap once
+        Assert.assertEquals(2, mock.getCalls("glDrawElements"));
+        Assert.assertEquals(20*6, mock.drawnIndices);
+
+        // batch exceeding the ring is drawn by the default path
+        mock.clear();
+        sink.glBegin(GL.GL_TRIANGLES);
+        for(int i=0; i<100; i++) {
+            sink.glColor4f(1f, 1f, 1f, 1f); sink.glTexCoord2f(0f, 0f); sink.glVertex3f(i, i, 0f);
+        }
+        sink.glEnd(mock.gl, false);
+        Assert.assertEquals(1, mock.getCalls("glDrawArrays"));
+        sink.destroy(mock.gl);
+    }
+
+    static long getAllocatedBytes() {
+        try {
+            final Object bean = ManagementFactory.getThreadMXBean();
+            final Method m = Class.forName("com.sun.management.ThreadMXBean").getMethod("getThreadAllocatedBytes", new Class[] { long.class });
+            return ((Long) m.invoke(bean, new Object[] { Long.valueOf(Thread.currentThread().getId()) })).longValue();
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    /** @return GL calls per frame */
+    static float bench(String msg, MockGL mock, ImmModeSink sink) {
+        // warm up, lets the sink's client arrays grow to their final size
+        for(int f=0; f<frames/10+1; f++) {
+            frame(mock, sink);
+        }
+        mock.clear();
+        final long a0 = getAllocatedBytes();
+        final long t0 = System.nanoTime();
+        for(int f=0; f<frames; f++) {
+            frame(mock, sink);
+        }
+        final long dt = System.nanoTime() - t0;
+        final long a1 = getAllocatedBytes();
+        final float glCallsPerFrame = (float) mock.getTotalCalls() / frames;
+        System.err.println(msg+": "+(long)( (double)frames * quadsPerFrame * 4 / ( dt / 1e9 ) )+" vertices/s, "+
+                           ( 0 <= a0 ? ( a1 - a0 ) / frames : -1 )+" bytes allocated/frame (incl. mock GL), "+
+                           glCallsPerFrame+" GL calls/frame, "+
+                           (float) ( mock.getCalls("glDrawArrays") + mock.getCalls("glDrawElements") ) / frames+" draws/frame");
+        return glCallsPerFrame;
+    }
+
+    static void frame(MockGL mock, ImmModeSink sink) {
+        for(int i=0; i<quadsPerFrame; i++) {
+            sink.glBegin(ImmModeSink.GL_QUADS);
+            quad(sink, i % 100, i / 100);
+            sink.glEnd(mock.gl, false);
+        }
+        sink.draw(mock.gl, true);
+        sink.reset(mock.gl);
+    }
+
+    @Test
+    public void test10Benchmark() {
+        final MockGL mockDefault = new MockGL();
+        final ImmModeSink sinkDefault = createSink(mockDefault.gl);
+        final float callsDefault = bench("default  ", mockDefault, sinkDefault);
+        sinkDefault.destroy(mockDefault.gl);
+
+        final MockGL mockStreaming = new MockGL();
+        final ImmModeSink sinkStreaming = createSink(mockStreaming.gl);
+        sinkStreaming.setStreaming(mockStreaming.gl, 1 << 16, true);
+        final float callsStreaming = bench("streaming", mockStreaming, sinkStreaming);
+        sinkStreaming.destroy(mockStreaming.gl);
+
+        Assert.assertTrue(callsStreaming < callsDefault);
+        Assert.assertEquals(0, mockStreaming.getCalls("glGenBuffers"));
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-frames")) {
+                i++;
+                try {
+                    frames = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            } else if(args[i].equals("-quads")) {
+                i++;
+                try {
+                    quadsPerFrame = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestImmModeSinkStreamingNOUI.class.getName());
+    }
+}
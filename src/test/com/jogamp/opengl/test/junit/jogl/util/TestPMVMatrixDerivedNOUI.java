@@ -0,0 +1,259 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import java.nio.FloatBuffer;
+
+import javax.media.opengl.fixedfunc.GLMatrixFunc;
+
+import jogamp.opengl.ProjectFloat;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.PMVMatrix;
+
+/**
+ * Verifies the lazily computed inverse (transposed) modelview of {@link PMVMatrix}
+ * for rigid, affine and general modelviews against {@link ProjectFloat}'s
+ * general 4x4 inversion and measures both paths for typical transform mixes.
+ * <p>
+ * Run via main to get meaningful numbers, e.g. with
+ * <code>-iterations 1000000</code>.
+ * </p>
+ */
+public class TestPMVMatrixDerivedNOUI {
+    static int iterations = 20000;
+
+    static final int RIGID = 0, AFFINE = 1, GENERAL = 2;
+    static final String[] mixNames = { "rigid", "affine", "general" };
+
+    static final ProjectFloat projectFloat = new ProjectFloat();
+
+    static float[] get(FloatBuffer fb) {
+        float[] f = new float[16];
+        fb.get(f);
+        fb.reset();
+        return f;
+    }
+
+    static float[] invert(float[] m) {
+        float[] inv = new float[16];
+        Assert.assertTrue(projectFloat.gluInvertMatrixf(m, 0, inv, 0));
+        return inv;
+    }
+
+    static void assertEquals(float[] expected, float[] actual) {
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("element "+i, expected[i], actual[i], 1e-4f * Math.max(1f, Math.abs(expected[i])));
+        }
+    }
+
+    static float[] transpose(float[] m) {
+        float[] t = new float[16];
+        for (int j = 0; j < 4; j++) {
+            for (int k = 0; k < 4; k++) {
+                t[k*4+j] = m[j*4+k];
+            }
+        }
+        return t;
+    }
+
+    /** Applies one scene graph node transform of the given mix onto the modelview */
+    static void transform(PMVMatrix m, int mix, int i) {
+        m.glTranslatef(i % 7, 0.5f, -2f);
+        m.glRotatef(i % 360, 0.3f, 1f, 0.2f);
+        if( AFFINE <= mix ) {
+            m.glScalef(1.5f, 0.5f, 2f);
+        }
+        if( GENERAL <= mix ) {
+            m.glFrustumf(-1f, 1f, -1f, 1f, 1f, 100f);
+        }
+    }
+
+    void testInverse(boolean useBackingArray, int mix) {
+        PMVMatrix m = new PMVMatrix(useBackingArray);
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glLoadIdentity();
+        final FloatBuffer mvi = m.glGetMviMatrixf();
+        final FloatBuffer mvit = m.glGetMvitMatrixf();
+        for (int i = 0; i < 10; i++) {
+            transform(m, mix, 13 * i);
+            m.update();
+            final float[] expected = invert(get(m.glGetMvMatrixf()));
+            assertEquals(expected, get(mvi));
+            final float[] t = get(mvit);
+            for (int j = 0; j < 4; j++) {
+                for (int k = 0; k < 4; k++) {
+                    Assert.assertEquals(get(mvi)[j*4+k], t[k*4+j], 0f);
+                }
+            }
+        }
+        m.destroy();
+    }
+
+    @Test
+    public void testInverseRigid() {
+        testInverse(true, RIGID);
+        testInverse(false, RIGID);
+    }
+
+    @Test
+    public void testInverseAffine() {
+        testInverse(true, AFFINE);
+        testInverse(false, AFFINE);
+    }
+
+    @Test
+    public void testInverseGeneral() {
+        testInverse(true, GENERAL);
+        testInverse(false, GENERAL);
+    }
+
+    @Test
+    public void testInverseAfterPop() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glTranslatef(1f, 2f, 3f);
+        m.glPushMatrix();
+        m.glScalef(2f, 2f, 2f);
+        m.glPopMatrix();
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        m.glLoadMatrixf(new float[] { 2, 0, 0, 0,  0, 3, 0, 0,  0, 0, 4, 0,  1, 1, 1, 1 }, 0);
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        // pop restores the classification of the pushed general matrix, not the rigid top one
+        m.glPushMatrix();
+        m.glLoadIdentity();
+        m.glTranslatef(1f, 2f, 3f);
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        m.glPopMatrix();
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        m.glTranslatef(1f, 2f, 3f);
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+    }
+
+    @Test
+    public void testInverseAfterSetDirty() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glLoadIdentity();
+        m.glTranslatef(1f, 2f, 3f);
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        // write a general matrix into the rigid modelview directly
+        final FloatBuffer mv = m.glGetMvMatrixf();
+        mv.put(new float[] { 2, 0, 0, 0,  0, 3, 0, 1,  0, 0, 4, 0,  1, 1, 1, 1 });
+        mv.reset();
+        m.setDirty();
+        assertEquals(invert(get(m.glGetMvMatrixf())), get(m.glGetMviMatrixf()));
+        assertEquals(invert(get(m.glGetMvMatrixf())), transpose(get(m.glGetMvitMatrixf())));
+    }
+
+    @Test
+    public void testOnDemand() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glTranslatef(1f, 2f, 3f);
+        // no update() required by the getter
+        float[] mvi = get(m.glGetMviMatrixf());
+        Assert.assertEquals(-1f, mvi[12], 0f);
+        Assert.assertEquals(-2f, mvi[13], 0f);
+        Assert.assertEquals(-3f, mvi[14], 0f);
+        // a retained buffer is refreshed by update()
+        final FloatBuffer pmvmvi = m.glGetPMvMviMatrixf();
+        m.glTranslatef(1f, 0f, 0f);
+        Assert.assertTrue(m.update());
+        Assert.assertEquals(-2f, pmvmvi.get(pmvmvi.position()+2*16+12), 0f);
+        Assert.assertFalse(m.update());
+    }
+
+    /** Former update path: general inversion and transposition on every modelview change */
+    static void updateGeneral(PMVMatrix m, float[] mv, float[] mvi, float[] mvit) {
+        final FloatBuffer fb = m.glGetMvMatrixf();
+        fb.get(mv);
+        fb.reset();
+        if( !projectFloat.gluInvertMatrixf(mv, 0, mvi, 0) ) {
+            throw new RuntimeException("singular");
+        }
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                mvit[j+i*4] = mvi[i+j*4];
+            }
+        }
+        m.update();
+    }
+
+    static long nanosPerNode(int mix, boolean general, boolean useMvit, int n) {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        float[] mv = new float[16], mvi = new float[16], mvit = new float[16];
+        if( !general ) {
+            if( useMvit ) {
+                m.glGetMvitMatrixf();
+            } else {
+                m.glGetMviMatrixf();
+            }
+        }
+        final long t0 = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            m.glPushMatrix();
+            transform(m, mix, i);
+            if( general ) {
+                updateGeneral(m, mv, mvi, mvit);
+            } else {
+                m.update();
+            }
+            m.glPopMatrix();
+        }
+        return ( System.nanoTime() - t0 ) / n;
+    }
+
+    @Test
+    public void testPerformance() {
+        for (int mix = RIGID; mix <= GENERAL; mix++) {
+            for (int k = 0; k < 2; k++) {
+                final boolean useMvit = 0 != k;
+                nanosPerNode(mix, true, useMvit, iterations); // warm up
+                nanosPerNode(mix, false, useMvit, iterations);
+                final long tGeneral = nanosPerNode(mix, true, useMvit, iterations);
+                final long tNew = nanosPerNode(mix, false, useMvit, iterations);
+                System.err.println("PMVMatrix "+mixNames[mix]+( useMvit ? " Mvi+Mvit" : " Mvi" )+
+                                   ": general inverse "+tGeneral+" ns/node, lazy/fast path "+tNew+" ns/node");
+            }
+        }
+    }
+
+    public static void main(String args[]) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-iterations")) {
+                i++;
+                iterations = Integer.parseInt(args[i]);
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestPMVMatrixDerivedNOUI.class.getName());
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.jogl.util;
+
+import javax.media.opengl.GL;
+import javax.media.opengl.GLException;
+import javax.media.opengl.fixedfunc.GLMatrixFunc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jogamp.opengl.util.PMVMatrix;
+
+public class TestPMVMatrixStackNOUI {
+
+    static float[] get(PMVMatrix m, int matrixGetName) {
+        float[] f = new float[16];
+        m.glGetFloatv(matrixGetName, f, 0);
+        return f;
+    }
+
+    static void assertEquals(float[] expected, float[] actual) {
+        for (int i = 0; i < 16; i++) {
+            Assert.assertEquals("element "+i, expected[i], actual[i], 0.0f);
+        }
+    }
+
+    void testPushPop(boolean useBackingArray, int matrixName, int matrixGetName) {
+        PMVMatrix m = new PMVMatrix(useBackingArray);
+        m.glMatrixMode(matrixName);
+        final int n = 100; // beyond the initial capacity
+        float[][] saved = new float[n][];
+        for (int i = 0; i < n; i++) {
+            m.glTranslatef(i, 2*i, 3*i);
+            m.glRotatef(i, 0, 0, 1);
+            saved[i] = get(m, matrixGetName);
+            m.glPushMatrix();
+            Assert.assertEquals(i+1, m.getStackDepth(matrixName));
+        }
+        m.glLoadIdentity();
+        for (int i = n-1; i >= 0; i--) {
+            m.glPopMatrix();
+            Assert.assertEquals(i, m.getStackDepth(matrixName));
+            assertEquals(saved[i], get(m, matrixGetName));
+            Assert.assertTrue(m.isDirty(matrixName));
+        }
+        m.destroy();
+    }
+
+    @Test
+    public void testPushPopModelview() {
+        testPushPop(true,  GLMatrixFunc.GL_MODELVIEW, GLMatrixFunc.GL_MODELVIEW_MATRIX);
+        testPushPop(false, GLMatrixFunc.GL_MODELVIEW, GLMatrixFunc.GL_MODELVIEW_MATRIX);
+    }
+
+    @Test
+    public void testPushPopProjection() {
+        testPushPop(true,  GLMatrixFunc.GL_PROJECTION, GLMatrixFunc.GL_PROJECTION_MATRIX);
+        testPushPop(false, GLMatrixFunc.GL_PROJECTION, GLMatrixFunc.GL_PROJECTION_MATRIX);
+    }
+
+    @Test
+    public void testPushPopTexture() {
+        testPushPop(true,  GL.GL_TEXTURE, GLMatrixFunc.GL_TEXTURE_MATRIX);
+        testPushPop(false, GL.GL_TEXTURE, GLMatrixFunc.GL_TEXTURE_MATRIX);
+    }
+
+    @Test
+    public void testStacksAreIndependent() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        m.glPushMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_PROJECTION);
+        m.glPushMatrix();
+        m.glPushMatrix();
+        Assert.assertEquals(1, m.getStackDepth(GLMatrixFunc.GL_MODELVIEW));
+        Assert.assertEquals(2, m.getStackDepth(GLMatrixFunc.GL_PROJECTION));
+        Assert.assertEquals(0, m.getStackDepth(GL.GL_TEXTURE));
+    }
+
+    @Test
+    public void testOverflow() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GLMatrixFunc.GL_MODELVIEW);
+        Assert.assertEquals(PMVMatrix.DEFAULT_MAX_STACK_DEPTH, m.getMaxStackDepth(GLMatrixFunc.GL_MODELVIEW));
+        m.setMaxStackDepth(GLMatrixFunc.GL_MODELVIEW, 3);
+        m.glPushMatrix();
+        m.glPushMatrix();
+        m.glPushMatrix();
+        try {
+            m.glPushMatrix();
+            Assert.fail("expected GL_STACK_OVERFLOW");
+        } catch (GLException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("GL_STACK_OVERFLOW"));
+        }
+        Assert.assertEquals(3, m.getStackDepth(GLMatrixFunc.GL_MODELVIEW));
+        try {
+            m.setMaxStackDepth(GLMatrixFunc.GL_MODELVIEW, 2);
+            Assert.fail("expected GL_INVALID_VALUE");
+        } catch (GLException e) { }
+    }
+
+    @Test
+    public void testUnderflow() {
+        PMVMatrix m = new PMVMatrix();
+        m.glMatrixMode(GL.GL_TEXTURE);
+        m.glPushMatrix();
+        m.glPopMatrix();
+        try {
+            m.glPopMatrix();
+            Assert.fail("expected GL_STACK_UNDERFLOW");
+        } catch (GLException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("GL_STACK_UNDERFLOW"));
+        }
+    }
+
+    public static void main(String args[]) {
+        org.junit.runner.JUnitCore.main(TestPMVMatrixStackNOUI.class.getName());
+    }
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt;
+
+import java.io.IOException;
+
+import jogamp.newt.WindowImpl;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.media.nativewindow.Capabilities;
+import javax.media.nativewindow.NativeWindowFactory;
+
+import com.jogamp.newt.NewtFactory;
+import com.jogamp.newt.Window;
+import com.jogamp.newt.event.KeyAdapter;
+import com.jogamp.newt.event.KeyEvent;
+import com.jogamp.newt.event.MouseAdapter;
+import com.jogamp.newt.event.MouseEvent;
+import com.jogamp.newt.event.WindowAdapter;
+import com.jogamp.newt.event.WindowEvent;
+import com.jogamp.opengl.test.junit.util.UITestCase;
+
+/**
+ * Blocks the EDT while injecting mouse motion and resize events,
+ * validating that queued events are coalesced if enabled.
+ */
+public class TestEventCoalescing01NEWT extends UITestCase {
+    static int width = 256, height = 256;
+    static final int samples = 100;
+    
+    @BeforeClass
+    public static void initClass() {
+        NativeWindowFactory.initSingleton(true);
+    }
+
+    static class MotionCounter extends MouseAdapter {
+        volatile int moved = 0;
+        volatile int lastX = -1;
+        volatile int lastHistorySize = -1;
+        volatile int lastHistoricalX = -1;
+        
+        public void mouseMoved(MouseEvent e) {
+            lastX = e.getX();
+            lastHistorySize = e.getHistorySize();
+            if( 0 < lastHistorySize ) {
+                lastHistoricalX = e.getHistoricalX(lastHistorySize-1);
+            }
+            moved++;
+        }
+    }
+    
+    /** Records the order of delivered motion and key events */
+    static class OrderRecorder extends MouseAdapter {
+        final StringBuffer order = new StringBuffer();
+        final KeyAdapter keys = new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                order.append('K');
+            }
+        };
+        public void mouseMoved(MouseEvent e) {
+            order.append('M');
+        }
+    }
+
+    static class ResizeCounter extends WindowAdapter {
+        volatile int resized = 0;
+        public void windowResized(WindowEvent e) {
+            resized++;
+        }
+    }
+    
+    /** Blocks the EDT until {@link #release()} */
+    static class EDTBlocker implements Runnable {
+        boolean blocked = true;
+        public synchronized void run() {
+            while(blocked) {
+                try {
+                    wait();
+                } catch (InterruptedException e) { }
+            }
+        }
+        public synchronized void release() {
+            blocked = false;
+            notifyAll();
+        }
+    }
+    
+    static void injectMotion(WindowImpl window, int count) throws InterruptedException {
+        final EDTBlocker blocker = new EDTBlocker();
+        window.runOnEDTIfAvail(false, blocker);
+        for(int i=0; i<count; i++) {
+            window.enqueueMouseEvent(false, MouseEvent.EVENT_MOUSE_MOVED, 0, 10+i, 10, 0, 0);
+        }
+        blocker.release();
+    }
+    
+    static void waitForEvents(MotionCounter mc, int expected) throws InterruptedException {
+        for(int wait=0; wait<200 && mc.moved < expected; wait++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100); // more than expected ?
+    }
+
+    @Test
+    public void testMotionCoalescing() throws InterruptedException {
+        final Window window = NewtFactory.createWindow(new Capabilities());
+        window.setSize(width, height);
+        window.setVisible(true);
+        Assert.assertTrue(window.isNativeValid());
+        final WindowImpl windowImpl = (WindowImpl) window;
+        final MotionCounter mc = new MotionCounter();
+        window.addMouseListener(mc);
+        
+        window.setEventCoalescing(true);
+        Assert.assertTrue(window.isEventCoalescing());
+        injectMotion(windowImpl, samples);
+        waitForEvents(mc, 1);
+        Assert.assertEquals(1, mc.moved);
+        Assert.assertEquals(10+samples-1, mc.lastX);
+        Assert.assertEquals(32, mc.lastHistorySize);
+        Assert.assertEquals(10+samples-2, mc.lastHistoricalX);
+        
+        mc.moved = 0;
+        window.setEventCoalescing(false);
+        injectMotion(windowImpl, samples);
+        waitForEvents(mc, samples);
+        Assert.assertEquals(samples, mc.moved);
+        Assert.assertEquals(0, mc.lastHistorySize);
+        
+        window.destroy();
+    }
+
+    @Test
+    public void testMotionKeyOrder() throws InterruptedException {
+        final Window window = NewtFactory.createWindow(new Capabilities());
+        window.setSize(width, height);
+        window.setVisible(true);
+        Assert.assertTrue(window.isNativeValid());
+        final WindowImpl windowImpl = (WindowImpl) window;
+        final OrderRecorder or = new OrderRecorder();
+        window.addMouseListener(or);
+        window.addKeyListener(or.keys);
+
+        window.setEventCoalescing(true);
+        final EDTBlocker blocker = new EDTBlocker();
+        window.runOnEDTIfAvail(false, blocker);
+        for(int i=0; i<samples; i++) {
+            windowImpl.enqueueMouseEvent(false, MouseEvent.EVENT_MOUSE_MOVED, 0, 10+i, 10, 0, 0);
+        }
+        windowImpl.enqueueKeyEvent(false, KeyEvent.EVENT_KEY_PRESSED, 0, KeyEvent.VK_A, 'a');
+        for(int i=0; i<samples; i++) {
+            windowImpl.enqueueMouseEvent(false, MouseEvent.EVENT_MOUSE_MOVED, 0, 10+samples+i, 10, 0, 0);
+        }
+        blocker.release();
+        for(int wait=0; wait<200 && or.order.length() < 3; wait++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals("MKM", or.order.toString());
+
+        window.destroy();
+    }
+
+    @Test
+    public void testResizeCoalescing() throws InterruptedException {
+        final Window window = NewtFactory.createWindow(new Capabilities());
+        window.setSize(width, height);
+        window.setVisible(true);
+        Assert.assertTrue(window.isNativeValid());
+        final WindowImpl windowImpl = (WindowImpl) window;
+        final ResizeCounter rc = new ResizeCounter();
+        window.addWindowListener(rc);
+        Thread.sleep(100);
+        rc.resized = 0;
+        
+        window.setEventCoalescing(true);
+        final EDTBlocker blocker = new EDTBlocker();
+        window.runOnEDTIfAvail(false, blocker);
+        for(int i=0; i<samples; i++) {
+            windowImpl.enqueueWindowEvent(false, WindowEvent.EVENT_WINDOW_RESIZED);
+        }
+        blocker.release();
+        for(int wait=0; wait<200 && rc.resized < 1; wait++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        Assert.assertEquals(1, rc.resized);
+        
+        window.destroy();
+    }
+
+    public static void main(String args[]) throws IOException {
+        String tstname = TestEventCoalescing01NEWT.class.getName();
+        org.junit.runner.JUnitCore.main(tstname);
+    }
+}
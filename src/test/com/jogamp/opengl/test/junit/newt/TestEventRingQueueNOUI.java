@@ -0,0 +1,198 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jogamp.newt.event.EventRingQueue;
+
+import com.jogamp.newt.event.NEWTEvent;
+import com.jogamp.newt.event.NEWTEventFiFo;
+import com.jogamp.newt.event.WindowEvent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates ordering, back-pressure policies and batch draining of the {@link EventRingQueue} 
+ * as used by the NEWT Display event queue and NEWTEventFiFo.
+ */
+public class TestEventRingQueueNOUI {
+    static int iterations = 200000;
+    static final int producerCount = 4;
+
+    @Test
+    public void testFifoOrder() {
+        final EventRingQueue<Integer> q = new EventRingQueue<Integer>(5, EventRingQueue.POLICY_BLOCK);
+        Assert.assertEquals(8, q.capacity());
+        Assert.assertTrue(q.isEmpty());
+        Assert.assertNull(q.poll());
+        // multiple rounds over the ring
+        int next = 0;
+        for(int round=0; round<5; round++) {
+            for(int i=0; i<8; i++) {
+                Assert.assertTrue(q.offer(new Integer(round*8+i)));
+            }
+            Assert.assertFalse(q.offer(new Integer(-1)));
+            Assert.assertEquals(8, q.size());
+            for(int i=0; i<8; i++) {
+                Assert.assertEquals(next++, q.poll().intValue());
+            }
+            Assert.assertTrue(q.isEmpty());
+        }
+    }
+
+    @Test
+    public void testDropOldest() {
+        final EventRingQueue<Integer> q = new EventRingQueue<Integer>(4, EventRingQueue.POLICY_DROP_OLDEST);
+        for(int i=0; i<10; i++) {
+            q.put(new Integer(i));
+        }
+        Assert.assertEquals(4, q.size());
+        Assert.assertEquals(6, q.getDroppedCount());
+        for(int i=6; i<10; i++) {
+            Assert.assertEquals(i, q.poll().intValue());
+        }
+        Assert.assertNull(q.poll());
+    }
+
+    @Test
+    public void testDrainBatch() {
+        final EventRingQueue<Integer> q = new EventRingQueue<Integer>(16, EventRingQueue.POLICY_BLOCK);
+        final Integer[] batch = new Integer[8];
+        // wrap around the ring
+        for(int i=0; i<10; i++) {
+            q.offer(new Integer(i));
+        }
+        Assert.assertEquals(10, q.drain(batch, 0, 8) + q.drain(batch, 0, 2));
+        for(int i=0; i<12; i++) {
+            q.offer(new Integer(i));
+        }
+        Assert.assertEquals(8, q.drain(batch, 0, batch.length));
+        for(int i=0; i<8; i++) {
+            Assert.assertEquals(i, batch[i].intValue());
+        }
+        Assert.assertEquals(3, q.drain(batch, 5, 3));
+        Assert.assertEquals(8, batch[5].intValue());
+        Assert.assertEquals(10, batch[7].intValue());
+        Assert.assertEquals(1, q.size());
+        Assert.assertEquals(1, q.drain(batch, 0, batch.length));
+        Assert.assertEquals(0, q.drain(batch, 0, batch.length));
+    }
+
+    /**
+     * Multiple producers using the blocking policy with a small queue,
+     * the single consumer drains in batches and validates the per producer order.
+     */
+    @Test
+    public void testUnboundedFifo() {
+        final NEWTEventFiFo fifo = new NEWTEventFiFo();
+        final int count = 4 * NEWTEventFiFo.DEFAULT_CAPACITY;
+        for(int i=0; i<count; i++) {
+            fifo.put(new WindowEvent(WindowEvent.EVENT_WINDOW_MOVED, this, i));
+        }
+        Assert.assertEquals(count, fifo.size());
+        Assert.assertEquals(0, fifo.getDroppedCount());
+        final NEWTEvent[] batch = new NEWTEvent[10];
+        Assert.assertEquals(10, fifo.drain(batch, 0, 10));
+        for(int i=0; i<10; i++) {
+            Assert.assertEquals(i, batch[i].getWhen());
+        }
+        for(int i=10; i<count; i++) {
+            Assert.assertEquals(i, fifo.get().getWhen());
+        }
+        Assert.assertNull(fifo.get());
+    }
+
+    @Test
+    public void testBoundedFifo() {
+        final NEWTEventFiFo fifo = new NEWTEventFiFo(4, false);
+        for(int i=0; i<10; i++) {
+            fifo.put(new WindowEvent(WindowEvent.EVENT_WINDOW_MOVED, this, i));
+        }
+        Assert.assertEquals(4, fifo.size());
+        Assert.assertEquals(6, fifo.getDroppedCount());
+        Assert.assertEquals(6, fifo.get().getWhen());
+    }
+
+    @Test
+    public void testBlockingProducers() throws InterruptedException {
+        final EventRingQueue<long[]> q = new EventRingQueue<long[]>(64, EventRingQueue.POLICY_BLOCK);
+        final int perProducer = iterations / producerCount;
+        final AtomicInteger finished = new AtomicInteger(0);
+        final Thread[] producers = new Thread[producerCount];
+        for(int p=0; p<producerCount; p++) {
+            final int id = p;
+            producers[p] = new Thread(new Runnable() {
+                public void run() {
+                    for(int i=0; i<perProducer; i++) {
+                        q.put(new long[] { id, i });
+                    }
+                    finished.incrementAndGet();
+                }
+            }, "producer-"+p);
+        }
+        final long t0 = System.nanoTime();
+        for(int p=0; p<producerCount; p++) {
+            producers[p].start();
+        }
+        final long[][] batch = new long[16][];
+        final long[] expected = new long[producerCount];
+        int received = 0;
+        while( received < perProducer * producerCount ) {
+            final int n = q.drain(batch, 0, batch.length);
+            for(int i=0; i<n; i++) {
+                final int id = (int) batch[i][0];
+                Assert.assertEquals("producer "+id, expected[id], batch[i][1]);
+                expected[id]++;
+            }
+            received += n;
+            if( 0 == n ) {
+                Thread.yield();
+            }
+        }
+        final long t1 = System.nanoTime();
+        for(int p=0; p<producerCount; p++) {
+            producers[p].join();
+        }
+        Assert.assertEquals(producerCount, finished.get());
+        Assert.assertTrue(q.isEmpty());
+        Assert.assertEquals(0, q.getDroppedCount());
+        System.err.println(producerCount+" producers, "+received+" events: "+((t1-t0)/received)+" ns/event");
+    }
+
+    public static void main(String args[]) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-iterations")) {
+                i++;
+                iterations = Integer.parseInt(args[i]);
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestEventRingQueueNOUI.class.getName());
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2011 JogAmp Community. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are
+ * permitted provided that the following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of
+ *       conditions and the following disclaimer.
+ *
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list
+ *       of conditions and the following disclaimer in the documentation and/or other materials
+ *       provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY JogAmp Community ``AS IS'' AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND
+ * FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL JogAmp Community OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF
+ * ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ *
+ * The views and conclusions contained in the software and documentation are those of the
+ * authors and should not be interpreted as representing official policies, either expressed
+ * or implied, of JogAmp Community.
+ */
+package com.jogamp.opengl.test.junit.newt;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jogamp.newt.ParkingEDTUtil;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Validates task ordering, waiting, error propagation and the stop/reset cycle of the {@link ParkingEDTUtil}
+ * and reports its task latency.
+ */
+public class TestParkingEDTUtilNOUI {
+    static int iterations = 100000;
+    static final int producerCount = 4;
+
+    static class DispatchCounter implements Runnable {
+        final AtomicInteger count = new AtomicInteger(0);
+        public void run() {
+            count.incrementAndGet();
+        }
+    }
+
+    @Test
+    public void testOrderAndWait() {
+        final DispatchCounter dispatch = new DispatchCounter();
+        final ParkingEDTUtil edt = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "testOrderAndWait", dispatch);
+        final int[] next = new int[] { 0 };
+        final boolean[] ordered = new boolean[] { true };
+        for(int i=0; i<1000; i++) {
+            final int n = i;
+            edt.invoke(false, new Runnable() {
+                public void run() {
+                    if(next[0]++ != n) {
+                        ordered[0] = false;
+                    }
+                } } );
+        }
+        final boolean[] onEDT = new boolean[] { false };
+        edt.invoke(true, new Runnable() {
+            public void run() {
+                onEDT[0] = edt.isCurrentThreadEDT();
+            } } );
+        Assert.assertTrue(onEDT[0]);
+        Assert.assertEquals(1000, next[0]);
+        Assert.assertTrue(ordered[0]);
+        Assert.assertEquals(1001, edt.getTaskCount());
+        Assert.assertEquals(0, edt.getQueueLength());
+        Assert.assertTrue(dispatch.count.get() > 0);
+        stop(edt);
+    }
+
+    @Test
+    public void testErrorPropagation() {
+        final ParkingEDTUtil edt = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "testErrorPropagation", new DispatchCounter());
+        try {
+            edt.invoke(true, new Runnable() {
+                public void run() {
+                    throw new IllegalStateException("expected");
+                } } );
+            Assert.fail("Exception not propagated");
+        } catch (RuntimeException re) {
+            Assert.assertTrue(re.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue(edt.isRunning()); // EDT not disturbed
+        stop(edt);
+    }
+
+    @Test
+    public void testStopReset() {
+        final ParkingEDTUtil edt = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "testStopReset", new DispatchCounter());
+        for(int j=0; j<3; j++) {
+            final AtomicInteger count = new AtomicInteger(0);
+            for(int i=0; i<100; i++) {
+                edt.invoke(false, new Runnable() {
+                    public void run() {
+                        count.incrementAndGet();
+                    } } );
+            }
+            final boolean[] finalRun = new boolean[] { false };
+            edt.invokeStop(new Runnable() {
+                public void run() {
+                    finalRun[0] = true;
+                } } );
+            edt.waitUntilStopped();
+            Assert.assertFalse(edt.isRunning());
+            Assert.assertTrue(finalRun[0]);
+            Assert.assertEquals(100, count.get());
+            edt.reset();
+        }
+    }
+
+    @Test
+    public void testRequestDispatch() throws InterruptedException {
+        final DispatchCounter dispatch = new DispatchCounter();
+        final ParkingEDTUtil edt = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "testRequestDispatch", dispatch);
+        edt.setPollPeriod(60000); // no periodic dispatch within this test
+        edt.start();
+        edt.invoke(true, new Runnable() { public void run() { } } );
+        final int c0 = dispatch.count.get();
+        edt.requestDispatch();
+        for(int i=0; i<100 && dispatch.count.get() == c0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue("parked EDT not woken up", dispatch.count.get() > c0);
+        stop(edt);
+    }
+
+    @Test
+    public void testConcurrentProducerLatency() throws InterruptedException {
+        final ParkingEDTUtil edt = new ParkingEDTUtil(Thread.currentThread().getThreadGroup(), "testConcurrentProducerLatency", new DispatchCounter());
+        edt.start();
+        final AtomicInteger count = new AtomicInteger(0);
+        final Runnable task = new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+            } };
+        final int perProducer = iterations / producerCount;
+        final Thread[] producers = new Thread[producerCount];
+        final long t0 = System.nanoTime();
+        for(int p=0; p<producerCount; p++) {
+            producers[p] = new Thread(new Runnable() {
+                public void run() {
+                    for(int i=0; i<perProducer; i++) {
+                        edt.invoke(0 == i % 100, task);
+                    }
+                } }, "Producer-"+p);
+            producers[p].start();
+        }
+        for(int p=0; p<producerCount; p++) {
+            producers[p].join();
+        }
+        edt.waitUntilIdle(); // returns after the last task has finished
+        final long t1 = System.nanoTime();
+        Assert.assertEquals(perProducer*producerCount, count.get());
+        Assert.assertEquals(0, edt.getQueueLength());
+        System.err.println("Tasks "+edt.getTaskCount()+" in "+(t1-t0)/1000000+" ms, batches "+edt.getBatchCount()+
+                           ", max queue length "+edt.getMaxQueueLength()+
+                           ", latency avg "+edt.getAverageLatency()/1000+" us, max "+edt.getMaxLatency()/1000+" us");
+        stop(edt);
+    }
+
+    static void stop(ParkingEDTUtil edt) {
+        edt.invokeStop(new Runnable() { public void run() { } } );
+        edt.waitUntilStopped();
+        Assert.assertFalse(edt.isRunning());
+    }
+
+    public static void main(String args[]) throws IOException {
+        for(int i=0; i<args.length; i++) {
+            if(args[i].equals("-iterations")) {
+                i++;
+                try {
+                    iterations = Integer.parseInt(args[i]);
+                } catch (Exception ex) { ex.printStackTrace(); }
+            }
+        }
+        org.junit.runner.JUnitCore.main(TestParkingEDTUtilNOUI.class.getName());
+    }
+}